@@ -0,0 +1,45 @@
+package com.darkidiot.redis.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口: 参数与 org.openjdk.jmh.Main 一致, 未指定 -rf/-rff 时结果默认以JSON格式写入 jmh-result.json,
+ * 便于在版本之间对比回归.
+ * <p>使用进程内的jedis-mock时跳过依赖Lua脚本的用例({@link #SCRIPTING_BENCHMARKS}), 它们需要 -Dbenchmark.redis.external=true.</p>
+ *
+ * @author darkidiot
+ */
+public final class BenchmarkRunner {
+
+    static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    /**
+     * jedis-mock不支持EVAL, 这些用例只压测真实redis
+     */
+    static final String[] SCRIPTING_BENCHMARKS = {LockBenchmark.class.getSimpleName()};
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmdOptions);
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmdOptions.getResult().hasValue()) {
+            builder.result(DEFAULT_RESULT_FILE);
+        }
+        if (!EmbeddedRedis.external()) {
+            for (String benchmark : SCRIPTING_BENCHMARKS) {
+                builder.exclude(benchmark);
+                System.err.println("# Skip " + benchmark + ": it requires Lua scripting, run with -D" + EmbeddedRedis.EXTERNAL_PROPERTY + "=true against a real redis.");
+            }
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,73 @@
+package com.darkidiot.redis.benchmark;
+
+import com.github.fppt.jedismock.RedisServer;
+
+import java.io.IOException;
+
+/**
+ * 进程内Redis替身(jedis-mock), 端口与 redis.properties 中的 redis.port 保持一致.
+ * <ul>
+ * <li>由各基准测试的 @Setup/@TearDown 成对调用, 按引用计数在同一JVM内只启动一次, 最后一个使用者释放时关闭.</li>
+ * <li>-Dbenchmark.redis.external=true 时不启动替身, 直接压测配置文件指向的真实redis.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+public final class EmbeddedRedis {
+
+    static final int PORT = 16379;
+    /**
+     * 为true时压测配置文件指向的真实redis
+     */
+    static final String EXTERNAL_PROPERTY = "benchmark.redis.external";
+    /**
+     * jedis-mock关闭后仍残留一个非守护线程, 让fork出的JVM在基准结束后立即退出, 而不是等待JMH默认的30秒
+     */
+    static final String FORK_JVM_ARGS = "-Djmh.shutdownTimeout=0";
+
+    private static RedisServer server;
+    private static int references;
+
+    private EmbeddedRedis() {
+    }
+
+    public static synchronized void start() {
+        if (references++ > 0 || external()) {
+            return;
+        }
+        try {
+            server = RedisServer.newRedisServer(PORT).start();
+        } catch (IOException e) {
+            references--;
+            throw new IllegalStateException("Start embedded redis on port " + PORT + " failure.", e);
+        }
+    }
+
+    static boolean external() {
+        return Boolean.getBoolean(EXTERNAL_PROPERTY);
+    }
+
+    /**
+     * jedis-mock不支持EVAL(收到后不再应答), 依赖Lua脚本的基准测试在替身上立即失败而不是一直阻塞
+     */
+    static void requireScripting(String benchmark) {
+        if (!external()) {
+            throw new IllegalStateException(benchmark + " requires Lua scripting, which the embedded jedis-mock does not support. "
+                    + "Run it against a real redis with -D" + EXTERNAL_PROPERTY + "=true.");
+        }
+    }
+
+    /**
+     * 关闭监听端口与客户端连接
+     */
+    public static synchronized void stop() {
+        if (--references > 0 || server == null) {
+            return;
+        }
+        try {
+            server.stop();
+        } catch (IOException ignore) {
+        }
+        server = null;
+    }
+}
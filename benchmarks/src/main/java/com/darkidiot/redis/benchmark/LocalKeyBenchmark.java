@@ -0,0 +1,134 @@
+package com.darkidiot.redis.benchmark;
+
+import com.darkidiot.redis.LocalMap;
+import com.darkidiot.redis.codec.Codec;
+import com.darkidiot.redis.codec.Codecs;
+import com.darkidiot.redis.local.LocalKeys;
+import com.darkidiot.redis.util.ByteObjectConvertUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地缓存key路径对比: 旧实现(Java序列化+hex拼接字符串) vs LocalKeys(直接使用key对象)
+ * <p>
+ * 配合 -prof gc 查看每次操作的分配字节数(gc.alloc.rate.norm).
+ *
+ * @author darkidiot
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalKeyBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final String GROUP = "benchmark";
+
+    @Param({"Integer", "Long", "String", "Pojo"})
+    public String keyType;
+
+    private Serializable[] keys;
+    private int index;
+
+    private final Codec<Serializable> codec = Codecs.forName(Codecs.COMPACT);
+    private final Map<Object, String> legacyMap = new ConcurrentHashMap<>();
+    private LocalMap<Serializable, String> localMap;
+
+    @Setup
+    public void setup() {
+        keys = new Serializable[SIZE];
+        localMap = new LocalMap<>(GROUP, 0, SIZE * 2, codec);
+        for (int i = 0; i < SIZE; i++) {
+            keys[i] = createKey(i);
+            legacyMap.put(legacyKey(keys[i]), "value" + i);
+            localMap.put(keys[i], "value" + i);
+        }
+    }
+
+    private Serializable createKey(int i) {
+        switch (keyType) {
+            case "Integer":
+                return i;
+            case "Long":
+                return (long) i << 20;
+            case "String":
+                return "user:profile:" + i;
+            default:
+                return new PojoKey(i, "tenant-" + (i & 7));
+        }
+    }
+
+    private Serializable nextKey() {
+        return keys[index++ & (SIZE - 1)];
+    }
+
+    /**
+     * 旧版LocalMap.getUniqueKey的实现
+     */
+    private static String legacyKey(Object key) {
+        return new StringBuilder(GROUP).append('#').append(ByteObjectConvertUtil.getBytesFromObject(key)).toString();
+    }
+
+    @Benchmark
+    public Object legacyKeyOnly() {
+        return legacyKey(nextKey());
+    }
+
+    @Benchmark
+    public Object localKeyOnly() {
+        return LocalKeys.of(nextKey(), codec);
+    }
+
+    @Benchmark
+    public String legacyGet() {
+        return legacyMap.get(legacyKey(nextKey()));
+    }
+
+    @Benchmark
+    public String localMapGet() {
+        return localMap.get(nextKey());
+    }
+
+    public static final class PojoKey implements Serializable {
+        private final int id;
+        private final String tenant;
+
+        PojoKey(int id, String tenant) {
+            this.id = id;
+            this.tenant = tenant;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PojoKey)) {
+                return false;
+            }
+            PojoKey other = (PojoKey) o;
+            return id == other.id && tenant.equals(other.tenant);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id + tenant.hashCode();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.darkidiot.redis.benchmark;
+
+import com.darkidiot.redis.LocalMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地缓存命中/未命中路径(多线程共享同一个LocalMap)
+ *
+ * @author darkidiot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class LocalMapBenchmark {
+
+    private static final int SIZE = 4096;
+
+    private LocalMap<Integer, Payload> localMap;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+
+        int next() {
+            return index++ & (SIZE - 1);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        localMap = new LocalMap<>("benchmark-local", 0, SIZE * 2, null);
+        for (int i = 0; i < SIZE; i++) {
+            localMap.put(i, Payload.of(i));
+        }
+    }
+
+    @Benchmark
+    public Payload hit(Cursor cursor) {
+        return localMap.get(cursor.next());
+    }
+
+    @Benchmark
+    public Payload miss(Cursor cursor) {
+        return localMap.get(SIZE + cursor.next());
+    }
+}
@@ -0,0 +1,135 @@
+package com.darkidiot.redis.benchmark;
+
+import com.darkidiot.redis.exception.RedisException;
+import com.darkidiot.redis.lock.Lock;
+import com.darkidiot.redis.lock.RedisLock;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分布式锁 lock+unlock 往返耗时
+ * <ul>
+ * <li>uncontended: 每个线程使用独立的锁名称.</li>
+ * <li>contended: 4个线程争抢同一个锁名称, 包含退避等待时间; 释放时发现锁已被抢占计入 robbed 计数, 不中断测量.</li>
+ * <li>FairRedisLock 按排队顺序获得锁, 争用测试中体现排队与唤醒的开销.</li>
+ * <li>加锁与释放使用Lua脚本, jedis-mock不支持EVAL: 未指定 -Dbenchmark.redis.external=true 时{@link BenchmarkRunner}跳过本用例, 单独指定时在Setup中立即失败.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = EmbeddedRedis.FORK_JVM_ARGS)
+public class LockBenchmark {
+
+    private static final AtomicInteger THREAD_SEQ = new AtomicInteger();
+
+    /**
+     * 锁实例保存加锁标识, 因此每个线程持有自己的实例
+     */
+    @State(Scope.Thread)
+    public static class UncontendedLock {
+
+        @Param({"simple", "strict", "rigorous", "fair"})
+        public String lockType;
+
+        Lock lock;
+
+        @Setup
+        public void setup() {
+            EmbeddedRedis.requireScripting(LockBenchmark.class.getSimpleName());
+            EmbeddedRedis.start();
+            lock = createLock(lockType, "benchmark-lock-" + THREAD_SEQ.incrementAndGet());
+        }
+
+        @TearDown
+        public void tearDown() {
+            EmbeddedRedis.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ContendedLock {
+
+        @Param({"simple", "strict", "rigorous", "fair"})
+        public String contendedLockType;
+
+        Lock lock;
+
+        @Setup
+        public void setup() {
+            EmbeddedRedis.requireScripting(LockBenchmark.class.getSimpleName());
+            EmbeddedRedis.start();
+            lock = createLock(contendedLockType, "benchmark-lock-shared");
+        }
+
+        @TearDown
+        public void tearDown() {
+            EmbeddedRedis.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ReleaseCounters {
+        public long released;
+        public long robbed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            released = 0;
+            robbed = 0;
+        }
+    }
+
+    static Lock createLock(String lockType, String name) {
+        switch (lockType) {
+            case "strict":
+                return RedisLock.useStrictRedisLock(name);
+            case "rigorous":
+                return RedisLock.useRigorousRedisLock(name);
+            case "fair":
+                return RedisLock.useFairRedisLock(name);
+            default:
+                return RedisLock.useSimpleRedisLock(name);
+        }
+    }
+
+    @Benchmark
+    public boolean uncontended(UncontendedLock state) {
+        state.lock.lock();
+        return state.lock.unlock();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean contended(ContendedLock state, ReleaseCounters counters) {
+        state.lock.lock();
+        try {
+            boolean released = state.lock.unlock();
+            counters.released++;
+            return released;
+        } catch (RedisException e) {
+            counters.robbed++;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.darkidiot.redis.benchmark;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试使用的典型业务对象(数值、字符串、集合混合)
+ *
+ * @author darkidiot
+ */
+public class Payload implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long id;
+    private String name;
+    private int age;
+    private boolean vip;
+    private List<String> tags;
+
+    public static Payload of(int i) {
+        Payload payload = new Payload();
+        payload.id = 100000L + i;
+        payload.name = "user-" + i;
+        payload.age = 18 + (i & 31);
+        payload.vip = (i & 1) == 0;
+        payload.tags = new ArrayList<>();
+        for (int j = 0; j < 4; j++) {
+            payload.tags.add("tag-" + ((i + j) & 15));
+        }
+        return payload;
+    }
+}
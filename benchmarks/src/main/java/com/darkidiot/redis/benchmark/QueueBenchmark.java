@@ -0,0 +1,71 @@
+package com.darkidiot.redis.benchmark;
+
+import com.darkidiot.redis.queue.Queue;
+import com.darkidiot.redis.queue.RedisQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 队列 enqueue+dequeue 往返耗时(dequeue为阻塞操作, 因此与enqueue成对测量, 队列长度保持稳定)
+ *
+ * @author darkidiot
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = EmbeddedRedis.FORK_JVM_ARGS)
+public class QueueBenchmark {
+
+    @Param({"simpleFifo", "simplePriority", "roughPriority", "perfectPriority"})
+    public String queueType;
+
+    private Queue<Payload> queue;
+    private Payload[] payload;
+
+    @Setup
+    public void setup() {
+        EmbeddedRedis.start();
+        String name = "benchmark-queue-" + queueType;
+        switch (queueType) {
+            case "simplePriority":
+                queue = RedisQueue.useSimplePriorityQueue(name);
+                break;
+            case "roughPriority":
+                queue = RedisQueue.useRoughPriorityQueue(name);
+                break;
+            case "perfectPriority":
+                queue = RedisQueue.usePerfectPriorityQueue(name);
+                break;
+            default:
+                queue = RedisQueue.useSimpleFifoQueue(name);
+                break;
+        }
+        queue.clear();
+        payload = new Payload[]{Payload.of(7)};
+    }
+
+    @TearDown
+    public void tearDown() {
+        EmbeddedRedis.stop();
+    }
+
+    @Benchmark
+    public Payload enqueueDequeue() {
+        queue.enqueue(payload);
+        return queue.dequeue();
+    }
+}
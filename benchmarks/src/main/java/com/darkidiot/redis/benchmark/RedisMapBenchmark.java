@@ -0,0 +1,84 @@
+package com.darkidiot.redis.benchmark;
+
+import com.darkidiot.redis.IRedisMap;
+import com.darkidiot.redis.Redis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisMap 远程读写路径: get / put / getList(一次HMGET)
+ *
+ * @author darkidiot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = EmbeddedRedis.FORK_JVM_ARGS)
+public class RedisMapBenchmark {
+
+    private static final int SIZE = 1024;
+
+    @Param({"16"})
+    public int batch;
+
+    private IRedisMap<Integer, Payload> cache;
+    private Payload[] values;
+    private List<Integer> batchKeys;
+    private int index;
+
+    @Setup
+    public void setup() {
+        EmbeddedRedis.start();
+        cache = Redis.create().setGroupName("benchmark-map").build();
+        values = new Payload[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = Payload.of(i);
+            cache.put(i, values[i]);
+        }
+        batchKeys = new ArrayList<>(batch);
+        for (int i = 0; i < batch; i++) {
+            batchKeys.add(i * (SIZE / batch));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        EmbeddedRedis.stop();
+    }
+
+    private int nextIndex() {
+        return index++ & (SIZE - 1);
+    }
+
+    @Benchmark
+    public Payload get() {
+        return cache.get(nextIndex());
+    }
+
+    @Benchmark
+    public void put() {
+        int i = nextIndex();
+        cache.put(i, values[i]);
+    }
+
+    @Benchmark
+    public List<Payload> getList() {
+        return cache.getList(batchKeys);
+    }
+}
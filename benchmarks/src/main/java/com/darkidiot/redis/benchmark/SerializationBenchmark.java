@@ -0,0 +1,64 @@
+package com.darkidiot.redis.benchmark;
+
+import com.darkidiot.redis.codec.Codec;
+import com.darkidiot.redis.codec.Codecs;
+import com.darkidiot.redis.util.ByteObjectConvertUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 序列化路径: ByteObjectConvertUtil(Java序列化+hex) 与 compact codec 的编解码对比
+ *
+ * @author darkidiot
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private final Codec<Object> compact = Codecs.compact();
+
+    private Payload payload;
+    private String legacyEncoded;
+    private byte[] compactEncoded;
+
+    @Setup
+    public void setup() {
+        payload = Payload.of(42);
+        legacyEncoded = ByteObjectConvertUtil.getBytesFromObject(payload);
+        compactEncoded = compact.encode(payload);
+    }
+
+    @Benchmark
+    public String legacyEncode() {
+        return ByteObjectConvertUtil.getBytesFromObject(payload);
+    }
+
+    @Benchmark
+    public Object legacyDecode() {
+        return ByteObjectConvertUtil.getObjectFromBytes(legacyEncoded);
+    }
+
+    @Benchmark
+    public byte[] compactEncode() {
+        return compact.encode(payload);
+    }
+
+    @Benchmark
+    public Object compactDecode() {
+        return compact.decode(compactEncoded);
+    }
+}
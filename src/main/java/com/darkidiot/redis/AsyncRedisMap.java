@@ -0,0 +1,291 @@
+package com.darkidiot.redis;
+
+import com.darkidiot.redis.async.AsyncRedisClient;
+import com.darkidiot.redis.codec.Codec;
+import com.darkidiot.redis.common.Method;
+import com.darkidiot.redis.exception.RedisException;
+import com.darkidiot.redis.guard.PenetrationGuard;
+import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.subpub.LocalCacheSynchronizedCenter;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.util.SafeEncoder;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.darkidiot.redis.async.AsyncRedisClient.check;
+import static com.darkidiot.redis.async.AsyncRedisClient.command;
+
+/**
+ * RedisMap的异步版本(与RedisMap共用存储结构: 分片、字段过期索引均一致, 可混合使用)
+ * <ul>
+ * <li>通过{@link AsyncRedisClient}的多路复用连接发送命令, 调用方线程不阻塞也不占用连接池, 适合单个请求并发发起大量缓存查询.</li>
+ * <li>不读取本地缓存; 开启本地缓存时写操作完成后失效本进程及其他节点的本地缓存.</li>
+ * <li>开启防穿透保护时写入成功后将key加入布隆过滤器并删除其墓碑(与同步写入一致).</li>
+ * <li>不支持key验证、回源加载与集群模式.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+public class AsyncRedisMap<K extends Serializable, V extends Serializable> {
+
+    private static final byte[] MULTI = Command.MULTI.raw;
+    private static final byte[] EXEC = Command.EXEC.raw;
+    private static final byte[] HGET = Command.HGET.raw;
+    private static final byte[] HMGET = Command.HMGET.raw;
+    private static final byte[] HSET = Command.HSET.raw;
+    private static final byte[] HDEL = Command.HDEL.raw;
+    private static final byte[] HEXISTS = Command.HEXISTS.raw;
+    private static final byte[] ZADD = Command.ZADD.raw;
+    private static final byte[] ZREM = Command.ZREM.raw;
+    private static final byte[] ZSCORE = Command.ZSCORE.raw;
+
+    private final String name;
+    private final String service;
+    private final IJedis jedis;
+    private final AsyncRedisClient client;
+    /**
+     * 提供与同步RedisMap一致的分片与编解码
+     */
+    private final RedisMap<K, V> layout;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final boolean openLocalCache;
+    /**
+     * 与同步缓存共用的防穿透保护, 未开启时为null
+     */
+    private final PenetrationGuard guard;
+
+    public AsyncRedisMap(String name, IJedis jedis, AsyncRedisClient client, Codec<K> keyCodec, Codec<V> valueCodec) {
+        this.name = name;
+        this.jedis = jedis;
+        this.client = client;
+        this.layout = new RedisMap<>(name, jedis, keyCodec, valueCodec);
+        this.keyCodec = layout.getKeyCodec();
+        this.valueCodec = layout.getValueCodec();
+        this.service = jedis.baseConfig().getServerName();
+        this.openLocalCache = Boolean.TRUE.equals(jedis.baseConfig().getOpenLocalCache());
+        this.guard = PenetrationGuard.of(name, jedis, this.keyCodec);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 值, 不存在或已过期时为null
+     */
+    public ListenableFuture<V> get(K key) {
+        if (key == null) {
+            return Futures.immediateFuture(null);
+        }
+        byte[] field = keyCodec.encode(key);
+        RedisMap.Shard shard = layout.shardOf(field);
+        List<byte[][]> commands = Arrays.asList(command(HGET, shard.hashKey, field), command(ZSCORE, shard.expiryKey, field));
+        return Futures.transform(client.submit(shard.hashKey, commands), new Function<List<Object>, V>() {
+            @Override
+            public V apply(List<Object> replies) {
+                byte[] value = (byte[]) check(replies.get(0));
+                return value == null || expired(replies.get(1), System.currentTimeMillis()) ? null : valueCodec.decode(value);
+            }
+        });
+    }
+
+    /**
+     * 每个分片一次HMGET(附带ZSCORE), 各分片并发执行
+     *
+     * @return 存在的key -> 值(按keys的顺序)
+     */
+    public ListenableFuture<Map<K, V>> getAll(Collection<K> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return Futures.<Map<K, V>>immediateFuture(new LinkedHashMap<K, V>());
+        }
+        final List<K> keyList = new ArrayList<>(keys.size());
+        final Map<RedisMap.Shard, List<Integer>> groups = new LinkedHashMap<>();
+        final List<byte[]> fields = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            if (key == null) {
+                continue;
+            }
+            byte[] field = keyCodec.encode(key);
+            RedisMap.Shard shard = layout.shardOf(field);
+            List<Integer> positions = groups.get(shard);
+            if (positions == null) {
+                positions = new ArrayList<>();
+                groups.put(shard, positions);
+            }
+            positions.add(keyList.size());
+            keyList.add(key);
+            fields.add(field);
+        }
+        final List<ListenableFuture<List<Object>>> futures = new ArrayList<>(groups.size());
+        for (Map.Entry<RedisMap.Shard, List<Integer>> group : groups.entrySet()) {
+            RedisMap.Shard shard = group.getKey();
+            List<Integer> positions = group.getValue();
+            byte[][] hmget = new byte[positions.size() + 2][];
+            hmget[0] = HMGET;
+            hmget[1] = shard.hashKey;
+            List<byte[][]> commands = new ArrayList<>(positions.size() + 1);
+            commands.add(hmget);
+            for (int i = 0; i < positions.size(); i++) {
+                byte[] field = fields.get(positions.get(i));
+                hmget[i + 2] = field;
+                commands.add(command(ZSCORE, shard.expiryKey, field));
+            }
+            futures.add(client.submit(shard.hashKey, commands));
+        }
+        return Futures.transform(Futures.allAsList(futures), new Function<List<List<Object>>, Map<K, V>>() {
+            @Override
+            public Map<K, V> apply(List<List<Object>> results) {
+                long now = System.currentTimeMillis();
+                byte[][] values = new byte[keyList.size()][];
+                int g = 0;
+                for (List<Integer> positions : groups.values()) {
+                    List<Object> replies = results.get(g++);
+                    List<?> shardValues = (List<?>) check(replies.get(0));
+                    for (int i = 0; i < positions.size(); i++) {
+                        if (!expired(replies.get(i + 1), now)) {
+                            values[positions.get(i)] = (byte[]) shardValues.get(i);
+                        }
+                    }
+                }
+                Map<K, V> result = new LinkedHashMap<>();
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] != null) {
+                        result.put(keyList.get(i), valueCodec.decode(values[i]));
+                    }
+                }
+                return result;
+            }
+        });
+    }
+
+    /**
+     * 写入并清除字段原有的过期时间
+     */
+    public ListenableFuture<Void> put(K key, V value) {
+        return write(key, value, null);
+    }
+
+    /**
+     * 写入并指定过期时间
+     */
+    public ListenableFuture<Void> put(K key, V value, long ttl, TimeUnit unit) {
+        if (ttl <= 0) {
+            return Futures.transform(remove(key), new Function<Boolean, Void>() {
+                @Override
+                public Void apply(Boolean removed) {
+                    return null;
+                }
+            });
+        }
+        return write(key, value, System.currentTimeMillis() + unit.toMillis(ttl));
+    }
+
+    /**
+     * @return key是否存在并被删除
+     */
+    public ListenableFuture<Boolean> remove(K key) {
+        if (key == null) {
+            return Futures.immediateFuture(false);
+        }
+        final byte[] field = keyCodec.encode(key);
+        RedisMap.Shard shard = layout.shardOf(field);
+        List<byte[][]> commands = Arrays.asList(command(MULTI), command(HDEL, shard.hashKey, field), command(ZREM, shard.expiryKey, field), command(EXEC));
+        return Futures.transform(client.submit(shard.hashKey, commands), new Function<List<Object>, Boolean>() {
+            @Override
+            public Boolean apply(List<Object> replies) {
+                List<?> results = exec(replies);
+                invalidate(Method.remove, field);
+                return Long.valueOf(1L).equals(check(results.get(0)));
+            }
+        });
+    }
+
+    /**
+     * @return key是否存在(已过期视为不存在)
+     */
+    public ListenableFuture<Boolean> contains(K key) {
+        if (key == null) {
+            return Futures.immediateFuture(false);
+        }
+        byte[] field = keyCodec.encode(key);
+        RedisMap.Shard shard = layout.shardOf(field);
+        List<byte[][]> commands = Arrays.asList(command(HEXISTS, shard.hashKey, field), command(ZSCORE, shard.expiryKey, field));
+        return Futures.transform(client.submit(shard.hashKey, commands), new Function<List<Object>, Boolean>() {
+            @Override
+            public Boolean apply(List<Object> replies) {
+                return Long.valueOf(1L).equals(check(replies.get(0))) && !expired(replies.get(1), System.currentTimeMillis());
+            }
+        });
+    }
+
+    /**
+     * 在MULTI/EXEC中写入字段并维护过期索引(与RedisMap一致)
+     */
+    private ListenableFuture<Void> write(K key, V value, Long expireAt) {
+        if (key == null) {
+            return Futures.immediateFuture(null);
+        }
+        final byte[] field = keyCodec.encode(key);
+        RedisMap.Shard shard = layout.shardOf(field);
+        byte[][] expiry = expireAt == null ? command(ZREM, shard.expiryKey, field)
+                : command(ZADD, shard.expiryKey, SafeEncoder.encode(String.valueOf(expireAt)), field);
+        List<byte[][]> commands = Arrays.asList(command(MULTI), command(HSET, shard.hashKey, field, valueCodec.encode(value)), expiry, command(EXEC));
+        if (expireAt != null) {
+            shard.expiryAdded();
+            FieldExpiry.register(shard.name, jedis, shard.hashKey, shard.expiryKey);
+        }
+        return Futures.transform(client.submit(shard.hashKey, commands), new Function<List<Object>, Void>() {
+            @Override
+            public Void apply(List<Object> replies) {
+                exec(replies);
+                if (guard != null) {
+                    guard.onWrite(Collections.singletonList(field), client);
+                }
+                invalidate(Method.put, field);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @return EXEC的结果(事务中命令的应答)
+     */
+    private List<?> exec(List<Object> replies) {
+        for (Object reply : replies) {
+            check(reply);
+        }
+        List<?> results = (List<?>) replies.get(replies.size() - 1);
+        if (results == null) {
+            throw new RedisException("AsyncRedisMap[ " + name + " ] transaction aborted.");
+        }
+        return results;
+    }
+
+    private void invalidate(Method method, byte[] field) {
+        if (openLocalCache) {
+            List<byte[]> keys = Collections.singletonList(field);
+            LocalCacheSynchronizedCenter.evictLocal(name, keys);
+            LocalCacheSynchronizedCenter.publish(jedis, service, name, method, keys);
+        }
+    }
+
+    /**
+     * @param score ZSCORE的应答
+     */
+    private static boolean expired(Object score, long now) {
+        Object expireAt = check(score);
+        return expireAt != null && FieldExpiry.expired(Double.valueOf(SafeEncoder.encode((byte[]) expireAt)), now);
+    }
+}
@@ -0,0 +1,15 @@
+package com.darkidiot.redis;
+
+/**
+ * 遍历缓存条目的回调({@link IRedisMap#forEach(int, EntryConsumer)})
+ *
+ * @author darkidiot
+ */
+public interface EntryConsumer<K, V> {
+
+    /**
+     * @param key   条目的key
+     * @param value 条目的值
+     */
+    void accept(K key, V value);
+}
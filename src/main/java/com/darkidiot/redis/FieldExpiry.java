@@ -0,0 +1,137 @@
+package com.darkidiot.redis;
+
+import com.darkidiot.redis.config.RedisInitParam;
+import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.util.CommonUtil.Callback;
+import com.darkidiot.redis.util.LuaScript;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.util.SafeEncoder;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static com.darkidiot.redis.common.JedisType.WRITE;
+import static com.darkidiot.redis.config.RedisPropertyConstants.DEFAULT_EXPIRE_REAP_BATCH;
+import static com.darkidiot.redis.config.RedisPropertyConstants.DEFAULT_EXPIRE_REAP_SECONDS;
+
+/**
+ * RedisMap的字段过期索引
+ * <ul>
+ * <li>每个缓存分组(拆分时为每个分片)的hash(name)配套一个有序集合({name}:ttl), 成员为字段, 分值为过期时间戳(毫秒);
+ * hash tag保证两者在集群模式下位于同一个slot.</li>
+ * <li>写操作以MULTI/EXEC同时修改两个key: 普通写入清除字段的过期时间, 带过期时间的写入记录过期时间, 删除同时删除过期时间.</li>
+ * <li>读操作在同一个pipeline中附带ZSCORE, 过滤已过期但尚未清理的字段, 仍然只有一次往返;
+ * 过期索引确认为空时不附带ZSCORE, 每隔{@link #INDEX_CHECK_MILLIS}在读取的pipeline中附带一次EXISTS重新确认.</li>
+ * <li>写入过带过期时间字段、或读取时发现过期索引已存在(由其他节点写入)的分组由后台线程定期执行Lua清理脚本, 每次最多删除batch个已过期字段.</li>
+ * <li>过期时间使用客户端时钟, 各节点的时钟偏差会直接体现为过期时间的偏差.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class FieldExpiry {
+
+    /**
+     * KEYS: hash, zset; ARGV: now, batch 返回删除的字段数
+     */
+    private static final LuaScript REAP = new LuaScript(
+            "local fields = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])\n" +
+            "for i = 1, #fields do\n" +
+            "  redis.call('HDEL', KEYS[1], fields[i])\n" +
+            "  redis.call('ZREM', KEYS[2], fields[i])\n" +
+            "end\n" +
+            "return #fields");
+
+    /**
+     * 单次清理最多执行的轮数(避免长时间占用清理线程)
+     */
+    private static final int MAX_REAP_ROUNDS = 10;
+
+    /**
+     * 过期索引确认为空的有效期(毫秒): 其他节点写入带过期时间的字段后, 本节点最迟在此之后开始过滤过期字段
+     */
+    static final long INDEX_CHECK_MILLIS = 1000L;
+
+    /**
+     * 已启动清理的分组, key为"服务:分组名"(不同服务可能使用同名的分组)
+     */
+    private static final ConcurrentMap<String, Boolean> REGISTERED = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Thread-RedisMapExpiryReaper");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    static byte[] expiryKey(String name) {
+        return SafeEncoder.encode("{" + name + "}:ttl");
+    }
+
+    /**
+     * @param expireAt 字段的过期时间(ZSCORE结果, 未设置过期时间为null)
+     */
+    static boolean expired(Double expireAt, long now) {
+        return expireAt != null && expireAt <= now;
+    }
+
+    /**
+     * 为缓存分组启动定期清理(重复注册忽略)
+     */
+    static void register(final String name, final IJedis jedis, final byte[] hashKey, final byte[] expiryKey) {
+        RedisInitParam initParam = jedis.baseConfig();
+        String service = initParam == null ? null : initParam.getServerName();
+        if (REGISTERED.putIfAbsent(service + ":" + name, Boolean.TRUE) != null) {
+            return;
+        }
+        int seconds = initParam == null || initParam.getExpireReapSeconds() == null ? DEFAULT_EXPIRE_REAP_SECONDS : initParam.getExpireReapSeconds();
+        final int batch = initParam == null || initParam.getExpireReapBatch() == null ? DEFAULT_EXPIRE_REAP_BATCH : initParam.getExpireReapBatch();
+        reaper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int reaped = reap(jedis, hashKey, expiryKey, batch);
+                    if (reaped > 0) {
+                        log.debug("RedisMap[ {} ] reaped {} expired fields.", name, reaped);
+                    }
+                } catch (Exception e) {
+                    log.warn("RedisMap[ {} ] reap expired fields failure, cause by:{}", name, e.getMessage());
+                }
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+        log.info("RedisMap[ {} ] of service [ {} ] expiry reaper started, every {}s, batch {}.", name, service, seconds, batch);
+    }
+
+    /**
+     * 删除已过期的字段
+     *
+     * @return 删除的字段数
+     */
+    static int reap(IJedis jedis, final byte[] hashKey, final byte[] expiryKey, final int batch) {
+        return jedis.callOriginalJedis(hashKey, new Callback<Integer>() {
+            @Override
+            public Integer call(Jedis jedis) {
+                int total = 0;
+                for (int round = 0; round < MAX_REAP_ROUNDS; round++) {
+                    Long reaped = (Long) REAP.eval(jedis, Arrays.asList(hashKey, expiryKey), Arrays.asList(SafeEncoder.encode(String.valueOf(System.currentTimeMillis())), SafeEncoder.encode(String.valueOf(batch))));
+                    total += reaped.intValue();
+                    if (reaped < batch) {
+                        break;
+                    }
+                }
+                return total;
+            }
+        }, WRITE);
+    }
+}
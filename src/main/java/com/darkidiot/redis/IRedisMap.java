@@ -1,8 +1,14 @@
 package com.darkidiot.redis;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import com.darkidiot.redis.loader.BulkLoader;
+import com.darkidiot.redis.loader.Loader;
 import com.darkidiot.redis.validate.KeyValidation;
 
 
@@ -29,6 +35,15 @@ public interface IRedisMap<K extends Serializable, V extends Serializable> {
 	 * @return
 	 */
 	void put(K key, V value, KeyValidation<K>... validations);
+
+	/**
+	 * 存储并指定过期时间(过期后读取不到, 由后台任务从redis中清理)
+	 * @param key
+	 * @param value
+	 * @param ttl 存活时间
+	 * @param unit 存活时间单位
+	 */
+	void put(K key, V value, long ttl, TimeUnit unit);
 	
 	/**
 	 * 获取缓存中的值
@@ -48,7 +63,7 @@ public interface IRedisMap<K extends Serializable, V extends Serializable> {
 	/**
 	 * 批量获取缓存中的值
 	 * @param keys
-	 * @return
+	 * @return 与keys按位置一一对应的值列表(不存在的key对应null)
 	 */
 	List<V> getList(List<K> keys);
 	
@@ -56,10 +71,43 @@ public interface IRedisMap<K extends Serializable, V extends Serializable> {
 	 * 批量获取缓存中的值
 	 * @param keys
 	 * @param validations key的验证策略
-	 * @return
+	 * @return 与keys按位置一一对应的值列表(不存在或未通过验证的key对应null)
 	 */
 	List<V> getList(List<K> keys, KeyValidation<K>... validations);
 
+	/**
+	 * 批量获取缓存中的值
+	 * @param keys
+	 * @return 命中的key-value(保持keys的顺序,不包含未命中的key)
+	 */
+	Map<K, V> getAll(Collection<K> keys);
+
+	/**
+	 * 批量获取缓存中的值
+	 * @param keys
+	 * @param validations key的验证策略
+	 * @return 命中的key-value(保持keys的顺序,不包含未命中或未通过验证的key)
+	 */
+	Map<K, V> getAll(Collection<K> keys, KeyValidation<K>... validations);
+
+	/**
+	 * 读穿透获取: 未命中时调用loader加载并写入缓存
+	 * <li>同一JVM内对同一个key的并发未命中只加载一次,其余调用方共享结果</li>
+	 * <li>开启[{service}.loader.mutex]时,加载前先获取redis互斥锁并再次检查缓存,保证多个节点中只有一个加载</li>
+	 * @param key
+	 * @param loader 加载器(返回null不写入缓存)
+	 * @return
+	 */
+	V get(K key, Loader<K, V> loader);
+
+	/**
+	 * 批量读穿透获取: 未命中的key合并为一次批量加载并写入缓存(同一JVM内正在加载的key直接共享结果)
+	 * @param keys
+	 * @param loader 批量加载器
+	 * @return 命中或加载到的key-value(保持keys的顺序)
+	 */
+	Map<K, V> getAll(Collection<K> keys, BulkLoader<K, V> loader);
+
 	/**
 	 * 从缓存中移除指定key值
 	 * @param key
@@ -89,11 +137,74 @@ public interface IRedisMap<K extends Serializable, V extends Serializable> {
 	boolean contains(K key, KeyValidation<K>... validations);
 
 	/**
-	 * 当前缓存大小
+	 * 批量存储(按配置的batch.size分批写入)
+	 * @param entries
+	 * @return 每个key的写入结果(未通过验证的key为false)
+	 */
+	Map<K, Boolean> putAll(Map<K, V> entries);
+
+	/**
+	 * 批量存储(按配置的batch.size分批写入)
+	 * @param entries
+	 * @param validations key的验证策略
+	 * @return 每个key的写入结果(未通过验证的key为false)
+	 */
+	Map<K, Boolean> putAll(Map<K, V> entries, KeyValidation<K>... validations);
+
+	/**
+	 * 批量移除(按配置的batch.size分批pipeline删除)
+	 * @param keys
+	 * @return 每个key是否被移除(不存在或未通过验证的key为false)
+	 */
+	Map<K, Boolean> removeAll(Collection<K> keys);
+
+	/**
+	 * 批量移除(按配置的batch.size分批pipeline删除)
+	 * @param keys
+	 * @param validations key的验证策略
+	 * @return 每个key是否被移除(不存在或未通过验证的key为false)
+	 */
+	Map<K, Boolean> removeAll(Collection<K> keys, KeyValidation<K>... validations);
+
+	/**
+	 * 批量判断是否包含指定的key值(按配置的batch.size分批pipeline查询)
+	 * @param keys
+	 * @return 每个key是否存在(未通过验证的key为false)
+	 */
+	Map<K, Boolean> containsAll(Collection<K> keys);
+
+	/**
+	 * 批量判断是否包含指定的key值(按配置的batch.size分批pipeline查询)
+	 * @param keys
+	 * @param validations key的验证策略
+	 * @return 每个key是否存在(未通过验证的key为false)
+	 */
+	Map<K, Boolean> containsAll(Collection<K> keys, KeyValidation<K>... validations);
+
+	/**
+	 * 当前缓存大小(RedisMap为各分片HLEN之和, 不传输条目内容)
 	 * @return
 	 */
 	int size();
 
+	/**
+	 * 流式遍历缓存条目(RedisMap基于HSCAN), 每次只在内存中保留一批条目, 值在迭代时才解码
+	 * <ul>
+	 * <li>弱一致: 遍历期间一直存在的条目至少返回一次, 遍历期间写入或删除的条目可能返回也可能不返回, 极少数条目可能重复返回.</li>
+	 * <li>不支持remove.</li>
+	 * </ul>
+	 * @param batch 每批条目数(HSCAN的COUNT提示)
+	 * @return
+	 */
+	Iterator<Map.Entry<K, V>> scan(int batch);
+
+	/**
+	 * 流式遍历缓存条目, 语义同{@link #scan(int)}
+	 * @param batch 每批条目数
+	 * @param consumer 条目回调
+	 */
+	void forEach(int batch, EntryConsumer<K, V> consumer);
+
 	/**
 	 * 获取当前map的名称
 	 * @return
@@ -1,63 +1,70 @@
 package com.darkidiot.redis;
 
 import java.io.Serializable;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.darkidiot.redis.codec.Codec;
+import com.darkidiot.redis.codec.Codecs;
+import com.darkidiot.redis.loader.BulkLoader;
+import com.darkidiot.redis.loader.Loader;
+import com.darkidiot.redis.loader.SingleFlight;
+import com.darkidiot.redis.local.BoundedLocalCache;
+import com.darkidiot.redis.local.LocalKeys;
 import com.darkidiot.redis.validate.KeyValidation;
-import com.darkidiot.redis.util.ByteObjectConvertUtil;
 import com.darkidiot.redis.validate.NopValidation;
 
 import lombok.extern.slf4j.Slf4j;
 
+import static com.darkidiot.redis.config.RedisPropertyConstants.DEFAULT_LOCAL_CACHE_MAX_SIZE;
+
 @SuppressWarnings("unchecked")
 @Slf4j
 public class LocalMap<K extends Serializable, V extends Serializable> implements IRedisMap<K, V> {
 
-    //本地缓存
-    private static Map<Object, CacheEntry> cacheMap = new ConcurrentHashMap<Object, CacheEntry>();
-    private static final String GROUP_SEP = "#";
-    /**
-     * 缓存定时清除器
-     */
-    private static Timer timer = new Timer("LocalCacheTimer", true);
+    //本地缓存(每个分组独立, 有界W-TinyLFU), 值为V或墓碑
+    private final BoundedLocalCache<Object, Object> cache;
     //缓存名称
     private String name;
     //缓存失效时间，单位秒
     private long expire = 0;
+    //最大条目数
+    private long maximumSize;
+    //key编解码器(用于解析缓存同步消息中的key, 以及无法直接作为本地key的类型)
+    private Codec<K> keyCodec;
     //key验证:空操作
     private final KeyValidation<K> nop_validation = new NopValidation<K>();
+    //预先构建的验证数组(避免单key操作每次创建可变参数数组)
+    @SuppressWarnings("unchecked")
+    private final KeyValidation<K>[] nop_validations = (KeyValidation<K>[]) new KeyValidation<?>[]{nop_validation};
 
     private static final boolean VALIDATION_FOR_LOACL_CACHE = false;
 
+    private final SingleFlight<K, V> flights = new SingleFlight<K, V>();
+
+    //收到失效通知移除的key数(清空分组记为1)
+    private final AtomicLong invalidations = new AtomicLong();
+
     /**
      * 最多容忍50MS延迟
      */
     private static final int WARN_TIME_LIMIT = 50;
 
-    static {
-        // 每10秒清除过期的缓存
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                clearExpiredCache();
-            }
-        }, 1000, 1000 * 10);
-
-        Runtime.getRuntime().addShutdownHook(new Thread() {
-            @Override
-            public void run() {
-                timer.cancel();
-            }
-        });
-    }
+    /**
+     * 进程内各分组共用的本地缓存(按分组名称索引)
+     */
+    private static final ConcurrentMap<String, LocalMap<?, ?>> SHARED = new ConcurrentHashMap<>();
 
     /**
      * 默认永不失效
@@ -65,7 +72,7 @@ public class LocalMap<K extends Serializable, V extends Serializable> implements
      * @param name map缓存名称，必填，不能为空，用于区分各个缓存
      */
     public LocalMap(String name) {
-        this.name = name;
+        this(name, 0);
     }
 
     /**
@@ -73,33 +80,92 @@ public class LocalMap<K extends Serializable, V extends Serializable> implements
      * @param expire 过期时间
      */
     public LocalMap(String name, int expire) {
+        this(name, expire, DEFAULT_LOCAL_CACHE_MAX_SIZE, null);
+    }
+
+    /**
+     * @param name     map缓存名称，必填，不能为空，用于区分各个缓存
+     * @param expire   过期时间
+     * @param keyCodec key编解码器，与对应RedisMap保持一致
+     */
+    public LocalMap(String name, int expire, Codec<K> keyCodec) {
+        this(name, expire, DEFAULT_LOCAL_CACHE_MAX_SIZE, keyCodec);
+    }
+
+    /**
+     * @param name        map缓存名称，必填，不能为空，用于区分各个缓存
+     * @param expire      过期时间
+     * @param maximumSize 最大条目数，超出后按访问频率淘汰
+     * @param keyCodec    key编解码器，与对应RedisMap保持一致
+     */
+    public LocalMap(String name, int expire, long maximumSize, Codec<K> keyCodec) {
         this.name = name;
         this.expire = expire;
+        this.maximumSize = maximumSize;
+        this.keyCodec = keyCodec != null ? keyCodec : Codecs.<K>forName(Codecs.COMPACT);
+        this.cache = new BoundedLocalCache<Object, Object>(maximumSize, 1000L * expire);
     }
 
     /**
-     * 清除过期的缓存
+     * 获取分组共用的本地缓存, 同一分组的多个缓存代理共用同一份本地数据与失效通知(参数以首次创建时为准)
+     *
+     * @param name        map缓存名称，必填，不能为空，用于区分各个缓存
+     * @param expire      过期时间
+     * @param maximumSize 最大条目数，超出后按访问频率淘汰
+     * @param keyCodec    key编解码器，与对应RedisMap保持一致
      */
-    private static void clearExpiredCache() {
-        if (cacheMap != null && cacheMap.size() > 0) {
-            Iterator<Entry<Object, CacheEntry>> iterator = cacheMap.entrySet().iterator();
-            while (iterator.hasNext()) {
-                Entry<Object, CacheEntry> entry = iterator.next();
-                if (entry == null) {
-                    continue;
-                }
-                CacheEntry cacheEntry = entry.getValue();
-                // 缓存已经过期
-                if (cacheEntry == null || cacheEntry.isExpired()) {
-                    iterator.remove();
-                }
+    public static <K extends Serializable, V extends Serializable> LocalMap<K, V> shared(String name, int expire, long maximumSize, Codec<K> keyCodec) {
+        LocalMap<?, ?> localMap = SHARED.get(name);
+        if (localMap == null) {
+            LocalMap<?, ?> created = new LocalMap<K, V>(name, expire, maximumSize, keyCodec);
+            localMap = SHARED.putIfAbsent(name, created);
+            if (localMap == null) {
+                localMap = created;
+            }
+        }
+        return (LocalMap<K, V>) localMap;
+    }
+
+    public Codec<K> getKeyCodec() {
+        return keyCodec;
+    }
+
+    /**
+     * 根据编码后的key移除本地缓存(用于缓存同步)
+     *
+     * @param keyBytes 经keyCodec编码的key
+     */
+    public void removeEncodedKey(byte[] keyBytes) {
+        invalidations.incrementAndGet();
+        remove(keyCodec.decode(keyBytes));
+    }
+
+    /**
+     * 批量移除经keyCodec编码后的键值(用于消费合并后的失效通知)
+     */
+    public void removeEncodedKeys(Collection<byte[]> keyBytes) {
+        List<Object> uniqueKeys = new ArrayList<>(keyBytes.size());
+        for (byte[] bytes : keyBytes) {
+            K key = keyCodec.decode(bytes);
+            if (key != null) {
+                uniqueKeys.add(getUniqueKey(key));
             }
         }
+        invalidations.addAndGet(uniqueKeys.size());
+        cache.removeAll(uniqueKeys);
+    }
+
+    /**
+     * 收到清空通知(或失效通知积压)时清空本地缓存
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        clear();
     }
 
     @Override
     public void put(K key, V value) {
-        put(key, value, nop_validation);
+        put(key, value, nop_validations);
     }
 
     @Override
@@ -116,8 +182,7 @@ public class LocalMap<K extends Serializable, V extends Serializable> implements
 
         long time = System.currentTimeMillis();
         try {
-            long deadline = expire == 0 ? 0 : System.currentTimeMillis() + 1000 * expire;
-            cacheMap.put(getUniqueKey(key), new CacheEntry(value, deadline));
+            cache.put(getUniqueKey(key), value);
         } finally {
             long spend = System.currentTimeMillis() - time;
             if (spend > WARN_TIME_LIMIT) {
@@ -126,9 +191,20 @@ public class LocalMap<K extends Serializable, V extends Serializable> implements
         }
     }
 
+    /**
+     * 写入并指定过期时间(与构造时指定的过期时间同时生效, 以先到者为准)
+     */
+    @Override
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        if (key == null) {
+            return;
+        }
+        cache.put(getUniqueKey(key), new Expiring(value, System.currentTimeMillis() + unit.toMillis(ttl)));
+    }
+
     @Override
     public V get(K key) {
-        return get(key, nop_validation);
+        return get(key, nop_validations);
     }
 
     @Override
@@ -145,11 +221,7 @@ public class LocalMap<K extends Serializable, V extends Serializable> implements
 
         long time = System.currentTimeMillis();
         try {
-            CacheEntry cacheEntry = cacheMap.get(getUniqueKey(key));
-            if (cacheEntry == null) {
-                return null;
-            }
-            return (V) cacheEntry.getValue();
+            return unwrap(cache.get(getUniqueKey(key)));
         } finally {
             long spend = System.currentTimeMillis() - time;
             if (spend > WARN_TIME_LIMIT) {
@@ -169,36 +241,92 @@ public class LocalMap<K extends Serializable, V extends Serializable> implements
             return null;
         }
 
-        if (VALIDATION_FOR_LOACL_CACHE) {
-            for (int i = 0; i < keys.size(); i++) {
-                if (keyValidations(keys.get(i), validations)) {
-                    keys.remove(i);
-                }
-            }
-        }
-
-        if (keys.size() == 0) {
-            return null;
-        }
-
         long time = System.currentTimeMillis();
         try {
-            List<V> list = new ArrayList<V>();
+            List<V> list = new ArrayList<V>(keys.size());
             for (K k : keys) {
-                list.add((V) cacheMap.get(getUniqueKey(k)));
+                list.add(get(k, validations));
             }
             return list;
         } finally {
             long spend = System.currentTimeMillis() - time;
             if (spend > WARN_TIME_LIMIT) {
-                log.warn("LocalMap[ {} ] getList[ {}... ] spend[ {}ms ].", new Object[]{name, keys.get(0), spend});
+                log.warn("LocalMap[ {} ] getList[ {} keys ] spend[ {}ms ].", new Object[]{name, keys.size(), spend});
+            }
+        }
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        return getAll(keys, nop_validation);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<K> keys, KeyValidation<K>... validations) {
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        if (keys == null) {
+            return result;
+        }
+        for (K key : keys) {
+            V value = get(key, validations);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public V get(K key, Loader<K, V> loader) {
+        V value = get(key);
+        if (value != null || key == null || loader == null) {
+            return value;
+        }
+        value = flights.execute(getUniqueKey(key), key, loader);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<K> keys, BulkLoader<K, V> loader) {
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        if (keys == null) {
+            return result;
+        }
+        Map<K, Object> misses = new LinkedHashMap<K, Object>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            } else if (key != null) {
+                misses.put(key, getUniqueKey(key));
             }
         }
+        if (misses.isEmpty() || loader == null) {
+            return result;
+        }
+        Map<K, V> loaded = flights.executeAll(misses, loader);
+        for (Entry<K, V> entry : loaded.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+        Map<K, V> ordered = new LinkedHashMap<K, V>();
+        for (K key : keys) {
+            if (key == null) {
+                continue;
+            }
+            V value = result.containsKey(key) ? result.get(key) : loaded.get(key);
+            if (value != null) {
+                ordered.put(key, value);
+            }
+        }
+        return ordered;
     }
 
     @Override
     public void remove(K key) {
-        remove(key, nop_validation);
+        remove(key, nop_validations);
     }
 
     @Override
@@ -213,12 +341,12 @@ public class LocalMap<K extends Serializable, V extends Serializable> implements
             }
         }
 
-        cacheMap.remove(getUniqueKey(key));
+        cache.remove(getUniqueKey(key));
     }
 
     @Override
     public boolean contains(K key) {
-        return contains(key, nop_validation);
+        return contains(key, nop_validations);
     }
 
     @Override
@@ -233,33 +361,171 @@ public class LocalMap<K extends Serializable, V extends Serializable> implements
             }
         }
 
-        return cacheMap.containsKey(getUniqueKey(key));
+        return unwrap(cache.get(getUniqueKey(key))) != null;
     }
 
+    @Override
+    public Map<K, Boolean> putAll(Map<K, V> entries) {
+        return putAll(entries, nop_validation);
+    }
+
+    @Override
+    public Map<K, Boolean> putAll(Map<K, V> entries, KeyValidation<K>... validations) {
+        Map<K, Boolean> result = new LinkedHashMap<K, Boolean>();
+        if (entries == null) {
+            return result;
+        }
+        for (Entry<K, V> entry : entries.entrySet()) {
+            K key = entry.getKey();
+            if (key == null) {
+                continue;
+            }
+            boolean accepted = !(VALIDATION_FOR_LOACL_CACHE && keyValidations(key, validations));
+            if (accepted) {
+                put(key, entry.getValue());
+            }
+            result.put(key, accepted);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<K, Boolean> removeAll(Collection<K> keys) {
+        return removeAll(keys, nop_validation);
+    }
+
+    @Override
+    public Map<K, Boolean> removeAll(Collection<K> keys, KeyValidation<K>... validations) {
+        Map<K, Boolean> result = new LinkedHashMap<K, Boolean>();
+        if (keys == null) {
+            return result;
+        }
+        for (K key : keys) {
+            if (key == null) {
+                continue;
+            }
+            boolean accepted = !(VALIDATION_FOR_LOACL_CACHE && keyValidations(key, validations));
+            Object removed = accepted ? cache.remove(getUniqueKey(key)) : null;
+            result.put(key, unwrap(removed) != null);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<K, Boolean> containsAll(Collection<K> keys) {
+        return containsAll(keys, nop_validation);
+    }
+
+    @Override
+    public Map<K, Boolean> containsAll(Collection<K> keys, KeyValidation<K>... validations) {
+        Map<K, Boolean> result = new LinkedHashMap<K, Boolean>();
+        if (keys == null) {
+            return result;
+        }
+        for (K key : keys) {
+            if (key != null) {
+                result.put(key, contains(key, validations));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 本地条目数(包含墓碑)
+     */
     @Override
     public int size() {
-        return getAllKeys().size();
+        return (int) cache.size();
     }
 
     @Override
     public void clear() {
-        List<K> keys = getAllKeys();
-        for (int i = 0; keys != null && i < keys.size(); i++) {
-            cacheMap.remove(keys.get(i));
-        }
+        cache.clear();
     }
 
-    private List<K> getAllKeys() {
-        Set<Object> keySet = cacheMap.keySet();
-        List<K> keys = new ArrayList<K>();
-        Iterator<Object> iterator = keySet.iterator();
-        while (iterator.hasNext()) {
-            K k = (K) iterator.next();
-            if (k.toString().contains(name + GROUP_SEP)) {
-                keys.add(k);
+    /**
+     * 逐段遍历本地缓存(batch不起作用), 跳过墓碑与已过期的条目
+     */
+    @Override
+    public Iterator<Entry<K, V>> scan(int batch) {
+        final Iterator<Entry<Object, Object>> entries = cache.iterator();
+        return new Iterator<Entry<K, V>>() {
+            private Entry<K, V> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && entries.hasNext()) {
+                    Entry<Object, Object> entry = entries.next();
+                    V value = unwrap(entry.getValue());
+                    if (value != null) {
+                        next = new AbstractMap.SimpleImmutableEntry<>(LocalKeys.toKey(entry.getKey(), keyCodec), value);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Entry<K, V> entry = next;
+                next = null;
+                return entry;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("LocalMap scan does not support remove.");
             }
+        };
+    }
+
+    @Override
+    public void forEach(int batch, EntryConsumer<K, V> consumer) {
+        Iterator<Entry<K, V>> iterator = scan(batch);
+        while (iterator.hasNext()) {
+            Entry<K, V> entry = iterator.next();
+            consumer.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 记录key在数据源中不存在(墓碑), 与缓存值共用容量, 写入该key或收到失效通知时移除
+     *
+     * @param ttlMillis 墓碑的有效期(毫秒)
+     */
+    public void putTombstone(K key, long ttlMillis) {
+        if (key != null) {
+            cache.put(getUniqueKey(key), new Tombstone(System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    /**
+     * @return key是否存在未过期的墓碑
+     */
+    public boolean isTombstone(K key) {
+        if (key == null) {
+            return false;
         }
-        return keys;
+        Object value = cache.get(getUniqueKey(key));
+        return value instanceof Tombstone && ((Tombstone) value).expireAt > System.currentTimeMillis();
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long evictionCount() {
+        return cache.evictionCount();
+    }
+
+    public long expirationCount() {
+        return cache.expirationCount();
+    }
+
+    public long invalidationCount() {
+        return invalidations.get();
     }
 
     @Override
@@ -267,8 +533,22 @@ public class LocalMap<K extends Serializable, V extends Serializable> implements
         return this.name;
     }
 
-    private String getUniqueKey(Object key) {
-        return new StringBuilder(this.name).append(GROUP_SEP).append(ByteObjectConvertUtil.getBytesFromObject(key)).toString();
+    private Object getUniqueKey(K key) {
+        return LocalKeys.of(key, keyCodec);
+    }
+
+    /**
+     * 取出缓存中的值(墓碑与已过期的值视为不存在)
+     */
+    private V unwrap(Object value) {
+        if (value instanceof Tombstone) {
+            return null;
+        }
+        if (value instanceof Expiring) {
+            Expiring expiring = (Expiring) value;
+            return expiring.expireAt > System.currentTimeMillis() ? (V) expiring.value : null;
+        }
+        return (V) value;
     }
 
     private boolean keyValidations(K key, KeyValidation<K>... validations) {
@@ -283,36 +563,26 @@ public class LocalMap<K extends Serializable, V extends Serializable> implements
     }
 
     /**
-     * 本地缓存实体
+     * 不存在的key的占位
      */
-    private static class CacheEntry {
-        private Object value;
-        private long expire = 0L;
+    private static final class Tombstone {
+        final long expireAt;
 
-        public CacheEntry(Object value, long expire) {
-            this.value = value;
-            this.expire = expire;
-        }
-
-        /**
-         * 是否已经过期
-         *
-         * @return
-         */
-        public boolean isExpired() {
-            if (expire <= 0) {
-                return false;
-            }
-            return System.currentTimeMillis() > expire;
+        Tombstone(long expireAt) {
+            this.expireAt = expireAt;
         }
+    }
 
-        public Object getValue() {
-            return value;
-        }
+    /**
+     * 单独指定了过期时间的值
+     */
+    private static final class Expiring {
+        final Object value;
+        final long expireAt;
 
-        @Override
-        public String toString() {
-            return value == null ? "" : value.toString();
+        Expiring(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
         }
     }
 }
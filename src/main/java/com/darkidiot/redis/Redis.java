@@ -1,12 +1,12 @@
 package com.darkidiot.redis;
 
 
+import com.darkidiot.redis.async.AsyncRedisClient;
+import com.darkidiot.redis.codec.Codec;
 import com.darkidiot.redis.config.JedisPoolFactory;
 import com.darkidiot.redis.config.RedisPropertyConstants;
 import com.darkidiot.redis.jedis.IJedis;
-import com.darkidiot.redis.jedis.imp.Jedis;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
@@ -17,7 +17,6 @@ import java.io.Serializable;
  * @author darkidiot
  */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
 public class Redis {
 
     /**
@@ -28,7 +27,7 @@ public class Redis {
      * @return
      */
     public static <K extends Serializable, V extends Serializable> IRedisMap<K, V> use(String service, String groupName) {
-        IJedis jedis = new Jedis(JedisPoolFactory.getWritePool(service), JedisPoolFactory.getReadPool(service), JedisPoolFactory.getInitParam(service));
+        IJedis jedis = JedisPoolFactory.getJedis(service);
         return new RedisMapProxy<>(service + "-" + groupName, jedis);
     }
 
@@ -68,13 +67,18 @@ public class Redis {
 
     String innerServiceName;
     String innerGroupName;
+    Codec<?> innerKeyCodec;
+    Codec<?> innerValueCodec;
 
     /**
      * 设定默认配置
      * @return
      */
     public static Redis create() {
-        return new Redis(RedisPropertyConstants.DEFAULT_SERVICE_KEY, RedisPropertyConstants.DEFAULT_GROUP_KEY);
+        Redis redis = new Redis();
+        redis.innerServiceName = RedisPropertyConstants.DEFAULT_SERVICE_KEY;
+        redis.innerGroupName = RedisPropertyConstants.DEFAULT_GROUP_KEY;
+        return redis;
     }
 
     /**
@@ -96,12 +100,42 @@ public class Redis {
         return this;
     }
 
+    /**
+     * @param keyCodec(key的编解码器,默认使用服务配置的编解码器)
+     * @return
+     */
+    public Redis setKeyCodec(Codec<?> keyCodec) {
+        this.innerKeyCodec = keyCodec;
+        return this;
+    }
+
+    /**
+     * @param valueCodec(value的编解码器,默认使用服务配置的编解码器)
+     * @return
+     */
+    public Redis setValueCodec(Codec<?> valueCodec) {
+        this.innerValueCodec = valueCodec;
+        return this;
+    }
+
     /**
      * 获取缓存接口
      * @return
      */
+    @SuppressWarnings("unchecked")
     public <K extends Serializable, V extends Serializable> IRedisMap<K, V> build() {
-        IJedis jedis = new Jedis(JedisPoolFactory.getWritePool(innerServiceName), JedisPoolFactory.getReadPool(innerServiceName), JedisPoolFactory.getInitParam(innerServiceName));
-        return new RedisMapProxy<>(innerServiceName + "-" + innerGroupName, jedis);
+        IJedis jedis = JedisPoolFactory.getJedis(innerServiceName);
+        return new RedisMapProxy<>(innerServiceName + "-" + innerGroupName, jedis, (Codec<K>) innerKeyCodec, (Codec<V>) innerValueCodec);
+    }
+
+    /**
+     * 获取异步缓存接口(与build()得到的缓存共用存储结构, 不支持集群模式)
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <K extends Serializable, V extends Serializable> AsyncRedisMap<K, V> buildAsync() {
+        IJedis jedis = JedisPoolFactory.getJedis(innerServiceName);
+        AsyncRedisClient client = JedisPoolFactory.getAsyncClient(innerServiceName);
+        return new AsyncRedisMap<>(innerServiceName + "-" + innerGroupName, jedis, client, (Codec<K>) innerKeyCodec, (Codec<V>) innerValueCodec);
     }
 }
@@ -1,15 +1,53 @@
 package com.darkidiot.redis;
 
+import com.darkidiot.redis.codec.Codec;
+import com.darkidiot.redis.codec.Codecs;
+import com.darkidiot.redis.common.JedisType;
+import com.darkidiot.redis.config.RedisInitParam;
+import com.darkidiot.redis.exception.RedisException;
 import com.darkidiot.redis.jedis.IJedis;
-import com.darkidiot.redis.util.ByteObjectConvertUtil;
+import com.darkidiot.redis.loader.BulkLoader;
+import com.darkidiot.redis.loader.Loader;
+import com.darkidiot.redis.loader.SingleFlight;
+import com.darkidiot.redis.local.LocalKeys;
+import com.darkidiot.redis.lock.Lock;
+import com.darkidiot.redis.lock.RedisLock;
+import com.darkidiot.redis.metrics.JedisMetrics;
+import com.darkidiot.redis.metrics.NamedCallback;
+import com.darkidiot.redis.util.CommonUtil.Callback;
+import com.darkidiot.redis.util.LuaScript;
 import com.darkidiot.redis.util.StringUtil;
 import com.darkidiot.redis.validate.KeyValidation;
 import com.darkidiot.redis.validate.NopValidation;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
 import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.util.SafeEncoder;
 
 import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import static com.darkidiot.redis.common.JedisType.READ;
+import static com.darkidiot.redis.common.JedisType.WRITE;
+import static com.darkidiot.redis.config.RedisPropertyConstants.DEFAULT_BATCH_SIZE;
+import static com.darkidiot.redis.config.RedisPropertyConstants.DEFAULT_LOADER_MUTEX_EXPIRE;
+import static com.darkidiot.redis.config.RedisPropertyConstants.DEFAULT_MAP_SHARDS;
 
 
 /**
@@ -22,16 +60,59 @@ import java.util.Map;
 public class RedisMap<K extends Serializable, V extends Serializable> implements IRedisMap<K, V> {
     private String name;
     private IJedis jedis;
+    /**
+     * 分组的存储分片(未拆分时只有一个, hash key即分组名称)
+     */
+    private final Shard[] shards;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    /**
+     * 批量操作单个pipeline包含的最大key数量
+     */
+    private final int batchSize;
     /**
      * 最多容忍50MS延迟
      */
     private static final int WARN_TIME_LIMIT = 50;
 
+    private static final String SHARD_SEPARATOR = ":shard:";
+
     private final KeyValidation<K> nop_validation = new NopValidation<>();
 
     private static boolean VALIDATION_FOR_REDIS_CACHE = true;
 
+    private static final String LOADER_MUTEX_PREFIX = "loader:";
+    /**
+     * KEYS: 待删除的key(同一个slot) 异步删除, redis 4.0以下回退为DEL
+     */
+    private static final LuaScript UNLINK = new LuaScript(
+            "for i = 1, #KEYS do\n" +
+            "  local ret = redis.pcall('UNLINK', KEYS[i])\n" +
+            "  if type(ret) == 'table' and ret.err then\n" +
+            "    redis.call('DEL', KEYS[i])\n" +
+            "  end\n" +
+            "end\n" +
+            "return #KEYS");
+    /**
+     * 同一JVM内未命中加载的合并
+     */
+    private final SingleFlight<K, V> flights = new SingleFlight<>();
+    private final boolean loaderMutex;
+    private final int loaderMutexExpire;
+    /**
+     * 指标记录器(记录读写的字节数), 服务未开启metrics时为null
+     */
+    private final JedisMetrics metrics;
+
     public RedisMap(String name, IJedis jedis) {
+        this(name, jedis, null, null);
+    }
+
+    /**
+     * @param keyCodec   key的编解码器(为空时使用服务配置的编解码器)
+     * @param valueCodec value的编解码器(为空时使用服务配置的编解码器)
+     */
+    public RedisMap(String name, IJedis jedis, Codec<K> keyCodec, Codec<V> valueCodec) {
         if (StringUtil.isEmpty(name)) {
             throw new IllegalArgumentException("the 'name' of RedisMap can not be empty.");
         }
@@ -40,6 +121,26 @@ public class RedisMap<K extends Serializable, V extends Serializable> implements
         }
         this.name = name;
         this.jedis = jedis;
+        this.keyCodec = keyCodec != null ? keyCodec : Codecs.<K>forService(jedis.baseConfig());
+        this.valueCodec = valueCodec != null ? valueCodec : Codecs.<V>forService(jedis.baseConfig());
+        RedisInitParam initParam = jedis.baseConfig();
+        this.batchSize = initParam == null || initParam.getBatchSize() == null ? DEFAULT_BATCH_SIZE : initParam.getBatchSize();
+        int shardCount = initParam == null || initParam.getMapShards() == null ? DEFAULT_MAP_SHARDS : initParam.getMapShards();
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(shardCount == 1 ? name : name + SHARD_SEPARATOR + i);
+        }
+        this.loaderMutex = initParam != null && Boolean.TRUE.equals(initParam.getLoaderMutex());
+        this.loaderMutexExpire = initParam == null || initParam.getLoaderMutexExpire() == null ? DEFAULT_LOADER_MUTEX_EXPIRE : initParam.getLoaderMutexExpire();
+        this.metrics = JedisMetrics.of(initParam);
+    }
+
+    public Codec<K> getKeyCodec() {
+        return keyCodec;
+    }
+
+    public Codec<V> getValueCodec() {
+        return valueCodec;
     }
 
     @Override
@@ -67,18 +168,63 @@ public class RedisMap<K extends Serializable, V extends Serializable> implements
         remove(key, nop_validation);
     }
 
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        return getAll(keys, nop_validation);
+    }
+
+    @Override
+    public Map<K, Boolean> putAll(Map<K, V> entries) {
+        return putAll(entries, nop_validation);
+    }
+
+    @Override
+    public Map<K, Boolean> removeAll(Collection<K> keys) {
+        return removeAll(keys, nop_validation);
+    }
+
+    @Override
+    public Map<K, Boolean> containsAll(Collection<K> keys) {
+        return containsAll(keys, nop_validation);
+    }
+
     @Override
     public String getName() {
         return this.name;
     }
 
+    /**
+     * 各分片HLEN之和, 不传输条目内容; 已过期但尚未清理的条目也会被计入
+     */
     @Override
     public int size() {
-        try {
-            Map<String, String> map = jedis.hgetAll(ByteObjectConvertUtil.getBytesFromObject(getName()));
-            return map == null ? 0 : map.size();
-        } catch (Exception e) {
-            return 0;
+        final List<Response<Long>> lengths = perShard();
+        final long[] size = new long[1];
+        pipelined(null, new ShardPipeline() {
+            @Override
+            public void append(Pipeline pipeline, int shard) {
+                lengths.set(shard, pipeline.hlen(shards[shard].hashKey));
+            }
+
+            @Override
+            public void collect(int shard) {
+                size[0] += lengths.get(shard).get();
+            }
+        }, READ);
+        return (int) Math.min(size[0], Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> scan(int batch) {
+        return new ScanIterator(batch);
+    }
+
+    @Override
+    public void forEach(int batch, EntryConsumer<K, V> consumer) {
+        Iterator<Map.Entry<K, V>> iterator = scan(batch);
+        while (iterator.hasNext()) {
+            Map.Entry<K, V> entry = iterator.next();
+            consumer.accept(entry.getKey(), entry.getValue());
         }
     }
 
@@ -92,8 +238,7 @@ public class RedisMap<K extends Serializable, V extends Serializable> implements
         }
         long time = System.currentTimeMillis();
         try {
-            Long result = jedis.hset(ByteObjectConvertUtil.getBytesFromObject(getName()), ByteObjectConvertUtil.getBytesFromObject(key),
-                    ByteObjectConvertUtil.getBytesFromObject(value));
+            write(Collections.singletonList(keyCodec.encode(key)), Collections.singletonList(valueCodec.encode(value)), null);
         } finally {
             long spend = System.currentTimeMillis() - time;
             if (spend > WARN_TIME_LIMIT) {
@@ -102,6 +247,29 @@ public class RedisMap<K extends Serializable, V extends Serializable> implements
         }
     }
 
+    @Override
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        if (key == null) {
+            return;
+        }
+        if (ttl <= 0) {
+            remove(key);
+            return;
+        }
+        long time = System.currentTimeMillis();
+        try {
+            byte[] field = keyCodec.encode(key);
+            write(Collections.singletonList(field), Collections.singletonList(valueCodec.encode(value)), time + unit.toMillis(ttl));
+            Shard shard = shardOf(field);
+            FieldExpiry.register(shard.name, jedis, shard.hashKey, shard.expiryKey);
+        } finally {
+            long spend = System.currentTimeMillis() - time;
+            if (spend > WARN_TIME_LIMIT) {
+                log.warn("RedisMap[ {} ] put[ {} - {} ] with ttl spend[ {}ms ].", name, key, value, spend);
+            }
+        }
+    }
+
     @Override
     public V get(K key, KeyValidation<K>... validations) {
         if (key == null) {
@@ -114,11 +282,11 @@ public class RedisMap<K extends Serializable, V extends Serializable> implements
 
         long time = System.currentTimeMillis();
         try {
-            String valueByte = jedis.hget(ByteObjectConvertUtil.getBytesFromObject(getName()), ByteObjectConvertUtil.getBytesFromObject(key));
-            if (valueByte == null) {
+            byte[] valueBytes = read(Collections.singletonList(keyCodec.encode(key))).get(0);
+            if (valueBytes == null) {
                 return null;
             }
-            return (V) ByteObjectConvertUtil.getObjectFromBytes(valueByte);
+            return valueCodec.decode(valueBytes);
         } finally {
             long spend = System.currentTimeMillis() - time;
             if (spend > WARN_TIME_LIMIT) {
@@ -133,33 +301,158 @@ public class RedisMap<K extends Serializable, V extends Serializable> implements
             return null;
         }
 
-        if (VALIDATION_FOR_REDIS_CACHE) {
-            for (int i = 0; i < keys.size(); i++) {
-                if (keyValidations(keys.get(i), validations)) {
-                    keys.remove(i);
-                }
+        List<V> list = new ArrayList<>(keys.size());
+        List<Integer> positions = new ArrayList<>(keys.size());
+        List<byte[]> fields = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            K key = keys.get(i);
+            list.add(null);
+            if (key == null || (VALIDATION_FOR_REDIS_CACHE && keyValidations(key, validations))) {
+                continue;
             }
+            positions.add(i);
+            fields.add(keyCodec.encode(key));
         }
 
-        if (keys.size() == 0) {
-            return null;
+        if (fields.isEmpty()) {
+            return list;
         }
 
         long time = System.currentTimeMillis();
         try {
-            return (List<V>) jedis.hmget(getName(), keys);
+            List<byte[]> values = read(fields);
+            for (int i = 0; i < values.size(); i++) {
+                byte[] valueBytes = values.get(i);
+                if (valueBytes != null) {
+                    list.set(positions.get(i), valueCodec.decode(valueBytes));
+                }
+            }
+            return list;
         } finally {
             long spend = System.currentTimeMillis() - time;
             if (spend > WARN_TIME_LIMIT) {
-                log.warn("RedisMap[ {} ] getList[ {}... ] spend[ {}ms ].", name, keys.get(0), spend);
+                log.warn("RedisMap[ {} ] getList[ {} keys ] spend[ {}ms ].", name, fields.size(), spend);
             }
         }
     }
 
     @Override
-    public boolean contains(K key, KeyValidation<K>... validations) {
-        return key != null && !(VALIDATION_FOR_REDIS_CACHE && keyValidations(key, validations)) && jedis.hexists(ByteObjectConvertUtil.getBytesFromObject(getName()), ByteObjectConvertUtil.getBytesFromObject(key));
+    public Map<K, V> getAll(Collection<K> keys, KeyValidation<K>... validations) {
+        Map<K, V> result = new LinkedHashMap<>();
+        if (keys == null || keys.isEmpty()) {
+            return result;
+        }
+        List<K> keyList = new ArrayList<>(keys);
+        List<V> values = getList(keyList, validations);
+        for (int i = 0; i < keyList.size(); i++) {
+            if (values.get(i) != null) {
+                result.put(keyList.get(i), values.get(i));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public V get(K key, final Loader<K, V> loader) {
+        V value = get(key);
+        if (value != null || key == null || loader == null) {
+            return value;
+        }
+        return flights.execute(LocalKeys.of(key, keyCodec), key, new Loader<K, V>() {
+            @Override
+            public V load(K key) throws Exception {
+                return loaderMutex ? loadWithMutex(key, loader) : loadAndPut(key, loader);
+            }
+        });
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<K> keys, final BulkLoader<K, V> loader) {
+        Map<K, V> result = new LinkedHashMap<>();
+        if (keys == null || keys.isEmpty()) {
+            return result;
+        }
+        List<K> keyList = new ArrayList<>(keys);
+        List<V> values = getList(keyList);
+        Map<K, Object> misses = new LinkedHashMap<>();
+        for (int i = 0; i < keyList.size(); i++) {
+            K key = keyList.get(i);
+            if (values.get(i) != null) {
+                result.put(key, values.get(i));
+            } else if (key != null) {
+                misses.put(key, LocalKeys.of(key, keyCodec));
+            }
+        }
+        if (misses.isEmpty() || loader == null) {
+            return result;
+        }
+        Map<K, V> loaded = flights.executeAll(misses, new BulkLoader<K, V>() {
+            @Override
+            public Map<K, V> loadAll(Collection<K> keys) throws Exception {
+                Map<K, V> loaded = loader.loadAll(keys);
+                if (loaded != null) {
+                    Map<K, V> present = new LinkedHashMap<>();
+                    for (Map.Entry<K, V> entry : loaded.entrySet()) {
+                        if (entry.getKey() != null && entry.getValue() != null) {
+                            present.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    putAll(present);
+                }
+                return loaded;
+            }
+        });
+        // 按keys的顺序合并命中与加载结果
+        Map<K, V> ordered = new LinkedHashMap<>();
+        for (K key : keyList) {
+            if (key == null) {
+                continue;
+            }
+            V value = result.containsKey(key) ? result.get(key) : loaded.get(key);
+            if (value != null) {
+                ordered.put(key, value);
+            }
+        }
+        return ordered;
+    }
+
+    private V loadAndPut(K key, Loader<K, V> loader) throws Exception {
+        V value = loader.load(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
 
+    /**
+     * 获取redis互斥锁后再次检查缓存, 仍未命中才加载(其他节点等待锁释放后直接读取缓存)
+     */
+    private V loadWithMutex(K key, Loader<K, V> loader) throws Exception {
+        Lock mutex = RedisLock.useSimpleRedisLock(LOADER_MUTEX_PREFIX + name + ":" + BaseEncoding.base16().encode(keyCodec.encode(key)), jedis.baseConfig().getServerName());
+        mutex.lock(loaderMutexExpire * 1000L, loaderMutexExpire);
+        try {
+            V value = get(key);
+            if (value != null) {
+                return value;
+            }
+            return loadAndPut(key, loader);
+        } finally {
+            try {
+                mutex.unlock();
+            } catch (RedisException e) {
+                log.warn("RedisMap[ {} ] release loader mutex of [ {} ] failure, cause by:{}", name, key, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(K key, KeyValidation<K>... validations) {
+        if (key == null || (VALIDATION_FOR_REDIS_CACHE && keyValidations(key, validations))) {
+            return false;
+        }
+        Map<K, Boolean> result = new HashMap<>(2);
+        batchCall(Collections.singletonList(key), result, false);
+        return result.get(key);
     }
 
     @Override
@@ -170,12 +463,421 @@ public class RedisMap<K extends Serializable, V extends Serializable> implements
         if (VALIDATION_FOR_REDIS_CACHE && keyValidations(key, validations)) {
             return;
         }
-        Long result = jedis.hdel(ByteObjectConvertUtil.getBytesFromObject(getName()), ByteObjectConvertUtil.getBytesFromObject(key));
+        batchCall(Collections.singletonList(key), new HashMap<K, Boolean>(2), true);
+    }
+
+    @Override
+    public Map<K, Boolean> putAll(final Map<K, V> entries, KeyValidation<K>... validations) {
+        Map<K, Boolean> result = new LinkedHashMap<>();
+        if (entries == null || entries.isEmpty()) {
+            return result;
+        }
+        final List<K> accepted = acceptedKeys(entries.keySet(), result, validations);
+        if (accepted.isEmpty()) {
+            return result;
+        }
+
+        long time = System.currentTimeMillis();
+        try {
+            List<byte[]> fields = new ArrayList<>(accepted.size());
+            List<byte[]> values = new ArrayList<>(accepted.size());
+            for (K key : accepted) {
+                fields.add(keyCodec.encode(key));
+                values.add(valueCodec.encode(entries.get(key)));
+            }
+            write(fields, values, null);
+            for (K key : accepted) {
+                result.put(key, true);
+            }
+            return result;
+        } finally {
+            long spend = System.currentTimeMillis() - time;
+            if (spend > WARN_TIME_LIMIT) {
+                log.warn("RedisMap[ {} ] putAll[ {} keys ] spend[ {}ms ].", name, accepted.size(), spend);
+            }
+        }
+    }
+
+    @Override
+    public Map<K, Boolean> removeAll(Collection<K> keys, KeyValidation<K>... validations) {
+        Map<K, Boolean> result = new LinkedHashMap<>();
+        if (keys == null || keys.isEmpty()) {
+            return result;
+        }
+        List<K> accepted = acceptedKeys(keys, result, validations);
+        long time = System.currentTimeMillis();
+        try {
+            batchCall(accepted, result, true);
+            return result;
+        } finally {
+            long spend = System.currentTimeMillis() - time;
+            if (spend > WARN_TIME_LIMIT) {
+                log.warn("RedisMap[ {} ] removeAll[ {} keys ] spend[ {}ms ].", name, accepted.size(), spend);
+            }
+        }
+    }
+
+    @Override
+    public Map<K, Boolean> containsAll(Collection<K> keys, KeyValidation<K>... validations) {
+        Map<K, Boolean> result = new LinkedHashMap<>();
+        if (keys == null || keys.isEmpty()) {
+            return result;
+        }
+        List<K> accepted = acceptedKeys(keys, result, validations);
+        long time = System.currentTimeMillis();
+        try {
+            batchCall(accepted, result, false);
+            return result;
+        } finally {
+            long spend = System.currentTimeMillis() - time;
+            if (spend > WARN_TIME_LIMIT) {
+                log.warn("RedisMap[ {} ] containsAll[ {} keys ] spend[ {}ms ].", name, accepted.size(), spend);
+            }
+        }
     }
 
+    /**
+     * 逐个分片UNLINK(hash与过期索引), 大分组的内存在redis后台线程中释放, 不阻塞主线程
+     */
     @Override
     public void clear() {
-        Long result = jedis.del(ByteObjectConvertUtil.getBytesFromObject(getName()));
+        for (final Shard shard : shards) {
+            jedis.callOriginalJedis(shard.hashKey, new Callback<Void>() {
+                @Override
+                public Void call(Jedis jedis) {
+                    UNLINK.eval(jedis, Arrays.asList(shard.hashKey, shard.expiryKey), Collections.<byte[]>emptyList());
+                    return null;
+                }
+            }, WRITE);
+        }
+    }
+
+    /**
+     * 过滤空key、重复key及未通过验证的key(被过滤的key结果预置为false)
+     */
+    private List<K> acceptedKeys(Collection<K> keys, Map<K, Boolean> result, KeyValidation<K>... validations) {
+        List<K> accepted = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            if (key == null || result.containsKey(key)) {
+                continue;
+            }
+            result.put(key, false);
+            if (!(VALIDATION_FOR_REDIS_CACHE && keyValidations(key, validations))) {
+                accepted.add(key);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * 按分片、batchSize分批pipeline执行删除/存在性检查(非集群模式下整个批量操作一次往返, 见{@link #pipelined})
+     * <ul>
+     * <li>删除: 每批在MULTI/EXEC中HDEL并清除过期时间.</li>
+     * <li>存在性检查: HEXISTS附带ZSCORE(过期索引确认为空时省略), 已过期的字段视为不存在.</li>
+     * </ul>
+     *
+     * @param remove true:删除, false:检查是否存在
+     */
+    private void batchCall(final List<K> keys, final Map<K, Boolean> result, final boolean remove) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        final List<byte[]> fields = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            fields.add(keyCodec.encode(key));
+        }
+        final List<List<Integer>> groups = groupByShard(fields);
+        final List<List<Response<?>>> responses = perShard();
+        final List<List<Response<Double>>> expireAts = perShard();
+        final List<Response<Boolean>> indexes = perShard();
+        final long checkAt = System.currentTimeMillis();
+        pipelined(groups, new ShardPipeline() {
+            @Override
+            public void append(Pipeline pipeline, int s) {
+                Shard shard = shards[s];
+                List<Integer> positions = groups.get(s);
+                List<Response<?>> shardResponses = new ArrayList<>(positions.size());
+                boolean stale = !remove && shard.expiryStale(checkAt);
+                boolean expiring = !remove && shard.mayExpire(stale);
+                indexes.set(s, stale ? pipeline.exists(shard.expiryKey) : null);
+                List<Response<Double>> shardExpireAts = new ArrayList<>(expiring ? positions.size() : 0);
+                for (int from = 0; from < positions.size(); from += batchSize) {
+                    byte[][] batchFields = fieldsAt(fields, positions.subList(from, Math.min(from + batchSize, positions.size())));
+                    if (remove) {
+                        pipeline.multi();
+                        for (byte[] field : batchFields) {
+                            shardResponses.add(pipeline.hdel(shard.hashKey, field));
+                        }
+                        pipeline.zrem(shard.expiryKey, batchFields);
+                        pipeline.exec();
+                    } else {
+                        for (byte[] field : batchFields) {
+                            shardResponses.add(pipeline.hexists(shard.hashKey, field));
+                            if (expiring) {
+                                shardExpireAts.add(pipeline.zscore(shard.expiryKey, field));
+                            }
+                        }
+                    }
+                }
+                responses.set(s, shardResponses);
+                expireAts.set(s, shardExpireAts);
+            }
+
+            @Override
+            public void collect(int s) {
+                List<Integer> positions = groups.get(s);
+                checkedIndex(s, indexes.get(s), checkAt);
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < positions.size(); i++) {
+                    Object ret = responses.get(s).get(i).get();
+                    result.put(keys.get(positions.get(i)), remove ? Long.valueOf(1L).equals(ret)
+                            : Boolean.TRUE.equals(ret) && !FieldExpiry.expired(expireAt(expireAts.get(s), i), now));
+                }
+            }
+        }, remove ? WRITE : READ);
+    }
+
+    /**
+     * 读取字段, 已过期但尚未清理的字段按不存在处理(过期索引确认为空时不附带ZSCORE)
+     *
+     * @return 与fields一一对应的值
+     */
+    private List<byte[]> read(final List<byte[]> fields) {
+        final List<List<Integer>> groups = groupByShard(fields);
+        final byte[][] result = new byte[fields.size()][];
+        final List<List<Response<List<byte[]>>>> values = perShard();
+        final List<List<Response<Double>>> expireAts = perShard();
+        final List<Response<Boolean>> indexes = perShard();
+        final long checkAt = System.currentTimeMillis();
+        pipelined(groups, new ShardPipeline() {
+            @Override
+            public void append(Pipeline pipeline, int s) {
+                Shard shard = shards[s];
+                List<Integer> positions = groups.get(s);
+                List<Response<List<byte[]>>> shardValues = new ArrayList<>();
+                boolean stale = shard.expiryStale(checkAt);
+                boolean expiring = shard.mayExpire(stale);
+                indexes.set(s, stale ? pipeline.exists(shard.expiryKey) : null);
+                List<Response<Double>> shardExpireAts = new ArrayList<>(expiring ? positions.size() : 0);
+                for (int from = 0; from < positions.size(); from += batchSize) {
+                    byte[][] batchFields = fieldsAt(fields, positions.subList(from, Math.min(from + batchSize, positions.size())));
+                    shardValues.add(pipeline.hmget(shard.hashKey, batchFields));
+                    if (expiring) {
+                        for (byte[] field : batchFields) {
+                            shardExpireAts.add(pipeline.zscore(shard.expiryKey, field));
+                        }
+                    }
+                }
+                values.set(s, shardValues);
+                expireAts.set(s, shardExpireAts);
+            }
+
+            @Override
+            public void collect(int s) {
+                List<Integer> positions = groups.get(s);
+                checkedIndex(s, indexes.get(s), checkAt);
+                long now = System.currentTimeMillis();
+                int i = 0;
+                for (Response<List<byte[]>> batch : values.get(s)) {
+                    for (byte[] value : batch.get()) {
+                        if (!FieldExpiry.expired(expireAt(expireAts.get(s), i), now)) {
+                            result[positions.get(i)] = value;
+                        }
+                        i++;
+                    }
+                }
+            }
+        }, READ);
+        if (metrics != null) {
+            metrics.payload("RedisMap.read", bytes(fields) + bytes(Arrays.asList(result)));
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * 按分片、batchSize分批写入字段
+     *
+     * @param values   与fields一一对应的值
+     * @param expireAt 过期时间戳(毫秒), 为null时清除字段原有的过期时间
+     */
+    private void write(final List<byte[]> fields, final List<byte[]> values, final Long expireAt) {
+        final List<List<Integer>> groups = groupByShard(fields);
+        pipelined(groups, new ShardPipeline() {
+            @Override
+            public void append(Pipeline pipeline, int s) {
+                List<Integer> positions = groups.get(s);
+                for (int from = 0; from < positions.size(); from += batchSize) {
+                    List<Integer> batch = positions.subList(from, Math.min(from + batchSize, positions.size()));
+                    Map<byte[], byte[]> hash = new HashMap<>(2 * batch.size());
+                    for (Integer position : batch) {
+                        hash.put(fields.get(position), values.get(position));
+                    }
+                    write(pipeline, shards[s], hash, expireAt);
+                }
+            }
+
+            @Override
+            public void collect(int s) {
+            }
+        }, WRITE);
+        if (metrics != null) {
+            metrics.payload("RedisMap.write", bytes(fields) + bytes(values));
+        }
+    }
+
+    private static long bytes(List<byte[]> list) {
+        long bytes = 0;
+        for (byte[] item : list) {
+            if (item != null) {
+                bytes += item.length;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 在MULTI/EXEC中写入字段并维护过期索引, 避免清理任务删除刚写入的值
+     */
+    private void write(Pipeline pipeline, Shard shard, Map<byte[], byte[]> hash, Long expireAt) {
+        pipeline.multi();
+        if (hash.size() == 1) {
+            Map.Entry<byte[], byte[]> entry = hash.entrySet().iterator().next();
+            pipeline.hset(shard.hashKey, entry.getKey(), entry.getValue());
+        } else {
+            pipeline.hmset(shard.hashKey, hash);
+        }
+        if (expireAt == null) {
+            pipeline.zrem(shard.expiryKey, hash.keySet().toArray(new byte[hash.size()][]));
+        } else {
+            Map<byte[], Double> scores = new HashMap<>(2 * hash.size());
+            for (byte[] field : hash.keySet()) {
+                scores.put(field, expireAt.doubleValue());
+            }
+            pipeline.zadd(shard.expiryKey, scores);
+            shard.expiryAdded();
+        }
+        pipeline.exec();
+    }
+
+    /**
+     * 字段所在的分片(murmur3, 与JVM无关, 各节点一致)
+     */
+    private int shardIndex(byte[] field) {
+        if (shards.length == 1) {
+            return 0;
+        }
+        return (Hashing.murmur3_32().hashBytes(field).asInt() & Integer.MAX_VALUE) % shards.length;
+    }
+
+    Shard shardOf(byte[] field) {
+        return shards[shardIndex(field)];
+    }
+
+    /**
+     * @return 每个分片包含的字段下标(按fields中的顺序)
+     */
+    private List<List<Integer>> groupByShard(List<byte[]> fields) {
+        List<List<Integer>> groups = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            groups.add(new ArrayList<Integer>(shards.length == 1 ? fields.size() : fields.size() / shards.length + 1));
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            groups.get(shardIndex(fields.get(i))).add(i);
+        }
+        return groups;
+    }
+
+    private static byte[][] fieldsAt(List<byte[]> fields, List<Integer> positions) {
+        byte[][] batch = new byte[positions.size()][];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = fields.get(positions.get(i));
+        }
+        return batch;
+    }
+
+    /**
+     * 记录读取时附带的EXISTS结果, 过期索引已存在(其他节点或之前的进程写入过带过期时间的字段)时本节点同样定期清理
+     *
+     * @param index 未附带EXISTS时为null
+     */
+    private void checkedIndex(int s, Response<Boolean> index, long checkAt) {
+        if (index != null) {
+            Shard shard = shards[s];
+            boolean expiring = Boolean.TRUE.equals(index.get());
+            shard.expiryChecked(expiring, checkAt);
+            if (expiring) {
+                FieldExpiry.register(shard.name, jedis, shard.hashKey, shard.expiryKey);
+            }
+        }
+    }
+
+    /**
+     * @param expireAts 未附带ZSCORE时为空
+     */
+    private static Double expireAt(List<Response<Double>> expireAts, int i) {
+        return expireAts.isEmpty() ? null : expireAts.get(i).get();
+    }
+
+    /**
+     * @return 每个分片一个位置(初始为null)的列表
+     */
+    private <T> List<T> perShard() {
+        return new ArrayList<>(Collections.<T>nCopies(shards.length, null));
+    }
+
+    /**
+     * 在涉及的分片上执行pipeline
+     * <ul>
+     * <li>非集群模式: 所有分片共用一个pipeline, 一次往返且只占用一个连接.</li>
+     * <li>集群模式: 各分片位于不同的slot, 逐个分片路由到所在节点.</li>
+     * </ul>
+     *
+     * @param groups 每个分片涉及的字段下标, 为null时在所有分片上执行
+     */
+    private void pipelined(final List<List<Integer>> groups, final ShardPipeline action, JedisType type) {
+        // 指标中以调用方(如RedisMap.read)而不是pipelined记录
+        String command = JedisMetrics.commandOf(action.getClass());
+        if (!jedis.isCluster()) {
+            jedis.callOriginalJedis(new NamedCallback<Void>(command) {
+                @Override
+                public Void call(Jedis jedis) {
+                    Pipeline pipeline = jedis.pipelined();
+                    for (int s = 0; s < shards.length; s++) {
+                        if (involved(groups, s)) {
+                            action.append(pipeline, s);
+                        }
+                    }
+                    pipeline.sync();
+                    for (int s = 0; s < shards.length; s++) {
+                        if (involved(groups, s)) {
+                            action.collect(s);
+                        }
+                    }
+                    return null;
+                }
+            }, type);
+            return;
+        }
+        for (int s = 0; s < shards.length; s++) {
+            if (!involved(groups, s)) {
+                continue;
+            }
+            final int shard = s;
+            jedis.callOriginalJedis(shards[s].hashKey, new NamedCallback<Void>(command) {
+                @Override
+                public Void call(Jedis jedis) {
+                    Pipeline pipeline = jedis.pipelined();
+                    action.append(pipeline, shard);
+                    pipeline.sync();
+                    action.collect(shard);
+                    return null;
+                }
+            }, type);
+        }
+    }
+
+    private static boolean involved(List<List<Integer>> groups, int shard) {
+        return groups == null || !groups.get(shard).isEmpty();
     }
 
     private boolean keyValidations(K key, KeyValidation<K>... validations) {
@@ -188,4 +890,143 @@ public class RedisMap<K extends Serializable, V extends Serializable> implements
         }
         return false;
     }
+
+    /**
+     * 逐个分片HSCAN, 每次只持有一页未解码的条目
+     * <ul>
+     * <li>开始遍历分片时检查其过期索引, 非空时每页附带一次pipeline ZSCORE过滤已过期的字段.</li>
+     * <li>每页单独借用连接, 遍历过程中不长期占用连接池.</li>
+     * <li>HSCAN游标只在签发它的节点上有效, 而读连接每次借用可能落在不同的从库上, 因此统一在主库上遍历.</li>
+     * </ul>
+     */
+    private final class ScanIterator implements Iterator<Map.Entry<K, V>> {
+        private final ScanParams params;
+        private int shard;
+        private byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+        private boolean expiring;
+        private Iterator<Map.Entry<byte[], byte[]>> page = Collections.emptyIterator();
+
+        ScanIterator(int batch) {
+            this.params = new ScanParams().count(batch > 0 ? batch : batchSize);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext() && shard < shards.length) {
+                page = nextPage().iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<byte[], byte[]> entry = page.next();
+            return new AbstractMap.SimpleImmutableEntry<>(keyCodec.decode(entry.getKey()), valueCodec.decode(entry.getValue()));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("RedisMap scan does not support remove.");
+        }
+
+        private List<Map.Entry<byte[], byte[]>> nextPage() {
+            final Shard current = shards[shard];
+            final boolean first = Arrays.equals(cursor, ScanParams.SCAN_POINTER_START_BINARY);
+            List<Map.Entry<byte[], byte[]>> entries = jedis.callOriginalJedis(current.hashKey, new Callback<List<Map.Entry<byte[], byte[]>>>() {
+                @Override
+                public List<Map.Entry<byte[], byte[]>> call(Jedis jedis) {
+                    if (first) {
+                        expiring = jedis.zcard(current.expiryKey) > 0;
+                    }
+                    ScanResult<Map.Entry<byte[], byte[]>> result = jedis.hscan(current.hashKey, cursor, params);
+                    cursor = result.getCursorAsBytes();
+                    List<Map.Entry<byte[], byte[]>> entries = result.getResult();
+                    if (!expiring || entries.isEmpty()) {
+                        return entries;
+                    }
+                    Pipeline pipeline = jedis.pipelined();
+                    List<Response<Double>> expireAts = new ArrayList<>(entries.size());
+                    for (Map.Entry<byte[], byte[]> entry : entries) {
+                        expireAts.add(pipeline.zscore(current.expiryKey, entry.getKey()));
+                    }
+                    pipeline.sync();
+                    long now = System.currentTimeMillis();
+                    List<Map.Entry<byte[], byte[]>> live = new ArrayList<>(entries.size());
+                    for (int i = 0; i < entries.size(); i++) {
+                        if (!FieldExpiry.expired(expireAts.get(i).get(), now)) {
+                            live.add(entries.get(i));
+                        }
+                    }
+                    return live;
+                }
+            }, WRITE);
+            if (Arrays.equals(cursor, ScanParams.SCAN_POINTER_START_BINARY)) {
+                shard++;
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * 存储分片: 一个hash及其字段过期索引(两者位于同一个slot, 不同分片分散到不同slot)
+     */
+    static final class Shard {
+        final String name;
+        final byte[] hashKey;
+        final byte[] expiryKey;
+
+        /**
+         * 过期索引最近一次确认的结果及时间
+         */
+        private volatile boolean expiring;
+        private volatile long expiryCheckedAt;
+
+        Shard(String name) {
+            this.name = name;
+            this.hashKey = SafeEncoder.encode(name);
+            this.expiryKey = FieldExpiry.expiryKey(name);
+        }
+
+        /**
+         * @return 是否需要在读取的pipeline中附带EXISTS重新确认过期索引是否为空
+         */
+        boolean expiryStale(long now) {
+            return now - expiryCheckedAt >= FieldExpiry.INDEX_CHECK_MILLIS;
+        }
+
+        /**
+         * @return 读取时是否需要附带ZSCORE过滤过期字段
+         */
+        boolean mayExpire(boolean stale) {
+            return stale || expiring;
+        }
+
+        void expiryChecked(boolean expiring, long at) {
+            this.expiring = expiring;
+            this.expiryCheckedAt = at;
+        }
+
+        /**
+         * 本节点写入了带过期时间的字段
+         */
+        void expiryAdded() {
+            this.expiring = true;
+        }
+    }
+
+    /**
+     * 单个分片在pipeline中的命令及应答处理
+     * <p>集群模式下重定向重试会对同一分片再次调用, 实现应覆盖而不是累加该分片的状态.</p>
+     */
+    private interface ShardPipeline {
+        void append(Pipeline pipeline, int shard);
+
+        /**
+         * pipeline.sync()之后调用
+         */
+        void collect(int shard);
+    }
 }
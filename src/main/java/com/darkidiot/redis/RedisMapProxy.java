@@ -1,13 +1,29 @@
 package com.darkidiot.redis;
 
+import com.darkidiot.redis.codec.Codec;
 import com.darkidiot.redis.common.Method;
+import com.darkidiot.redis.guard.PenetrationGuard;
 import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.loader.BulkLoader;
+import com.darkidiot.redis.loader.Loader;
+import com.darkidiot.redis.local.CacheStatsCounter;
+import com.darkidiot.redis.local.CacheStatsCounter.CountingBulkLoader;
+import com.darkidiot.redis.local.CacheStatsCounter.CountingLoader;
 import com.darkidiot.redis.subpub.LocalCacheSynchronizedCenter;
 import com.darkidiot.redis.validate.KeyValidation;
 import com.darkidiot.redis.validate.NopValidation;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.darkidiot.redis.config.RedisPropertyConstants.DEFAULT_LOCAL_CACHE_MAX_SIZE;
 
 /**
  * Redis 缓存代理类(封装本地缓存操作)
@@ -17,8 +33,17 @@ import java.util.List;
 @SuppressWarnings("unchecked")
 class RedisMapProxy<K extends Serializable, V extends Serializable> implements IRedisMap<K, V> {
 
-    private IRedisMap<K, V> redisCache;
-    private IRedisMap<K, V> localCache;
+    private RedisMap<K, V> redisCache;
+    private LocalMap<K, V> localCache;
+    /**
+     * 缓存穿透防护(未开启墓碑与布隆过滤器时为null)
+     */
+    private final PenetrationGuard guard;
+    /**
+     * 分组命中统计(未开启cache.stats时为null)
+     */
+    private final CacheStatsCounter stats;
+    private final Codec<K> keyCodec;
     /**
      * 开启本地缓存标示
      */
@@ -33,20 +58,28 @@ class RedisMapProxy<K extends Serializable, V extends Serializable> implements I
 
     private final KeyValidation<K> nop_validation = new NopValidation<>();
 
-    public RedisMapProxy(String name, IJedis jedis, int localCacheExpire) {
+    public RedisMapProxy(String name, IJedis jedis, int localCacheExpire, Codec<K> keyCodec, Codec<V> valueCodec) {
         this.jedis = jedis;
         this.name = name;
-        this.redisCache = new RedisMap<>(name, jedis);
+        this.redisCache = new RedisMap<>(name, jedis, keyCodec, valueCodec);
+        this.keyCodec = redisCache.getKeyCodec();
         this.openLocalCacheFlag = jedis.baseConfig().getOpenLocalCache();
         this.service = jedis.baseConfig().getServerName();
         if (openLocalCacheFlag) {
-            this.localCache = new LocalMap<>(name, localCacheExpire);
-            LocalCacheSynchronizedCenter.subscribe(service, jedis, (LocalMap<String, ? extends Serializable>) localCache);
+            Integer maximumSize = jedis.baseConfig().getLocalCacheMaxSize();
+            this.localCache = LocalMap.shared(name, localCacheExpire, maximumSize == null ? DEFAULT_LOCAL_CACHE_MAX_SIZE : maximumSize, this.keyCodec);
+            LocalCacheSynchronizedCenter.subscribe(service, jedis, localCache);
         }
+        this.guard = PenetrationGuard.of(name, jedis, this.keyCodec);
+        this.stats = CacheStatsCounter.of(name, jedis.baseConfig(), localCache);
+    }
+
+    public RedisMapProxy(String name, IJedis jedis, Codec<K> keyCodec, Codec<V> valueCodec) {
+        this(name, jedis, expire, keyCodec, valueCodec);
     }
 
     public RedisMapProxy(String name, IJedis jedis) {
-        this(name, jedis, expire);
+        this(name, jedis, expire, null, null);
     }
 
     @Override
@@ -58,9 +91,24 @@ class RedisMapProxy<K extends Serializable, V extends Serializable> implements I
     public void put(K key, V value, KeyValidation<K>... validations) {
         if (openLocalCacheFlag) {
             localCache.put(key, value, validations);
-            LocalCacheSynchronizedCenter.publish(jedis, this.service, getName(), Method.put, key);
+            LocalCacheSynchronizedCenter.publish(jedis, this.service, getName(), Method.put, keyCodec.encode(key));
         }
         redisCache.put(key, value, validations);
+        if (guard != null && key != null) {
+            guard.onWrite(Collections.singletonList(keyCodec.encode(key)));
+        }
+    }
+
+    @Override
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        if (openLocalCacheFlag) {
+            localCache.put(key, value, ttl, unit);
+            LocalCacheSynchronizedCenter.publish(jedis, this.service, getName(), Method.put, keyCodec.encode(key));
+        }
+        redisCache.put(key, value, ttl, unit);
+        if (guard != null && key != null) {
+            guard.onWrite(Collections.singletonList(keyCodec.encode(key)));
+        }
     }
 
     @Override
@@ -72,11 +120,108 @@ class RedisMapProxy<K extends Serializable, V extends Serializable> implements I
     public V get(K key, KeyValidation<K>... validations) {
         if (openLocalCacheFlag) {
             V v = localCache.get(key, validations);
+            if (stats != null) {
+                stats.recordLocal(v != null ? 1 : 0, v != null ? 0 : 1);
+            }
             if (v != null) {
                 return v;
             }
         }
-        return redisCache.get(key, validations);
+        if (knownAbsent(key)) {
+            return null;
+        }
+        V v = redisCache.get(key, validations);
+        if (stats != null) {
+            stats.recordRedis(v != null ? 1 : 0, v != null ? 0 : 1);
+        }
+        return v;
+    }
+
+    @Override
+    public V get(K key, Loader<K, V> loader) {
+        if (openLocalCacheFlag) {
+            V v = localCache.get(key);
+            if (stats != null) {
+                stats.recordLocal(v != null ? 1 : 0, v != null ? 0 : 1);
+            }
+            if (v != null) {
+                return v;
+            }
+        }
+        if (knownAbsent(key)) {
+            return null;
+        }
+        CountingLoader<K, V> counting = stats == null || loader == null ? null : stats.counting(loader);
+        if (counting != null) {
+            loader = counting;
+        }
+        V v = redisCache.get(key, guard == null || loader == null ? loader : guarded(loader));
+        if (stats != null) {
+            boolean redisHit = v != null && (counting == null || !counting.found());
+            stats.recordRedis(redisHit ? 1 : 0, redisHit ? 0 : 1);
+        }
+        if (openLocalCacheFlag && v != null) {
+            localCache.put(key, v);
+        } else if (openLocalCacheFlag && key != null && loader != null && guard != null && guard.isNegativeCacheEnabled()) {
+            localCache.putTombstone(key, guard.getNegativeCacheExpire() * 1000L);
+        }
+        return v;
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<K> keys, BulkLoader<K, V> loader) {
+        if ((!openLocalCacheFlag && guard == null && stats == null) || keys == null) {
+            return redisCache.getAll(keys, loader);
+        }
+        Map<K, V> hits = openLocalCacheFlag ? localCache.getAll(keys) : new LinkedHashMap<K, V>();
+        List<K> misses = new ArrayList<>();
+        int localMisses = 0;
+        for (K key : keys) {
+            if (key != null && !hits.containsKey(key)) {
+                localMisses++;
+                if (!knownAbsent(key)) {
+                    misses.add(key);
+                }
+            }
+        }
+        if (stats != null && openLocalCacheFlag) {
+            stats.recordLocal(hits.size(), localMisses);
+        }
+        if (misses.isEmpty()) {
+            return hits;
+        }
+        CountingBulkLoader<K, V> counting = stats == null || loader == null ? null : stats.counting(loader);
+        if (counting != null) {
+            loader = counting;
+        }
+        Map<K, V> loaded = redisCache.getAll(misses, guard == null || loader == null ? loader : guarded(loader));
+        if (stats != null) {
+            long redisHits = loaded.size() - (counting == null ? 0 : counting.found());
+            stats.recordRedis(redisHits, misses.size() - redisHits);
+        }
+        if (openLocalCacheFlag) {
+            for (Map.Entry<K, V> entry : loaded.entrySet()) {
+                localCache.put(entry.getKey(), entry.getValue());
+            }
+            if (loader != null && guard != null && guard.isNegativeCacheEnabled()) {
+                for (K key : misses) {
+                    if (!loaded.containsKey(key)) {
+                        localCache.putTombstone(key, guard.getNegativeCacheExpire() * 1000L);
+                    }
+                }
+            }
+        }
+        Map<K, V> result = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (key == null) {
+                continue;
+            }
+            V value = hits.containsKey(key) ? hits.get(key) : loaded.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -86,13 +231,68 @@ class RedisMapProxy<K extends Serializable, V extends Serializable> implements I
 
     @Override
     public List<V> getList(List<K> keys, KeyValidation<K>... validations) {
-        if (openLocalCacheFlag) {
-            List<V> list = localCache.getList(keys, validations);
-            if (list != null && list.size() != 0) {
-                return list;
+        if ((!openLocalCacheFlag && guard == null && stats == null) || keys == null || keys.size() == 0) {
+            return redisCache.getList(keys, validations);
+        }
+        List<V> list = openLocalCacheFlag ? localCache.getList(keys, validations) : new ArrayList<>(Collections.<V>nCopies(keys.size(), null));
+        List<Integer> positions = new ArrayList<>();
+        List<K> misses = new ArrayList<>();
+        int localHits = 0, localMisses = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            if (list.get(i) != null) {
+                localHits++;
+            } else if (keys.get(i) != null) {
+                localMisses++;
+                if (!knownAbsent(keys.get(i))) {
+                    positions.add(i);
+                    misses.add(keys.get(i));
+                }
+            }
+        }
+        if (stats != null && openLocalCacheFlag) {
+            stats.recordLocal(localHits, localMisses);
+        }
+        if (misses.isEmpty()) {
+            return list;
+        }
+        // 本地未命中的key一次HMGET获取, 并回填本地缓存
+        List<V> values = redisCache.getList(misses, validations);
+        int redisHits = 0;
+        for (int i = 0; i < misses.size(); i++) {
+            V value = values.get(i);
+            if (value != null) {
+                redisHits++;
+                list.set(positions.get(i), value);
+                if (openLocalCacheFlag) {
+                    localCache.put(misses.get(i), value);
+                }
             }
         }
-        return redisCache.getList(keys, validations);
+        if (stats != null) {
+            stats.recordRedis(redisHits, misses.size() - redisHits);
+        }
+        return list;
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        return getAll(keys, nop_validation);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<K> keys, KeyValidation<K>... validations) {
+        Map<K, V> result = new LinkedHashMap<>();
+        if (keys == null || keys.isEmpty()) {
+            return result;
+        }
+        List<K> keyList = new ArrayList<>(keys);
+        List<V> values = getList(keyList, validations);
+        for (int i = 0; i < keyList.size(); i++) {
+            if (values.get(i) != null) {
+                result.put(keyList.get(i), values.get(i));
+            }
+        }
+        return result;
     }
 
     @Override
@@ -104,7 +304,7 @@ class RedisMapProxy<K extends Serializable, V extends Serializable> implements I
     public void remove(K key, KeyValidation<K>... validations) {
         if (openLocalCacheFlag) {
             localCache.remove(key, validations);
-            LocalCacheSynchronizedCenter.publish(jedis, this.service, getName(), Method.remove, key);
+            LocalCacheSynchronizedCenter.publish(jedis, this.service, getName(), Method.remove, keyCodec.encode(key));
         }
         redisCache.remove(key, validations);
     }
@@ -123,11 +323,94 @@ class RedisMapProxy<K extends Serializable, V extends Serializable> implements I
         return contains || redisCache.contains(key, validations);
     }
 
+    @Override
+    public Map<K, Boolean> putAll(Map<K, V> entries) {
+        return putAll(entries, nop_validation);
+    }
+
+    @Override
+    public Map<K, Boolean> putAll(Map<K, V> entries, KeyValidation<K>... validations) {
+        Map<K, Boolean> result = redisCache.putAll(entries, validations);
+        if ((openLocalCacheFlag || guard != null) && !result.isEmpty()) {
+            List<byte[]> written = new ArrayList<>(result.size());
+            for (Map.Entry<K, Boolean> entry : result.entrySet()) {
+                if (entry.getValue()) {
+                    if (openLocalCacheFlag) {
+                        localCache.put(entry.getKey(), entries.get(entry.getKey()));
+                    }
+                    written.add(keyCodec.encode(entry.getKey()));
+                }
+            }
+            if (openLocalCacheFlag) {
+                LocalCacheSynchronizedCenter.publish(jedis, this.service, getName(), Method.put, written);
+            }
+            if (guard != null) {
+                guard.onWrite(written);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<K, Boolean> removeAll(Collection<K> keys) {
+        return removeAll(keys, nop_validation);
+    }
+
+    @Override
+    public Map<K, Boolean> removeAll(Collection<K> keys, KeyValidation<K>... validations) {
+        Map<K, Boolean> result = redisCache.removeAll(keys, validations);
+        if (openLocalCacheFlag && !result.isEmpty()) {
+            localCache.removeAll(result.keySet());
+            List<byte[]> removed = new ArrayList<>(result.size());
+            for (K key : result.keySet()) {
+                removed.add(keyCodec.encode(key));
+            }
+            LocalCacheSynchronizedCenter.publish(jedis, this.service, getName(), Method.remove, removed);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<K, Boolean> containsAll(Collection<K> keys) {
+        return containsAll(keys, nop_validation);
+    }
+
+    @Override
+    public Map<K, Boolean> containsAll(Collection<K> keys, KeyValidation<K>... validations) {
+        if (!openLocalCacheFlag || keys == null) {
+            return redisCache.containsAll(keys, validations);
+        }
+        Map<K, Boolean> result = localCache.containsAll(keys, validations);
+        List<K> misses = new ArrayList<>();
+        for (Map.Entry<K, Boolean> entry : result.entrySet()) {
+            if (!entry.getValue()) {
+                misses.add(entry.getKey());
+            }
+        }
+        if (!misses.isEmpty()) {
+            result.putAll(redisCache.containsAll(misses, validations));
+        }
+        return result;
+    }
+
     @Override
     public int size() {
         return redisCache.size();
     }
 
+    /**
+     * 直接遍历redis(本地缓存只包含部分条目), 不回填本地缓存
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> scan(int batch) {
+        return redisCache.scan(batch);
+    }
+
+    @Override
+    public void forEach(int batch, EntryConsumer<K, V> consumer) {
+        redisCache.forEach(batch, consumer);
+    }
+
     @Override
     public String getName() {
         return this.name;
@@ -137,8 +420,89 @@ class RedisMapProxy<K extends Serializable, V extends Serializable> implements I
     public void clear() {
         if (openLocalCacheFlag) {
             localCache.clear();
-            LocalCacheSynchronizedCenter.publish(jedis, this.service, getName(), Method.remove, "");
+            LocalCacheSynchronizedCenter.publish(jedis, this.service, getName(), Method.clear, (byte[]) null);
         }
         redisCache.clear();
     }
+
+    /**
+     * 本地墓碑判定key不存在(布隆过滤器只在redis未命中后拦截回源, 不跳过redis)
+     */
+    private boolean knownAbsent(K key) {
+        if (guard == null || key == null) {
+            return false;
+        }
+        if (openLocalCacheFlag && guard.isNegativeCacheEnabled() && localCache.isTombstone(key)) {
+            guard.recordNegativeHit();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * redis未命中后回源前: 布隆过滤器判定一定不存在或存在redis墓碑时不回源; 回源确认不存在时写入墓碑, 加载到的key加入布隆过滤器
+     */
+    private Loader<K, V> guarded(final Loader<K, V> loader) {
+        return new Loader<K, V>() {
+            @Override
+            public V load(K key) throws Exception {
+                List<byte[]> encoded = Collections.singletonList(keyCodec.encode(key));
+                if (guard.rejects(encoded.get(0)) || guard.tombstoned(encoded)[0]) {
+                    return null;
+                }
+                V value = loader.load(key);
+                if (value == null) {
+                    guard.tombstone(encoded);
+                } else {
+                    guard.remember(encoded);
+                }
+                return value;
+            }
+        };
+    }
+
+    private BulkLoader<K, V> guarded(final BulkLoader<K, V> loader) {
+        return new BulkLoader<K, V>() {
+            @Override
+            public Map<K, V> loadAll(Collection<K> keys) throws Exception {
+                List<K> keyList = new ArrayList<>(keys);
+                List<byte[]> encoded = new ArrayList<>(keyList.size());
+                for (K key : keyList) {
+                    encoded.add(keyCodec.encode(key));
+                }
+                List<K> candidates = new ArrayList<>(keyList.size());
+                List<byte[]> candidatesEncoded = new ArrayList<>(keyList.size());
+                for (int i = 0; i < keyList.size(); i++) {
+                    if (!guard.rejects(encoded.get(i))) {
+                        candidates.add(keyList.get(i));
+                        candidatesEncoded.add(encoded.get(i));
+                    }
+                }
+                boolean[] tombstoned = guard.tombstoned(candidatesEncoded);
+                List<K> live = new ArrayList<>(candidates.size());
+                List<byte[]> liveEncoded = new ArrayList<>(candidates.size());
+                for (int i = 0; i < candidates.size(); i++) {
+                    if (!tombstoned[i]) {
+                        live.add(candidates.get(i));
+                        liveEncoded.add(candidatesEncoded.get(i));
+                    }
+                }
+                if (live.isEmpty()) {
+                    return new LinkedHashMap<>();
+                }
+                Map<K, V> loaded = loader.loadAll(live);
+                if (loaded == null) {
+                    return null;
+                }
+                List<byte[]> absent = new ArrayList<>();
+                List<byte[]> present = new ArrayList<>();
+                for (int i = 0; i < live.size(); i++) {
+                    (loaded.get(live.get(i)) == null ? absent : present).add(liveEncoded.get(i));
+                }
+                guard.tombstone(absent);
+                guard.remember(present);
+                return loaded;
+            }
+        };
+    }
 }
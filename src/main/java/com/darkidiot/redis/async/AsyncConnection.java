@@ -0,0 +1,329 @@
+package com.darkidiot.redis.async;
+
+import com.darkidiot.redis.exception.RedisException;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.HostAndPort;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单个多路复用的非阻塞连接
+ * <ul>
+ * <li>任意线程提交的命令先进入无锁队列, 由事件循环一次取出全部待发送的命令编码后写出(自然形成pipeline), 应答按发送顺序依次匹配.</li>
+ * <li>首次提交或断开后再次提交时建立连接, 连接后先发送AUTH/SELECT.</li>
+ * <li>连接失败、服务端断开或最早的在途命令超过超时时间时关闭连接, 所有在途与待发送的命令以{@link RedisException}失败.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+final class AsyncConnection {
+
+    private static final int DISCONNECTED = 0;
+    private static final int CONNECTING = 1;
+    private static final int READY = 2;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    /**
+     * 单次写出的最大字节数(超过后先写出再继续编码, 避免写缓冲无限增长)
+     */
+    private static final int MAX_WRITE_SIZE = 256 * 1024;
+    /**
+     * 单次可读事件最多读取的次数(避免一个连接长期占用事件循环)
+     */
+    private static final int MAX_READS_PER_EVENT = 16;
+
+    private final String name;
+    private final EventLoop loop;
+    private final Supplier<HostAndPort> master;
+    private final List<byte[][]> handshake;
+    private final long timeoutNanos;
+
+    private final ConcurrentLinkedQueue<Batch> submitted = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled.set(false);
+            flush();
+        }
+    };
+    private volatile boolean closed;
+
+    /* 以下字段只在事件循环线程中访问 */
+    private int state = DISCONNECTED;
+    private SocketChannel channel;
+    private SelectionKey key;
+    private long connectStartedNanos;
+    private Resp decoder;
+    private final ArrayDeque<Batch> inflight = new ArrayDeque<>();
+    private final Resp.Output output = new Resp.Output(8192);
+    private ByteBuffer pending;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    /**
+     * @param handshake 建立连接后首先发送的命令(AUTH/SELECT)
+     */
+    AsyncConnection(String name, EventLoop loop, Supplier<HostAndPort> master, List<byte[][]> handshake, int timeoutMillis) {
+        this.name = name;
+        this.loop = loop;
+        this.master = master;
+        this.handshake = handshake;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        loop.register(this);
+    }
+
+    /**
+     * 提交一组命令(在同一连接上连续发送, 可包含MULTI/EXEC), 可在任意线程调用
+     */
+    void submit(Batch batch) {
+        if (closed) {
+            batch.future.setException(new RedisException("Redis async connection [" + name + "] is closed."));
+            return;
+        }
+        submitted.add(batch);
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(flushTask);
+        }
+    }
+
+    void close() {
+        closed = true;
+        loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                fail(new RedisException("Redis async connection [" + name + "] is closed."));
+                loop.unregister(AsyncConnection.this);
+            }
+        });
+    }
+
+    /**
+     * 编码并写出所有待发送的命令
+     */
+    private void flush() {
+        if (state != READY) {
+            if (state == DISCONNECTED && !submitted.isEmpty() && !closed) {
+                connect();
+            }
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            Batch batch;
+            while ((batch = submitted.poll()) != null) {
+                if (batch.future.isCancelled()) {
+                    continue;
+                }
+                for (byte[][] command : batch.commands) {
+                    Resp.encode(command, output);
+                }
+                batch.sentNanos = now;
+                inflight.add(batch);
+                if (output.size() >= MAX_WRITE_SIZE) {
+                    write();
+                }
+            }
+            write();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void connect() {
+        try {
+            HostAndPort address = master.get();
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().setKeepAlive(true);
+            decoder = Resp.decoder();
+            state = CONNECTING;
+            connectStartedNanos = System.nanoTime();
+            if (channel.connect(new InetSocketAddress(address.getHost(), address.getPort()))) {
+                key = channel.register(loop.selector(), SelectionKey.OP_READ, this);
+                onConnected();
+            } else {
+                key = channel.register(loop.selector(), SelectionKey.OP_CONNECT, this);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void onConnected() {
+        state = READY;
+        if (!handshake.isEmpty()) {
+            // 握手命令排在所有命令之前, 失败时关闭连接
+            Batch batch = new Batch(handshake);
+            for (byte[][] command : handshake) {
+                Resp.encode(command, output);
+            }
+            batch.sentNanos = System.nanoTime();
+            batch.handshake = true;
+            inflight.add(batch);
+        }
+        log.debug("Redis async connection [{}] connected to {}.", name, channel.socket().getRemoteSocketAddress());
+        flush();
+    }
+
+    /**
+     * 事件循环选中该连接时调用
+     */
+    void onSelected(SelectionKey selected) {
+        try {
+            if (selected.isValid() && selected.isConnectable()) {
+                channel.finishConnect();
+                selected.interestOps(SelectionKey.OP_READ);
+                onConnected();
+            }
+            if (selected.isValid() && selected.isWritable()) {
+                write();
+            }
+            if (selected.isValid() && selected.isReadable()) {
+                read();
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void write() throws IOException {
+        if (pending != null) {
+            channel.write(pending);
+            if (pending.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            pending = null;
+        }
+        if (output.size() > 0) {
+            ByteBuffer buffer = output.buffer();
+            channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                pending = ByteBuffer.allocate(buffer.remaining());
+                pending.put(buffer);
+                pending.flip();
+            }
+            output.reset();
+        }
+        key.interestOps(pending == null ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    private void read() throws IOException {
+        for (int i = 0; i < MAX_READS_PER_EVENT; i++) {
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                throw new IOException("connection closed by server");
+            }
+            if (read == 0) {
+                return;
+            }
+            readBuffer.flip();
+            decoder.feed(readBuffer);
+            readBuffer.clear();
+            Object reply;
+            while ((reply = decoder.next()) != Resp.NEED_MORE) {
+                Batch batch = inflight.peek();
+                if (batch == null) {
+                    throw new RedisException("unexpected reply without pending command");
+                }
+                if (batch.add(reply)) {
+                    inflight.poll();
+                    if (batch.handshake) {
+                        checkHandshake(batch.replies);
+                    } else {
+                        batch.future.set(batch.replies);
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkHandshake(List<Object> replies) {
+        for (Object reply : replies) {
+            if (reply instanceof RedisException) {
+                throw new RedisException("handshake failure: " + ((RedisException) reply).getMessage());
+            }
+        }
+    }
+
+    /**
+     * 连接超时或最早的在途命令超时时关闭连接(事件循环定期调用)
+     */
+    void checkTimeout(long now) {
+        if (state == CONNECTING && now - connectStartedNanos > timeoutNanos) {
+            fail(new RedisException("connect timed out"));
+        } else if (state == READY && !inflight.isEmpty() && now - inflight.peek().sentNanos > timeoutNanos) {
+            fail(new RedisException("read timed out"));
+        }
+    }
+
+    /**
+     * 关闭连接, 在途与待发送的命令全部失败; 之后再提交命令时重新连接
+     */
+    private void fail(Throwable cause) {
+        if (state != DISCONNECTED) {
+            log.warn("Redis async connection [{}] closed, {} commands in flight, cause by:{}", name, inflight.size(), cause.toString());
+        }
+        state = DISCONNECTED;
+        if (key != null) {
+            key.cancel();
+            key = null;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Redis async connection [{}] close failure, cause by:{}", name, e.getMessage());
+            }
+            channel = null;
+        }
+        pending = null;
+        output.reset();
+        RedisException error = new RedisException("Redis async connection [" + name + "] failure, cause by:" + cause.getMessage(), cause);
+        Batch batch;
+        while ((batch = inflight.poll()) != null) {
+            batch.future.setException(error);
+        }
+        while ((batch = submitted.poll()) != null) {
+            batch.future.setException(error);
+        }
+    }
+
+    /**
+     * 一组连续发送的命令及其应答
+     */
+    static final class Batch {
+        final List<byte[][]> commands;
+        final List<Object> replies;
+        final SettableFuture<List<Object>> future = SettableFuture.create();
+        long sentNanos;
+        boolean handshake;
+
+        Batch(List<byte[][]> commands) {
+            this.commands = commands;
+            this.replies = new ArrayList<>(commands.size());
+        }
+
+        /**
+         * @return 是否已收到全部应答
+         */
+        boolean add(Object reply) {
+            replies.add(reply);
+            return replies.size() == commands.size();
+        }
+    }
+}
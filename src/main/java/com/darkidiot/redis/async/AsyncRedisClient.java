@@ -0,0 +1,121 @@
+package com.darkidiot.redis.async;
+
+import com.darkidiot.redis.exception.RedisException;
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Protocol;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 基于NIO的异步redis客户端(单个服务的主节点)
+ * <ul>
+ * <li>少量多路复用的连接(async.connections)由进程内共享的事件循环线程驱动, 调用方线程提交命令后立即返回{@link ListenableFuture}, 不占用连接池.</li>
+ * <li>同一路由key(hash、队列)的命令总是发送到同一个连接, 保证按提交顺序执行.</li>
+ * <li>应答在事件循环线程中完成future, 通过{@link Futures#addCallback}等注册的回调默认也在该线程执行, 回调中不能有阻塞操作(阻塞回调请指定执行器).</li>
+ * <li>不支持集群模式, 哨兵模式下重连时使用当前的主节点.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+public final class AsyncRedisClient {
+
+    private final String service;
+    private final AsyncConnection[] connections;
+
+    /**
+     * @param master      主节点地址(每次建立连接时获取)
+     * @param password    密码, 为空时不发送AUTH
+     * @param dbIndex     数据库, 为0时不发送SELECT
+     * @param connections 连接数
+     */
+    public AsyncRedisClient(String service, Supplier<HostAndPort> master, String password, int dbIndex, int timeoutMillis, int connections) {
+        if (connections <= 0) {
+            throw new IllegalArgumentException("the connections of AsyncRedisClient must be positive.");
+        }
+        List<byte[][]> handshake = new ArrayList<>(2);
+        if (password != null && !password.isEmpty()) {
+            handshake.add(command(Protocol.Command.AUTH.raw, SafeEncoder.encode(password)));
+        }
+        if (dbIndex != 0) {
+            handshake.add(command(Protocol.Command.SELECT.raw, Protocol.toByteArray(dbIndex)));
+        }
+        EventLoop loop = EventLoop.shared();
+        this.service = service;
+        this.connections = new AsyncConnection[connections];
+        for (int i = 0; i < connections; i++) {
+            this.connections[i] = new AsyncConnection(service + "#" + i, loop, master, handshake, timeoutMillis);
+        }
+        log.info("AsyncRedisClient of service [{}] created with {} connections.", service, connections);
+    }
+
+    /**
+     * 在同一连接上连续发送一组命令(可以是完整的MULTI ... EXEC)
+     *
+     * @param routingKey 路由key, 相同路由key的命令按提交顺序执行
+     * @return 与commands一一对应的应答, 错误应答以{@link RedisException}对象出现在对应位置; 连接失败或超时时future失败
+     */
+    public ListenableFuture<List<Object>> submit(byte[] routingKey, List<byte[][]> commands) {
+        if (commands == null || commands.isEmpty()) {
+            return Futures.immediateFuture(Collections.emptyList());
+        }
+        AsyncConnection.Batch batch = new AsyncConnection.Batch(commands);
+        connections[indexOf(routingKey)].submit(batch);
+        return batch.future;
+    }
+
+    /**
+     * 发送单条命令
+     *
+     * @return 命令的应答, 错误应答时future以{@link RedisException}失败
+     */
+    public ListenableFuture<Object> execute(byte[] routingKey, byte[]... command) {
+        return Futures.transform(submit(routingKey, Collections.singletonList(command)), new Function<List<Object>, Object>() {
+            @Override
+            public Object apply(List<Object> replies) {
+                return check(replies.get(0));
+            }
+        });
+    }
+
+    /**
+     * 关闭所有连接, 在途命令以{@link RedisException}失败
+     */
+    public void close() {
+        for (AsyncConnection connection : connections) {
+            connection.close();
+        }
+        log.info("AsyncRedisClient of service [{}] closed.", service);
+    }
+
+    /**
+     * @return 非错误应答原样返回, 错误应答抛出
+     */
+    public static Object check(Object reply) {
+        if (reply instanceof RedisException) {
+            throw (RedisException) reply;
+        }
+        return reply;
+    }
+
+    public static byte[][] command(byte[]... args) {
+        return args;
+    }
+
+    private int indexOf(byte[] routingKey) {
+        if (connections.length == 1 || routingKey == null) {
+            return 0;
+        }
+        int hash = Arrays.hashCode(routingKey);
+        return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % connections.length;
+    }
+}
@@ -0,0 +1,109 @@
+package com.darkidiot.redis.async;
+
+import com.darkidiot.redis.exception.RedisException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * 异步连接的事件循环: 单个守护线程通过一个Selector驱动所有异步连接的连接、读写与超时检查
+ * <p>连接的状态只在本线程中修改, 其他线程通过{@link #execute}提交任务.</p>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+final class EventLoop implements Runnable {
+
+    /**
+     * select的最长阻塞时间, 同时是超时检查的间隔
+     */
+    private static final long TICK_MILLIS = 50;
+
+    private static volatile EventLoop shared;
+
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<AsyncConnection> connections = new CopyOnWriteArraySet<>();
+    private final Thread thread;
+
+    private EventLoop() {
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new RedisException("Open selector for async redis client failure.", e);
+        }
+        this.thread = new Thread(this, "Thread-RedisAsyncEventLoop");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 进程内所有异步客户端共用一个事件循环(redis命令的处理耗时远小于网络往返, 单线程足以驱动多个连接)
+     */
+    static EventLoop shared() {
+        if (shared == null) {
+            synchronized (EventLoop.class) {
+                if (shared == null) {
+                    shared = new EventLoop();
+                }
+            }
+        }
+        return shared;
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    void register(AsyncConnection connection) {
+        connections.add(connection);
+    }
+
+    void unregister(AsyncConnection connection) {
+        connections.remove(connection);
+    }
+
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime();
+        while (true) {
+            try {
+                selector.select(TICK_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    ((AsyncConnection) key.attachment()).onSelected(key);
+                }
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                long now = System.nanoTime();
+                if (now - nextTick >= 0) {
+                    nextTick = now + TICK_MILLIS * 1000000L;
+                    for (AsyncConnection connection : connections) {
+                        connection.checkTimeout(now);
+                    }
+                }
+            } catch (Throwable e) {
+                log.error("Redis async event loop error, cause by:{}", e.toString(), e);
+            }
+        }
+    }
+}
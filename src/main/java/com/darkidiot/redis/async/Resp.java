@@ -0,0 +1,227 @@
+package com.darkidiot.redis.async;
+
+import com.darkidiot.redis.exception.RedisException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RESP协议的编码与增量解码
+ * <ul>
+ * <li>应答类型: 状态为String, 错误为{@link RedisException}, 整数为Long, 字符串为byte[], 数组为List, nil为null.</li>
+ * <li>解码器按到达的字节增量解析, 不完整的应答保留到下一次读取; 只在事件循环线程中使用.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+final class Resp {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * 不完整应答的标记(不记录堆栈)
+     */
+    private static final RuntimeException INCOMPLETE = new RuntimeException("incomplete reply", null, false, false) {
+        private static final long serialVersionUID = 1L;
+    };
+
+    /**
+     * 解码器的返回值: 已到达的字节不足以构成一个完整应答
+     */
+    static final Object NEED_MORE = new Object();
+
+    private byte[] buffer = new byte[8192];
+    private int start;
+    private int end;
+    private int cursor;
+
+    private Resp() {
+    }
+
+    static Resp decoder() {
+        return new Resp();
+    }
+
+    /**
+     * 将命令编码追加到out
+     */
+    static void encode(byte[][] command, Output out) {
+        out.write((byte) '*');
+        out.writeNumber(command.length);
+        out.write(CRLF);
+        for (byte[] arg : command) {
+            out.write((byte) '$');
+            out.writeNumber(arg.length);
+            out.write(CRLF);
+            out.write(arg);
+            out.write(CRLF);
+        }
+    }
+
+    /**
+     * 追加读取到的字节
+     */
+    void feed(ByteBuffer bytes) {
+        int length = bytes.remaining();
+        if (end + length > buffer.length) {
+            int used = end - start;
+            if (used + length > buffer.length / 2) {
+                buffer = Arrays.copyOfRange(buffer, start, start + Math.max(buffer.length * 2, used + length));
+            } else {
+                System.arraycopy(buffer, start, buffer, 0, used);
+            }
+            start = 0;
+            end = used;
+        }
+        bytes.get(buffer, end, length);
+        end += length;
+    }
+
+    /**
+     * @return 下一个完整的应答, 字节不足时返回{@link #NEED_MORE}
+     */
+    Object next() {
+        if (start == end) {
+            return NEED_MORE;
+        }
+        cursor = start;
+        try {
+            Object reply = parse();
+            start = cursor;
+            if (start == end) {
+                start = 0;
+                end = 0;
+            }
+            return reply;
+        } catch (RuntimeException e) {
+            if (e == INCOMPLETE) {
+                return NEED_MORE;
+            }
+            throw e;
+        }
+    }
+
+    private Object parse() {
+        if (cursor >= end) {
+            throw INCOMPLETE;
+        }
+        byte type = buffer[cursor++];
+        switch (type) {
+            case '+':
+                return line();
+            case '-':
+                return new RedisException(line());
+            case ':':
+                return number();
+            case '$': {
+                long length = number();
+                if (length < 0) {
+                    return null;
+                }
+                if (cursor + length + 2 > end) {
+                    throw INCOMPLETE;
+                }
+                byte[] bulk = Arrays.copyOfRange(buffer, cursor, cursor + (int) length);
+                cursor += (int) length + 2;
+                return bulk;
+            }
+            case '*': {
+                long size = number();
+                if (size < 0) {
+                    return null;
+                }
+                List<Object> items = new ArrayList<>((int) size);
+                for (long i = 0; i < size; i++) {
+                    items.add(parse());
+                }
+                return items;
+            }
+            default:
+                throw new RedisException("Unknown reply type: " + (char) type);
+        }
+    }
+
+    private String line() {
+        int from = cursor;
+        int lf = lineEnd();
+        return new String(buffer, from, lf - 1 - from, StandardCharsets.UTF_8);
+    }
+
+    private long number() {
+        int pos = cursor;
+        int lf = lineEnd();
+        boolean negative = buffer[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+        long value = 0;
+        for (; pos < lf - 1; pos++) {
+            value = value * 10 + (buffer[pos] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * 定位当前行的'\n', 并把cursor移到下一行
+     */
+    private int lineEnd() {
+        for (int i = cursor; i < end; i++) {
+            if (buffer[i] == '\n') {
+                cursor = i + 1;
+                return i;
+            }
+        }
+        throw INCOMPLETE;
+    }
+
+    /**
+     * 可增长的写缓冲
+     */
+    static final class Output {
+        private byte[] bytes;
+        private int size;
+
+        Output(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        void write(byte b) {
+            ensure(1);
+            bytes[size++] = b;
+        }
+
+        void write(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+
+        void writeNumber(int value) {
+            write(Integer.toString(value).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return 已写入内容的ByteBuffer视图, 之后调用{@link #reset()}前不能再写入
+         */
+        ByteBuffer buffer() {
+            return ByteBuffer.wrap(bytes, 0, size);
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+    }
+}
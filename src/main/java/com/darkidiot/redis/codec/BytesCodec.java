@@ -0,0 +1,19 @@
+package com.darkidiot.redis.codec;
+
+/**
+ * 原始二进制编解码(不做任何转换)
+ *
+ * @author darkidiot
+ */
+public class BytesCodec implements Codec<byte[]> {
+
+    @Override
+    public byte[] encode(byte[] value) {
+        return value;
+    }
+
+    @Override
+    public byte[] decode(byte[] bytes) {
+        return bytes;
+    }
+}
@@ -0,0 +1,33 @@
+package com.darkidiot.redis.codec;
+
+import com.darkidiot.redis.exception.CodecException;
+
+/**
+ * 序列化编解码接口(key/value与redis二进制数据之间的转换)
+ * <ul>
+ * <li>实现类必须是线程安全的,同一个实例会被多个线程共享.</li>
+ * <li>decode(null)应返回null,表示redis中不存在该值.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+public interface Codec<T> {
+
+    /**
+     * 编码
+     *
+     * @param value 待编码对象
+     * @return 二进制数据
+     * @throws CodecException
+     */
+    byte[] encode(T value) throws CodecException;
+
+    /**
+     * 解码
+     *
+     * @param bytes 二进制数据
+     * @return 解码后的对象
+     * @throws CodecException
+     */
+    T decode(byte[] bytes) throws CodecException;
+}
@@ -0,0 +1,94 @@
+package com.darkidiot.redis.codec;
+
+import com.darkidiot.redis.config.RedisInitParam;
+import com.darkidiot.redis.util.StringUtil;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import static com.darkidiot.redis.config.RedisPropertyConstants.DEFAULT_CODEC;
+
+/**
+ * 内置编解码器工厂(按名称获取,对应配置文件中的[service].codec)
+ *
+ * @author darkidiot
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Codecs {
+
+    public static final String BYTES = "bytes";
+    public static final String STRING = "string";
+    public static final String VARINT = "varint";
+    public static final String VARLONG = "varlong";
+    public static final String COMPACT = "compact";
+    public static final String JDK = "jdk";
+
+    private static final BytesCodec BYTES_CODEC = new BytesCodec();
+    private static final StringCodec STRING_CODEC = new StringCodec();
+    private static final VarIntCodec VARINT_CODEC = new VarIntCodec();
+    private static final VarLongCodec VARLONG_CODEC = new VarLongCodec();
+    private static final CompactObjectCodec COMPACT_CODEC = new CompactObjectCodec();
+    private static final JdkCodec JDK_CODEC = new JdkCodec();
+
+    public static Codec<byte[]> bytes() {
+        return BYTES_CODEC;
+    }
+
+    public static Codec<String> string() {
+        return STRING_CODEC;
+    }
+
+    public static Codec<Integer> varInt() {
+        return VARINT_CODEC;
+    }
+
+    public static Codec<Long> varLong() {
+        return VARLONG_CODEC;
+    }
+
+    public static Codec<Object> compact() {
+        return COMPACT_CODEC;
+    }
+
+    public static Codec<Object> jdk() {
+        return JDK_CODEC;
+    }
+
+    /**
+     * 根据名称获取内置编解码器(名称为空时使用默认的compact)
+     *
+     * @param name bytes|string|varint|varlong|compact|jdk
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Codec<T> forName(String name) {
+        String codecName = StringUtil.isEmpty(name) ? DEFAULT_CODEC : name.trim().toLowerCase();
+        switch (codecName) {
+            case BYTES:
+                return (Codec<T>) BYTES_CODEC;
+            case STRING:
+                return (Codec<T>) STRING_CODEC;
+            case VARINT:
+                return (Codec<T>) VARINT_CODEC;
+            case VARLONG:
+                return (Codec<T>) VARLONG_CODEC;
+            case COMPACT:
+                return (Codec<T>) COMPACT_CODEC;
+            case JDK:
+                return (Codec<T>) JDK_CODEC;
+            default:
+                throw new IllegalArgumentException("Unknown codec [" + name + "], use as: bytes|string|varint|varlong|compact|jdk.");
+        }
+    }
+
+    /**
+     * 获取服务配置的编解码器
+     *
+     * @param initParam 服务配置
+     * @return
+     */
+    public static <T> Codec<T> forService(RedisInitParam initParam) {
+        return forName(initParam == null ? null : initParam.getCodec());
+    }
+}
@@ -0,0 +1,473 @@
+package com.darkidiot.redis.codec;
+
+import com.darkidiot.redis.exception.CodecException;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 紧凑的反射式对象编解码(类似Kryo的FieldSerializer)
+ * <ul>
+ * <li>基本类型及其包装类、String、byte[]、枚举采用类型标记+varint的紧凑格式.</li>
+ * <li>java.util下带无参构造器的集合/Map按元素逐个编码,对象数组按元素逐个编码.</li>
+ * <li>自定义对象(需有无参构造器)按字段编码:非static、非transient字段按继承层次+字段名排序依次写入,同一条数据中的类名只写一次.</li>
+ * <li>无法按字段编码的对象(无无参构造器、JDK内部类型如Date/BigDecimal及其子类、自定义的集合/Map子类、循环引用等)自动退化为java原生序列化.</li>
+ * </ul>
+ * <b>Notice:</b> 字段编码不包含字段名,类结构(字段增删)变更后需清理对应的旧缓存.
+ *
+ * @author darkidiot
+ */
+public class CompactObjectCodec implements Codec<Object> {
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte CHAR = 5;
+    private static final byte INT = 6;
+    private static final byte LONG = 7;
+    private static final byte FLOAT = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte STRING = 10;
+    private static final byte BYTES = 11;
+    private static final byte ENUM = 12;
+    private static final byte ARRAY = 13;
+    private static final byte COLLECTION = 14;
+    private static final byte MAP = 15;
+    private static final byte OBJECT = 16;
+    private static final byte JDK = 17;
+
+    private final JdkCodec jdkCodec = new JdkCodec();
+
+    private final ConcurrentMap<Class<?>, ClassMeta> metas = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<>();
+
+    @Override
+    public byte[] encode(Object value) {
+        Output out = new Output(64);
+        try {
+            new Writer(out).write(value);
+        } catch (CycleDetectedException e) {
+            out = new Output(256);
+            writeJdk(out, value);
+        }
+        return out.toBytes();
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        return new Reader(new Input(bytes)).read();
+    }
+
+    private void writeJdk(Output out, Object value) {
+        out.writeByte(JDK);
+        out.writeLengthPrefixed(jdkCodec.encode(value));
+    }
+
+    private ClassMeta meta(Class<?> type) {
+        ClassMeta meta = metas.get(type);
+        if (meta == null) {
+            meta = new ClassMeta(type);
+            ClassMeta exist = metas.putIfAbsent(type, meta);
+            if (exist != null) {
+                meta = exist;
+            }
+        }
+        return meta;
+    }
+
+    private Class<?> resolve(String name) {
+        Class<?> type = classes.get(name);
+        if (type == null) {
+            try {
+                ClassLoader loader = Thread.currentThread().getContextClassLoader();
+                type = Class.forName(name, false, loader == null ? CompactObjectCodec.class.getClassLoader() : loader);
+            } catch (ClassNotFoundException e) {
+                throw new CodecException("CompactObjectCodec can not find class " + name + ".", e);
+            }
+            classes.putIfAbsent(name, type);
+        }
+        return type;
+    }
+
+    /**
+     * 编码上下文(单次encode有效):类名表与循环引用检测
+     */
+    private class Writer {
+        private final Output out;
+        private final Map<Class<?>, Integer> classIds = new HashMap<>();
+        private final IdentityHashMap<Object, Boolean> path = new IdentityHashMap<>();
+
+        Writer(Output out) {
+            this.out = out;
+        }
+
+        void write(Object value) {
+            if (value == null) {
+                out.writeByte(NULL);
+                return;
+            }
+            Class<?> type = value.getClass();
+            if (type == String.class) {
+                out.writeByte(STRING).writeString((String) value);
+            } else if (type == Integer.class) {
+                out.writeByte(INT).writeZigZagInt((Integer) value);
+            } else if (type == Long.class) {
+                out.writeByte(LONG).writeZigZagLong((Long) value);
+            } else if (type == Boolean.class) {
+                out.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (type == Double.class) {
+                out.writeByte(DOUBLE).writeLong(Double.doubleToLongBits((Double) value));
+            } else if (type == Float.class) {
+                out.writeByte(FLOAT).writeInt(Float.floatToIntBits((Float) value));
+            } else if (type == Short.class) {
+                out.writeByte(SHORT).writeZigZagInt((Short) value);
+            } else if (type == Byte.class) {
+                out.writeByte(BYTE).writeByte((Byte) value);
+            } else if (type == Character.class) {
+                out.writeByte(CHAR).writeVarInt((Character) value);
+            } else if (type == byte[].class) {
+                out.writeByte(BYTES).writeLengthPrefixed((byte[]) value);
+            } else if (value instanceof Enum) {
+                out.writeByte(ENUM);
+                writeClass(((Enum<?>) value).getDeclaringClass());
+                out.writeVarInt(((Enum<?>) value).ordinal());
+            } else if (type.isArray() && !type.getComponentType().isPrimitive()) {
+                enter(value);
+                Object[] array = (Object[]) value;
+                out.writeByte(ARRAY);
+                writeClass(type.getComponentType());
+                out.writeVarInt(array.length);
+                for (Object element : array) {
+                    write(element);
+                }
+                exit(value);
+            } else if (value instanceof Collection && meta(type).isContainer()) {
+                enter(value);
+                Collection<?> collection = (Collection<?>) value;
+                out.writeByte(COLLECTION);
+                writeClass(type);
+                out.writeVarInt(collection.size());
+                for (Object element : collection) {
+                    write(element);
+                }
+                exit(value);
+            } else if (value instanceof Map && meta(type).isContainer()) {
+                enter(value);
+                Map<?, ?> map = (Map<?, ?>) value;
+                out.writeByte(MAP);
+                writeClass(type);
+                out.writeVarInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    write(entry.getKey());
+                    write(entry.getValue());
+                }
+                exit(value);
+            } else if (meta(type).isBean()) {
+                enter(value);
+                out.writeByte(OBJECT);
+                writeClass(type);
+                for (Field field : meta(type).fields) {
+                    writeField(field, value);
+                }
+                exit(value);
+            } else {
+                writeJdk(out, value);
+            }
+        }
+
+        private void writeField(Field field, Object owner) {
+            try {
+                Class<?> fieldType = field.getType();
+                if (!fieldType.isPrimitive()) {
+                    write(field.get(owner));
+                } else if (fieldType == int.class) {
+                    out.writeZigZagInt(field.getInt(owner));
+                } else if (fieldType == long.class) {
+                    out.writeZigZagLong(field.getLong(owner));
+                } else if (fieldType == boolean.class) {
+                    out.writeByte(field.getBoolean(owner) ? 1 : 0);
+                } else if (fieldType == double.class) {
+                    out.writeLong(Double.doubleToLongBits(field.getDouble(owner)));
+                } else if (fieldType == float.class) {
+                    out.writeInt(Float.floatToIntBits(field.getFloat(owner)));
+                } else if (fieldType == short.class) {
+                    out.writeZigZagInt(field.getShort(owner));
+                } else if (fieldType == byte.class) {
+                    out.writeByte(field.getByte(owner));
+                } else {
+                    out.writeVarInt(field.getChar(owner));
+                }
+            } catch (IllegalAccessException e) {
+                throw new CodecException("CompactObjectCodec can not read field " + field + ".", e);
+            }
+        }
+
+        private void writeClass(Class<?> type) {
+            Integer id = classIds.get(type);
+            if (id != null) {
+                out.writeVarInt(id + 1);
+                return;
+            }
+            classIds.put(type, classIds.size());
+            out.writeVarInt(0);
+            out.writeString(type.getName());
+        }
+
+        private void enter(Object value) {
+            if (path.put(value, Boolean.TRUE) != null) {
+                throw new CycleDetectedException();
+            }
+        }
+
+        private void exit(Object value) {
+            path.remove(value);
+        }
+    }
+
+    /**
+     * 解码上下文(单次decode有效)
+     */
+    private class Reader {
+        private final Input in;
+        private final List<Class<?>> classTable = new ArrayList<>();
+
+        Reader(Input in) {
+            this.in = in;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Object read() {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case BYTE:
+                    return in.readByte();
+                case SHORT:
+                    return (short) in.readZigZagInt();
+                case CHAR:
+                    return (char) in.readVarInt();
+                case INT:
+                    return in.readZigZagInt();
+                case LONG:
+                    return in.readZigZagLong();
+                case FLOAT:
+                    return Float.intBitsToFloat(in.readInt());
+                case DOUBLE:
+                    return Double.longBitsToDouble(in.readLong());
+                case STRING:
+                    return in.readString();
+                case BYTES:
+                    return in.readLengthPrefixed();
+                case ENUM: {
+                    Class<?> type = readClass();
+                    return type.getEnumConstants()[in.readVarInt()];
+                }
+                case ARRAY: {
+                    Class<?> componentType = readClass();
+                    int length = in.readVarInt();
+                    Object[] array = (Object[]) Array.newInstance(componentType, length);
+                    for (int i = 0; i < length; i++) {
+                        array[i] = read();
+                    }
+                    return array;
+                }
+                case COLLECTION: {
+                    Collection collection = (Collection) meta(readClass()).newInstance();
+                    int size = in.readVarInt();
+                    for (int i = 0; i < size; i++) {
+                        collection.add(read());
+                    }
+                    return collection;
+                }
+                case MAP: {
+                    Map map = (Map) meta(readClass()).newInstance();
+                    int size = in.readVarInt();
+                    for (int i = 0; i < size; i++) {
+                        Object key = read();
+                        map.put(key, read());
+                    }
+                    return map;
+                }
+                case OBJECT: {
+                    ClassMeta meta = meta(readClass());
+                    Object bean = meta.newInstance();
+                    for (Field field : meta.fields) {
+                        readField(field, bean);
+                    }
+                    return bean;
+                }
+                case JDK:
+                    return jdkCodec.decode(in.readLengthPrefixed());
+                default:
+                    throw new CodecException("CompactObjectCodec meet unknown type tag " + tag + ".");
+            }
+        }
+
+        private void readField(Field field, Object owner) {
+            try {
+                Class<?> fieldType = field.getType();
+                if (!fieldType.isPrimitive()) {
+                    field.set(owner, read());
+                } else if (fieldType == int.class) {
+                    field.setInt(owner, in.readZigZagInt());
+                } else if (fieldType == long.class) {
+                    field.setLong(owner, in.readZigZagLong());
+                } else if (fieldType == boolean.class) {
+                    field.setBoolean(owner, in.readByte() != 0);
+                } else if (fieldType == double.class) {
+                    field.setDouble(owner, Double.longBitsToDouble(in.readLong()));
+                } else if (fieldType == float.class) {
+                    field.setFloat(owner, Float.intBitsToFloat(in.readInt()));
+                } else if (fieldType == short.class) {
+                    field.setShort(owner, (short) in.readZigZagInt());
+                } else if (fieldType == byte.class) {
+                    field.setByte(owner, in.readByte());
+                } else {
+                    field.setChar(owner, (char) in.readVarInt());
+                }
+            } catch (IllegalAccessException e) {
+                throw new CodecException("CompactObjectCodec can not write field " + field + ".", e);
+            }
+        }
+
+        private Class<?> readClass() {
+            int id = in.readVarInt();
+            if (id != 0) {
+                return classTable.get(id - 1);
+            }
+            Class<?> type = resolve(in.readString());
+            classTable.add(type);
+            return type;
+        }
+    }
+
+    /**
+     * 类元数据缓存:无参构造器与待编码字段
+     */
+    private static class ClassMeta {
+        private final Constructor<?> constructor;
+        private final Field[] fields;
+        private final boolean container;
+
+        ClassMeta(Class<?> type) {
+            this.constructor = findConstructor(type);
+            if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+                // 仅处理java.util下可直接实例化的集合,带自定义Comparator的有序集合无法还原;
+                // 自定义子类可能带有额外字段,按元素编码会丢失,退化为java原生序列化
+                this.container = constructor != null && type.getName().startsWith("java.util.")
+                        && !SortedSet.class.isAssignableFrom(type) && !SortedMap.class.isAssignableFrom(type);
+                this.fields = null;
+            } else {
+                this.container = false;
+                this.fields = constructor == null || extendsJdkType(type) ? null : collectFields(type);
+            }
+        }
+
+        boolean isContainer() {
+            return container;
+        }
+
+        boolean isBean() {
+            return fields != null;
+        }
+
+        Object newInstance() {
+            if (constructor == null) {
+                throw new CodecException("CompactObjectCodec can not instantiate class without no-arg constructor.");
+            }
+            try {
+                return constructor.newInstance();
+            } catch (Exception e) {
+                throw new CodecException("CompactObjectCodec instantiate " + constructor.getDeclaringClass().getName() + " error.", e);
+            }
+        }
+
+        private static Constructor<?> findConstructor(Class<?> type) {
+            if (type.isInterface() || Modifier.isAbstract(type.getModifiers())
+                    || (type.getEnclosingClass() != null && !Modifier.isStatic(type.getModifiers()))) {
+                return null;
+            }
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return constructor;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        /**
+         * 继承层次中(Object除外)包含JDK类型时,父类状态可能由其自身的序列化逻辑维护(如Date的transient字段),不能按字段编码
+         */
+        private static boolean extendsJdkType(Class<?> type) {
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                if (c.getName().startsWith("java.") || c.getName().startsWith("javax.")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static Field[] collectFields(Class<?> type) {
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                hierarchy.add(0, c);
+            }
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c : hierarchy) {
+                List<Field> declared = new ArrayList<>();
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    declared.add(field);
+                }
+                Collections.sort(declared, new Comparator<Field>() {
+                    @Override
+                    public int compare(Field f1, Field f2) {
+                        return f1.getName().compareTo(f2.getName());
+                    }
+                });
+                fields.addAll(declared);
+            }
+            return fields.toArray(new Field[fields.size()]);
+        }
+    }
+
+    /**
+     * 检测到循环引用,整体退化为java原生序列化
+     */
+    private static class CycleDetectedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        CycleDetectedException() {
+            super(null, null, false, false);
+        }
+    }
+}
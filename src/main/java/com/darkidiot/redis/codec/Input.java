@@ -0,0 +1,106 @@
+package com.darkidiot.redis.codec;
+
+import com.darkidiot.redis.exception.CodecException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 二进制输入缓冲区(非线程安全),与{@link Output}的写入格式一一对应
+ *
+ * @author darkidiot
+ */
+public final class Input {
+
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    public Input(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    public Input(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    private void require(int count) {
+        if (position + count > limit) {
+            throw new CodecException("Unexpected end of input, require " + count + " bytes but only " + (limit - position) + " remaining.");
+        }
+    }
+
+    public byte readByte() {
+        require(1);
+        return buffer[position++];
+    }
+
+    public byte[] readBytes(int length) {
+        require(length);
+        byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+        position += length;
+        return bytes;
+    }
+
+    public int readVarInt() {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new CodecException("Malformed varint.");
+    }
+
+    public long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new CodecException("Malformed varlong.");
+    }
+
+    public int readZigZagInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readZigZagLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public int readInt() {
+        require(4);
+        return (buffer[position++] & 0xFF) << 24 | (buffer[position++] & 0xFF) << 16
+                | (buffer[position++] & 0xFF) << 8 | (buffer[position++] & 0xFF);
+    }
+
+    public long readLong() {
+        return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    public byte[] readLengthPrefixed() {
+        return readBytes(readVarInt());
+    }
+
+    public String readString() {
+        int length = readVarInt();
+        require(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+}
@@ -0,0 +1,41 @@
+package com.darkidiot.redis.codec;
+
+import com.darkidiot.redis.exception.CodecException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * java原生序列化编解码(不再进行base16编码),兼容任意实现了Serializable的对象
+ *
+ * @author darkidiot
+ */
+public class JdkCodec implements Codec<Object> {
+
+    @Override
+    public byte[] encode(Object value) {
+        try (ByteArrayOutputStream bo = new ByteArrayOutputStream(256);
+             ObjectOutputStream oo = new ObjectOutputStream(bo)) {
+            oo.writeObject(value);
+            oo.flush();
+            return bo.toByteArray();
+        } catch (Exception e) {
+            throw new CodecException("JdkCodec encode error.", e);
+        }
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try (ByteArrayInputStream bi = new ByteArrayInputStream(bytes);
+             ObjectInputStream oi = new ObjectInputStream(bi)) {
+            return oi.readObject();
+        } catch (Exception e) {
+            throw new CodecException("JdkCodec decode error.", e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.darkidiot.redis.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 可扩容的二进制输出缓冲区(非线程安全)
+ * <ul>
+ * <li>varint: 每个字节低7位为数据位,最高位为后续字节标识.</li>
+ * <li>zigzag: 将有符号数映射为无符号数,使绝对值较小的负数也能用较少字节表示.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+public final class Output {
+
+    private byte[] buffer;
+    private int position;
+
+    public Output() {
+        this(32);
+    }
+
+    public Output(int initialCapacity) {
+        this.buffer = new byte[initialCapacity < 8 ? 8 : initialCapacity];
+    }
+
+    private void require(int count) {
+        if (position + count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + count));
+        }
+    }
+
+    public Output writeByte(int value) {
+        require(1);
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    public Output writeBytes(byte[] bytes) {
+        return writeBytes(bytes, 0, bytes.length);
+    }
+
+    public Output writeBytes(byte[] bytes, int offset, int length) {
+        require(length);
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+        return this;
+    }
+
+    /**
+     * 写入无符号varint(负数会占用5个字节,有符号数请使用{@link #writeZigZagInt(int)})
+     */
+    public Output writeVarInt(int value) {
+        require(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    public Output writeVarLong(long value) {
+        require(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    public Output writeZigZagInt(int value) {
+        return writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public Output writeZigZagLong(long value) {
+        return writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public Output writeInt(int value) {
+        require(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    public Output writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        return writeInt((int) value);
+    }
+
+    /**
+     * 写入长度前缀的二进制数据
+     */
+    public Output writeLengthPrefixed(byte[] bytes) {
+        writeVarInt(bytes.length);
+        return writeBytes(bytes);
+    }
+
+    /**
+     * 写入UTF-8字符串(长度前缀为UTF-8字节数),纯ASCII字符串走快速路径
+     */
+    public Output writeString(String value) {
+        int length = value.length();
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) > 0x7F) {
+                ascii = false;
+                break;
+            }
+        }
+        if (!ascii) {
+            return writeLengthPrefixed(value.getBytes(StandardCharsets.UTF_8));
+        }
+        writeVarInt(length);
+        require(length);
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+        return this;
+    }
+
+    public int position() {
+        return position;
+    }
+
+    public byte[] toBytes() {
+        return Arrays.copyOf(buffer, position);
+    }
+}
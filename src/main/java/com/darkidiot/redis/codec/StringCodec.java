@@ -0,0 +1,26 @@
+package com.darkidiot.redis.codec;
+
+import com.darkidiot.redis.exception.CodecException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8字符串编解码
+ *
+ * @author darkidiot
+ */
+public class StringCodec implements Codec<String> {
+
+    @Override
+    public byte[] encode(String value) {
+        if (value == null) {
+            throw new CodecException("StringCodec can not encode null value.");
+        }
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String decode(byte[] bytes) {
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,24 @@
+package com.darkidiot.redis.codec;
+
+import com.darkidiot.redis.exception.CodecException;
+
+/**
+ * Integer编解码(zigzag + varint, 1~5个字节)
+ *
+ * @author darkidiot
+ */
+public class VarIntCodec implements Codec<Integer> {
+
+    @Override
+    public byte[] encode(Integer value) {
+        if (value == null) {
+            throw new CodecException("VarIntCodec can not encode null value.");
+        }
+        return new Output(5).writeZigZagInt(value).toBytes();
+    }
+
+    @Override
+    public Integer decode(byte[] bytes) {
+        return bytes == null ? null : new Input(bytes).readZigZagInt();
+    }
+}
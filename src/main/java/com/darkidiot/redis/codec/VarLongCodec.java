@@ -0,0 +1,24 @@
+package com.darkidiot.redis.codec;
+
+import com.darkidiot.redis.exception.CodecException;
+
+/**
+ * Long编解码(zigzag + varint, 1~10个字节)
+ *
+ * @author darkidiot
+ */
+public class VarLongCodec implements Codec<Long> {
+
+    @Override
+    public byte[] encode(Long value) {
+        if (value == null) {
+            throw new CodecException("VarLongCodec can not encode null value.");
+        }
+        return new Output(10).writeZigZagLong(value).toBytes();
+    }
+
+    @Override
+    public Long decode(byte[] bytes) {
+        return bytes == null ? null : new Input(bytes).readZigZagLong();
+    }
+}
@@ -6,12 +6,19 @@ import lombok.extern.slf4j.Slf4j;
 import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Slf4j
 public class IPorServerConfig {
 
     private static final String MAC = getMac();
     private static final String PID = getPid();
+    private static final String IP = getIP();
+    /**
+     * 服务标识只计算一次
+     */
+    private static final ConcurrentMap<String, String> SERVER_IDS = new ConcurrentHashMap<>();
 
     private static String getIP() {
         String ip = "";
@@ -29,7 +36,11 @@ public class IPorServerConfig {
         byte[] mac = new byte[0];
         try {
             InetAddress ia = InetAddress.getLocalHost();
-            mac = NetworkInterface.getByInetAddress(ia).getHardwareAddress();
+            NetworkInterface networkInterface = NetworkInterface.getByInetAddress(ia);
+            // 回环地址或容器内的虚拟网卡可能没有硬件地址
+            if (networkInterface != null && networkInterface.getHardwareAddress() != null) {
+                mac = networkInterface.getHardwareAddress();
+            }
         } catch (Exception e) {
             log.error("get the mac address error, cause by:{}", Throwables.getStackTraceAsString(e));
         }
@@ -66,8 +77,12 @@ public class IPorServerConfig {
     }
 
     public static String getServerId(String service) {
-        String serverId = getServerName(service) + "-" + getIP();
-        log.debug("the server id is: [{}]", serverId);
+        String serverId = SERVER_IDS.get(service);
+        if (serverId == null) {
+            serverId = getServerName(service) + "-" + IP;
+            SERVER_IDS.putIfAbsent(service, serverId);
+            log.debug("the server id is: [{}]", serverId);
+        }
         return serverId;
     }
 
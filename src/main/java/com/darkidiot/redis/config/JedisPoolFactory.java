@@ -1,22 +1,33 @@
 package com.darkidiot.redis.config;
 
+import com.darkidiot.redis.async.AsyncRedisClient;
 import com.darkidiot.redis.common.JedisType;
 import com.darkidiot.redis.exception.RedisException;
+import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.jedis.imp.Jedis;
 import com.darkidiot.redis.lock.RedisLock;
 import com.darkidiot.redis.util.StringUtil;
 import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.io.Resources;
 import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisClusterConnectionHandler;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.JedisSentinelPool;
+import redis.clients.jedis.JedisSlotBasedConnectionHandler;
 import redis.clients.util.Pool;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
@@ -32,7 +43,11 @@ public class JedisPoolFactory {
 
     private static Map<String, RedisInitParam> redisParamMap = Maps.newHashMap();
 
-    private static HashMap<String, Pool> poolMap = Maps.newHashMap();
+    private static HashMap<String, Pool<redis.clients.jedis.Jedis>> poolMap = Maps.newHashMap();
+
+    private static Map<String, JedisClusterConnectionHandler> clusterMap = Maps.newHashMap();
+
+    private static Map<String, AsyncRedisClient> asyncMap = Maps.newHashMap();
 
     private static Splitter commaSplitter = Splitter.on(",").omitEmptyStrings().trimResults();
 
@@ -45,11 +60,17 @@ public class JedisPoolFactory {
             public void run() {
                 log.info("The JVM Hook is execute.");
                 RedisLock.releaseLockWhenShutdown();
-                for (Entry<String, Pool> entry : poolMap.entrySet()) {
-                    Pool pool = entry.getValue();
+                for (Entry<String, Pool<redis.clients.jedis.Jedis>> entry : poolMap.entrySet()) {
+                    Pool<redis.clients.jedis.Jedis> pool = entry.getValue();
                     log.info("The JedisPool: {} will be destroyed.", pool);
                     pool.destroy();
                 }
+                for (Entry<String, JedisClusterConnectionHandler> entry : clusterMap.entrySet()) {
+                    log.info("The Redis Cluster connections of service: {} will be destroyed.", entry.getKey());
+                    for (JedisPool pool : entry.getValue().getNodes().values()) {
+                        pool.destroy();
+                    }
+                }
             }
         });
     }
@@ -123,6 +144,22 @@ public class JedisPoolFactory {
                 redisInitParam.setSentinelHosts(sentinelHosts);
             }
 
+            format = String.format(PKEY_CLUSTER_NODES, serviceName);
+            String clusterNodes = conf.getProperty(format);
+            if (!StringUtil.isEmpty(clusterNodes)) {
+                log.info("RedisCache set configuration[{}] -> {}", format, clusterNodes);
+                redisInitParam.setClusterNodes(clusterNodes.trim());
+            }
+
+            format = String.format(PKEY_CLUSTER_MAX_REDIRECTIONS, serviceName);
+            String clusterMaxRedirections = conf.getProperty(format);
+            if (!StringUtil.isEmpty(clusterMaxRedirections) && Integer.valueOf(clusterMaxRedirections.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, clusterMaxRedirections);
+                redisInitParam.setClusterMaxRedirections(Integer.valueOf(clusterMaxRedirections.trim()));
+            } else {
+                redisInitParam.setClusterMaxRedirections(DEFAULT_CLUSTER_MAX_REDIRECTIONS);
+            }
+
             format = String.format(PKEY_ISCLUSTER, serviceName);
             String isCluster = conf.getProperty(format);
             if (!StringUtil.isEmpty(isCluster)) {
@@ -140,6 +177,40 @@ public class JedisPoolFactory {
                 redisInitParam.setR$WSeparated(DEFAULT_R$W_SEPARATED);
             }
 
+            format = String.format(PKEY_READ_NODES, serviceName);
+            String readNodes = conf.getProperty(format);
+            if (!StringUtil.isEmpty(readNodes)) {
+                log.info("RedisCache set configuration[{}] -> {}", format, readNodes);
+                redisInitParam.setReadNodes(readNodes.trim());
+            }
+
+            format = String.format(PKEY_READ_EJECT_ERRORS, serviceName);
+            String readEjectErrors = conf.getProperty(format);
+            if (!StringUtil.isEmpty(readEjectErrors) && Integer.valueOf(readEjectErrors.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, readEjectErrors);
+                redisInitParam.setReadEjectErrors(Integer.valueOf(readEjectErrors.trim()));
+            } else {
+                redisInitParam.setReadEjectErrors(DEFAULT_READ_EJECT_ERRORS);
+            }
+
+            format = String.format(PKEY_READ_MAX_LAG_BYTES, serviceName);
+            String readMaxLagBytes = conf.getProperty(format);
+            if (!StringUtil.isEmpty(readMaxLagBytes) && Long.valueOf(readMaxLagBytes.trim()) >= 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, readMaxLagBytes);
+                redisInitParam.setReadMaxLagBytes(Long.valueOf(readMaxLagBytes.trim()));
+            } else {
+                redisInitParam.setReadMaxLagBytes(DEFAULT_READ_MAX_LAG_BYTES);
+            }
+
+            format = String.format(PKEY_READ_PROBE_SECONDS, serviceName);
+            String readProbeSeconds = conf.getProperty(format);
+            if (!StringUtil.isEmpty(readProbeSeconds) && Integer.valueOf(readProbeSeconds.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, readProbeSeconds);
+                redisInitParam.setReadProbeSeconds(Integer.valueOf(readProbeSeconds.trim()));
+            } else {
+                redisInitParam.setReadProbeSeconds(DEFAULT_READ_PROBE_SECONDS);
+            }
+
             format = String.format(PKEY_OPEN_LOCAL_CACHE, serviceName);
             String openLocalCache = conf.getProperty(format);
             if (!StringUtil.isEmpty(openLocalCache)) {
@@ -150,6 +221,241 @@ public class JedisPoolFactory {
                 redisInitParam.setOpenLocalCache(DEFAULT_OPEN_LOCAL_CACHE);
             }
 
+            format = String.format(PKEY_LOCAL_CACHE_MAX_SIZE, serviceName);
+            String localCacheMaxSize = conf.getProperty(format);
+            if (!StringUtil.isEmpty(localCacheMaxSize) && Integer.valueOf(localCacheMaxSize.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, localCacheMaxSize);
+                redisInitParam.setLocalCacheMaxSize(Integer.valueOf(localCacheMaxSize.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_LOCAL_CACHE_MAX_SIZE);
+                redisInitParam.setLocalCacheMaxSize(DEFAULT_LOCAL_CACHE_MAX_SIZE);
+            }
+
+            format = String.format(PKEY_LOCAL_CACHE_SYNC_FLUSH_MILLIS, serviceName);
+            String syncFlushMillis = conf.getProperty(format);
+            if (!StringUtil.isEmpty(syncFlushMillis) && Integer.valueOf(syncFlushMillis.trim()) >= 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, syncFlushMillis);
+                redisInitParam.setLocalCacheSyncFlushMillis(Integer.valueOf(syncFlushMillis.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_LOCAL_CACHE_SYNC_FLUSH_MILLIS);
+                redisInitParam.setLocalCacheSyncFlushMillis(DEFAULT_LOCAL_CACHE_SYNC_FLUSH_MILLIS);
+            }
+
+            format = String.format(PKEY_LOCAL_CACHE_SYNC_MAX_BATCH, serviceName);
+            String syncMaxBatch = conf.getProperty(format);
+            if (!StringUtil.isEmpty(syncMaxBatch) && Integer.valueOf(syncMaxBatch.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, syncMaxBatch);
+                redisInitParam.setLocalCacheSyncMaxBatch(Integer.valueOf(syncMaxBatch.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_LOCAL_CACHE_SYNC_MAX_BATCH);
+                redisInitParam.setLocalCacheSyncMaxBatch(DEFAULT_LOCAL_CACHE_SYNC_MAX_BATCH);
+            }
+
+            format = String.format(PKEY_LOCAL_CACHE_SYNC_WORKERS, serviceName);
+            String syncWorkers = conf.getProperty(format);
+            if (!StringUtil.isEmpty(syncWorkers) && Integer.valueOf(syncWorkers.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, syncWorkers);
+                redisInitParam.setLocalCacheSyncWorkers(Integer.valueOf(syncWorkers.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_LOCAL_CACHE_SYNC_WORKERS);
+                redisInitParam.setLocalCacheSyncWorkers(DEFAULT_LOCAL_CACHE_SYNC_WORKERS);
+            }
+
+            format = String.format(PKEY_LOCAL_CACHE_SYNC_QUEUE_CAPACITY, serviceName);
+            String syncQueueCapacity = conf.getProperty(format);
+            if (!StringUtil.isEmpty(syncQueueCapacity) && Integer.valueOf(syncQueueCapacity.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, syncQueueCapacity);
+                redisInitParam.setLocalCacheSyncQueueCapacity(Integer.valueOf(syncQueueCapacity.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_LOCAL_CACHE_SYNC_QUEUE_CAPACITY);
+                redisInitParam.setLocalCacheSyncQueueCapacity(DEFAULT_LOCAL_CACHE_SYNC_QUEUE_CAPACITY);
+            }
+
+            format = String.format(PKEY_LOCAL_CACHE_SYNC_OVERFLOW_POLICY, serviceName);
+            String syncOverflowPolicy = conf.getProperty(format);
+            if (!StringUtil.isEmpty(syncOverflowPolicy)) {
+                log.info("RedisCache set configuration[{}] -> {}", format, syncOverflowPolicy);
+                redisInitParam.setLocalCacheSyncOverflowPolicy(syncOverflowPolicy.trim());
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_LOCAL_CACHE_SYNC_OVERFLOW_POLICY);
+                redisInitParam.setLocalCacheSyncOverflowPolicy(DEFAULT_LOCAL_CACHE_SYNC_OVERFLOW_POLICY);
+            }
+
+            format = String.format(PKEY_CODEC, serviceName);
+            String codec = conf.getProperty(format);
+            if (!StringUtil.isEmpty(codec)) {
+                log.info("RedisCache set configuration[{}] -> {}", format, codec);
+                redisInitParam.setCodec(codec.trim());
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_CODEC);
+                redisInitParam.setCodec(DEFAULT_CODEC);
+            }
+
+            format = String.format(PKEY_BATCH_SIZE, serviceName);
+            String batchSize = conf.getProperty(format);
+            if (!StringUtil.isEmpty(batchSize) && Integer.valueOf(batchSize.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, batchSize);
+                redisInitParam.setBatchSize(Integer.valueOf(batchSize.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_BATCH_SIZE);
+                redisInitParam.setBatchSize(DEFAULT_BATCH_SIZE);
+            }
+
+            format = String.format(PKEY_MAP_SHARDS, serviceName);
+            String mapShards = conf.getProperty(format);
+            if (!StringUtil.isEmpty(mapShards) && Integer.valueOf(mapShards.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, mapShards);
+                redisInitParam.setMapShards(Integer.valueOf(mapShards.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_MAP_SHARDS);
+                redisInitParam.setMapShards(DEFAULT_MAP_SHARDS);
+            }
+
+            format = String.format(PKEY_ASYNC_CONNECTIONS, serviceName);
+            String asyncConnections = conf.getProperty(format);
+            if (!StringUtil.isEmpty(asyncConnections) && Integer.valueOf(asyncConnections.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, asyncConnections);
+                redisInitParam.setAsyncConnections(Integer.valueOf(asyncConnections.trim()));
+            } else {
+                redisInitParam.setAsyncConnections(DEFAULT_ASYNC_CONNECTIONS);
+            }
+
+            format = String.format(PKEY_AUTO_PIPELINE, serviceName);
+            String autoPipeline = conf.getProperty(format);
+            if (!StringUtil.isEmpty(autoPipeline)) {
+                log.info("RedisCache set configuration[{}] -> {}", format, autoPipeline);
+                redisInitParam.setAutoPipeline(Boolean.valueOf(autoPipeline.trim()));
+            } else {
+                redisInitParam.setAutoPipeline(DEFAULT_AUTO_PIPELINE);
+            }
+
+            format = String.format(PKEY_METRICS, serviceName);
+            String metrics = conf.getProperty(format);
+            if (!StringUtil.isEmpty(metrics)) {
+                log.info("RedisCache set configuration[{}] -> {}", format, metrics);
+                redisInitParam.setMetrics(Boolean.valueOf(metrics.trim()));
+            } else {
+                redisInitParam.setMetrics(DEFAULT_METRICS);
+            }
+
+            format = String.format(PKEY_METRICS_JMX, serviceName);
+            String metricsJmx = conf.getProperty(format);
+            if (!StringUtil.isEmpty(metricsJmx)) {
+                log.info("RedisCache set configuration[{}] -> {}", format, metricsJmx);
+                redisInitParam.setMetricsJmx(Boolean.valueOf(metricsJmx.trim()));
+            } else {
+                redisInitParam.setMetricsJmx(DEFAULT_METRICS_JMX);
+            }
+
+            format = String.format(PKEY_CACHE_STATS, serviceName);
+            String cacheStats = conf.getProperty(format);
+            if (!StringUtil.isEmpty(cacheStats)) {
+                log.info("RedisCache set configuration[{}] -> {}", format, cacheStats);
+                redisInitParam.setCacheStats(Boolean.valueOf(cacheStats.trim()));
+            } else {
+                redisInitParam.setCacheStats(DEFAULT_CACHE_STATS);
+            }
+
+            format = String.format(PKEY_LOADER_MUTEX, serviceName);
+            String loaderMutex = conf.getProperty(format);
+            if (!StringUtil.isEmpty(loaderMutex)) {
+                log.info("RedisCache set configuration[{}] -> {}", format, loaderMutex);
+                redisInitParam.setLoaderMutex(Boolean.valueOf(loaderMutex.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_LOADER_MUTEX);
+                redisInitParam.setLoaderMutex(DEFAULT_LOADER_MUTEX);
+            }
+
+            format = String.format(PKEY_LOADER_MUTEX_EXPIRE, serviceName);
+            String loaderMutexExpire = conf.getProperty(format);
+            if (!StringUtil.isEmpty(loaderMutexExpire) && Integer.valueOf(loaderMutexExpire.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, loaderMutexExpire);
+                redisInitParam.setLoaderMutexExpire(Integer.valueOf(loaderMutexExpire.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_LOADER_MUTEX_EXPIRE);
+                redisInitParam.setLoaderMutexExpire(DEFAULT_LOADER_MUTEX_EXPIRE);
+            }
+
+            format = String.format(PKEY_EXPIRE_REAP_SECONDS, serviceName);
+            String expireReapSeconds = conf.getProperty(format);
+            if (!StringUtil.isEmpty(expireReapSeconds) && Integer.valueOf(expireReapSeconds.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, expireReapSeconds);
+                redisInitParam.setExpireReapSeconds(Integer.valueOf(expireReapSeconds.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_EXPIRE_REAP_SECONDS);
+                redisInitParam.setExpireReapSeconds(DEFAULT_EXPIRE_REAP_SECONDS);
+            }
+
+            format = String.format(PKEY_EXPIRE_REAP_BATCH, serviceName);
+            String expireReapBatch = conf.getProperty(format);
+            if (!StringUtil.isEmpty(expireReapBatch) && Integer.valueOf(expireReapBatch.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, expireReapBatch);
+                redisInitParam.setExpireReapBatch(Integer.valueOf(expireReapBatch.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_EXPIRE_REAP_BATCH);
+                redisInitParam.setExpireReapBatch(DEFAULT_EXPIRE_REAP_BATCH);
+            }
+
+            format = String.format(PKEY_NEGATIVE_CACHE, serviceName);
+            String negativeCache = conf.getProperty(format);
+            if (!StringUtil.isEmpty(negativeCache)) {
+                log.info("RedisCache set configuration[{}] -> {}", format, negativeCache);
+                redisInitParam.setNegativeCache(Boolean.valueOf(negativeCache.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_NEGATIVE_CACHE);
+                redisInitParam.setNegativeCache(DEFAULT_NEGATIVE_CACHE);
+            }
+
+            format = String.format(PKEY_NEGATIVE_CACHE_EXPIRE, serviceName);
+            String negativeCacheExpire = conf.getProperty(format);
+            if (!StringUtil.isEmpty(negativeCacheExpire) && Integer.valueOf(negativeCacheExpire.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, negativeCacheExpire);
+                redisInitParam.setNegativeCacheExpire(Integer.valueOf(negativeCacheExpire.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_NEGATIVE_CACHE_EXPIRE);
+                redisInitParam.setNegativeCacheExpire(DEFAULT_NEGATIVE_CACHE_EXPIRE);
+            }
+
+            format = String.format(PKEY_BLOOM_FILTER, serviceName);
+            String bloomFilter = conf.getProperty(format);
+            if (!StringUtil.isEmpty(bloomFilter)) {
+                log.info("RedisCache set configuration[{}] -> {}", format, bloomFilter);
+                redisInitParam.setBloomFilter(Boolean.valueOf(bloomFilter.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_BLOOM_FILTER);
+                redisInitParam.setBloomFilter(DEFAULT_BLOOM_FILTER);
+            }
+
+            format = String.format(PKEY_BLOOM_FILTER_EXPECTED_INSERTIONS, serviceName);
+            String expectedInsertions = conf.getProperty(format);
+            if (!StringUtil.isEmpty(expectedInsertions) && Long.valueOf(expectedInsertions.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, expectedInsertions);
+                redisInitParam.setBloomFilterExpectedInsertions(Long.valueOf(expectedInsertions.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_BLOOM_FILTER_EXPECTED_INSERTIONS);
+                redisInitParam.setBloomFilterExpectedInsertions(DEFAULT_BLOOM_FILTER_EXPECTED_INSERTIONS);
+            }
+
+            format = String.format(PKEY_BLOOM_FILTER_FPP, serviceName);
+            String fpp = conf.getProperty(format);
+            if (!StringUtil.isEmpty(fpp) && Double.valueOf(fpp.trim()) > 0 && Double.valueOf(fpp.trim()) < 1) {
+                log.info("RedisCache set configuration[{}] -> {}", format, fpp);
+                redisInitParam.setBloomFilterFpp(Double.valueOf(fpp.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_BLOOM_FILTER_FPP);
+                redisInitParam.setBloomFilterFpp(DEFAULT_BLOOM_FILTER_FPP);
+            }
+
+            format = String.format(PKEY_BLOOM_FILTER_SYNC_SECONDS, serviceName);
+            String bloomSyncSeconds = conf.getProperty(format);
+            if (!StringUtil.isEmpty(bloomSyncSeconds) && Integer.valueOf(bloomSyncSeconds.trim()) > 0) {
+                log.info("RedisCache set configuration[{}] -> {}", format, bloomSyncSeconds);
+                redisInitParam.setBloomFilterSyncSeconds(Integer.valueOf(bloomSyncSeconds.trim()));
+            } else {
+                log.info("RedisCache set configuration[{}] -> {}", format, DEFAULT_BLOOM_FILTER_SYNC_SECONDS);
+                redisInitParam.setBloomFilterSyncSeconds(DEFAULT_BLOOM_FILTER_SYNC_SECONDS);
+            }
+
             format = String.format(PKEY_DB_INDEX, serviceName);
             String dbIndex = conf.getProperty(format);
             if (!StringUtil.isEmpty(dbIndex)) {
@@ -336,29 +642,107 @@ public class JedisPoolFactory {
         }
     }
 
+    /**
+     * 创建服务的jedis实例: 配置了cluster.nodes时使用集群连接, 否则使用读/写连接池(开启auto.pipeline时简单命令使用异步客户端的共享连接)
+     */
+    public static IJedis getJedis(String service) {
+        RedisInitParam config = redisParamMap.get(service);
+        if (config != null && StringUtil.isNotEmpty(config.getClusterNodes())) {
+            if (Boolean.TRUE.equals(config.getAutoPipeline())) {
+                log.warn("Redis Cluster of service [{}] does not support auto pipeline, the configuration is ignored.", service);
+            }
+            return new Jedis(getClusterHandler(service), getIntWithDefault(config.getClusterMaxRedirections(), DEFAULT_CLUSTER_MAX_REDIRECTIONS), config);
+        }
+        Jedis jedis = new Jedis(getWritePool(service), getReadPool(service), config);
+        if (config != null && Boolean.TRUE.equals(config.getAutoPipeline())) {
+            jedis.enableAutoPipeline(getAsyncClient(service));
+        }
+        return jedis;
+    }
+
+    /**
+     * 集群连接(首次使用时通过种子节点CLUSTER SLOTS发现所有节点与slot分布, 读写共用)
+     */
+    public static synchronized JedisClusterConnectionHandler getClusterHandler(String service) {
+        JedisClusterConnectionHandler handler = clusterMap.get(service);
+        if (handler != null) {
+            return handler;
+        }
+        RedisInitParam initParam = redisParamMap.get(service);
+        Set<HostAndPort> nodes = Sets.newHashSet(parseNodes(initParam.getClusterNodes(), "Redis Cluster"));
+        if (StringUtil.isNotEmpty(initParam.getPassword())) {
+            log.warn("Redis Cluster of service [{}] does not support password, the password is ignored.", service);
+        }
+        int timeout = getIntWithDefault(initParam.getTimeoutW(), DEFAULT_TIMEOUT);
+        handler = new JedisSlotBasedConnectionHandler(nodes, getPoolConfig(initParam, JedisType.WRITE), timeout);
+        clusterMap.put(service, handler);
+        log.info("Redis Cluster of service [{}] discovered nodes {}.", service, handler.getNodes().keySet());
+        return handler;
+    }
+
+    /**
+     * 异步客户端(连接写连接池对应的主节点, 哨兵模式下重连时使用当前主节点)
+     */
+    public static synchronized AsyncRedisClient getAsyncClient(String service) {
+        AsyncRedisClient client = asyncMap.get(service);
+        if (client != null) {
+            return client;
+        }
+        RedisInitParam initParam = redisParamMap.get(service);
+        if (initParam == null) {
+            throw new RedisException("Redis service [" + service + "] is not configured.");
+        }
+        if (StringUtil.isNotEmpty(initParam.getClusterNodes())) {
+            throw new RedisException("AsyncRedisClient does not support Redis Cluster, service [" + service + "].");
+        }
+        final Pool<redis.clients.jedis.Jedis> pool = getWritePool(service);
+        Supplier<HostAndPort> master;
+        if (pool instanceof JedisSentinelPool) {
+            master = new Supplier<HostAndPort>() {
+                @Override
+                public HostAndPort get() {
+                    return ((JedisSentinelPool) pool).getCurrentHostMaster();
+                }
+            };
+        } else {
+            try (redis.clients.jedis.Jedis jedis = pool.getResource()) {
+                master = Suppliers.ofInstance(new HostAndPort(jedis.getClient().getHost(), jedis.getClient().getPort()));
+            }
+        }
+        String password = initParam.getPassword();
+        if (StringUtil.isNotEmpty(initParam.getIpPortPwd())) {
+            Matcher matcher = Pattern.compile(IP_PORT_PASSWORD).matcher(initParam.getIpPortPwd());
+            if (matcher.matches()) {
+                password = matcher.group(3);
+            }
+        }
+        client = new AsyncRedisClient(service, master, password, getIntWithDefault(initParam.getDbIndex(), DEFAULT_DB_INDEX),
+                getIntWithDefault(initParam.getTimeoutW(), DEFAULT_TIMEOUT), getIntWithDefault(initParam.getAsyncConnections(), DEFAULT_ASYNC_CONNECTIONS));
+        asyncMap.put(service, client);
+        return client;
+    }
+
     private final static String READ_SUFFIX = "-read";
     private final static String WRITE_SUFFIX = "-write";
 
-    @SuppressWarnings("unchecked")
-    public static Pool getReadPool(String service) {
+    public static Pool<redis.clients.jedis.Jedis> getReadPool(String service) {
         RedisInitParam config = redisParamMap.get(service);
         Boolean R$W = getBooleanWithDefault(config.getR$WSeparated(), DEFAULT_R$W_SEPARATED);
         String serviceName = R$W ? service + READ_SUFFIX : service;
-        Pool readPool = poolMap.get(serviceName);
+        Pool<redis.clients.jedis.Jedis> readPool = poolMap.get(serviceName);
         if (readPool == null) {
-            readPool = getPool(config, JedisType.READ);
+            readPool = R$W && StringUtil.isNotEmpty(config.getReadNodes()) ? getReplicaPool(service, config) : getPool(config, JedisType.READ);
             poolMap.put(serviceName, readPool);
             log.debug("store the Jedis Pool Instance [name={}] to HashMap.", serviceName);
         }
         return readPool;
     }
 
-    @SuppressWarnings("unchecked")
-    public static Pool getWritePool(String service) {
+    public static Pool<redis.clients.jedis.Jedis> getWritePool(String service) {
         RedisInitParam config = redisParamMap.get(service);
         Boolean R$W = getBooleanWithDefault(config.getR$WSeparated(), DEFAULT_R$W_SEPARATED);
         String serviceName = R$W ? service + WRITE_SUFFIX : service;
-        Pool writePool = poolMap.get(serviceName);
+        Pool<redis.clients.jedis.Jedis> writePool = poolMap.get(serviceName);
         if (writePool == null) {
             writePool = getPool(config, JedisType.WRITE);
             poolMap.put(serviceName, writePool);
@@ -367,7 +751,47 @@ public class JedisPoolFactory {
         return writePool;
     }
 
-    private static Pool getPool(RedisInitParam initParam, JedisType mode) {
+    /**
+     * 多个从节点组成的读连接池(密码与db序号与主节点一致), 没有可用的从节点时回退到写连接池
+     */
+    private static Pool<redis.clients.jedis.Jedis> getReplicaPool(String service, RedisInitParam initParam) {
+        JedisPoolConfig config = getPoolConfig(initParam, JedisType.READ);
+        int timeout = getIntWithDefault(initParam.getTimeoutR(), DEFAULT_TIMEOUT);
+        int dbIndex = getIntWithDefault(initParam.getDbIndex(), DEFAULT_DB_INDEX);
+        Map<HostAndPort, JedisPool> replicas = new LinkedHashMap<>();
+        for (HostAndPort node : parseNodes(initParam.getReadNodes(), "Redis replicas")) {
+            replicas.put(node, new JedisPool(config, node.getHost(), node.getPort(), timeout, initParam.getPassword(), dbIndex));
+        }
+        log.info("Redis replicas of service [{}] -> {}.", service, replicas.keySet());
+        return new ReplicaPool(service, replicas, getWritePool(service),
+                getIntWithDefault(initParam.getReadEjectErrors(), DEFAULT_READ_EJECT_ERRORS),
+                getLongWithDefault(initParam.getReadMaxLagBytes(), DEFAULT_READ_MAX_LAG_BYTES),
+                getIntWithDefault(initParam.getReadProbeSeconds(), DEFAULT_READ_PROBE_SECONDS));
+    }
+
+    private static List<HostAndPort> parseNodes(String nodes, String usage) {
+        List<HostAndPort> parsed = new ArrayList<>();
+        for (String node : commaSplitter.split(nodes)) {
+            int colon = node.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new RedisException(usage + " configure failure. Cause by illegal node [" + node + "], use as: ip:port.");
+            }
+            parsed.add(new HostAndPort(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1))));
+        }
+        return parsed;
+    }
+
+    private static JedisPoolConfig getPoolConfig(RedisInitParam initParam, JedisType mode) {
+        JedisPoolConfig config = new JedisPoolConfig();
+        config.setTestOnBorrow(getBooleanWithDefault(isRead(mode) ? initParam.getTestOnBorrowR() : initParam.getTestOnBorrowW(), DEFAULT_TEST_ON_BORROW));
+        config.setTestOnReturn(getBooleanWithDefault(isRead(mode) ? initParam.getTestOnReturnR() : initParam.getTestOnReturnW(), DEFAULT_TEST_ON_RETURN));
+        config.setMaxWaitMillis(getLongWithDefault(isRead(mode) ? initParam.getMaxWaitMillisR() : initParam.getMaxWaitMillisW(), DEFAULT_MAX_WAIT));
+        config.setMaxIdle(getIntWithDefault(isRead(mode) ? initParam.getMaxIdleR() : initParam.getMaxIdleW(), DEFAULT_MAX_IDLE));
+        config.setMaxTotal(getIntWithDefault(isRead(mode) ? initParam.getMaxTotalR() : initParam.getMaxTotalW(), DEFAULT_MAX_TOTAL));
+        return config;
+    }
+
+    private static Pool<redis.clients.jedis.Jedis> getPool(RedisInitParam initParam, JedisType mode) {
         if (getBooleanWithDefault(initParam.getIsCluster(), DEFAULT_IS_CLUSTER)) {
             String sentinelProps = initParam.getSentinelHosts();
             Iterable<String> parts = commaSplitter.split(sentinelProps);
@@ -381,18 +805,8 @@ public class JedisPoolFactory {
             }
             String password = initParam.getPassword();
             int dbIndex = getIntWithDefault(initParam.getDbIndex(), DEFAULT_DB_INDEX);
-            boolean testOnBorrow = getBooleanWithDefault(isRead(mode) ? initParam.getTestOnBorrowR() : initParam.getTestOnBorrowW(), DEFAULT_TEST_ON_BORROW);
-            boolean testOnReturn = getBooleanWithDefault(isRead(mode) ? initParam.getTestOnReturnR() : initParam.getTestOnReturnW(), DEFAULT_TEST_ON_RETURN);
-            long maxWaitMillis = getLongWithDefault(isRead(mode) ? initParam.getMaxWaitMillisR() : initParam.getMaxWaitMillisW(), DEFAULT_MAX_WAIT);
-            int maxIdle = getIntWithDefault(isRead(mode) ? initParam.getMaxIdleR() : initParam.getMaxIdleW(), DEFAULT_MAX_IDLE);
-            int maxTotal = getIntWithDefault(isRead(mode) ? initParam.getMaxTotalR() : initParam.getMaxTotalW(), DEFAULT_MAX_TOTAL);
             int timeout = getIntWithDefault(isRead(mode) ? initParam.getTimeoutR() : initParam.getTimeoutW(), DEFAULT_TIMEOUT);
-            JedisPoolConfig config = new JedisPoolConfig();
-            config.setTestOnBorrow(testOnBorrow);
-            config.setTestOnReturn(testOnReturn);
-            config.setMaxWaitMillis(maxWaitMillis);
-            config.setMaxIdle(maxIdle);
-            config.setMaxTotal(maxTotal);
+            JedisPoolConfig config = getPoolConfig(initParam, mode);
             return new JedisSentinelPool(masterName, sentinelHosts, config, timeout, password, dbIndex);
         } else {
             String ipPortPwd = initParam.getIpPortPwd();
@@ -420,18 +834,8 @@ public class JedisPoolFactory {
             }
 
             int dbIndex = getIntWithDefault(initParam.getDbIndex(), DEFAULT_DB_INDEX);
-            boolean testOnBorrow = getBooleanWithDefault(isRead(mode) ? initParam.getTestOnBorrowR() : initParam.getTestOnBorrowW(), DEFAULT_TEST_ON_BORROW);
-            boolean testOnReturn = getBooleanWithDefault(isRead(mode) ? initParam.getTestOnReturnR() : initParam.getTestOnReturnW(), DEFAULT_TEST_ON_RETURN);
-            long maxWaitMillis = getLongWithDefault(isRead(mode) ? initParam.getMaxWaitMillisR() : initParam.getMaxWaitMillisW(), DEFAULT_MAX_WAIT);
-            int maxIdle = getIntWithDefault(isRead(mode) ? initParam.getMaxIdleR() : initParam.getMaxIdleW(), DEFAULT_MAX_IDLE);
-            int maxTotal = getIntWithDefault(isRead(mode) ? initParam.getMaxTotalR() : initParam.getMaxTotalW(), DEFAULT_MAX_TOTAL);
             int timeout = getIntWithDefault(isRead(mode) ? initParam.getTimeoutR() : initParam.getTimeoutW(), DEFAULT_TIMEOUT);
-            JedisPoolConfig config = new JedisPoolConfig();
-            config.setTestOnBorrow(testOnBorrow);
-            config.setTestOnReturn(testOnReturn);
-            config.setMaxWaitMillis(maxWaitMillis);
-            config.setMaxIdle(maxIdle);
-            config.setMaxTotal(maxTotal);
+            JedisPoolConfig config = getPoolConfig(initParam, mode);
             return new JedisPool(config, redisHost, redisPort, timeout, password, dbIndex);
         }
     }
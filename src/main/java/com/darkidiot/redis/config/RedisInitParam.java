@@ -30,6 +30,16 @@ public class RedisInitParam {
      */
     private String sentinelHosts;
 
+    /**
+     * Redis Cluster种子节点(多个以逗号分隔)如 127.0.0.1:7000,127.0.0.1:7001
+     */
+    private String clusterNodes;
+
+    /**
+     * Redis Cluster单个命令最多跟随的重定向次数
+     */
+    private Integer clusterMaxRedirections;
+
     /**
      * 是否配置集群
      */
@@ -38,6 +48,22 @@ public class RedisInitParam {
      * 是否读写分离
      */
     private Boolean R$WSeparated;
+    /**
+     * 从节点地址(多个以逗号分隔)如 127.0.0.1:6380,127.0.0.1:6381
+     */
+    private String readNodes;
+    /**
+     * 从节点连续失败多少次后摘除
+     */
+    private Integer readEjectErrors;
+    /**
+     * 从节点复制落后主节点的最大字节数
+     */
+    private Long readMaxLagBytes;
+    /**
+     * 探测从节点健康状态的间隔(秒)
+     */
+    private Integer readProbeSeconds;
     /**
      * 服务的标识
      */
@@ -46,6 +72,102 @@ public class RedisInitParam {
      * 是否开启本地缓存
      */
     private Boolean openLocalCache;
+    /**
+     * 每个缓存分组本地缓存的最大条目数
+     */
+    private Integer localCacheMaxSize;
+    /**
+     * 本地缓存失效通知合并发送的时间窗口(毫秒)
+     */
+    private Integer localCacheSyncFlushMillis;
+    /**
+     * 本地缓存失效通知单条消息包含的最大key数量
+     */
+    private Integer localCacheSyncMaxBatch;
+    /**
+     * 本地缓存失效通知消费线程数
+     */
+    private Integer localCacheSyncWorkers;
+    /**
+     * 本地缓存失效通知每个消费线程的队列容量
+     */
+    private Integer localCacheSyncQueueCapacity;
+    /**
+     * 本地缓存失效通知队列已满时的处理策略(clear_group|block|discard)
+     */
+    private String localCacheSyncOverflowPolicy;
+    /**
+     * 默认序列化方式(bytes|string|varint|varlong|compact|jdk)
+     */
+    private String codec;
+    /**
+     * 批量操作单个pipeline包含的最大key数量
+     */
+    private Integer batchSize;
+    /**
+     * RedisMap每个分组拆分的子hash数量(1表示不拆分)
+     */
+    private Integer mapShards;
+    /**
+     * 异步客户端的连接数
+     */
+    private Integer asyncConnections;
+    /**
+     * 是否开启自动pipeline
+     */
+    private Boolean autoPipeline;
+    /**
+     * 是否记录命令指标
+     */
+    private Boolean metrics;
+    /**
+     * 是否将指标发布到JMX
+     */
+    private Boolean metricsJmx;
+    /**
+     * 是否记录缓存分组统计
+     */
+    private Boolean cacheStats;
+    /**
+     * 读穿透加载时是否使用redis互斥锁保证只有一个节点加载
+     */
+    private Boolean loaderMutex;
+    /**
+     * 读穿透加载互斥锁的过期时间(秒)
+     */
+    private Integer loaderMutexExpire;
+    /**
+     * 清理已过期字段的间隔(秒)
+     */
+    private Integer expireReapSeconds;
+    /**
+     * 单次清理脚本最多删除的字段数
+     */
+    private Integer expireReapBatch;
+    /**
+     * 是否缓存不存在的key(墓碑)
+     */
+    private Boolean negativeCache;
+    /**
+     * 墓碑的过期时间(秒)
+     */
+    private Integer negativeCacheExpire;
+    /**
+     * 是否开启已知key的布隆过滤器
+     */
+    private Boolean bloomFilter;
+    /**
+     * 布隆过滤器预期的key数量
+     */
+    private Long bloomFilterExpectedInsertions;
+    /**
+     * 布隆过滤器期望的误判率
+     */
+    private Double bloomFilterFpp;
+    /**
+     * 布隆过滤器与redis位图同步的间隔(秒)
+     */
+    private Integer bloomFilterSyncSeconds;
 
     /**
      * redis数据库序号
@@ -29,9 +29,21 @@ public interface RedisPropertyConstants {
     String PKEY_SENTINEL_MASTER_NAME = "%s.sentinel.master.name";
     /** 集群监控服务器地址(多个以逗号分隔)如 127.0.0.1:6379,192.1.1.1:6379 */
     String PKEY_SENTINEL_HOSTS = "%s.sentinel.hosts";
+    /** Redis Cluster种子节点(多个以逗号分隔)如 127.0.0.1:7000,127.0.0.1:7001, 配置后使用集群模式 */
+    String PKEY_CLUSTER_NODES = "%s.cluster.nodes";
+    /** Redis Cluster单个命令最多跟随的MOVED/ASK重定向次数 */
+    String PKEY_CLUSTER_MAX_REDIRECTIONS = "%s.cluster.max.redirections";
 
     /** 读写分离配置标识 */
     String PKEY_R$WSEPARATED = "%s.read&write.separated";
+    /** 读写分离时的从节点地址(多个以逗号分隔)如 127.0.0.1:6380,127.0.0.1:6381, 读请求在从节点间负载均衡 */
+    String PKEY_READ_NODES = "%s.read.nodes";
+    /** 从节点连续失败多少次后摘除 */
+    String PKEY_READ_EJECT_ERRORS = "%s.read.eject.errors";
+    /** 从节点复制落后主节点超过多少字节时摘除 */
+    String PKEY_READ_MAX_LAG_BYTES = "%s.read.max.lag.bytes";
+    /** 探测从节点健康状态(恢复后重新加入)的间隔(秒) */
+    String PKEY_READ_PROBE_SECONDS = "%s.read.probe.seconds";
     /** redis数据库序号 */
     String PKEY_DB_INDEX = "%s.db.index";
 
@@ -41,6 +53,54 @@ public interface RedisPropertyConstants {
     /** 密码 */
     String PKEY_PASSWORD = "%s.password";
     String PKEY_OPEN_LOCAL_CACHE = "%s.open.local.cache";
+    /** 每个缓存分组本地缓存的最大条目数 */
+    String PKEY_LOCAL_CACHE_MAX_SIZE = "%s.local.cache.max.size";
+    /** 本地缓存失效通知合并发送的时间窗口(毫秒) */
+    String PKEY_LOCAL_CACHE_SYNC_FLUSH_MILLIS = "%s.local.cache.sync.flush.millis";
+    /** 本地缓存失效通知单条消息包含的最大key数量(达到后立即发送) */
+    String PKEY_LOCAL_CACHE_SYNC_MAX_BATCH = "%s.local.cache.sync.max.batch";
+    /** 本地缓存失效通知消费线程数 */
+    String PKEY_LOCAL_CACHE_SYNC_WORKERS = "%s.local.cache.sync.workers";
+    /** 本地缓存失效通知每个消费线程的队列容量 */
+    String PKEY_LOCAL_CACHE_SYNC_QUEUE_CAPACITY = "%s.local.cache.sync.queue.capacity";
+    /** 本地缓存失效通知队列已满时的处理策略(clear_group|block|discard) */
+    String PKEY_LOCAL_CACHE_SYNC_OVERFLOW_POLICY = "%s.local.cache.sync.overflow.policy";
+    /** 序列化方式(bytes|string|varint|varlong|compact|jdk) */
+    String PKEY_CODEC = "%s.codec";
+    /** 读穿透加载时是否使用redis互斥锁保证只有一个节点加载 */
+    String PKEY_LOADER_MUTEX = "%s.loader.mutex";
+    /** 读穿透加载互斥锁的过期时间(秒) */
+    String PKEY_LOADER_MUTEX_EXPIRE = "%s.loader.mutex.expire";
+    /** 清理已过期字段的间隔(秒) */
+    String PKEY_EXPIRE_REAP_SECONDS = "%s.expire.reap.seconds";
+    /** 单次清理脚本最多删除的字段数 */
+    String PKEY_EXPIRE_REAP_BATCH = "%s.expire.reap.batch";
+    /** 是否缓存不存在的key(墓碑), 防止缓存穿透 */
+    String PKEY_NEGATIVE_CACHE = "%s.negative.cache";
+    /** 墓碑的过期时间(秒) */
+    String PKEY_NEGATIVE_CACHE_EXPIRE = "%s.negative.cache.expire";
+    /** 是否为每个缓存分组维护已知key的布隆过滤器 */
+    String PKEY_BLOOM_FILTER = "%s.bloom.filter";
+    /** 布隆过滤器预期的key数量 */
+    String PKEY_BLOOM_FILTER_EXPECTED_INSERTIONS = "%s.bloom.filter.expected.insertions";
+    /** 布隆过滤器期望的误判率 */
+    String PKEY_BLOOM_FILTER_FPP = "%s.bloom.filter.fpp";
+    /** 布隆过滤器与redis位图同步的间隔(秒) */
+    String PKEY_BLOOM_FILTER_SYNC_SECONDS = "%s.bloom.filter.sync.seconds";
+    /** 批量操作(putAll/removeAll/containsAll)单个pipeline包含的最大key数量 */
+    String PKEY_BATCH_SIZE = "%s.batch.size";
+    /** RedisMap每个分组拆分的子hash数量, 大于1时按key哈希分散到多个hash */
+    String PKEY_MAP_SHARDS = "%s.map.shards";
+    /** 异步客户端(AsyncRedisMap/AsyncQueue)的多路复用连接数 */
+    String PKEY_ASYNC_CONNECTIONS = "%s.async.connections";
+    /** 是否开启自动pipeline: 多线程并发的单key命令在异步客户端的共享连接上合并发送 */
+    String PKEY_AUTO_PIPELINE = "%s.auto.pipeline";
+    /** 是否记录命令延迟直方图、失败次数、连接池借用等待及读写字节数 */
+    String PKEY_METRICS = "%s.metrics";
+    /** 是否将指标以MXBean发布到JMX */
+    String PKEY_METRICS_JMX = "%s.metrics.jmx";
+    /** 是否记录每个缓存分组的命中/未命中/回源等统计 */
+    String PKEY_CACHE_STATS = "%s.cache.stats";
 
     /** JedisPool链接超时时间 */
     String PKEY_TIMEOUT_IN_MILLIS = "%s.timeoutInMillis";
@@ -67,8 +127,36 @@ public interface RedisPropertyConstants {
     int DEFAULT_DB_INDEX = 0;
 
     boolean DEFAULT_OPEN_LOCAL_CACHE = false;
+    int DEFAULT_LOCAL_CACHE_MAX_SIZE = 10000;
+    int DEFAULT_LOCAL_CACHE_SYNC_FLUSH_MILLIS = 2;
+    int DEFAULT_LOCAL_CACHE_SYNC_MAX_BATCH = 256;
+    int DEFAULT_LOCAL_CACHE_SYNC_WORKERS = Runtime.getRuntime().availableProcessors();
+    int DEFAULT_LOCAL_CACHE_SYNC_QUEUE_CAPACITY = 10000;
+    String DEFAULT_LOCAL_CACHE_SYNC_OVERFLOW_POLICY = "clear_group";
+    String DEFAULT_CODEC = "compact";
+    int DEFAULT_BATCH_SIZE = 500;
+    int DEFAULT_MAP_SHARDS = 1;
+    int DEFAULT_ASYNC_CONNECTIONS = 2;
+    boolean DEFAULT_AUTO_PIPELINE = false;
+    boolean DEFAULT_METRICS = false;
+    boolean DEFAULT_METRICS_JMX = false;
+    boolean DEFAULT_CACHE_STATS = false;
+    boolean DEFAULT_LOADER_MUTEX = false;
+    int DEFAULT_LOADER_MUTEX_EXPIRE = 3;
+    int DEFAULT_EXPIRE_REAP_SECONDS = 1;
+    int DEFAULT_EXPIRE_REAP_BATCH = 500;
+    boolean DEFAULT_NEGATIVE_CACHE = false;
+    int DEFAULT_NEGATIVE_CACHE_EXPIRE = 60;
+    boolean DEFAULT_BLOOM_FILTER = false;
+    long DEFAULT_BLOOM_FILTER_EXPECTED_INSERTIONS = 1000000L;
+    double DEFAULT_BLOOM_FILTER_FPP = 0.01;
+    int DEFAULT_BLOOM_FILTER_SYNC_SECONDS = 30;
     boolean DEFAULT_IS_CLUSTER = false;
+    int DEFAULT_CLUSTER_MAX_REDIRECTIONS = 5;
     boolean DEFAULT_R$W_SEPARATED = true;
+    int DEFAULT_READ_EJECT_ERRORS = 3;
+    long DEFAULT_READ_MAX_LAG_BYTES = 1024 * 1024L;
+    int DEFAULT_READ_PROBE_SECONDS = 5;
     int DEFAULT_TIMEOUT = 10000;
     int DEFAULT_MAX_TOTAL = 8;
     int DEFAULT_MAX_IDLE = 8;
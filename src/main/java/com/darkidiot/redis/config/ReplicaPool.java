@@ -0,0 +1,353 @@
+package com.darkidiot.redis.config;
+
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.util.Pool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多个从节点组成的读连接池, 对外表现为一个{@link Pool}
+ * <ul>
+ * <li>每次借用连接时按得分(延迟EWMA × (在途请求数 + 1))的倒数加权随机选择健康的从节点, 兼顾最少在途请求与延迟加权.</li>
+ * <li>借出的连接归还到本池, 以借出到归还的耗时更新延迟, 以连接是否损坏统计连续失败次数.</li>
+ * <li>连续失败达到阈值, 或探测发现主从链路断开、复制落后主节点超过阈值(INFO replication的offset差)时摘除.</li>
+ * <li>后台定期探测所有从节点, 恢复正常的从节点重新加入; 没有可用的从节点时读请求回退到主节点.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+public class ReplicaPool extends Pool<Jedis> {
+
+    /**
+     * 延迟EWMA中新样本的权重
+     */
+    private static final double LATENCY_DECAY = 0.2;
+
+    private final String service;
+    private final List<Replica> replicas;
+    private final Pool<Jedis> master;
+    private final int ejectErrors;
+    private final long maxLagBytes;
+    /**
+     * 借出的连接 -> 所属从节点与借出时间
+     */
+    private final ConcurrentMap<Jedis, Lease> leases = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService prober;
+    private volatile boolean closed;
+
+    /**
+     * @param replicas     从节点地址 -> 连接池
+     * @param master       主节点连接池(用于查询复制offset, 以及没有可用从节点时回退)
+     * @param ejectErrors  连续失败多少次后摘除
+     * @param maxLagBytes  复制落后主节点的最大字节数
+     * @param probeSeconds 探测间隔(秒)
+     */
+    public ReplicaPool(final String service, Map<HostAndPort, JedisPool> replicas, Pool<Jedis> master, int ejectErrors, long maxLagBytes, int probeSeconds) {
+        if (replicas == null || replicas.isEmpty()) {
+            throw new IllegalArgumentException("replicas of ReplicaPool can not be empty.");
+        }
+        this.service = service;
+        List<Replica> list = new ArrayList<>(replicas.size());
+        for (Map.Entry<HostAndPort, JedisPool> entry : replicas.entrySet()) {
+            list.add(new Replica(entry.getKey(), entry.getValue()));
+        }
+        this.replicas = Collections.unmodifiableList(list);
+        this.master = master;
+        this.ejectErrors = ejectErrors;
+        this.maxLagBytes = maxLagBytes;
+        this.prober = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Thread-ReplicaProber-" + service);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        prober.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                probe();
+            }
+        }, probeSeconds, probeSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Jedis getResource() {
+        List<Replica> tried = null;
+        while (true) {
+            Replica replica = choose(tried);
+            if (replica == null) {
+                if (master == null) {
+                    throw new IllegalStateException("No available replica of service [" + service + "].");
+                }
+                return master.getResource();
+            }
+            Jedis jedis;
+            try {
+                jedis = replica.pool.getResource();
+            } catch (RuntimeException e) {
+                replica.failure(e);
+                if (tried == null) {
+                    tried = new ArrayList<>(replicas.size());
+                }
+                tried.add(replica);
+                continue;
+            }
+            replica.outstanding.incrementAndGet();
+            jedis.setDataSource(this);
+            leases.put(jedis, new Lease(replica, System.nanoTime()));
+            return jedis;
+        }
+    }
+
+    /**
+     * 借出的连接以本池为dataSource, Jedis.close()经由此方法(及{@link #returnBrokenResource})归还
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public void returnResource(Jedis resource) {
+        release(resource, false);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void returnBrokenResource(Jedis resource) {
+        release(resource, true);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        destroy();
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        prober.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.pool.destroy();
+        }
+    }
+
+    @Override
+    public int getNumActive() {
+        int active = 0;
+        for (Replica replica : replicas) {
+            active += replica.pool.getNumActive();
+        }
+        return active;
+    }
+
+    @Override
+    public int getNumIdle() {
+        int idle = 0;
+        for (Replica replica : replicas) {
+            idle += replica.pool.getNumIdle();
+        }
+        return idle;
+    }
+
+    /**
+     * 当前可用的从节点
+     */
+    public List<HostAndPort> healthyReplicas() {
+        List<HostAndPort> healthy = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (!replica.ejected) {
+                healthy.add(replica.address);
+            }
+        }
+        return healthy;
+    }
+
+    /**
+     * 按得分的倒数加权随机选择健康的从节点: 延迟低、在途请求少的节点分到更多请求, 较慢的节点仍有少量请求以持续更新其延迟
+     */
+    private Replica choose(List<Replica> excluded) {
+        List<Replica> candidates = new ArrayList<>(replicas.size());
+        double[] weights = new double[replicas.size()];
+        double total = 0;
+        for (Replica replica : replicas) {
+            if (replica.ejected || (excluded != null && excluded.contains(replica))) {
+                continue;
+            }
+            double weight = 1.0 / replica.score();
+            weights[candidates.size()] = weight;
+            candidates.add(replica);
+            total += weight;
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        double point = ThreadLocalRandom.current().nextDouble() * total;
+        for (int i = 0; i < candidates.size(); i++) {
+            point -= weights[i];
+            if (point < 0) {
+                return candidates.get(i);
+            }
+        }
+        return candidates.get(candidates.size() - 1);
+    }
+
+    private void release(Jedis resource, boolean broken) {
+        if (resource == null) {
+            return;
+        }
+        Lease lease = leases.remove(resource);
+        if (lease == null) {
+            // 不是从本池借出的连接(回退到主节点时由主节点连接池借出, dataSource仍为主节点连接池)
+            resource.close();
+            return;
+        }
+        Replica replica = lease.replica;
+        replica.outstanding.decrementAndGet();
+        // 交还给所属从节点的连接池, 由close()按连接是否损坏归还
+        resource.setDataSource(replica.pool);
+        resource.close();
+        if (broken) {
+            replica.failure(null);
+        } else {
+            replica.success(System.nanoTime() - lease.borrowedAt);
+        }
+    }
+
+    /**
+     * 探测所有从节点的链路状态与复制进度
+     */
+    private void probe() {
+        if (closed) {
+            return;
+        }
+        long masterOffset = -1;
+        if (master != null) {
+            try (Jedis jedis = master.getResource()) {
+                masterOffset = field(jedis.info("replication"), "master_repl_offset");
+            } catch (Exception e) {
+                log.debug("ReplicaPool[ {} ] query master offset failure, cause by:{}", service, e.getMessage());
+            }
+        }
+        for (Replica replica : replicas) {
+            String unhealthy;
+            try (Jedis jedis = replica.pool.getResource()) {
+                unhealthy = check(jedis.info("replication"), masterOffset);
+            } catch (Exception e) {
+                unhealthy = "probe failure: " + e.getMessage();
+            }
+            if (unhealthy == null) {
+                replica.readmit();
+            } else {
+                replica.eject(unhealthy);
+            }
+        }
+    }
+
+    /**
+     * @return 不健康的原因, 健康时返回null
+     */
+    private String check(String info, long masterOffset) {
+        if (info.contains("role:slave") && !info.contains("master_link_status:up")) {
+            return "master link down";
+        }
+        long offset = field(info, "slave_repl_offset");
+        if (masterOffset >= 0 && offset >= 0 && masterOffset - offset > maxLagBytes) {
+            return "replication lag " + (masterOffset - offset) + " bytes";
+        }
+        return null;
+    }
+
+    /**
+     * INFO结果中的数值字段, 不存在时返回-1
+     */
+    static long field(String info, String name) {
+        String prefix = name + ":";
+        for (String line : info.split("\r?\n")) {
+            if (line.startsWith(prefix)) {
+                try {
+                    return Long.parseLong(line.substring(prefix.length()).trim());
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private final class Replica {
+        final HostAndPort address;
+        final JedisPool pool;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+        /**
+         * 延迟EWMA(纳秒), 0表示尚无样本
+         */
+        volatile double latency;
+        volatile boolean ejected;
+
+        Replica(HostAndPort address, JedisPool pool) {
+            this.address = address;
+            this.pool = pool;
+        }
+
+        double score() {
+            return Math.max(latency, 1.0) * (outstanding.get() + 1);
+        }
+
+        void success(long nanos) {
+            errors.set(0);
+            double current = latency;
+            latency = current == 0 ? nanos : current + LATENCY_DECAY * (nanos - current);
+        }
+
+        void failure(Exception e) {
+            if (errors.incrementAndGet() >= ejectErrors) {
+                eject(errors.get() + " consecutive errors" + (e == null ? "" : ", last: " + e.getMessage()));
+            }
+        }
+
+        synchronized void eject(String reason) {
+            if (!ejected) {
+                ejected = true;
+                log.warn("ReplicaPool[ {} ] eject replica {}, cause by:{}", service, address, reason);
+            }
+        }
+
+        synchronized void readmit() {
+            errors.set(0);
+            if (ejected) {
+                ejected = false;
+                latency = 0;
+                log.info("ReplicaPool[ {} ] readmit replica {}.", service, address);
+            }
+        }
+    }
+
+    private static final class Lease {
+        final Replica replica;
+        final long borrowedAt;
+
+        Lease(Replica replica, long borrowedAt) {
+            this.replica = replica;
+            this.borrowedAt = borrowedAt;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.darkidiot.redis.exception;
+
+public class CodecException extends RedisException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CodecException() {
+		super();
+	}
+
+	public CodecException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public CodecException(String message) {
+		super(message);
+	}
+
+	public CodecException(Throwable cause) {
+		super(cause);
+	}
+}
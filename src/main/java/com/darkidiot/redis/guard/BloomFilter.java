@@ -0,0 +1,177 @@
+package com.darkidiot.redis.guard;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 已知key的布隆过滤器(线程安全)
+ * <ul>
+ * <li>位的编号与redis位图(SETBIT/GET)一致, 可以直接与redis中的位图合并.</li>
+ * <li>本地新置位的位记录在待同步队列中, 同步时以SETBIT推送到redis; 只增不减, 多个节点并发推送不会丢失.</li>
+ * <li>不支持删除, 被删除的key只会增加误判, 不影响正确性.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+public final class BloomFilter {
+
+    /**
+     * redis位图的最大长度(512MB)
+     */
+    private static final long MAX_BITS = 1L << 32;
+
+    private final long bitSize;
+    private final int hashFunctions;
+    private final AtomicLongArray words;
+    private final AtomicLong bitCount = new AtomicLong();
+    private final Queue<Long> dirty = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param expectedInsertions 预期的key数量
+     * @param fpp                期望的误判率
+     */
+    public BloomFilter(long expectedInsertions, double fpp) {
+        long n = Math.max(1L, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bitSize = Math.max(64L, Math.min(MAX_BITS, bits));
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+        this.words = new AtomicLongArray((int) ((bitSize + 63) >>> 6));
+    }
+
+    /**
+     * @return 是否有新置位的位(false表示该key可能已经存在)
+     */
+    public boolean put(byte[] key) {
+        boolean changed = false;
+        for (long index : indexes(key)) {
+            if (set(index)) {
+                dirty.offer(index);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return false表示key一定不存在
+     */
+    public boolean mightContain(byte[] key) {
+        for (long index : indexes(key)) {
+            if (!get(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 取出所有待同步到redis的位
+     */
+    public List<Long> drainDirty() {
+        List<Long> bits = new ArrayList<>();
+        Long index;
+        while ((index = dirty.poll()) != null) {
+            bits.add(index);
+        }
+        return bits;
+    }
+
+    /**
+     * 同步失败时放回待同步的位
+     */
+    public void requeueDirty(List<Long> bits) {
+        dirty.addAll(bits);
+    }
+
+    /**
+     * 合并redis位图(GET返回的原始字节)
+     */
+    public void merge(byte[] bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+        int length = (int) Math.min(bitmap.length, (bitSize + 7) >>> 3);
+        for (int i = 0; i < length; i++) {
+            int b = bitmap[i] & 0xff;
+            if (b == 0) {
+                continue;
+            }
+            for (int bit = 0; bit < 8; bit++) {
+                long index = ((long) i << 3) + bit;
+                if ((b & (0x80 >>> bit)) != 0 && index < bitSize) {
+                    set(index);
+                }
+            }
+        }
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * 已置位的位数
+     */
+    public long bitCount() {
+        return bitCount.get();
+    }
+
+    /**
+     * 按当前填充率估算的误判率
+     */
+    public double expectedFpp() {
+        return Math.pow((double) bitCount.get() / bitSize, hashFunctions);
+    }
+
+    private long[] indexes(byte[] key) {
+        HashCode hash = Hashing.murmur3_128().hashBytes(key);
+        byte[] bytes = hash.asBytes();
+        long hash1 = toLong(bytes, 0);
+        long hash2 = toLong(bytes, 8);
+        long[] indexes = new long[hashFunctions];
+        long combined = hash1;
+        for (int i = 0; i < hashFunctions; i++) {
+            indexes[i] = (combined & Long.MAX_VALUE) % bitSize;
+            combined += hash2;
+        }
+        return indexes;
+    }
+
+    private boolean get(long index) {
+        return (words.get((int) (index >>> 6)) & (1L << (index & 63))) != 0;
+    }
+
+    private boolean set(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << (index & 63);
+        while (true) {
+            long old = words.get(word);
+            if ((old & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(word, old, old | mask)) {
+                bitCount.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset + 7; i >= offset; i--) {
+            value = (value << 8) | (bytes[i] & 0xff);
+        }
+        return value;
+    }
+}
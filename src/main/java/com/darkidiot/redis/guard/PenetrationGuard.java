@@ -0,0 +1,403 @@
+package com.darkidiot.redis.guard;
+
+import com.darkidiot.redis.async.AsyncRedisClient;
+import com.darkidiot.redis.codec.Codec;
+import com.darkidiot.redis.config.RedisInitParam;
+import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.util.CommonUtil.Callback;
+import com.darkidiot.redis.util.HashTags;
+import com.google.common.primitives.Bytes;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.jedis.Response;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.darkidiot.redis.common.JedisType.READ;
+import static com.darkidiot.redis.common.JedisType.WRITE;
+import static com.darkidiot.redis.config.RedisPropertyConstants.DEFAULT_BLOOM_FILTER_EXPECTED_INSERTIONS;
+import static com.darkidiot.redis.config.RedisPropertyConstants.DEFAULT_BLOOM_FILTER_FPP;
+import static com.darkidiot.redis.config.RedisPropertyConstants.DEFAULT_BLOOM_FILTER_SYNC_SECONDS;
+import static com.darkidiot.redis.config.RedisPropertyConstants.DEFAULT_NEGATIVE_CACHE_EXPIRE;
+
+/**
+ * 缓存分组的穿透防护(同一分组的所有缓存实例共享)
+ * <ul>
+ * <li>墓碑: 回源确认不存在的key以独立的字符串key(分组名:nil:key)写入redis并设置短过期时间, 写入该key时删除.</li>
+ * <li>布隆过滤器: 记录分组内已知的key, 只在redis未命中之后使用, 判定为一定不存在的key不回源(不会隐藏redis中已有的数据);
+ * 本地维护并定时与redis位图(分组名:bloom)双向合并. 写入缓存的key自动加入, 数据源中已有的key需通过{@link #markExists}预先加入.</li>
+ * <li>访问redis失败时只记录日志, 不影响缓存本身的读写(按不拦截处理).</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+public final class PenetrationGuard {
+
+    private static final String TOMBSTONE_INFIX = ":nil:";
+    private static final String BLOOM_SUFFIX = ":bloom";
+    private static final byte[] TOMBSTONE = new byte[]{0};
+    private static final byte[] BIT_ON = SafeEncoder.encode("1");
+
+    private static final ConcurrentMap<String, PenetrationGuard> GUARDS = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Thread-BloomFilterSync");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final String name;
+    private final IJedis jedis;
+    private final Codec<Object> keyCodec;
+    private final boolean negativeCache;
+    private final int negativeCacheExpire;
+    private final byte[] tombstonePrefix;
+    private final BloomFilter bloom;
+    private final byte[] bloomKey;
+    /**
+     * 布隆过滤器是否已从redis加载(加载成功前不拦截任何key)
+     */
+    private volatile boolean bloomReady;
+
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong tombstonesWritten = new AtomicLong();
+    private final AtomicLong bloomRejects = new AtomicLong();
+    private final AtomicLong bloomFalsePositives = new AtomicLong();
+    private final AtomicLong bloomSyncFailures = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    private PenetrationGuard(String name, IJedis jedis, Codec<?> keyCodec, RedisInitParam initParam) {
+        this.name = name;
+        this.jedis = jedis;
+        this.keyCodec = (Codec<Object>) keyCodec;
+        this.negativeCache = Boolean.TRUE.equals(initParam.getNegativeCache());
+        this.negativeCacheExpire = initParam.getNegativeCacheExpire() == null ? DEFAULT_NEGATIVE_CACHE_EXPIRE : initParam.getNegativeCacheExpire();
+        // 集群模式下同一分组的墓碑带相同的hash tag, 一次pipeline即可批量检查
+        this.tombstonePrefix = SafeEncoder.encode(HashTags.tag(name, jedis) + TOMBSTONE_INFIX);
+        if (Boolean.TRUE.equals(initParam.getBloomFilter())) {
+            long expectedInsertions = initParam.getBloomFilterExpectedInsertions() == null ? DEFAULT_BLOOM_FILTER_EXPECTED_INSERTIONS : initParam.getBloomFilterExpectedInsertions();
+            double fpp = initParam.getBloomFilterFpp() == null ? DEFAULT_BLOOM_FILTER_FPP : initParam.getBloomFilterFpp();
+            this.bloom = new BloomFilter(expectedInsertions, fpp);
+            this.bloomKey = SafeEncoder.encode(name + BLOOM_SUFFIX);
+        } else {
+            this.bloom = null;
+            this.bloomKey = null;
+        }
+    }
+
+    /**
+     * 获取分组的穿透防护, 未开启墓碑与布隆过滤器时返回null
+     *
+     * @param name     缓存分组名称(服务-分组)
+     * @param keyCodec key编解码器, 与对应RedisMap保持一致
+     */
+    public static PenetrationGuard of(String name, IJedis jedis, Codec<?> keyCodec) {
+        RedisInitParam initParam = jedis.baseConfig();
+        if (initParam == null || !(Boolean.TRUE.equals(initParam.getNegativeCache()) || Boolean.TRUE.equals(initParam.getBloomFilter()))) {
+            return null;
+        }
+        PenetrationGuard guard = GUARDS.get(name);
+        if (guard != null) {
+            return guard;
+        }
+        synchronized (GUARDS) {
+            guard = GUARDS.get(name);
+            if (guard == null) {
+                guard = new PenetrationGuard(name, jedis, keyCodec, initParam);
+                if (guard.bloom != null) {
+                    guard.startBloomSync(initParam.getBloomFilterSyncSeconds() == null ? DEFAULT_BLOOM_FILTER_SYNC_SECONDS : initParam.getBloomFilterSyncSeconds());
+                }
+                GUARDS.put(name, guard);
+                log.info("PenetrationGuard[ {} ] created, negative cache:{}, bloom filter:{}.", name, guard.negativeCache,
+                        guard.bloom == null ? "off" : guard.bloom.bitSize() + " bits/" + guard.bloom.hashFunctions() + " hashes");
+            }
+            return guard;
+        }
+    }
+
+    /**
+     * 缓存分组的穿透防护指标
+     *
+     * @return 分组未开启防护或尚未创建时返回null
+     */
+    public static PenetrationStats getStats(String service, String groupName) {
+        PenetrationGuard guard = GUARDS.get(service + "-" + groupName);
+        return guard == null ? null : guard.stats();
+    }
+
+    /**
+     * 将数据源中已存在的key加入分组的布隆过滤器(启动预热), 并立即推送到redis
+     *
+     * @return 分组未开启布隆过滤器或尚未创建时返回false
+     */
+    public static boolean markExists(String service, String groupName, Collection<?> keys) {
+        PenetrationGuard guard = GUARDS.get(service + "-" + groupName);
+        if (guard == null || guard.bloom == null) {
+            log.warn("PenetrationGuard[ {}-{} ] bloom filter is not enabled, ignore {} keys.", service, groupName, keys == null ? 0 : keys.size());
+            return false;
+        }
+        if (keys != null) {
+            for (Object key : keys) {
+                if (key != null) {
+                    guard.bloom.put(guard.keyCodec.encode(key));
+                }
+            }
+        }
+        guard.syncBloom();
+        return true;
+    }
+
+    public boolean isNegativeCacheEnabled() {
+        return negativeCache;
+    }
+
+    /**
+     * 墓碑的过期时间(秒)
+     */
+    public int getNegativeCacheExpire() {
+        return negativeCacheExpire;
+    }
+
+    public boolean isBloomFilterEnabled() {
+        return bloom != null;
+    }
+
+    /**
+     * 只用于redis未命中之后决定是否回源
+     *
+     * @param key 经keyCodec编码的key
+     * @return true表示布隆过滤器判定key一定不存在
+     */
+    public boolean rejects(byte[] key) {
+        if (bloom == null || !bloomReady || bloom.mightContain(key)) {
+            return false;
+        }
+        bloomRejects.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 记录一次本地墓碑命中
+     */
+    public void recordNegativeHit() {
+        negativeHits.incrementAndGet();
+    }
+
+    /**
+     * 批量检查redis中的墓碑
+     *
+     * @param keys 经keyCodec编码的key
+     * @return 与keys一一对应, true表示存在墓碑(未开启墓碑或访问redis失败时全部为false)
+     */
+    public boolean[] tombstoned(final List<byte[]> keys) {
+        final boolean[] result = new boolean[keys.size()];
+        if (!negativeCache || keys.isEmpty()) {
+            return result;
+        }
+        try {
+            jedis.callOriginalJedis(tombstonePrefix, new Callback<Void>() {
+                @Override
+                public Void call(Jedis jedis) {
+                    Pipeline pipeline = jedis.pipelined();
+                    List<Response<Boolean>> responses = new ArrayList<>(keys.size());
+                    for (byte[] key : keys) {
+                        responses.add(pipeline.exists(tombstoneKey(key)));
+                    }
+                    pipeline.sync();
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] = Boolean.TRUE.equals(responses.get(i).get());
+                    }
+                    return null;
+                }
+            }, READ);
+        } catch (Exception e) {
+            log.warn("PenetrationGuard[ {} ] check tombstones failure, cause by:{}", name, e.getMessage());
+            return result;
+        }
+        int hits = 0;
+        for (boolean hit : result) {
+            if (hit) {
+                hits++;
+            }
+        }
+        negativeHits.addAndGet(hits);
+        if (bloom != null) {
+            bloomFalsePositives.addAndGet(hits);
+        }
+        return result;
+    }
+
+    /**
+     * 为回源确认不存在的key写入墓碑
+     *
+     * @param keys 经keyCodec编码的key
+     */
+    public void tombstone(final List<byte[]> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (bloom != null) {
+            bloomFalsePositives.addAndGet(keys.size());
+        }
+        if (!negativeCache) {
+            return;
+        }
+        try {
+            jedis.callOriginalJedis(tombstonePrefix, new Callback<Void>() {
+                @Override
+                public Void call(Jedis jedis) {
+                    Pipeline pipeline = jedis.pipelined();
+                    for (byte[] key : keys) {
+                        pipeline.setex(tombstoneKey(key), negativeCacheExpire, TOMBSTONE);
+                    }
+                    pipeline.sync();
+                    return null;
+                }
+            }, WRITE);
+            tombstonesWritten.addAndGet(keys.size());
+        } catch (Exception e) {
+            log.warn("PenetrationGuard[ {} ] write tombstones failure, cause by:{}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 将key加入布隆过滤器(下一次同步时推送到redis)
+     *
+     * @param keys 经keyCodec编码的key
+     */
+    public void remember(List<byte[]> keys) {
+        if (bloom != null) {
+            for (byte[] key : keys) {
+                bloom.put(key);
+            }
+        }
+    }
+
+    /**
+     * 写入缓存后调用: 加入布隆过滤器并删除redis中的墓碑
+     *
+     * @param keys 经keyCodec编码的key
+     */
+    public void onWrite(final List<byte[]> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        remember(keys);
+        if (!negativeCache) {
+            return;
+        }
+        try {
+            jedis.callOriginalJedis(tombstonePrefix, new Callback<Void>() {
+                @Override
+                public Void call(Jedis jedis) {
+                    Pipeline pipeline = jedis.pipelined();
+                    for (byte[] key : keys) {
+                        pipeline.del(tombstoneKey(key));
+                    }
+                    pipeline.sync();
+                    return null;
+                }
+            }, WRITE);
+        } catch (Exception e) {
+            log.warn("PenetrationGuard[ {} ] delete tombstones failure, cause by:{}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 异步写入成功后调用(在事件循环线程中执行): 加入布隆过滤器, 墓碑通过异步连接删除, 不阻塞当前线程
+     *
+     * @param keys   经keyCodec编码的key
+     * @param client 写入所用的异步客户端
+     */
+    public void onWrite(List<byte[]> keys, AsyncRedisClient client) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        remember(keys);
+        if (!negativeCache) {
+            return;
+        }
+        List<byte[][]> commands = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            commands.add(AsyncRedisClient.command(Command.DEL.raw, tombstoneKey(key)));
+        }
+        Futures.addCallback(client.submit(tombstonePrefix, commands), new FutureCallback<List<Object>>() {
+            @Override
+            public void onSuccess(List<Object> replies) {
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("PenetrationGuard[ {} ] delete tombstones failure, cause by:{}", name, t.getMessage());
+            }
+        });
+    }
+
+    public PenetrationStats stats() {
+        return new PenetrationStats(negativeHits.get(), tombstonesWritten.get(), bloomRejects.get(), bloomFalsePositives.get(),
+                bloomSyncFailures.get(), bloom == null ? 0 : bloom.bitCount(), bloom == null ? 0 : bloom.expectedFpp());
+    }
+
+    private byte[] tombstoneKey(byte[] key) {
+        return Bytes.concat(tombstonePrefix, key);
+    }
+
+    private void startBloomSync(int syncSeconds) {
+        // 首次同步在创建时完成, 避免其他节点已经加入的key被误判为不存在
+        syncBloom();
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                syncBloom();
+            }
+        }, syncSeconds, syncSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 推送本地新置位的位, 再拉取redis位图合并到本地
+     */
+    private void syncBloom() {
+        final List<Long> bits = bloom.drainDirty();
+        try {
+            byte[] bitmap = jedis.callOriginalJedis(bloomKey, new Callback<byte[]>() {
+                @Override
+                public byte[] call(Jedis jedis) {
+                    if (bits.isEmpty()) {
+                        return jedis.get(bloomKey);
+                    }
+                    Pipeline pipeline = jedis.pipelined();
+                    for (Long bit : bits) {
+                        pipeline.setbit(bloomKey, bit, BIT_ON);
+                    }
+                    Response<byte[]> bitmap = pipeline.get(bloomKey);
+                    pipeline.sync();
+                    return bitmap.get();
+                }
+            }, bits.isEmpty() ? READ : WRITE);
+            bloom.merge(bitmap);
+            bloomReady = true;
+        } catch (Exception e) {
+            bloom.requeueDirty(bits);
+            bloomSyncFailures.incrementAndGet();
+            log.warn("PenetrationGuard[ {} ] sync bloom filter failure, cause by:{}", name, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.darkidiot.redis.guard;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 缓存穿透防护的运行指标快照
+ *
+ * @author darkidiot
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PenetrationStats {
+    /**
+     * 命中墓碑(本地或redis)直接返回空的次数
+     */
+    private final long negativeHits;
+    /**
+     * 写入redis的墓碑数
+     */
+    private final long tombstonesWritten;
+    /**
+     * 被布隆过滤器判定为一定不存在而直接返回空的次数
+     */
+    private final long bloomRejects;
+    /**
+     * 布隆过滤器判定可能存在, 但回源确认不存在的次数
+     */
+    private final long bloomFalsePositives;
+    /**
+     * 布隆过滤器与redis位图同步失败的次数
+     */
+    private final long bloomSyncFailures;
+    /**
+     * 布隆过滤器已置位的位数
+     */
+    private final long bloomBitCount;
+    /**
+     * 按当前填充率估算的布隆过滤器误判率
+     */
+    private final double bloomExpectedFpp;
+}
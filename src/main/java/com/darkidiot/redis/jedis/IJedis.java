@@ -2,6 +2,7 @@ package com.darkidiot.redis.jedis;
 
 import com.darkidiot.redis.common.JedisType;
 import com.darkidiot.redis.config.RedisInitParam;
+import redis.clients.jedis.BinaryJedisPubSub;
 import redis.clients.jedis.JedisPubSub;
 import redis.clients.jedis.Tuple;
 
@@ -20,8 +21,28 @@ public interface IJedis {
 
     RedisInitParam baseConfig();
 
+    /**
+     * 使用原生jedis连接执行回调(集群模式下任选一个节点, 涉及key的操作请使用带路由key的重载)
+     */
     <T> T callOriginalJedis(Callback<T> callback, JedisType type);
 
+    /**
+     * 使用原生jedis连接执行回调, 集群模式下连接来自routingKey所在slot的节点, 回调中访问的key必须与routingKey位于同一个slot
+     *
+     * @param routingKey 决定路由的key
+     */
+    <T> T callOriginalJedis(byte[] routingKey, Callback<T> callback, JedisType type);
+
+    /**
+     * @see #callOriginalJedis(byte[], Callback, JedisType)
+     */
+    <T> T callOriginalJedis(String routingKey, Callback<T> callback, JedisType type);
+
+    /**
+     * 是否为Redis Cluster模式
+     */
+    boolean isCluster();
+
     /**
      * 发布
      *
@@ -38,6 +59,22 @@ public interface IJedis {
      */
     void subscribe(JedisPubSub jedisPubSub, String... topic);
 
+    /**
+     * 发布(二进制消息)
+     *
+     * @param topic   主题
+     * @param message 消息
+     */
+    void publish(byte[] topic, byte[] message);
+
+    /**
+     * 订阅(二进制消息)
+     *
+     * @param jedisPubSub
+     * @param topic
+     */
+    void subscribe(BinaryJedisPubSub jedisPubSub, byte[]... topic);
+
     Set<Tuple> zrangeWithScores(byte[] key, int offset, int len);
 
     byte[] get(byte[] key);
@@ -113,6 +150,13 @@ public interface IJedis {
 
     long del(byte[] key);
 
+    /**
+     * 删除多个key(集群模式下按slot分组执行)
+     *
+     * @return 删除的key数量
+     */
+    long del(String... keys);
+
     long expire(byte[] key, int seconds);
 
     long linsert(String key, boolean where, String pivot, String value);
@@ -175,6 +219,12 @@ public interface IJedis {
 
     List<byte[]> hmget(byte[] key, byte[]... fields);
 
+    /**
+     * 按位置返回结果(不存在的field对应null)
+     *
+     * @deprecated 使用 {@link #hmget(byte[], byte[]...)} 配合 Codec
+     */
+    @Deprecated
     List<? extends Object> hmget(Object key, List<? extends Object> fields);
 
     long hincrBy(String key, String field, long value);
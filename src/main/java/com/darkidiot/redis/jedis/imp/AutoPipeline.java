@@ -0,0 +1,76 @@
+package com.darkidiot.redis.jedis.imp;
+
+import com.darkidiot.redis.async.AsyncRedisClient;
+import com.darkidiot.redis.exception.RedisException;
+import com.darkidiot.redis.metrics.JedisMetrics;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 自动pipeline: 调用线程把单条命令提交到{@link AsyncRedisClient}的共享连接并等待自己的应答
+ * <ul>
+ * <li>多个线程同时提交的命令由事件循环一次编码写出, 相当于每次flush一个pipeline, 高并发下减少系统调用与网络往返, 调用方式不变.</li>
+ * <li>错误应答抛出JedisDataException, 连接失败或超时抛出JedisConnectionException, 与从连接池借用连接执行时一致.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+final class AutoPipeline {
+
+    private final AsyncRedisClient client;
+    /**
+     * 指标记录器, 服务未开启metrics时为null
+     */
+    private final JedisMetrics metrics;
+
+    AutoPipeline(AsyncRedisClient client, JedisMetrics metrics) {
+        this.client = client;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param name       指标中的命令名称(与IJedis包装方法名一致)
+     * @param routingKey 路由key, 同一key的命令在同一连接上按提交顺序执行
+     * @return 命令的应答(状态为String, 整数为Long, 字符串为byte[], 数组为List, nil为null)
+     */
+    Object execute(String name, byte[] routingKey, byte[]... command) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object reply = client.submit(routingKey, Collections.singletonList(command)).get().get(0);
+            if (reply instanceof RedisException) {
+                throw new JedisDataException(((RedisException) reply).getMessage());
+            }
+            success = true;
+            return reply;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisException("Interrupted while waiting for the reply of " + name + ".", e);
+        } catch (ExecutionException e) {
+            throw new JedisConnectionException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            if (metrics != null) {
+                metrics.command(name, System.nanoTime() - start, success);
+            }
+        }
+    }
+
+    static String string(Object reply) {
+        if (reply instanceof byte[]) {
+            return SafeEncoder.encode((byte[]) reply);
+        }
+        return (String) reply;
+    }
+
+    static Double number(Object reply) {
+        return reply == null ? null : Double.valueOf(string(reply));
+    }
+
+    static boolean bool(Object reply) {
+        return Long.valueOf(1L).equals(reply);
+    }
+}
@@ -1,16 +1,31 @@
 package com.darkidiot.redis.jedis.imp;
 
+import com.darkidiot.redis.async.AsyncRedisClient;
 import com.darkidiot.redis.common.JedisType;
 import com.darkidiot.redis.config.RedisInitParam;
 import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.metrics.JedisMetrics;
+import com.darkidiot.redis.util.CommonUtil;
 import com.darkidiot.redis.util.ByteObjectConvertUtil;
 import com.google.common.collect.Lists;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import redis.clients.jedis.BinaryClient;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.JedisClusterCommand;
+import redis.clients.jedis.JedisClusterConnectionHandler;
 import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Protocol.Command;
 import redis.clients.jedis.Tuple;
+import redis.clients.util.JedisClusterCRC16;
 import redis.clients.util.Pool;
+import redis.clients.util.SafeEncoder;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -18,10 +33,12 @@ import java.util.Set;
 import static com.darkidiot.redis.common.JedisType.READ;
 import static com.darkidiot.redis.common.JedisType.WRITE;
 import static com.darkidiot.redis.util.CommonUtil.Callback;
-import static com.darkidiot.redis.util.CommonUtil.invoke;
 
 /**
  * Redis缓存实现类，支持读写分离(链接自动关闭)
+ * <p>集群模式下按key所在的slot路由到对应节点, 并处理MOVED/ASK重定向; 多key命令要求所有key位于同一个slot(使用hash tag).</p>
+ * <p>开启自动pipeline时, 单key的简单命令(get/set/hget/hset/incr/lpush等)不再借用连接, 而是提交到少量共享连接上与其他线程的命令合并发送;
+ * 读写分离时读命令仍走读连接池, callOriginalJedis的回调与多key、阻塞命令始终使用连接池.</p>
  *
  * @author darkidiot
  */
@@ -31,21 +48,72 @@ public class Jedis implements IJedis {
     /**
      * 读jedis连接池
      */
-    private Pool writeJedisPool;
+    private Pool<redis.clients.jedis.Jedis> writeJedisPool;
     /**
      * 写jedis连接池
      */
-    private Pool readJedisPool;
+    private Pool<redis.clients.jedis.Jedis> readJedisPool;
+
+    /**
+     * 集群连接(slot缓存与各节点连接池), 非集群模式为null
+     */
+    private JedisClusterConnectionHandler clusterHandler;
+    /**
+     * 集群模式下单个命令最多跟随的重定向次数
+     */
+    private int maxRedirections;
 
     private RedisInitParam baseConfig;
 
-    public Jedis(Pool writeJedisPool, Pool readJedisPool, RedisInitParam baseConfig) {
+    /**
+     * 指标记录器, 服务未开启metrics时为null
+     */
+    private JedisMetrics metrics;
+
+    /**
+     * 自动pipeline, 未开启时为null
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private AutoPipeline autoPipeline;
+
+    public Jedis(Pool<redis.clients.jedis.Jedis> writeJedisPool, Pool<redis.clients.jedis.Jedis> readJedisPool, RedisInitParam baseConfig) {
         if (writeJedisPool == null && readJedisPool == null) {
             throw new IllegalArgumentException("writeRedisPool and readRedisPool can not both null.");
         }
         this.readJedisPool = readJedisPool;
         this.writeJedisPool = writeJedisPool;
         this.baseConfig = baseConfig;
+        this.metrics = JedisMetrics.of(baseConfig);
+    }
+
+    public Jedis(JedisClusterConnectionHandler clusterHandler, int maxRedirections, RedisInitParam baseConfig) {
+        if (clusterHandler == null) {
+            throw new IllegalArgumentException("clusterHandler can not be null.");
+        }
+        this.clusterHandler = clusterHandler;
+        this.maxRedirections = maxRedirections;
+        this.baseConfig = baseConfig;
+        this.metrics = JedisMetrics.of(baseConfig);
+    }
+
+    /**
+     * 开启自动pipeline(集群模式不支持)
+     *
+     * @param client 服务的异步客户端, 其连接即为共享连接
+     */
+    public void enableAutoPipeline(AsyncRedisClient client) {
+        if (clusterHandler != null) {
+            throw new IllegalStateException("auto pipeline does not support Redis Cluster.");
+        }
+        this.autoPipeline = new AutoPipeline(client, metrics);
+    }
+
+    /**
+     * @return 命令是否通过自动pipeline执行(读写分离时读命令仍使用读连接池)
+     */
+    private boolean pipelined(JedisType type) {
+        return autoPipeline != null && (type == WRITE || readJedisPool == writeJedisPool);
     }
 
     /**
@@ -54,7 +122,7 @@ public class Jedis implements IJedis {
      * @param type
      * @return
      */
-    private Pool getPoolByType(JedisType type) {
+    private Pool<redis.clients.jedis.Jedis> getPoolByType(JedisType type) {
         switch (type) {
             case READ:
                 if (readJedisPool != null) {
@@ -74,13 +142,72 @@ public class Jedis implements IJedis {
         }
     }
 
+    /**
+     * 与key无关的命令(集群模式下任选一个节点)
+     */
     private <T> T handle(Callback<T> call, JedisType type) {
-        return invoke(call, getPoolByType(type));
+        if (clusterHandler != null) {
+            return cluster(call).runWithAnyNode();
+        }
+        return invoke(call, type);
+    }
+
+    private <T> T handle(String key, Callback<T> call, JedisType type) {
+        return handle(SafeEncoder.encode(key), call, type);
+    }
+
+    private <T> T handle(byte[] key, Callback<T> call, JedisType type) {
+        if (clusterHandler != null) {
+            return cluster(call).runBinary(key);
+        }
+        return invoke(call, type);
+    }
+
+    /**
+     * 多key命令(集群模式下所有key必须位于同一个slot)
+     */
+    private <T> T handle(byte[][] keys, Callback<T> call, JedisType type) {
+        if (clusterHandler != null) {
+            return cluster(call).runBinary(keys.length, keys);
+        }
+        return invoke(call, type);
+    }
+
+    private <T> T invoke(Callback<T> call, JedisType type) {
+        if (metrics != null) {
+            return metrics.invoke(call, getPoolByType(type), type);
+        }
+        return CommonUtil.invoke(call, getPoolByType(type));
+    }
+
+    private <T> JedisClusterCommand<T> cluster(Callback<T> call) {
+        final Callback<T> timed = metrics == null ? call : metrics.timed(call);
+        return new JedisClusterCommand<T>(clusterHandler, maxRedirections) {
+            @Override
+            public T execute(redis.clients.jedis.Jedis connection) {
+                return timed.call(connection);
+            }
+        };
+    }
+
+    private static byte[][] keys(String... keys) {
+        byte[][] encoded = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            encoded[i] = SafeEncoder.encode(keys[i]);
+        }
+        return encoded;
+    }
+
+    private static byte[][] keys(String first, String... rest) {
+        String[] all = new String[rest.length + 1];
+        all[0] = first;
+        System.arraycopy(rest, 0, all, 1, rest.length);
+        return keys(all);
     }
 
     @Override
     public Set<Tuple> zrangeWithScores(final byte[] key, final int offset, final int len) {
-        return handle(new Callback<Set<Tuple>>() {
+        return handle(key, new Callback<Set<Tuple>>() {
             @Override
             public Set<Tuple> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zrangeWithScores(key, offset, offset + len);
@@ -90,7 +217,7 @@ public class Jedis implements IJedis {
 
     @Override
     public Set<Tuple> zrevrangeWithScores(final byte[] key, final int start, final int end) {
-        return handle(new Callback<Set<Tuple>>() {
+        return handle(key, new Callback<Set<Tuple>>() {
             @Override
             public Set<Tuple> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zrevrangeWithScores(key, start, end);
@@ -104,7 +231,10 @@ public class Jedis implements IJedis {
      */
     @Override
     public boolean zadd(final byte[] key, final double score, final byte[] value) {
-        return handle(new Callback<Boolean>() {
+        if (pipelined(WRITE)) {
+            return AutoPipeline.bool(autoPipeline.execute("zadd", key, Command.ZADD.raw, key, Protocol.toByteArray(score), value));
+        }
+        return handle(key, new Callback<Boolean>() {
             @Override
             public Boolean call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zadd(key, score, value) == 1;
@@ -118,7 +248,10 @@ public class Jedis implements IJedis {
      */
     @Override
     public boolean zadd(final String key, final double score, final String value) {
-        return handle(new Callback<Boolean>() {
+        if (pipelined(WRITE)) {
+            return AutoPipeline.bool(autoPipeline.execute("zadd", SafeEncoder.encode(key), Command.ZADD.raw, SafeEncoder.encode(key), Protocol.toByteArray(score), SafeEncoder.encode(value)));
+        }
+        return handle(key, new Callback<Boolean>() {
             @Override
             public Boolean call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zadd(key, score, value) == 1;
@@ -131,7 +264,7 @@ public class Jedis implements IJedis {
      */
     @Override
     public boolean zadd(final byte[] key, final Map<byte[], Double> scoreMembers) {
-        return handle(new Callback<Boolean>() {
+        return handle(key, new Callback<Boolean>() {
             @Override
             public Boolean call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zadd(key, scoreMembers) == 1;
@@ -141,7 +274,7 @@ public class Jedis implements IJedis {
 
     @Override
     public boolean zadd(final String key, final Map<String, Double> scoreMembers) {
-        return handle(new Callback<Boolean>() {
+        return handle(key, new Callback<Boolean>() {
             @Override
             public Boolean call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zadd(key, scoreMembers) == 1;
@@ -151,7 +284,10 @@ public class Jedis implements IJedis {
 
     @Override
     public double zscore(final byte[] key, final byte[] value) {
-        return handle(new Callback<Double>() {
+        if (pipelined(WRITE)) {
+            return AutoPipeline.number(autoPipeline.execute("zscore", key, Command.ZSCORE.raw, key, value));
+        }
+        return handle(key, new Callback<Double>() {
             @Override
             public Double call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zscore(key, value);
@@ -161,7 +297,7 @@ public class Jedis implements IJedis {
 
     @Override
     public Set<byte[]> zrangeByScore(final byte[] key, final double min, final double max) {
-        return handle(new Callback<Set<byte[]>>() {
+        return handle(key, new Callback<Set<byte[]>>() {
             @Override
             public Set<byte[]> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zrangeByScore(key, min, max);
@@ -175,7 +311,10 @@ public class Jedis implements IJedis {
      */
     @Override
     public boolean zrem(final byte[] key, final byte[] value) {
-        return handle(new Callback<Boolean>() {
+        if (pipelined(WRITE)) {
+            return AutoPipeline.bool(autoPipeline.execute("zrem", key, Command.ZREM.raw, key, value));
+        }
+        return handle(key, new Callback<Boolean>() {
             @Override
             public Boolean call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zrem(key, value) == 1;
@@ -185,7 +324,10 @@ public class Jedis implements IJedis {
 
     @Override
     public boolean exists(final byte[] key) {
-        return handle(new Callback<Boolean>() {
+        if (pipelined(READ)) {
+            return AutoPipeline.bool(autoPipeline.execute("exists", key, Command.EXISTS.raw, key));
+        }
+        return handle(key, new Callback<Boolean>() {
             @Override
             public Boolean call(redis.clients.jedis.Jedis jedis) {
                 return jedis.exists(key);
@@ -195,7 +337,7 @@ public class Jedis implements IJedis {
 
     @Override
     public String rename(final byte[] oldkey, final byte[] newkey) {
-        return handle(new Callback<String>() {
+        return handle(new byte[][]{oldkey, newkey}, new Callback<String>() {
             @Override
             public String call(redis.clients.jedis.Jedis jedis) {
                 return jedis.rename(oldkey, newkey);
@@ -205,7 +347,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long renamenx(final byte[] oldkey, final byte[] newkey) {
-        return handle(new Callback<Long>() {
+        return handle(new byte[][]{oldkey, newkey}, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.renamenx(oldkey, newkey);
@@ -215,7 +357,10 @@ public class Jedis implements IJedis {
 
     @Override
     public byte[] get(final byte[] key) {
-        return handle(new Callback<byte[]>() {
+        if (pipelined(READ)) {
+            return (byte[]) autoPipeline.execute("get", key, Command.GET.raw, key);
+        }
+        return handle(key, new Callback<byte[]>() {
             @Override
             public byte[] call(redis.clients.jedis.Jedis jedis) {
                 return jedis.get(key);
@@ -228,7 +373,10 @@ public class Jedis implements IJedis {
      */
     @Override
     public String set(final byte[] key, final byte[] value) {
-        return handle(new Callback<String>() {
+        if (pipelined(WRITE)) {
+            return AutoPipeline.string(autoPipeline.execute("set", key, Command.SET.raw, key, value));
+        }
+        return handle(key, new Callback<String>() {
             @Override
             public String call(redis.clients.jedis.Jedis jedis) {
                 return jedis.set(key, value);
@@ -238,7 +386,10 @@ public class Jedis implements IJedis {
 
     @Override
     public String set(final String key, final long value) {
-        return handle(new Callback<String>() {
+        if (pipelined(WRITE)) {
+            return AutoPipeline.string(autoPipeline.execute("set", SafeEncoder.encode(key), Command.SET.raw, SafeEncoder.encode(key), Protocol.toByteArray(value)));
+        }
+        return handle(key, new Callback<String>() {
             @Override
             public String call(redis.clients.jedis.Jedis jedis) {
                 return jedis.set(key, value + "");
@@ -248,7 +399,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long incr(final byte[] key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("incr", key, Command.INCR.raw, key);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.incr(key);
@@ -258,7 +412,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long incrBy(final byte[] key, final long value) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("incrBy", key, Command.INCRBY.raw, key, Protocol.toByteArray(value));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.incrBy(key, value);
@@ -268,7 +425,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long decr(final byte[] key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("decr", key, Command.DECR.raw, key);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.decr(key);
@@ -278,7 +438,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long decrBy(final byte[] key, final long value) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("decrBy", key, Command.DECRBY.raw, key, Protocol.toByteArray(value));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.decrBy(key, value);
@@ -298,7 +461,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long zcard(final byte[] key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("zcard", key, Command.ZCARD.raw, key);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zcard(key);
@@ -308,7 +474,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long zremrangeByRank(final byte[] key, final int offset, final int len) {
-        return handle(new Callback<Long>() {
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zremrangeByRank(key, offset, offset + len);
@@ -318,7 +484,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long zremrangeByRankV2(final byte[] key, final int start, final int end) {
-        return handle(new Callback<Long>() {
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zremrangeByRank(key, start, end);
@@ -328,7 +494,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long zremrangeByScore(final byte[] key, final int start, final int end) {
-        return handle(new Callback<Long>() {
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zremrangeByScore(key, start, end);
@@ -355,7 +521,10 @@ public class Jedis implements IJedis {
 
     @Override
     public byte[] hget(final byte[] key, final byte[] field) {
-        return handle(new Callback<byte[]>() {
+        if (pipelined(READ)) {
+            return (byte[]) autoPipeline.execute("hget", key, Command.HGET.raw, key, field);
+        }
+        return handle(key, new Callback<byte[]>() {
             @Override
             public byte[] call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hget(key, field);
@@ -365,7 +534,10 @@ public class Jedis implements IJedis {
 
     @Override
     public String hget(final String key, final String field) {
-        return handle(new Callback<String>() {
+        if (pipelined(READ)) {
+            return AutoPipeline.string(autoPipeline.execute("hget", SafeEncoder.encode(key), Command.HGET.raw, SafeEncoder.encode(key), SafeEncoder.encode(field)));
+        }
+        return handle(key, new Callback<String>() {
             @Override
             public String call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hget(key, field);
@@ -375,7 +547,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long hset(final String key, final String field, final String value) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("hset", SafeEncoder.encode(key), Command.HSET.raw, SafeEncoder.encode(key), SafeEncoder.encode(field), SafeEncoder.encode(value));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hset(key, field, value);
@@ -385,7 +560,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long hset(final byte[] key, final byte[] field, final byte[] value) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("hset", key, Command.HSET.raw, key, field, value);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hset(key, field, value);
@@ -395,7 +573,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long hdel(final String key, final String field) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("hdel", SafeEncoder.encode(key), Command.HDEL.raw, SafeEncoder.encode(key), SafeEncoder.encode(field));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hdel(key, field);
@@ -405,7 +586,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long hdel(final byte[] key, final byte[] field) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("hdel", key, Command.HDEL.raw, key, field);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hdel(key, field);
@@ -415,7 +599,7 @@ public class Jedis implements IJedis {
 
     @Override
     public Map<String, String> hgetAll(final String key) {
-        return handle(new Callback<Map<String, String>>() {
+        return handle(key, new Callback<Map<String, String>>() {
             @Override
             public Map<String, String> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hgetAll(key);
@@ -425,7 +609,7 @@ public class Jedis implements IJedis {
 
     @Override
     public Map<byte[], byte[]> hgetAll(final byte[] key) {
-        return handle(new Callback<Map<byte[], byte[]>>() {
+        return handle(key, new Callback<Map<byte[], byte[]>>() {
             @Override
             public Map<byte[], byte[]> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hgetAll(key);
@@ -435,7 +619,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long hincrBy(final String key, final String field, final long value) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("hincrBy", SafeEncoder.encode(key), Command.HINCRBY.raw, SafeEncoder.encode(key), SafeEncoder.encode(field), Protocol.toByteArray(value));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hincrBy(key, field, value);
@@ -445,7 +632,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long expire(final String key, final int seconds) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("expire", SafeEncoder.encode(key), Command.EXPIRE.raw, SafeEncoder.encode(key), Protocol.toByteArray(seconds));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.expire(key, seconds);
@@ -455,7 +645,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long del(final String key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("del", SafeEncoder.encode(key), Command.DEL.raw, SafeEncoder.encode(key));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.del(key);
@@ -465,7 +658,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long del(final byte[] key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("del", key, Command.DEL.raw, key);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.del(key);
@@ -475,7 +671,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long expire(final byte[] key, final int seconds) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("expire", key, Command.EXPIRE.raw, key, Protocol.toByteArray(seconds));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.expire(key, seconds);
@@ -485,7 +684,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long linsert(final String key, final boolean where, final String pivot, final String value) {
-        return handle(new Callback<Long>() {
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 if (where)
@@ -498,7 +697,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long lpush(final String key, final String value) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("lpush", SafeEncoder.encode(key), Command.LPUSH.raw, SafeEncoder.encode(key), SafeEncoder.encode(value));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.lpush(key, value);
@@ -508,7 +710,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long rpush(final String key, final String value) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("rpush", SafeEncoder.encode(key), Command.RPUSH.raw, SafeEncoder.encode(key), SafeEncoder.encode(value));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.rpush(key, value);
@@ -518,7 +723,7 @@ public class Jedis implements IJedis {
 
     @Override
     public String ltrim(final String key, final long start, final long end) {
-        return handle(new Callback<String>() {
+        return handle(key, new Callback<String>() {
             @Override
             public String call(redis.clients.jedis.Jedis jedis) {
                 return jedis.ltrim(key, start, end);
@@ -528,7 +733,7 @@ public class Jedis implements IJedis {
 
     @Override
     public List<String> lrange(final String key, final long start, final long end) {
-        return handle(new Callback<List<String>>() {
+        return handle(key, new Callback<List<String>>() {
             @Override
             public List<String> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.lrange(key, start, end);
@@ -538,7 +743,10 @@ public class Jedis implements IJedis {
 
     @Override
     public String lindex(final String key, final int index) {
-        return handle(new Callback<String>() {
+        if (pipelined(READ)) {
+            return AutoPipeline.string(autoPipeline.execute("lindex", SafeEncoder.encode(key), Command.LINDEX.raw, SafeEncoder.encode(key), Protocol.toByteArray(index)));
+        }
+        return handle(key, new Callback<String>() {
             @Override
             public String call(redis.clients.jedis.Jedis jedis) {
                 return jedis.lindex(key, index);
@@ -548,7 +756,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long llen(final String key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(READ)) {
+            return (Long) autoPipeline.execute("llen", SafeEncoder.encode(key), Command.LLEN.raw, SafeEncoder.encode(key));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.llen(key);
@@ -558,7 +769,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long lrem(final String key, final int count, final String value) {
-        return handle(new Callback<Long>() {
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.lrem(key, count, value);
@@ -568,7 +779,7 @@ public class Jedis implements IJedis {
 
     @Override
     public Set<String> smembers(final String key) {
-        return handle(new Callback<Set<String>>() {
+        return handle(key, new Callback<Set<String>>() {
             @Override
             public Set<String> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.smembers(key);
@@ -578,7 +789,7 @@ public class Jedis implements IJedis {
 
     @Override
     public Set<byte[]> smembers(final byte[] key) {
-        return handle(new Callback<Set<byte[]>>() {
+        return handle(key, new Callback<Set<byte[]>>() {
             @Override
             public Set<byte[]> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.smembers(key);
@@ -588,7 +799,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long scard(final String key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(READ)) {
+            return (Long) autoPipeline.execute("scard", SafeEncoder.encode(key), Command.SCARD.raw, SafeEncoder.encode(key));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.scard(key);
@@ -598,7 +812,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long scard(final byte[] key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(READ)) {
+            return (Long) autoPipeline.execute("scard", key, Command.SCARD.raw, key);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.scard(key);
@@ -608,7 +825,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long sadd(final byte[] key, final byte[]... members) {
-        return handle(new Callback<Long>() {
+        if (members.length == 1 && pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("sadd", key, Command.SADD.raw, key, members[0]);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.sadd(key, members);
@@ -618,7 +838,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long sadd(final String key, final String... members) {
-        return handle(new Callback<Long>() {
+        if (members.length == 1 && pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("sadd", SafeEncoder.encode(key), Command.SADD.raw, SafeEncoder.encode(key), SafeEncoder.encode(members[0]));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.sadd(key, members);
@@ -628,7 +851,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long srem(final byte[] key, final byte[]... members) {
-        return handle(new Callback<Long>() {
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.srem(key, members);
@@ -638,7 +861,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long srem(final String key, final String... members) {
-        return handle(new Callback<Long>() {
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.srem(key, members);
@@ -648,7 +871,10 @@ public class Jedis implements IJedis {
 
     @Override
     public boolean sismember(final String key, final String member) {
-        return handle(new Callback<Boolean>() {
+        if (pipelined(WRITE)) {
+            return AutoPipeline.bool(autoPipeline.execute("sismember", SafeEncoder.encode(key), Command.SISMEMBER.raw, SafeEncoder.encode(key), SafeEncoder.encode(member)));
+        }
+        return handle(key, new Callback<Boolean>() {
             @Override
             public Boolean call(redis.clients.jedis.Jedis jedis) {
                 return jedis.sismember(key, member);
@@ -658,7 +884,10 @@ public class Jedis implements IJedis {
 
     @Override
     public boolean sismember(final byte[] key, final byte[] member) {
-        return handle(new Callback<Boolean>() {
+        if (pipelined(WRITE)) {
+            return AutoPipeline.bool(autoPipeline.execute("sismember", key, Command.SISMEMBER.raw, key, member));
+        }
+        return handle(key, new Callback<Boolean>() {
             @Override
             public Boolean call(redis.clients.jedis.Jedis jedis) {
                 return jedis.sismember(key, member);
@@ -668,7 +897,10 @@ public class Jedis implements IJedis {
 
     @Override
     public String rpop(final String key) {
-        return handle(new Callback<String>() {
+        if (pipelined(WRITE)) {
+            return AutoPipeline.string(autoPipeline.execute("rpop", SafeEncoder.encode(key), Command.RPOP.raw, SafeEncoder.encode(key)));
+        }
+        return handle(key, new Callback<String>() {
             @Override
             public String call(redis.clients.jedis.Jedis jedis) {
                 return jedis.rpop(key);
@@ -678,7 +910,10 @@ public class Jedis implements IJedis {
 
     @Override
     public byte[] rpop(final byte[] key) {
-        return handle(new Callback<byte[]>() {
+        if (pipelined(WRITE)) {
+            return (byte[]) autoPipeline.execute("rpop", key, Command.RPOP.raw, key);
+        }
+        return handle(key, new Callback<byte[]>() {
             @Override
             public byte[] call(redis.clients.jedis.Jedis jedis) {
                 return jedis.rpop(key);
@@ -688,7 +923,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long lpush(final byte[] key, final byte[] string) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("lpush", key, Command.LPUSH.raw, key, string);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.lpush(key, string);
@@ -698,7 +936,7 @@ public class Jedis implements IJedis {
 
     @Override
     public List<byte[]> lrange(final byte[] key, final int start, final int end) {
-        return handle(new Callback<List<byte[]>>() {
+        return handle(key, new Callback<List<byte[]>>() {
             @Override
             public List<byte[]> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.lrange(key, start, end);
@@ -708,7 +946,10 @@ public class Jedis implements IJedis {
 
     @Override
     public byte[] lpop(final byte[] key) {
-        return handle(new Callback<byte[]>() {
+        if (pipelined(WRITE)) {
+            return (byte[]) autoPipeline.execute("lpop", key, Command.LPOP.raw, key);
+        }
+        return handle(key, new Callback<byte[]>() {
             @Override
             public byte[] call(redis.clients.jedis.Jedis jedis) {
                 return jedis.lpop(key);
@@ -718,7 +959,10 @@ public class Jedis implements IJedis {
 
     @Override
     public String lpop(final String key) {
-        return handle(new Callback<String>() {
+        if (pipelined(WRITE)) {
+            return AutoPipeline.string(autoPipeline.execute("lpop", SafeEncoder.encode(key), Command.LPOP.raw, SafeEncoder.encode(key)));
+        }
+        return handle(key, new Callback<String>() {
             @Override
             public String call(redis.clients.jedis.Jedis jedis) {
                 return jedis.lpop(key);
@@ -728,7 +972,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long llen(final byte[] key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(READ)) {
+            return (Long) autoPipeline.execute("llen", key, Command.LLEN.raw, key);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.llen(key);
@@ -738,7 +985,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long lrem(final byte[] key, final int count, final byte[] value) {
-        return handle(new Callback<Long>() {
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.lrem(key, count, value);
@@ -748,7 +995,7 @@ public class Jedis implements IJedis {
 
     @Override
     public String ltrim(final byte[] key, final int start, final int end) {
-        return handle(new Callback<String>() {
+        return handle(key, new Callback<String>() {
             @Override
             public String call(redis.clients.jedis.Jedis jedis) {
                 return jedis.ltrim(key, start, end);
@@ -758,7 +1005,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long rpush(final byte[] key, final byte[] string) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("rpush", key, Command.RPUSH.raw, key, string);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.rpush(key, string);
@@ -768,7 +1018,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long zunion(final String dstkey, final String... sets) {
-        return handle(new Callback<Long>() {
+        return handle(keys(dstkey, sets), new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zunionstore(dstkey, sets);
@@ -778,7 +1028,7 @@ public class Jedis implements IJedis {
 
     @Override
     public Set<Tuple> zrangeByScoreWithScores(final byte[] key, final double min, final double max) {
-        return handle(new Callback<Set<Tuple>>() {
+        return handle(key, new Callback<Set<Tuple>>() {
             @Override
             public Set<Tuple> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zrangeByScoreWithScores(key, min, max);
@@ -788,7 +1038,10 @@ public class Jedis implements IJedis {
 
     @Override
     public boolean hexists(final String key, final String field) {
-        return handle(new Callback<Boolean>() {
+        if (pipelined(READ)) {
+            return AutoPipeline.bool(autoPipeline.execute("hexists", SafeEncoder.encode(key), Command.HEXISTS.raw, SafeEncoder.encode(key), SafeEncoder.encode(field)));
+        }
+        return handle(key, new Callback<Boolean>() {
             @Override
             public Boolean call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hexists(key, field);
@@ -798,7 +1051,10 @@ public class Jedis implements IJedis {
 
     @Override
     public boolean hexists(final byte[] key, final byte[] field) {
-        return handle(new Callback<Boolean>() {
+        if (pipelined(READ)) {
+            return AutoPipeline.bool(autoPipeline.execute("hexists", key, Command.HEXISTS.raw, key, field));
+        }
+        return handle(key, new Callback<Boolean>() {
             @Override
             public Boolean call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hexists(key, field);
@@ -808,7 +1064,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long incr(final String key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("incr", SafeEncoder.encode(key), Command.INCR.raw, SafeEncoder.encode(key));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.incr(key);
@@ -818,7 +1077,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long incrBy(final String key, final long value) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("incrBy", SafeEncoder.encode(key), Command.INCRBY.raw, SafeEncoder.encode(key), Protocol.toByteArray(value));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.incrBy(key, value);
@@ -828,7 +1090,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long decr(final String key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("decr", SafeEncoder.encode(key), Command.DECR.raw, SafeEncoder.encode(key));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.decr(key);
@@ -838,7 +1103,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long decrBy(final String key, final long value) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("decrBy", SafeEncoder.encode(key), Command.DECRBY.raw, SafeEncoder.encode(key), Protocol.toByteArray(value));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.decrBy(key, value);
@@ -848,7 +1116,10 @@ public class Jedis implements IJedis {
 
     @Override
     public String get(final String key) {
-        return handle(new Callback<String>() {
+        if (pipelined(READ)) {
+            return AutoPipeline.string(autoPipeline.execute("get", SafeEncoder.encode(key), Command.GET.raw, SafeEncoder.encode(key)));
+        }
+        return handle(key, new Callback<String>() {
             @Override
             public String call(redis.clients.jedis.Jedis jedis) {
                 return jedis.get(key);
@@ -858,7 +1129,10 @@ public class Jedis implements IJedis {
 
     @Override
     public boolean exists(final String key) {
-        return handle(new Callback<Boolean>() {
+        if (pipelined(READ)) {
+            return AutoPipeline.bool(autoPipeline.execute("exists", SafeEncoder.encode(key), Command.EXISTS.raw, SafeEncoder.encode(key)));
+        }
+        return handle(key, new Callback<Boolean>() {
             @Override
             public Boolean call(redis.clients.jedis.Jedis jedis) {
                 return jedis.exists(key);
@@ -868,7 +1142,10 @@ public class Jedis implements IJedis {
 
     @Override
     public String set(final String key, final String value) {
-        return handle(new Callback<String>() {
+        if (pipelined(WRITE)) {
+            return AutoPipeline.string(autoPipeline.execute("set", SafeEncoder.encode(key), Command.SET.raw, SafeEncoder.encode(key), SafeEncoder.encode(value)));
+        }
+        return handle(key, new Callback<String>() {
             @Override
             public String call(redis.clients.jedis.Jedis jedis) {
                 return jedis.set(key, value);
@@ -878,7 +1155,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long lpush(final String key, final String... values) {
-        return handle(new Callback<Long>() {
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.lpush(key, values);
@@ -888,7 +1165,7 @@ public class Jedis implements IJedis {
 
     @Override
     public double zincrby(final String key, final double score, final String member) {
-        return handle(new Callback<Double>() {
+        return handle(key, new Callback<Double>() {
             @Override
             public Double call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zincrby(key, score, member);
@@ -898,7 +1175,7 @@ public class Jedis implements IJedis {
 
     @Override
     public Set<Tuple> zrevrangeWithScores(final String key, final long start, final long end) {
-        return handle(new Callback<Set<Tuple>>() {
+        return handle(key, new Callback<Set<Tuple>>() {
             @Override
             public Set<Tuple> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zrevrangeWithScores(key, start, end);
@@ -908,7 +1185,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long zrevrank(final String key, final String member) {
-        return handle(new Callback<Long>() {
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zrevrank(key, member);
@@ -918,7 +1195,10 @@ public class Jedis implements IJedis {
 
     @Override
     public double zscore(final String key, final String member) {
-        return handle(new Callback<Double>() {
+        if (pipelined(READ)) {
+            return AutoPipeline.number(autoPipeline.execute("zscore", SafeEncoder.encode(key), Command.ZSCORE.raw, SafeEncoder.encode(key), SafeEncoder.encode(member)));
+        }
+        return handle(key, new Callback<Double>() {
             @Override
             public Double call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zscore(key, member);
@@ -928,7 +1208,7 @@ public class Jedis implements IJedis {
 
     @Override
     public List<String> blpop(final int timeout, final String... channels) {
-        return handle(new Callback<List<String>>() {
+        return handle(keys(channels), new Callback<List<String>>() {
             @Override
             public List<String> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.blpop(timeout, channels);
@@ -938,7 +1218,7 @@ public class Jedis implements IJedis {
 
     @Override
     public List<byte[]> blpop(final int timeout, final byte[]... channels) {
-        return handle(new Callback<List<byte[]>>() {
+        return handle(channels, new Callback<List<byte[]>>() {
             @Override
             public List<byte[]> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.blpop(timeout, channels);
@@ -948,7 +1228,7 @@ public class Jedis implements IJedis {
 
     @Override
     public List<byte[]> hmget(final byte[] key, final byte[]... fields) {
-        return handle(new Callback<List<byte[]>>() {
+        return handle(key, new Callback<List<byte[]>>() {
             @Override
             public List<byte[]> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hmget(key, fields);
@@ -957,6 +1237,7 @@ public class Jedis implements IJedis {
     }
 
     @Override
+    @Deprecated
     public List<? extends Object> hmget(final Object key, final List<? extends Object> fields) {
         final String keyStr = ByteObjectConvertUtil.getBytesFromObject(key);
         final String[] fieldStr = new String[fields.size()];
@@ -965,18 +1246,16 @@ public class Jedis implements IJedis {
                 fieldStr[i] = ByteObjectConvertUtil.getBytesFromObject(fields.get(i));
             }
         }
-        List<String> retStr = handle(new Callback<List<String>>() {
+        List<String> retStr = handle(keyStr, new Callback<List<String>>() {
             @Override
             public List<String> call(redis.clients.jedis.Jedis jedis) {
                 return jedis.hmget(keyStr, fieldStr);
             }
         }, READ);
         if (retStr != null && retStr.size() > 0) {
-            List<Object> rets = Lists.newArrayList();
+            List<Object> rets = Lists.newArrayListWithCapacity(retStr.size());
             for (String valueStr : retStr) {
-                if (valueStr != null && valueStr.length() > 0) {
-                    rets.add(ByteObjectConvertUtil.getObjectFromBytes(valueStr));
-                }
+                rets.add(valueStr != null && valueStr.length() > 0 ? ByteObjectConvertUtil.getObjectFromBytes(valueStr) : null);
             }
             return rets;
         }
@@ -990,7 +1269,59 @@ public class Jedis implements IJedis {
 
     @Override
     public <T> T callOriginalJedis(Callback<T> callback, JedisType type) {
-        return invoke(callback, getPoolByType(type));
+        return handle(callback, type);
+    }
+
+    @Override
+    public <T> T callOriginalJedis(byte[] routingKey, Callback<T> callback, JedisType type) {
+        return handle(routingKey, callback, type);
+    }
+
+    @Override
+    public <T> T callOriginalJedis(String routingKey, Callback<T> callback, JedisType type) {
+        return handle(routingKey, callback, type);
+    }
+
+    @Override
+    public boolean isCluster() {
+        return clusterHandler != null;
+    }
+
+    @Override
+    public long del(final String... keys) {
+        if (keys.length == 0) {
+            return 0;
+        }
+        if (clusterHandler == null) {
+            return handle(new Callback<Long>() {
+                @Override
+                public Long call(redis.clients.jedis.Jedis jedis) {
+                    return jedis.del(keys);
+                }
+            }, WRITE);
+        }
+        // 按slot分组, 每组一次DEL
+        Map<Integer, List<String>> slots = new LinkedHashMap<>();
+        for (String key : keys) {
+            int slot = JedisClusterCRC16.getSlot(key);
+            List<String> group = slots.get(slot);
+            if (group == null) {
+                group = new ArrayList<>();
+                slots.put(slot, group);
+            }
+            group.add(key);
+        }
+        long deleted = 0;
+        for (List<String> group : slots.values()) {
+            final String[] groupKeys = group.toArray(new String[group.size()]);
+            deleted += handle(groupKeys[0], new Callback<Long>() {
+                @Override
+                public Long call(redis.clients.jedis.Jedis jedis) {
+                    return jedis.del(groupKeys);
+                }
+            }, WRITE);
+        }
+        return deleted;
     }
 
     @Override
@@ -1015,9 +1346,34 @@ public class Jedis implements IJedis {
         }, WRITE);
     }
 
+    @Override
+    public void publish(final byte[] topic, final byte[] message) {
+        handle(new Callback<Void>() {
+            @Override
+            public Void call(redis.clients.jedis.Jedis jedis) {
+                jedis.publish(topic, message);
+                return null;
+            }
+        }, WRITE);
+    }
+
+    @Override
+    public void subscribe(final BinaryJedisPubSub jedisPubSub, final byte[]... topic) {
+        handle(new Callback<Void>() {
+            @Override
+            public Void call(redis.clients.jedis.Jedis jedis) {
+                jedis.subscribe(jedisPubSub, topic);
+                return null;
+            }
+        }, WRITE);
+    }
+
     @Override
     public long setnx(final String key, final String value) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("setnx", SafeEncoder.encode(key), Command.SETNX.raw, SafeEncoder.encode(key), SafeEncoder.encode(value));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.setnx(key, value);
@@ -1027,7 +1383,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long setnx(final byte[] key, final byte[] value) {
-        return handle(new Callback<Long>() {
+        if (pipelined(WRITE)) {
+            return (Long) autoPipeline.execute("setnx", key, Command.SETNX.raw, key, value);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.setnx(key, value);
@@ -1037,7 +1396,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long ttl(final byte[] key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(READ)) {
+            return (Long) autoPipeline.execute("ttl", key, Command.TTL.raw, key);
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.ttl(key);
@@ -1047,7 +1409,10 @@ public class Jedis implements IJedis {
 
     @Override
     public long ttl(final String key) {
-        return handle(new Callback<Long>() {
+        if (pipelined(READ)) {
+            return (Long) autoPipeline.execute("ttl", SafeEncoder.encode(key), Command.TTL.raw, SafeEncoder.encode(key));
+        }
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.ttl(key);
@@ -1057,7 +1422,7 @@ public class Jedis implements IJedis {
 
     @Override
     public long zlexcount(final String key, final String s, final String s1) {
-        return handle(new Callback<Long>() {
+        return handle(key, new Callback<Long>() {
             @Override
             public Long call(redis.clients.jedis.Jedis jedis) {
                 return jedis.zlexcount(key, s, s1);
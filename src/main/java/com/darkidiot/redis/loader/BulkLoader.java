@@ -0,0 +1,19 @@
+package com.darkidiot.redis.loader;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 缓存未命中时的批量数据加载器(读穿透)
+ *
+ * @author darkidiot
+ */
+public interface BulkLoader<K, V> {
+
+    /**
+     * @param keys 未命中的key
+     * @return 加载到的值(不存在的key不需要放入结果)
+     * @throws Exception 加载失败, 由调用方包装为{@link com.darkidiot.redis.exception.LoaderException}抛出
+     */
+    Map<K, V> loadAll(Collection<K> keys) throws Exception;
+}
@@ -0,0 +1,16 @@
+package com.darkidiot.redis.loader;
+
+/**
+ * 缓存未命中时的数据加载器(读穿透)
+ *
+ * @author darkidiot
+ */
+public interface Loader<K, V> {
+
+    /**
+     * @param key 未命中的key
+     * @return 加载到的值(返回null表示数据不存在, 不会写入缓存)
+     * @throws Exception 加载失败, 由调用方包装为{@link com.darkidiot.redis.exception.LoaderException}抛出
+     */
+    V load(K key) throws Exception;
+}
@@ -0,0 +1,137 @@
+package com.darkidiot.redis.loader;
+
+import com.darkidiot.redis.exception.LoaderException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 单飞加载: 同一JVM内对同一个key的并发加载只执行一次, 其余调用方等待并共享结果(包括异常)
+ * <ul>
+ * <li>加载完成后立即移除记录, 不缓存结果, 结果的缓存由调用方负责.</li>
+ * <li>批量加载时, 已经有其他线程在加载的key直接等待其结果, 剩余的key合并为一次批量加载.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<Object, Call<V>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * @param flightKey 用于判定"同一个key"的对象(需正确实现equals/hashCode)
+     * @param key       传给加载器的原始key
+     */
+    public V execute(Object flightKey, K key, Loader<K, V> loader) throws LoaderException {
+        Call<V> call = new Call<>();
+        Call<V> existing = calls.putIfAbsent(flightKey, call);
+        if (existing != null) {
+            return existing.await();
+        }
+        try {
+            call.value = loader.load(key);
+        } catch (Exception e) {
+            call.error = wrap(e);
+        } finally {
+            calls.remove(flightKey, call);
+            call.latch.countDown();
+        }
+        return call.get();
+    }
+
+    /**
+     * @param flightKeys 原始key -> 用于判定"同一个key"的对象
+     * @return 加载到的值(不存在的key不在结果中)
+     */
+    public Map<K, V> executeAll(Map<K, Object> flightKeys, BulkLoader<K, V> loader) throws LoaderException {
+        Map<K, Call<V>> joined = new LinkedHashMap<>();
+        Map<K, Call<V>> owned = new LinkedHashMap<>();
+        for (Map.Entry<K, Object> entry : flightKeys.entrySet()) {
+            Call<V> call = new Call<>();
+            Call<V> existing = calls.putIfAbsent(entry.getValue(), call);
+            if (existing != null) {
+                joined.put(entry.getKey(), existing);
+            } else {
+                owned.put(entry.getKey(), call);
+            }
+        }
+
+        Map<K, V> result = new LinkedHashMap<>();
+        if (!owned.isEmpty()) {
+            Map<K, V> loaded = null;
+            LoaderException error = null;
+            try {
+                loaded = loader.loadAll(Collections.unmodifiableList(new ArrayList<>(owned.keySet())));
+            } catch (Exception e) {
+                error = wrap(e);
+            } finally {
+                for (Map.Entry<K, Call<V>> entry : owned.entrySet()) {
+                    Call<V> call = entry.getValue();
+                    call.value = loaded == null ? null : loaded.get(entry.getKey());
+                    call.error = error == null && loaded == null ? new LoaderException("BulkLoader returned null.") : error;
+                    calls.remove(flightKeys.get(entry.getKey()), call);
+                    call.latch.countDown();
+                }
+            }
+            for (Map.Entry<K, Call<V>> entry : owned.entrySet()) {
+                putIfNotNull(result, entry.getKey(), entry.getValue().get());
+            }
+        }
+        for (Map.Entry<K, Call<V>> entry : joined.entrySet()) {
+            putIfNotNull(result, entry.getKey(), entry.getValue().await());
+        }
+        return result;
+    }
+
+    /**
+     * 当前正在加载的key数量
+     */
+    public int inFlight() {
+        return calls.size();
+    }
+
+    private static <K, V> void putIfNotNull(Map<K, V> result, K key, V value) {
+        if (value != null) {
+            result.put(key, value);
+        }
+    }
+
+    private static LoaderException wrap(Exception e) {
+        return e instanceof LoaderException ? (LoaderException) e : new LoaderException("Load cache value failure.", e);
+    }
+
+    private static final class Call<V> {
+        final CountDownLatch latch = new CountDownLatch(1);
+        V value;
+        LoaderException error;
+
+        V await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    latch.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return get();
+        }
+
+        V get() {
+            if (error != null) {
+                throw error;
+            }
+            return value;
+        }
+    }
+}
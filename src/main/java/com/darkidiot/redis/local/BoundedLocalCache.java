@@ -0,0 +1,571 @@
+package com.darkidiot.redis.local;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界本地缓存(分段W-TinyLFU)
+ * <ul>
+ * <li>按key的hash分段, 每段独立加锁, 独立维护 窗口LRU(1%) + 主区分段LRU(试用区20%/保护区80%).</li>
+ * <li>读取不加锁: 访问记录写入分段的有损环形缓冲, 由写入或tryLock成功的读取线程批量应用到频率统计与LRU(缓冲写满时丢弃最早的记录).</li>
+ * <li>新key先进入窗口区, 窗口溢出的候选者与试用区队首的牺牲者比较TinyLFU频率, 频率高者留下.</li>
+ * <li>过期在读取时惰性判断, 并在每次读写时按写入顺序增量清理少量过期条目, 不做全量扫描.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+public class BoundedLocalCache<K, V> {
+
+    /**
+     * 每次读写最多顺带清理的过期条目数
+     */
+    private static final int CLEANUP_BUDGET = 16;
+    private static final int MAX_SEGMENTS = 16;
+    /**
+     * 每段最少容纳的条目数(容量较小时减少分段数, 避免淘汰精度下降)
+     */
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+    /**
+     * 每段读缓冲的大小(2的幂), 累计一半未应用时尝试应用
+     */
+    private static final int READ_BUFFER_SIZE = 64;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int READ_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    private final long expireAfterWriteMillis;
+
+    /**
+     * @param maximumSize            最大条目数
+     * @param expireAfterWriteMillis 写入后过期时间(毫秒, 小于等于0表示永不过期)
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedLocalCache(long maximumSize, long expireAfterWriteMillis) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive.");
+        }
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && (long) segmentCount * 2 * MIN_SEGMENT_CAPACITY <= maximumSize) {
+            segmentCount <<= 1;
+        }
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        long perSegment = (maximumSize + segmentCount - 1) / segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(perSegment);
+        }
+        this.expireAfterWriteMillis = expireAfterWriteMillis;
+    }
+
+    public V get(K key) {
+        return segmentFor(key).get(key, System.currentTimeMillis());
+    }
+
+    public void put(K key, V value) {
+        long now = System.currentTimeMillis();
+        segmentFor(key).put(key, value, expireAfterWriteMillis <= 0 ? 0 : now + expireAfterWriteMillis, now);
+    }
+
+    /**
+     * @return 被移除的值(不存在或已过期返回null)
+     */
+    public V remove(K key) {
+        return segmentFor(key).remove(key, System.currentTimeMillis());
+    }
+
+    /**
+     * 批量移除: 按分段归并, 每个分段只加锁一次
+     */
+    public void removeAll(Collection<? extends K> keys) {
+        List<List<K>> grouped = new ArrayList<>(Collections.<List<K>>nCopies(segments.length, null));
+        for (K key : keys) {
+            int index = FrequencySketch.spread(key.hashCode()) & segmentMask;
+            if (grouped.get(index) == null) {
+                grouped.set(index, new ArrayList<K>());
+            }
+            grouped.get(index).add(key);
+        }
+        for (int i = 0; i < grouped.size(); i++) {
+            if (grouped.get(i) != null) {
+                segments[i].removeAll(grouped.get(i));
+            }
+        }
+    }
+
+    /**
+     * 不影响访问频率与淘汰顺序
+     */
+    public boolean containsKey(K key) {
+        return segmentFor(key).containsKey(key, System.currentTimeMillis());
+    }
+
+    /**
+     * 当前条目数(可能包含尚未清理的过期条目)
+     */
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 逐段遍历未过期的条目(同一时刻只持有一个分段的快照), 不影响访问频率与淘汰顺序
+     */
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new Iterator<Map.Entry<K, V>>() {
+            private int segment;
+            private Iterator<Map.Entry<K, V>> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && segment < segments.length) {
+                    current = segments[segment++].snapshot(System.currentTimeMillis()).iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * 因容量不足被淘汰的条目数(包括未能进入主区的新条目)
+     */
+    public long evictionCount() {
+        long count = 0;
+        for (Segment<K, V> segment : segments) {
+            count += segment.evictions;
+        }
+        return count;
+    }
+
+    /**
+     * 因过期被清理的条目数
+     */
+    public long expirationCount() {
+        long count = 0;
+        for (Segment<K, V> segment : segments) {
+            count += segment.expirations;
+        }
+        return count;
+    }
+
+    /**
+     * 清理所有已过期条目
+     */
+    public void cleanUp() {
+        long now = System.currentTimeMillis();
+        for (Segment<K, V> segment : segments) {
+            segment.cleanUp(now);
+        }
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        return segments[FrequencySketch.spread(key.hashCode()) & segmentMask];
+    }
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private static final class Node<K, V> {
+        final K key;
+        /**
+         * 只在持有锁时修改, 读取时不加锁
+         */
+        volatile V value;
+        volatile long expireAt;
+        byte queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+        Node<K, V> writePrev;
+        Node<K, V> writeNext;
+
+        Node(K key, V value, long expireAt) {
+            this.key = key;
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired(long now) {
+            return expireAt > 0 && now > expireAt;
+        }
+    }
+
+    /**
+     * 按访问顺序排列的双向链表(队首最久未访问)
+     */
+    private static final class AccessQueue<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+        int size;
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        void unlink(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (tail != node) {
+                unlink(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+            size = 0;
+        }
+    }
+
+    private static final class Segment<K, V> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final long maximum;
+        private final long windowMaximum;
+        private final long protectedMaximum;
+
+        private final Map<K, Node<K, V>> data = new ConcurrentHashMap<>();
+        private final FrequencySketch sketch;
+        private final AccessQueue<K, V> window = new AccessQueue<>();
+        private final AccessQueue<K, V> probation = new AccessQueue<>();
+        private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+        /**
+         * 按写入顺序排列(同一缓存过期时间一致, 写入顺序即过期顺序)
+         */
+        private Node<K, V> writeHead;
+        private Node<K, V> writeTail;
+        /**
+         * 只在持有锁时修改, 读取时不加锁(统计允许短暂的不一致)
+         */
+        volatile long evictions;
+        volatile long expirations;
+        /**
+         * 读缓冲: reads为写入的记录数, drainedReads为已应用的记录数(只在持有锁时修改)
+         */
+        private final AtomicReferenceArray<K> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        private final AtomicLong reads = new AtomicLong();
+        private volatile long drainedReads;
+
+        Segment(long maximum) {
+            this.maximum = maximum;
+            this.windowMaximum = Math.max(1, maximum / 100);
+            this.protectedMaximum = (maximum - windowMaximum) * 8 / 10;
+            this.sketch = new FrequencySketch(maximum);
+        }
+
+        /**
+         * 不加锁读取, 访问记录进入读缓冲; 只有读到过期条目时加锁删除
+         */
+        V get(K key, long now) {
+            long count = reads.incrementAndGet();
+            readBuffer.lazySet((int) (count - 1) & READ_BUFFER_MASK, key);
+            Node<K, V> node = data.get(key);
+            if (node != null && node.isExpired(now)) {
+                lock.lock();
+                try {
+                    if (data.get(key) == node) {
+                        removeNode(node);
+                        expirations++;
+                    }
+                    drainReads();
+                } finally {
+                    expire(now, CLEANUP_BUDGET);
+                    lock.unlock();
+                }
+                return null;
+            }
+            V value = node == null ? null : node.value;
+            // 其他线程持有锁时不等待, 由其应用或留给下一次
+            if (count - drainedReads >= READ_DRAIN_THRESHOLD && lock.tryLock()) {
+                try {
+                    drainReads();
+                } finally {
+                    expire(now, CLEANUP_BUDGET);
+                    lock.unlock();
+                }
+            }
+            return value;
+        }
+
+        void put(K key, V value, long expireAt, long now) {
+            lock.lock();
+            try {
+                drainReads();
+                sketch.increment(key);
+                Node<K, V> node = data.get(key);
+                if (node != null) {
+                    node.value = value;
+                    node.expireAt = expireAt;
+                    unlinkWrite(node);
+                    linkWrite(node);
+                    onAccess(node);
+                    return;
+                }
+                node = new Node<>(key, value, expireAt);
+                data.put(key, node);
+                node.queue = WINDOW;
+                window.addLast(node);
+                linkWrite(node);
+                evict();
+            } finally {
+                expire(now, CLEANUP_BUDGET);
+                lock.unlock();
+            }
+        }
+
+        V remove(K key, long now) {
+            lock.lock();
+            try {
+                Node<K, V> node = data.get(key);
+                if (node == null) {
+                    return null;
+                }
+                removeNode(node);
+                return node.isExpired(now) ? null : node.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void removeAll(List<K> keys) {
+            lock.lock();
+            try {
+                for (K key : keys) {
+                    Node<K, V> node = data.get(key);
+                    if (node != null) {
+                        removeNode(node);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean containsKey(K key, long now) {
+            Node<K, V> node = data.get(key);
+            return node != null && !node.isExpired(now);
+        }
+
+        List<Map.Entry<K, V>> snapshot(long now) {
+            lock.lock();
+            try {
+                List<Map.Entry<K, V>> entries = new ArrayList<>(data.size());
+                for (Node<K, V> node : data.values()) {
+                    if (!node.isExpired(now)) {
+                        entries.add(new AbstractMap.SimpleImmutableEntry<>(node.key, node.value));
+                    }
+                }
+                return entries;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return data.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                data.clear();
+                window.clear();
+                probation.clear();
+                protectedQueue.clear();
+                writeHead = null;
+                writeTail = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void cleanUp(long now) {
+            lock.lock();
+            try {
+                expire(now, Integer.MAX_VALUE);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 把读缓冲中的访问记录应用到频率统计与LRU(调用方需持有锁)
+         */
+        private void drainReads() {
+            long end = reads.get();
+            for (long i = Math.max(drainedReads, end - READ_BUFFER_SIZE); i < end; i++) {
+                K key = readBuffer.getAndSet((int) i & READ_BUFFER_MASK, null);
+                if (key != null) {
+                    sketch.increment(key);
+                    Node<K, V> node = data.get(key);
+                    if (node != null) {
+                        onAccess(node);
+                    }
+                }
+            }
+            drainedReads = end;
+        }
+
+        /**
+         * 从写入队首开始清理过期条目, 遇到未过期条目即停止(调用方需持有锁)
+         */
+        void expire(long now, int budget) {
+            while (writeHead != null && budget-- > 0 && writeHead.isExpired(now)) {
+                removeNode(writeHead);
+                expirations++;
+            }
+        }
+
+        private void onAccess(Node<K, V> node) {
+            switch (node.queue) {
+                case WINDOW:
+                    window.moveToLast(node);
+                    break;
+                case PROBATION:
+                    probation.unlink(node);
+                    node.queue = PROTECTED;
+                    protectedQueue.addLast(node);
+                    // 保护区溢出, 队首降级到试用区
+                    while (protectedQueue.size > protectedMaximum && protectedQueue.head != null) {
+                        Node<K, V> demoted = protectedQueue.head;
+                        protectedQueue.unlink(demoted);
+                        demoted.queue = PROBATION;
+                        probation.addLast(demoted);
+                    }
+                    break;
+                default:
+                    protectedQueue.moveToLast(node);
+                    break;
+            }
+        }
+
+        /**
+         * 窗口区溢出时, 候选者进入主区或与主区牺牲者按频率竞争
+         */
+        private void evict() {
+            while (window.size > windowMaximum) {
+                Node<K, V> candidate = window.head;
+                window.unlink(candidate);
+                if (data.size() <= maximum) {
+                    candidate.queue = PROBATION;
+                    probation.addLast(candidate);
+                    continue;
+                }
+                Node<K, V> victim = probation.head != null ? probation.head : protectedQueue.head;
+                if (victim != null && sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                    removeNode(victim);
+                    evictions++;
+                    candidate.queue = PROBATION;
+                    probation.addLast(candidate);
+                } else {
+                    data.remove(candidate.key);
+                    unlinkWrite(candidate);
+                    evictions++;
+                }
+            }
+        }
+
+        private void removeNode(Node<K, V> node) {
+            data.remove(node.key);
+            switch (node.queue) {
+                case WINDOW:
+                    window.unlink(node);
+                    break;
+                case PROBATION:
+                    probation.unlink(node);
+                    break;
+                default:
+                    protectedQueue.unlink(node);
+                    break;
+            }
+            unlinkWrite(node);
+        }
+
+        private void linkWrite(Node<K, V> node) {
+            node.writePrev = writeTail;
+            node.writeNext = null;
+            if (writeTail == null) {
+                writeHead = node;
+            } else {
+                writeTail.writeNext = node;
+            }
+            writeTail = node;
+        }
+
+        private void unlinkWrite(Node<K, V> node) {
+            if (node.writePrev == null) {
+                writeHead = node.writeNext;
+            } else {
+                node.writePrev.writeNext = node.writeNext;
+            }
+            if (node.writeNext == null) {
+                writeTail = node.writePrev;
+            } else {
+                node.writeNext.writePrev = node.writePrev;
+            }
+            node.writePrev = null;
+            node.writeNext = null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.darkidiot.redis.local;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 缓存分组的命中统计快照
+ *
+ * @author darkidiot
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class CacheStats {
+    /**
+     * 本地缓存命中次数(按key计)
+     */
+    private final long localHits;
+    /**
+     * 本地缓存未命中次数(按key计, 未开启本地缓存时为0)
+     */
+    private final long localMisses;
+    /**
+     * 本地未命中后redis命中的次数
+     */
+    private final long redisHits;
+    /**
+     * redis未命中的次数(包括随后回源加载的key)
+     */
+    private final long redisMisses;
+    /**
+     * 实际执行回源加载的key数
+     */
+    private final long loads;
+    /**
+     * 回源加载抛出异常的次数
+     */
+    private final long loadFailures;
+    /**
+     * 回源加载的累计耗时(纳秒)
+     */
+    private final long totalLoadNanos;
+    /**
+     * 本地缓存因容量不足淘汰的条目数
+     */
+    private final long evictions;
+    /**
+     * 本地缓存因过期清理的条目数
+     */
+    private final long expirations;
+    /**
+     * 收到其他节点失效通知移除的key数(清空分组记为1)
+     */
+    private final long invalidations;
+    /**
+     * 本地缓存当前条目数(包括墓碑)
+     */
+    private final long localSize;
+    /**
+     * 本地缓存最大条目数
+     */
+    private final long localMaximumSize;
+
+    /**
+     * @return 本地命中率, 没有请求时为0
+     */
+    public double getLocalHitRate() {
+        long requests = localHits + localMisses;
+        return requests == 0 ? 0 : (double) localHits / requests;
+    }
+
+    /**
+     * @return 本地与redis合计的命中率, 没有请求时为0
+     */
+    public double getHitRate() {
+        long requests = localHits + redisHits + redisMisses;
+        return requests == 0 ? 0 : (double) (localHits + redisHits) / requests;
+    }
+}
@@ -0,0 +1,254 @@
+package com.darkidiot.redis.local;
+
+import com.darkidiot.redis.LocalMap;
+import com.darkidiot.redis.config.RedisInitParam;
+import com.darkidiot.redis.loader.BulkLoader;
+import com.darkidiot.redis.loader.Loader;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存分组的命中统计(同一分组的所有缓存实例共享)
+ * <ul>
+ * <li>开启cache.stats后由{@link com.darkidiot.redis.IRedisMap}的读操作按key记录本地/redis命中与未命中, 以及回源加载的次数与耗时.</li>
+ * <li>淘汰、过期与失效通知由本地缓存自行计数(不受开关影响), 快照时汇总.</li>
+ * <li>开启metrics.jmx时同时以MXBean发布.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+public final class CacheStatsCounter {
+
+    private static final ConcurrentMap<String, CacheStatsCounter> COUNTERS = new ConcurrentHashMap<>();
+
+    private final String name;
+    /**
+     * 分组共用的本地缓存(未开启本地缓存时为null)
+     */
+    private volatile LocalMap<?, ?> localCache;
+
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong localMisses = new AtomicLong();
+    private final AtomicLong redisHits = new AtomicLong();
+    private final AtomicLong redisMisses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong totalLoadNanos = new AtomicLong();
+
+    private CacheStatsCounter(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 获取分组的统计, 服务未开启cache.stats时返回null
+     *
+     * @param name       缓存分组名称(服务-分组)
+     * @param localCache 分组共用的本地缓存(未开启本地缓存时为null)
+     */
+    public static CacheStatsCounter of(String name, RedisInitParam initParam, LocalMap<?, ?> localCache) {
+        if (initParam == null || !Boolean.TRUE.equals(initParam.getCacheStats())) {
+            return null;
+        }
+        CacheStatsCounter counter = COUNTERS.get(name);
+        if (counter == null) {
+            CacheStatsCounter created = new CacheStatsCounter(name);
+            counter = COUNTERS.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+                if (Boolean.TRUE.equals(initParam.getMetricsJmx())) {
+                    counter.registerMBean();
+                }
+            }
+        }
+        if (localCache != null && counter.localCache == null) {
+            counter.localCache = localCache;
+        }
+        return counter;
+    }
+
+    /**
+     * 缓存分组的命中统计
+     *
+     * @return 服务未开启cache.stats或分组尚未创建时返回null
+     */
+    public static CacheStats getStats(String service, String groupName) {
+        CacheStatsCounter counter = COUNTERS.get(service + "-" + groupName);
+        return counter == null ? null : counter.snapshot();
+    }
+
+    /**
+     * @return 服务下所有已创建分组的统计(分组名称 -> 统计, 按名称排序)
+     */
+    public static Map<String, CacheStats> getStats(String service) {
+        String prefix = service + "-";
+        Map<String, CacheStats> result = new TreeMap<>();
+        for (Map.Entry<String, CacheStatsCounter> entry : COUNTERS.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                result.put(entry.getKey().substring(prefix.length()), entry.getValue().snapshot());
+            }
+        }
+        return result;
+    }
+
+    public void recordLocal(long hits, long misses) {
+        if (hits > 0) {
+            localHits.addAndGet(hits);
+        }
+        if (misses > 0) {
+            localMisses.addAndGet(misses);
+        }
+    }
+
+    public void recordRedis(long hits, long misses) {
+        if (hits > 0) {
+            redisHits.addAndGet(hits);
+        }
+        if (misses > 0) {
+            redisMisses.addAndGet(misses);
+        }
+    }
+
+    /**
+     * 包装加载器, 记录回源次数、失败次数与耗时
+     */
+    public <K, V> CountingLoader<K, V> counting(Loader<K, V> loader) {
+        return new CountingLoader<>(loader);
+    }
+
+    public <K, V> CountingBulkLoader<K, V> counting(BulkLoader<K, V> loader) {
+        return new CountingBulkLoader<>(loader);
+    }
+
+    /**
+     * 清空计数(本地缓存自行维护的淘汰、过期与失效通知计数不受影响)
+     */
+    public void reset() {
+        localHits.set(0);
+        localMisses.set(0);
+        redisHits.set(0);
+        redisMisses.set(0);
+        loads.set(0);
+        loadFailures.set(0);
+        totalLoadNanos.set(0);
+    }
+
+    public CacheStats snapshot() {
+        long evictions = 0, expirations = 0, invalidations = 0, size = 0, maximumSize = 0;
+        LocalMap<?, ?> localCache = this.localCache;
+        if (localCache != null) {
+            evictions = localCache.evictionCount();
+            expirations = localCache.expirationCount();
+            invalidations = localCache.invalidationCount();
+            size = localCache.size();
+            maximumSize = localCache.getMaximumSize();
+        }
+        return new CacheStats(localHits.get(), localMisses.get(), redisHits.get(), redisMisses.get(), loads.get(), loadFailures.get(),
+                totalLoadNanos.get(), evictions, expirations, invalidations, size, maximumSize);
+    }
+
+    private void recordLoad(long keys, long nanos, boolean success) {
+        loads.addAndGet(keys);
+        totalLoadNanos.addAndGet(nanos);
+        if (!success) {
+            loadFailures.incrementAndGet();
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            ObjectName objectName = new ObjectName("com.darkidiot.redis:type=CacheStats,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new CacheStatsMXBean() {
+                @Override
+                public CacheStats getStats() {
+                    return snapshot();
+                }
+
+                @Override
+                public void reset() {
+                    CacheStatsCounter.this.reset();
+                }
+            }, objectName);
+            log.info("CacheStats of [{}] registered as MXBean {}.", name, objectName);
+        } catch (Exception e) {
+            log.warn("CacheStats of [{}] register MXBean failure, cause by:{}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 记录回源的加载器, 调用方通过{@link #found()}区分值来自redis还是回源
+     */
+    public final class CountingLoader<K, V> implements Loader<K, V> {
+        private final Loader<K, V> loader;
+        private volatile boolean found;
+
+        private CountingLoader(Loader<K, V> loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        public V load(K key) throws Exception {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                V value = loader.load(key);
+                found = value != null;
+                success = true;
+                return value;
+            } finally {
+                recordLoad(1, System.nanoTime() - start, success);
+            }
+        }
+
+        /**
+         * @return 本次回源是否加载到了值
+         */
+        public boolean found() {
+            return found;
+        }
+    }
+
+    public final class CountingBulkLoader<K, V> implements BulkLoader<K, V> {
+        private final BulkLoader<K, V> loader;
+        private final AtomicLong found = new AtomicLong();
+
+        private CountingBulkLoader(BulkLoader<K, V> loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        public Map<K, V> loadAll(Collection<K> keys) throws Exception {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Map<K, V> loaded = loader.loadAll(keys);
+                if (loaded != null) {
+                    for (K key : keys) {
+                        if (loaded.get(key) != null) {
+                            found.incrementAndGet();
+                        }
+                    }
+                }
+                success = true;
+                return loaded;
+            } finally {
+                recordLoad(keys.size(), System.nanoTime() - start, success);
+            }
+        }
+
+        /**
+         * @return 回源加载到值的key数
+         */
+        public long found() {
+            return found.get();
+        }
+    }
+}
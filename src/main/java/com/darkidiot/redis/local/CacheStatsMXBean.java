@@ -0,0 +1,13 @@
+package com.darkidiot.redis.local;
+
+/**
+ * 缓存分组的命中统计(JMX名称: com.darkidiot.redis:type=CacheStats,name=服务-分组)
+ *
+ * @author darkidiot
+ */
+public interface CacheStatsMXBean {
+
+    CacheStats getStats();
+
+    void reset();
+}
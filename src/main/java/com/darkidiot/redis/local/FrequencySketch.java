@@ -0,0 +1,106 @@
+package com.darkidiot.redis.local;
+
+/**
+ * 4-bit Count-Min Sketch, 用于估算key的访问频率(TinyLFU准入策略)
+ * <ul>
+ * <li>每个long保存16个4bit计数器, 每个key映射到4个计数器, 取最小值作为频率.</li>
+ * <li>累计增量达到采样阈值后所有计数器减半(老化), 使历史热点逐渐冷却.</li>
+ * <li>Notice: 非线程安全, 由所属Segment的锁保护.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+final class FrequencySketch {
+
+    private static final long[] SEED = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAX_FREQUENCY = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(long maximumSize) {
+        int capacity = tableSizeFor((int) Math.min(Math.max(maximumSize, 8L), 1 << 30));
+        this.table = new long[capacity];
+        this.tableMask = capacity - 1;
+        this.sampleSize = (int) Math.min(10L * maximumSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 估算频率(0-15)
+     */
+    int frequency(Object e) {
+        int hash = spread(e.hashCode());
+        int start = startOf(hash);
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(Object e) {
+        int hash = spread(e.hashCode());
+        int start = startOf(hash);
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int i, int j) {
+        int offset = j << 2;
+        long mask = 0xfL << offset;
+        if ((table[i] & mask) != mask) {
+            table[i] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 老化: 所有计数器减半
+     */
+    private void reset() {
+        int count = 0;
+        for (int i = 0; i < table.length; i++) {
+            count += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size - (count >>> 2)) >>> 1;
+    }
+
+    /**
+     * 计数器在long中的起始组(0/4/8/12): 分段使用spread结果的低位, 再混合一次后取高位, 避免同一分段内的key落在同一组
+     */
+    private static int startOf(int hash) {
+        int x = hash * 0x31848bab;
+        x ^= x >>> 14;
+        return (x >>> 30) << 2;
+    }
+
+    private int indexOf(int item, int i) {
+        long hash = (item + SEED[i]) * SEED[i];
+        hash += hash >>> 32;
+        return ((int) hash) & tableMask;
+    }
+
+    static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+
+    private static int tableSizeFor(int cap) {
+        int n = Integer.highestOneBit(cap - 1) << 1;
+        return n <= 0 ? 1 : n;
+    }
+}
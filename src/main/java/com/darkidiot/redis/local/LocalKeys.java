@@ -0,0 +1,89 @@
+package com.darkidiot.redis.local;
+
+import com.darkidiot.redis.codec.Codec;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 本地缓存key转换
+ * <ul>
+ * <li>基本类型包装类、String、枚举以及自行实现了equals/hashCode的类型直接使用key对象本身, 命中时零序列化、零分配.</li>
+ * <li>其余类型(数组、未重写equals的对象)退化为 key 编码字节的包装, 保证与Redis端语义一致.</li>
+ * <li>Notice: 直接使用key对象时, key放入缓存后不应再被修改.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class LocalKeys {
+
+    private static final ConcurrentMap<Class<?>, Boolean> DIRECT_KEY_TYPES = new ConcurrentHashMap<>();
+
+    /**
+     * @param key   原始key
+     * @param codec key编解码器(仅在无法直接使用key对象时使用)
+     * @return 本地缓存使用的key
+     */
+    public static <K> Object of(K key, Codec<K> codec) {
+        if (isDirect(key.getClass())) {
+            return key;
+        }
+        return new BytesKey(codec.encode(key));
+    }
+
+    /**
+     * 本地缓存key还原为原始key
+     */
+    @SuppressWarnings("unchecked")
+    public static <K> K toKey(Object localKey, Codec<K> codec) {
+        if (localKey instanceof BytesKey) {
+            return codec.decode(((BytesKey) localKey).bytes);
+        }
+        return (K) localKey;
+    }
+
+    static boolean isDirect(Class<?> type) {
+        Boolean direct = DIRECT_KEY_TYPES.get(type);
+        if (direct == null) {
+            direct = !type.isArray() && (type.isEnum() || overridesEqualsAndHashCode(type));
+            DIRECT_KEY_TYPES.putIfAbsent(type, direct);
+        }
+        return direct;
+    }
+
+    private static boolean overridesEqualsAndHashCode(Class<?> type) {
+        try {
+            return type.getMethod("equals", Object.class).getDeclaringClass() != Object.class
+                    && type.getMethod("hashCode").getDeclaringClass() != Object.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 编码字节key(按内容比较)
+     */
+    static final class BytesKey {
+        private final byte[] bytes;
+        private final int hash;
+
+        BytesKey(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof BytesKey && hash == ((BytesKey) o).hash && Arrays.equals(bytes, ((BytesKey) o).bytes));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
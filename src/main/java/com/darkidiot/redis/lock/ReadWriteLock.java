@@ -0,0 +1,27 @@
+package com.darkidiot.redis.lock;
+
+import com.darkidiot.redis.exception.RedisException;
+
+/**
+ * Redis分布式读写锁<阻塞式><br>
+ * <li>读锁可被多个线程同时持有, 写锁只能被一个线程持有, 且与读锁互斥</li>
+ * <li>读锁与写锁共用同一个锁名称, 分别按{@link Lock}的方式加锁、释放</li>
+ * @author darkidiot
+ */
+public interface ReadWriteLock {
+
+    /**
+     * 获取读锁
+     */
+    Lock readLock();
+
+    /**
+     * 获取写锁
+     */
+    Lock writeLock();
+
+    /**
+     * 获取当前锁的名称
+     */
+    String getName() throws RedisException;
+}
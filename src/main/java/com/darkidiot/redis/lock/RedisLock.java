@@ -1,15 +1,17 @@
 package com.darkidiot.redis.lock;
 
-import com.darkidiot.redis.common.JedisType;
 import com.darkidiot.redis.config.JedisPoolFactory;
 import com.darkidiot.redis.config.RedisInitParam;
 import com.darkidiot.redis.exception.RedisException;
 import com.darkidiot.redis.jedis.IJedis;
-import com.darkidiot.redis.jedis.imp.Jedis;
+import com.darkidiot.redis.lock.imp.FairRedisLock;
+import com.darkidiot.redis.lock.imp.LockScripts;
+import com.darkidiot.redis.lock.imp.ReadWriteRedisLock;
+import com.darkidiot.redis.lock.imp.RedisRateLimiter;
+import com.darkidiot.redis.lock.imp.RedisSemaphore;
 import com.darkidiot.redis.lock.imp.RigorousRedisLock;
 import com.darkidiot.redis.lock.imp.SimpleRedisLock;
 import com.darkidiot.redis.lock.imp.StrictRedisLock;
-import com.darkidiot.redis.util.CommonUtil;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -41,6 +43,13 @@ public class RedisLock {
     private static final String RIGOROUS_LOCK_PREFIX = "Rigorous Lock:";
     private static final String SIMPLE_LOCK_PREFIX = "Simple Lock:";
     private static final String STRICT_LOCK_PREFIX = "Strict Lock:";
+    private static final String FAIR_LOCK_PREFIX = "Fair Lock:";
+    private static final String READ_WRITE_LOCK_PREFIX = "ReadWrite Lock:";
+    private static final String SEMAPHORE_PREFIX = "Semaphore:";
+    private static final String RATE_LIMITER_PREFIX = "RateLimiter:";
+
+    /** 信号量默认租约时长(秒) */
+    private static final long DEFAULT_LEASE_TIMEOUT = 5 * 60L;
 
     private static final Map<String, IJedis> iJedisMap = Maps.newConcurrentMap();
 
@@ -69,12 +78,7 @@ public class RedisLock {
             }
 
             if (needReleaseKey.size() != 0) {
-                jedis.callOriginalJedis(new CommonUtil.Callback<Long>() {
-                    @Override
-                    public Long call(redis.clients.jedis.Jedis jedis) {
-                        return jedis.del(needReleaseKey.toArray(new String[0]));
-                    }
-                }, JedisType.READ);
+                jedis.del(needReleaseKey.toArray(new String[0]));
                 log.debug("release lock [{}] before shutdown.", Arrays.toString(needReleaseKey.toArray()));
             }
         }
@@ -86,7 +90,7 @@ public class RedisLock {
     }
 
     public static Lock useRigorousRedisLock(final String lockname, final String service) throws RedisException {
-        return invoke(new Callback() {
+        return invoke(new Callback<Lock>() {
             @Override
             public Lock call(IJedis jedis) throws RedisException {
                 return new RigorousRedisLock(jedis, lockname);
@@ -99,7 +103,7 @@ public class RedisLock {
     }
 
     public static Lock useSimpleRedisLock(final String lockname, final String service) throws RedisException {
-        return invoke(new Callback() {
+        return invoke(new Callback<Lock>() {
             @Override
             public Lock call(IJedis jedis) throws RedisException {
                 return new SimpleRedisLock(jedis, lockname);
@@ -112,7 +116,7 @@ public class RedisLock {
     }
 
     public static Lock useStrictRedisLock(final String lockname, final String service) throws RedisException {
-        return invoke(new Callback() {
+        return invoke(new Callback<Lock>() {
             @Override
             public Lock call(IJedis jedis) throws RedisException {
                 return new StrictRedisLock(jedis, lockname);
@@ -120,18 +124,97 @@ public class RedisLock {
         }, STRICT_LOCK_PREFIX, lockname, service);
     }
 
-    private interface Callback {
-        Lock call(IJedis jedis) throws RedisException;
+    public static Lock useFairRedisLock(final String lockname) throws RedisException {
+        return useFairRedisLock(lockname, DEFAULT_SERVICE_KEY);
+    }
+
+    /**
+     * 公平锁: 按排队顺序获得锁, 超过acquireTimeout抛出TimeOutException
+     */
+    public static Lock useFairRedisLock(final String lockname, final String service) throws RedisException {
+        return invoke(new Callback<Lock>() {
+            @Override
+            public Lock call(IJedis jedis) throws RedisException {
+                return new FairRedisLock(jedis, lockname);
+            }
+        }, FAIR_LOCK_PREFIX, lockname, service);
+    }
+
+    public static ReadWriteLock useReadWriteRedisLock(final String lockname) throws RedisException {
+        return useReadWriteRedisLock(lockname, DEFAULT_SERVICE_KEY);
+    }
+
+    /**
+     * 读写锁: 读锁共享, 写锁独占, 按线程可重入, 支持写锁降级为读锁
+     */
+    public static ReadWriteLock useReadWriteRedisLock(final String lockname, final String service) throws RedisException {
+        return invoke(new Callback<ReadWriteLock>() {
+            @Override
+            public ReadWriteLock call(IJedis jedis) throws RedisException {
+                return new ReadWriteRedisLock(jedis, lockname);
+            }
+        }, READ_WRITE_LOCK_PREFIX, lockname, service);
+    }
+
+    public static RedisSemaphore useRedisSemaphore(final String name, final int permits) throws RedisException {
+        return useRedisSemaphore(name, permits, DEFAULT_SERVICE_KEY);
+    }
+
+    public static RedisSemaphore useRedisSemaphore(final String name, final int permits, final String service) throws RedisException {
+        return useRedisSemaphore(name, permits, DEFAULT_LEASE_TIMEOUT, 0, service);
+    }
+
+    /**
+     * 分布式信号量: 所有节点共享permits个许可
+     *
+     * @param leaseTimeout 租约时长(秒), 持有者crash后许可在租约到期时自动归还, -1为永不过期
+     * @param prefetch     本地最多预取的空闲许可数, 0为不预取
+     */
+    public static RedisSemaphore useRedisSemaphore(final String name, final int permits, final long leaseTimeout, final int prefetch, final String service) throws RedisException {
+        return invoke(new Callback<RedisSemaphore>() {
+            @Override
+            public RedisSemaphore call(IJedis jedis) throws RedisException {
+                return new RedisSemaphore(jedis, name, permits, leaseTimeout, prefetch);
+            }
+        }, SEMAPHORE_PREFIX, name, service);
+    }
+
+    public static RedisRateLimiter useRedisRateLimiter(final String name, final double permitsPerSecond) throws RedisException {
+        return useRedisRateLimiter(name, permitsPerSecond, DEFAULT_SERVICE_KEY);
+    }
+
+    public static RedisRateLimiter useRedisRateLimiter(final String name, final double permitsPerSecond, final String service) throws RedisException {
+        return useRedisRateLimiter(name, permitsPerSecond, (long) Math.max(1, Math.ceil(permitsPerSecond)), 0, service);
     }
 
-    private static Lock invoke(Callback callback, String prefix, String lockname, String service) throws RedisException {
+    /**
+     * 分布式限流器(令牌桶): 所有节点共享permitsPerSecond的速率
+     *
+     * @param capacity 令牌桶容量(允许的突发量), 默认为1秒的令牌数
+     * @param prefetch 本地最多预取的令牌数, 0为不预取
+     */
+    public static RedisRateLimiter useRedisRateLimiter(final String name, final double permitsPerSecond, final long capacity, final int prefetch, final String service) throws RedisException {
+        return invoke(new Callback<RedisRateLimiter>() {
+            @Override
+            public RedisRateLimiter call(IJedis jedis) throws RedisException {
+                return new RedisRateLimiter(jedis, name, permitsPerSecond, capacity, prefetch);
+            }
+        }, RATE_LIMITER_PREFIX, name, service);
+    }
+
+    private interface Callback<T> {
+        T call(IJedis jedis) throws RedisException;
+    }
+
+    private static <T> T invoke(Callback<T> callback, String prefix, String lockname, String service) throws RedisException {
         IJedis jedis = iJedisMap.get(service);
         if (jedis == null) {
             RedisInitParam initParam = JedisPoolFactory.getInitParam(service);
             if (!initParam.getR$WSeparated()) {
                 throw new IllegalStateException("Can not create RedisLock cause by don't separate write and read, should be configuration [{}.read&write.separated=true] to use RedisLock.");
             }
-            jedis = new Jedis(JedisPoolFactory.getWritePool(service), JedisPoolFactory.getReadPool(service), initParam);
+            jedis = JedisPoolFactory.getJedis(service);
+            LockScripts.preload(jedis);
             iJedisMap.put(service, jedis);
             needReleaseKeyMap.put(service, HashMultiset.<String>create());
         }
@@ -165,6 +248,22 @@ public class RedisLock {
         public Lock useRigorousRedisLock() {
             return RedisLock.useRigorousRedisLock(lockName, service);
         }
+
+        public Lock useFairRedisLock() {
+            return RedisLock.useFairRedisLock(lockName, service);
+        }
+
+        public ReadWriteLock useReadWriteRedisLock() {
+            return RedisLock.useReadWriteRedisLock(lockName, service);
+        }
+
+        public RedisSemaphore useRedisSemaphore(int permits) {
+            return RedisLock.useRedisSemaphore(lockName, permits, service);
+        }
+
+        public RedisRateLimiter useRedisRateLimiter(double permitsPerSecond) {
+            return RedisLock.useRedisRateLimiter(lockName, permitsPerSecond, service);
+        }
     }
 
     public static Configuration create() {
@@ -6,6 +6,10 @@ import java.util.regex.Pattern;
 
 class Constants {
     private static final String LOCK_PREFIX = "Lock:";
+    private static final String FAIR_LOCK_PREFIX = "FairLock:";
+    private static final String READ_WRITE_LOCK_PREFIX = "ReadWriteLock:";
+    private static final String SEMAPHORE_PREFIX = "Semaphore:";
+    private static final String RATE_LIMITER_PREFIX = "RateLimiter:";
 
     static final String LOCK_UNLOCK = "Lock:unlock";
 
@@ -25,11 +29,43 @@ class Constants {
         return LOCK_PREFIX + lockName;
     }
 
+    /**
+     * @param lockName 集群模式下为hash tag包装后的名称, 锁与其等待队列位于同一个slot
+     */
+    static String createFairKey(String lockName) {
+        return FAIR_LOCK_PREFIX + lockName;
+    }
+
+    /**
+     * @param lockName 集群模式下为hash tag包装后的名称, 锁与其租约位于同一个slot
+     */
+    static String createReadWriteKey(String lockName) {
+        return READ_WRITE_LOCK_PREFIX + lockName;
+    }
+
+    /**
+     * @param name 集群模式下为hash tag包装后的名称, 信号量与其租约位于同一个slot
+     */
+    static String createSemaphoreKey(String name) {
+        return SEMAPHORE_PREFIX + name;
+    }
+
+    static String createRateLimiterKey(String name) {
+        return RATE_LIMITER_PREFIX + name;
+    }
+
 
     private static final String PKEY_LOCK_ENTRANCE_COUNT_SPLITTER = "-";
     private static final String PKEY_VALUE_COUNT = "%s" + PKEY_LOCK_ENTRANCE_COUNT_SPLITTER + "[%d]";
     private static final Pattern pattern = Pattern.compile("\\[(\\d+)\\]");
 
+    /**
+     * @return 同一线程第count次加锁(重入count-1次)时锁的值
+     */
+    static String reentrantValue(String owner, long count) {
+        return count == 1 ? owner : String.format(PKEY_VALUE_COUNT, owner, count - 1);
+    }
+
     public static String autoOverlayValue(String value) {
         validateParam(value);
         if (value.equals(LOCK_UNLOCK)) {
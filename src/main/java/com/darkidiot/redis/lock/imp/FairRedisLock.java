@@ -0,0 +1,160 @@
+package com.darkidiot.redis.lock.imp;
+
+import com.darkidiot.redis.exception.RedisException;
+import com.darkidiot.redis.exception.TimeOutException;
+import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.lock.Lock;
+import com.darkidiot.redis.lock.RedisLock;
+import com.darkidiot.redis.util.HashTags;
+import com.darkidiot.redis.util.StringUtil;
+import com.darkidiot.redis.util.UUIDUtil;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.darkidiot.redis.common.JedisType.WRITE;
+import static com.darkidiot.redis.util.CommonUtil.Callback;
+
+/**
+ * 公平的分布式锁的实现: 等待者在redis中排队(list记录顺序, zset记录存活期限), 严格按排队顺序获得锁
+ * 阻塞式<br/>
+ * <br/>
+ * <b>Notice:<b/>
+ * <ul>
+ * <li>不可重入锁</li>
+ * <li>等待者每次重试时刷新存活期限, 超过{@link #WAITER_TIMEOUT_MILLIS}未重试(进程crash)的等待者在下次加锁时从队首清理.</li>
+ * <li>超过acquireTimeout仍未获得锁时放弃排队并抛出{@link TimeOutException}, 等待期间线程被中断时放弃排队并抛出{@link RedisException}.</li>
+ * <li>存活期限使用客户端时间, 各节点之间的时钟偏差需远小于{@link #WAITER_TIMEOUT_MILLIS}.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+public class FairRedisLock implements Lock {
+
+    /**
+     * 等待者的存活期限
+     */
+    private static final long WAITER_TIMEOUT_MILLIS = 5000L;
+    /**
+     * 两次重试之间的最长等待时间(须小于存活期限)
+     */
+    private static final long MAX_WAIT_MILLIS = 1000L;
+
+    private final IJedis jedis;
+    private final String name;
+    private final String lockKey;
+    private final List<String> keys;
+
+    private String identifier;
+
+    public FairRedisLock(IJedis jedis, String name) throws RedisException {
+        if (jedis == null) {
+            throw new RedisException("Initialize FairRedisLock failure, And jedis can not be null.");
+        }
+        if (StringUtil.isEmpty(name)) {
+            throw new RedisException("Initialize FairRedisLock failure, And name can not be empty.");
+        }
+        this.jedis = jedis;
+        this.name = name;
+        this.lockKey = Constants.createFairKey(HashTags.tag(name, jedis));
+        this.keys = Arrays.asList(lockKey, lockKey + ":queue", lockKey + ":timeouts");
+    }
+
+    @Override
+    public void lock(final long acquireTimeout, final long lockTimeout) throws RedisException {
+        if (acquireTimeout < 0 || lockTimeout < -1) {
+            throw new RedisException("acquireTimeout can not be negative Or LockTimeout can not be less than -1.");
+        }
+        final String value = UUIDUtil.generateShortUUID();
+        final String ttlMillis = LockScripts.ttlMillis(lockTimeout);
+        final long end = System.currentTimeMillis() + acquireTimeout;
+        Callback<Boolean> acquire = new Callback<Boolean>() {
+            @Override
+            public Boolean call(Jedis jedis) {
+                long now = System.currentTimeMillis();
+                if (LockScripts.eval(jedis, LockScripts.FAIR_ACQUIRE, keys, value, ttlMillis, String.valueOf(now),
+                        String.valueOf(WAITER_TIMEOUT_MILLIS), String.valueOf(now + WAITER_TIMEOUT_MILLIS)) != 1) {
+                    return false;
+                }
+                identifier = value;
+                return true;
+            }
+        };
+        try (LockNotifier.Waiter waiter = LockNotifier.waiter(jedis, lockKey)) {
+            for (int i = 2; !jedis.callOriginalJedis(lockKey, acquire, WRITE); i++) {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    cancel(value);
+                    throw new TimeOutException("Acquire FairRedisLock [" + name + "] time out after " + acquireTimeout + "ms.");
+                }
+                try {
+                    waiter.await(Math.min(Math.min(waiter.waitMillis(i), MAX_WAIT_MILLIS), remaining));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    cancel(value);
+                    throw new RedisException("Acquire FairRedisLock [" + name + "] was interrupted.", ie);
+                }
+            }
+        }
+        RedisLock.overlayLockCount(jedis, lockKey);
+    }
+
+    /**
+     * 放弃排队
+     */
+    private void cancel(final String value) {
+        jedis.callOriginalJedis(lockKey, new Callback<Long>() {
+            @Override
+            public Long call(Jedis jedis) {
+                return LockScripts.eval(jedis, LockScripts.FAIR_CANCEL, keys, value, LockNotifier.CHANNEL);
+            }
+        }, WRITE);
+    }
+
+    @Override
+    public void lock() throws RedisException {
+        lock(Constants.defaultAcquireLockTimeout, Constants.defaultLockTimeout);
+    }
+
+    @Override
+    public boolean unlock() throws RedisException {
+        if (StringUtil.isEmpty(identifier)) {
+            throw new RedisException("identifier can not be empty.");
+        }
+        RedisLock.DepriveLockCount(jedis, lockKey);
+        return jedis.callOriginalJedis(lockKey, new Callback<Boolean>() {
+            @Override
+            public Boolean call(Jedis jedis) {
+                long end = System.currentTimeMillis() + Constants.defaultReleaseLockTimeout;
+                if (LockScripts.release(jedis, lockKey, identifier, "")) {
+                    if (System.currentTimeMillis() > end) {
+                        log.warn("Release FairRedisLock time out. spend[ {}ms ]", System.currentTimeMillis() - end);
+                    }
+                    return true;
+                }
+                throw new RedisException("Release the FairRedisLock error, the lock was robbed.");
+            }
+        }, WRITE);
+    }
+
+    @Override
+    public boolean isLocking() throws RedisException {
+        if (StringUtil.isEmpty(identifier)) {
+            throw new RedisException("identifier can not be empty.");
+        }
+        long end = System.currentTimeMillis() + Constants.defaultCheckLockTimeout;
+        String retStr = jedis.get(lockKey);
+        if (System.currentTimeMillis() > end) {
+            log.warn("Checking FairRedisLock time out. spend[ {}ms ]", System.currentTimeMillis() - end);
+        }
+        return retStr != null && retStr.equals(identifier);
+    }
+
+    @Override
+    public String getName() throws RedisException {
+        return this.name;
+    }
+}
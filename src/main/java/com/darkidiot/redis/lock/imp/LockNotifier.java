@@ -0,0 +1,218 @@
+package com.darkidiot.redis.lock.imp;
+
+import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.util.FibonacciUtil;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.util.SafeEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 锁释放通知: 释放脚本完全释放锁时向{@link #CHANNEL}发布锁的key, 等待该锁的线程收到通知后立即重试
+ * <ul>
+ * <li>每个服务一个订阅线程(首次有线程等待锁时启动), 所有锁共用一个频道, 按key唤醒本进程内等待的线程.</li>
+ * <li>锁因超时自动释放时没有通知, 等待通知的最长时间为{@link #FALLBACK_WAIT_MILLIS}, 到时后重试.</li>
+ * <li>订阅未建立或断开重连期间退回斐波那契退避轮询.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+final class LockNotifier {
+
+    /**
+     * 锁被完全释放时发布的频道, 消息为锁的key
+     */
+    static final String CHANNEL = "Lock:released";
+
+    /**
+     * 订阅正常时等待通知的最长时间
+     */
+    private static final long FALLBACK_WAIT_MILLIS = 500L;
+
+    /**
+     * 订阅失败后重新订阅的间隔
+     */
+    private static final long RESUBSCRIBE_MILLIS = 1000L;
+
+    private static final ConcurrentMap<String, LockNotifier> NOTIFIERS = new ConcurrentHashMap<>();
+
+    private final String service;
+    private final IJedis jedis;
+    /**
+     * 锁的key -> 等待的线程共用的信号(没有线程等待时移除)
+     */
+    private final Map<String, Signal> signals = new HashMap<>();
+    private volatile boolean subscribed;
+    private Thread thread;
+
+    private LockNotifier(String service, IJedis jedis) {
+        this.service = service;
+        this.jedis = jedis;
+    }
+
+    /**
+     * 开始等待锁(在第一次尝试加锁之前调用, 之后发布的释放通知都不会丢失), 结束等待后需要{@link Waiter#close()}
+     */
+    static Waiter waiter(IJedis jedis, String lockKey) {
+        String service = jedis.baseConfig().getServerName();
+        LockNotifier notifier = NOTIFIERS.get(service);
+        if (notifier == null) {
+            LockNotifier created = new LockNotifier(service, jedis);
+            notifier = NOTIFIERS.putIfAbsent(service, created);
+            if (notifier == null) {
+                notifier = created;
+            }
+        }
+        return notifier.enter(lockKey);
+    }
+
+    private Waiter enter(String lockKey) {
+        synchronized (signals) {
+            if (thread == null) {
+                thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        subscribe();
+                    }
+                }, "Thread-" + CHANNEL + ":" + service);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            Signal signal = signals.get(lockKey);
+            if (signal == null) {
+                signal = new Signal();
+                signals.put(lockKey, signal);
+            }
+            signal.waiters++;
+            return new Waiter(lockKey, signal);
+        }
+    }
+
+    private void exit(String lockKey, Signal signal) {
+        synchronized (signals) {
+            if (--signal.waiters == 0) {
+                signals.remove(lockKey);
+            }
+        }
+    }
+
+    private void signal(String lockKey) {
+        Signal signal;
+        synchronized (signals) {
+            signal = signals.get(lockKey);
+        }
+        if (signal != null) {
+            signal.signal();
+        }
+    }
+
+    /**
+     * 订阅建立或断开时唤醒所有等待的线程(期间可能错过了通知)
+     */
+    private void signalAll() {
+        Signal[] all;
+        synchronized (signals) {
+            all = signals.values().toArray(new Signal[signals.size()]);
+        }
+        for (Signal signal : all) {
+            signal.signal();
+        }
+    }
+
+    private void subscribe() {
+        while (true) {
+            try {
+                jedis.subscribe(new BinaryJedisPubSub() {
+                    @Override
+                    public void onSubscribe(byte[] channel, int subscribedChannels) {
+                        subscribed = true;
+                        signalAll();
+                        log.info("Lock notifier of service [{}] subscribed channel [{}].", service, CHANNEL);
+                    }
+
+                    @Override
+                    public void onMessage(byte[] channel, byte[] message) {
+                        signal(SafeEncoder.encode(message));
+                    }
+                }, SafeEncoder.encode(CHANNEL));
+            } catch (Exception e) {
+                log.warn("Lock notifier of service [{}] subscribe failure, fall back to polling, cause by:{}", service, e.getMessage());
+            }
+            subscribed = false;
+            signalAll();
+            try {
+                Thread.sleep(RESUBSCRIBE_MILLIS);
+            } catch (InterruptedException e) {
+                log.info("Lock notifier of service [{}] stopped.", service);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 同一个锁的等待线程共用的信号
+     */
+    private static final class Signal {
+        /** 受signals保护 */
+        int waiters;
+        /** 收到释放通知的次数, 受本对象的监视器保护 */
+        long version;
+
+        synchronized void signal() {
+            version++;
+            notifyAll();
+        }
+    }
+
+    /**
+     * 单个线程对一个锁的等待
+     */
+    final class Waiter implements AutoCloseable {
+        private final String lockKey;
+        private final Signal signal;
+        private final Random random = new Random();
+        private long seen;
+
+        private Waiter(String lockKey, Signal signal) {
+            this.lockKey = lockKey;
+            this.signal = signal;
+            synchronized (signal) {
+                this.seen = signal.version;
+            }
+        }
+
+        /**
+         * @param attempt 已失败的尝试次数
+         * @return 本次最长等待的毫秒数: 订阅正常时为{@link #FALLBACK_WAIT_MILLIS}, 否则为斐波那契退避
+         */
+        long waitMillis(int attempt) {
+            if (subscribed) {
+                return FALLBACK_WAIT_MILLIS;
+            }
+            return Constants.defaultWaitIntervalInMSUnit * random.nextInt(FibonacciUtil.circulationFibonacciNormal(attempt > 15 ? 15 : attempt));
+        }
+
+        /**
+         * 等待锁被释放的通知或超时; 上次返回之后已经收到过通知时立即返回
+         */
+        void await(long waitMillis) throws InterruptedException {
+            synchronized (signal) {
+                if (signal.version == seen && waitMillis > 0) {
+                    signal.wait(waitMillis);
+                }
+                seen = signal.version;
+            }
+        }
+
+        @Override
+        public void close() {
+            exit(lockKey, signal);
+        }
+    }
+}
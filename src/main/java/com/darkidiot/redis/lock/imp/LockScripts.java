@@ -0,0 +1,317 @@
+package com.darkidiot.redis.lock.imp;
+
+import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.util.LuaScript;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.darkidiot.redis.common.JedisType.WRITE;
+import static com.darkidiot.redis.util.CommonUtil.Callback;
+
+/**
+ * 锁的Lua脚本: 加锁、重入计数与释放各一次往返, 在redis中原子执行(完全释放时发布{@link LockNotifier#CHANNEL}通知)
+ * <p>锁的超时时间参数为毫秒, 不大于0表示永不过期.</p>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class LockScripts {
+
+    /**
+     * 不可重入加锁, 兼容释放后残留的{@link Constants#LOCK_UNLOCK}
+     * <p>KEYS: lockKey; ARGV: value, LOCK_UNLOCK, ttlMillis 返回1为加锁成功, 0为锁被占用</p>
+     */
+    static final LuaScript ACQUIRE = new LuaScript(
+            "local v = redis.call('GET', KEYS[1])\n" +
+            "if v and v ~= ARGV[2] then return 0 end\n" +
+            "redis.call('SET', KEYS[1], ARGV[1])\n" +
+            "if tonumber(ARGV[3]) > 0 then redis.call('PEXPIRE', KEYS[1], ARGV[3]) end\n" +
+            "return 1");
+
+    /**
+     * 可重入加锁: 首次加锁的值为owner, 重入n次后的值为owner-[n](与{@link Constants#autoOverlayValue}一致), 每次加锁重置超时时间
+     * <p>KEYS: lockKey; ARGV: owner, LOCK_UNLOCK, ttlMillis 返回加锁后的重入次数, 0为锁被其他线程占用</p>
+     */
+    static final LuaScript REENTRANT_ACQUIRE = new LuaScript(
+            "local v = redis.call('GET', KEYS[1])\n" +
+            "local count = 1\n" +
+            "if v and v ~= ARGV[2] then\n" +
+            "  local prefix = ARGV[1] .. '-['\n" +
+            "  if v == ARGV[1] then\n" +
+            "    count = 2\n" +
+            "  elseif string.sub(v, 1, string.len(prefix)) == prefix then\n" +
+            "    local n = tonumber(string.sub(v, string.len(prefix) + 1, -2))\n" +
+            "    if not n then return 0 end\n" +
+            "    count = n + 2\n" +
+            "  else\n" +
+            "    return 0\n" +
+            "  end\n" +
+            "end\n" +
+            "local value = ARGV[1]\n" +
+            "if count > 1 then value = ARGV[1] .. '-[' .. (count - 1) .. ']' end\n" +
+            "redis.call('SET', KEYS[1], value)\n" +
+            "if tonumber(ARGV[3]) > 0 then redis.call('PEXPIRE', KEYS[1], ARGV[3]) end\n" +
+            "return count");
+
+    /**
+     * 比较后释放: 当前值等于expected时删除(replacement为空, 并向channel发布锁的key)或替换为replacement(重入计数减一, 保留剩余超时时间)
+     * <p>KEYS: lockKey; ARGV: expected, replacement, channel 返回1为释放成功, 0为锁已被他人持有或已过期</p>
+     */
+    static final LuaScript RELEASE = new LuaScript(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end\n" +
+            "if ARGV[2] == '' then\n" +
+            "  redis.call('DEL', KEYS[1])\n" +
+            "  redis.call('PUBLISH', ARGV[3], KEYS[1])\n" +
+            "  return 1\n" +
+            "end\n" +
+            "local ttl = redis.call('PTTL', KEYS[1])\n" +
+            "redis.call('SET', KEYS[1], ARGV[2])\n" +
+            "if ttl > 0 then redis.call('PEXPIRE', KEYS[1], ttl) end\n" +
+            "return 1");
+
+    /**
+     * 公平锁加锁: 先从队首清理超过存活期限的等待者, 锁空闲且队列为空或自己位于队首时加锁并出队, 否则入队(已在队列中时只刷新存活期限)
+     * <p>KEYS: lockKey, queueKey(list, 等待顺序), timeoutKey(zset, 等待者 -> 存活期限);
+     * ARGV: waiter, ttlMillis, now, waiterTimeoutMillis, waiterDeadline 返回1为加锁成功, 0为已排队等待</p>
+     */
+    static final LuaScript FAIR_ACQUIRE = new LuaScript(
+            "local now = tonumber(ARGV[3])\n" +
+            "while true do\n" +
+            "  local first = redis.call('LINDEX', KEYS[2], 0)\n" +
+            "  if not first then break end\n" +
+            "  local deadline = redis.call('ZSCORE', KEYS[3], first)\n" +
+            "  if deadline and tonumber(deadline) > now then break end\n" +
+            "  redis.call('LPOP', KEYS[2])\n" +
+            "  redis.call('ZREM', KEYS[3], first)\n" +
+            "end\n" +
+            "local first = redis.call('LINDEX', KEYS[2], 0)\n" +
+            "if redis.call('EXISTS', KEYS[1]) == 0 and (not first or first == ARGV[1]) then\n" +
+            "  if first then\n" +
+            "    redis.call('LPOP', KEYS[2])\n" +
+            "    redis.call('ZREM', KEYS[3], ARGV[1])\n" +
+            "  end\n" +
+            "  redis.call('SET', KEYS[1], ARGV[1])\n" +
+            "  if tonumber(ARGV[2]) > 0 then redis.call('PEXPIRE', KEYS[1], ARGV[2]) end\n" +
+            "  return 1\n" +
+            "end\n" +
+            "if not redis.call('ZSCORE', KEYS[3], ARGV[1]) then\n" +
+            "  redis.call('RPUSH', KEYS[2], ARGV[1])\n" +
+            "end\n" +
+            "redis.call('ZADD', KEYS[3], ARGV[5], ARGV[1])\n" +
+            "redis.call('PEXPIRE', KEYS[2], ARGV[4])\n" +
+            "redis.call('PEXPIRE', KEYS[3], ARGV[4])\n" +
+            "return 0");
+
+    /**
+     * 公平锁放弃等待: 出队, 锁空闲时通知下一个等待者
+     * <p>KEYS: lockKey, queueKey, timeoutKey; ARGV: waiter, channel</p>
+     */
+    static final LuaScript FAIR_CANCEL = new LuaScript(
+            "redis.call('LREM', KEYS[2], 0, ARGV[1])\n" +
+            "redis.call('ZREM', KEYS[3], ARGV[1])\n" +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then redis.call('PUBLISH', ARGV[2], KEYS[1]) end\n" +
+            "return 1");
+
+    /**
+     * 按最晚的租约期限设置KEYS[1](hash)与KEYS[2](zset: 持有者 -> 租约期限)的过期时间, 需要局部变量now
+     */
+    private static final String EXPIRE_WITH_LAST_LEASE =
+            "local last = redis.call('ZREVRANGE', KEYS[2], 0, 0, 'WITHSCORES')\n" +
+            "if last[2] == 'inf' then\n" +
+            "  redis.call('PERSIST', KEYS[1])\n" +
+            "  redis.call('PERSIST', KEYS[2])\n" +
+            "else\n" +
+            "  local ttl = math.ceil(tonumber(last[2]) - now)\n" +
+            "  redis.call('PEXPIRE', KEYS[1], ttl)\n" +
+            "  redis.call('PEXPIRE', KEYS[2], ttl)\n" +
+            "end\n";
+
+    /**
+     * 读写锁加锁: 先清理租约已过期的持有者, 再按模式加锁, 持有计数加一并重置本线程的租约
+     * <ul>
+     * <li>hash: mode -> read|write, owner:read|owner:write -> 持有计数; zset: owner -> 租约期限(+inf为永不过期)</li>
+     * <li>读锁: 未加锁、读模式或写锁被自己持有(降级)时成功; 写锁: 未加锁或写锁被自己持有(重入)时成功.</li>
+     * </ul>
+     * <p>KEYS: lockKey(hash), leaseKey(zset); ARGV: owner, read|write, now, leaseDeadline
+     * 返回加锁后的持有计数, 0为锁被占用, -1为持有读锁时申请写锁(不支持升级)</p>
+     */
+    static final LuaScript RW_ACQUIRE = new LuaScript(
+            "local now = tonumber(ARGV[3])\n" +
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', now)\n" +
+            "for _, owner in ipairs(expired) do\n" +
+            "  redis.call('HDEL', KEYS[1], owner .. ':read', owner .. ':write')\n" +
+            "  redis.call('ZREM', KEYS[2], owner)\n" +
+            "end\n" +
+            "if redis.call('HLEN', KEYS[1]) <= 1 then redis.call('DEL', KEYS[1]) end\n" +
+            "local mode = redis.call('HGET', KEYS[1], 'mode')\n" +
+            "if mode == 'write' then\n" +
+            "  if redis.call('HEXISTS', KEYS[1], ARGV[1] .. ':write') == 0 then return 0 end\n" +
+            "elseif mode == 'read' and ARGV[2] == 'write' then\n" +
+            "  if redis.call('HEXISTS', KEYS[1], ARGV[1] .. ':read') == 1 then return -1 end\n" +
+            "  return 0\n" +
+            "elseif not mode then\n" +
+            "  redis.call('HSET', KEYS[1], 'mode', ARGV[2])\n" +
+            "end\n" +
+            "local count = redis.call('HINCRBY', KEYS[1], ARGV[1] .. ':' .. ARGV[2], 1)\n" +
+            "redis.call('ZADD', KEYS[2], ARGV[4], ARGV[1])\n" +
+            EXPIRE_WITH_LAST_LEASE +
+            "return count");
+
+    /**
+     * 读写锁释放: 持有计数减一, 归零时移除; 锁完全释放时删除并发布通知, 写锁释放后仍持有读锁(降级)时切换为读模式并发布通知
+     * <p>KEYS: lockKey, leaseKey; ARGV: owner, read|write, channel 返回1为释放成功, 0为未持有(租约已过期)</p>
+     */
+    static final LuaScript RW_RELEASE = new LuaScript(
+            "local field = ARGV[1] .. ':' .. ARGV[2]\n" +
+            "if redis.call('HEXISTS', KEYS[1], field) == 0 then return 0 end\n" +
+            "if redis.call('HINCRBY', KEYS[1], field, -1) > 0 then return 1 end\n" +
+            "redis.call('HDEL', KEYS[1], field)\n" +
+            "local other = 'read'\n" +
+            "if ARGV[2] == 'read' then other = 'write' end\n" +
+            "if redis.call('HEXISTS', KEYS[1], ARGV[1] .. ':' .. other) == 0 then redis.call('ZREM', KEYS[2], ARGV[1]) end\n" +
+            "if redis.call('HLEN', KEYS[1]) <= 1 then\n" +
+            "  redis.call('DEL', KEYS[1], KEYS[2])\n" +
+            "  redis.call('PUBLISH', ARGV[3], KEYS[1])\n" +
+            "elseif ARGV[2] == 'write' then\n" +
+            "  redis.call('HSET', KEYS[1], 'mode', 'read')\n" +
+            "  redis.call('PUBLISH', ARGV[3], KEYS[1])\n" +
+            "end\n" +
+            "return 1");
+
+    /**
+     * 信号量获取许可: 先清理租约已过期的持有者, 剩余许可不少于permits时获取min(剩余许可, maxPermits)个, 计入本租约并重置租约期限
+     * <p>KEYS: semaphoreKey(hash, 租约 -> 许可数), leaseKey(zset, 租约 -> 租约期限);
+     * ARGV: lease, permits, maxPermits, totalPermits, now, leaseDeadline 返回获取的许可数, 0为剩余许可不足</p>
+     */
+    static final LuaScript SEMAPHORE_ACQUIRE = new LuaScript(
+            "local now = tonumber(ARGV[5])\n" +
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', now)\n" +
+            "for _, lease in ipairs(expired) do\n" +
+            "  redis.call('HDEL', KEYS[1], lease)\n" +
+            "  redis.call('ZREM', KEYS[2], lease)\n" +
+            "end\n" +
+            "local available = tonumber(ARGV[4])\n" +
+            "for _, v in ipairs(redis.call('HVALS', KEYS[1])) do available = available - tonumber(v) end\n" +
+            "if available < tonumber(ARGV[2]) then return 0 end\n" +
+            "local granted = math.min(available, tonumber(ARGV[3]))\n" +
+            "redis.call('HINCRBY', KEYS[1], ARGV[1], granted)\n" +
+            "redis.call('ZADD', KEYS[2], ARGV[6], ARGV[1])\n" +
+            EXPIRE_WITH_LAST_LEASE +
+            "return granted");
+
+    /**
+     * 信号量归还许可: 从租约中扣除(扣完时移除租约)并通知等待的线程
+     * <p>KEYS: semaphoreKey, leaseKey; ARGV: lease, permits, channel 返回1为归还成功, 0为租约已过期</p>
+     */
+    static final LuaScript SEMAPHORE_RELEASE = new LuaScript(
+            "local held = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '0')\n" +
+            "if held == 0 then return 0 end\n" +
+            "if held <= tonumber(ARGV[2]) then\n" +
+            "  redis.call('HDEL', KEYS[1], ARGV[1])\n" +
+            "  redis.call('ZREM', KEYS[2], ARGV[1])\n" +
+            "else\n" +
+            "  redis.call('HINCRBY', KEYS[1], ARGV[1], -tonumber(ARGV[2]))\n" +
+            "end\n" +
+            "redis.call('PUBLISH', ARGV[3], KEYS[1])\n" +
+            "return 1");
+
+    /**
+     * 令牌桶限流: 按经过的时间补充令牌(不超过桶容量), 令牌不少于permits时扣除min(整数令牌数, maxPermits)个
+     * <p>KEYS: bucketKey(hash: tokens, ts); ARGV: permits, maxPermits, permitsPerSecond, capacity, now
+     * 返回获取的令牌数, 负数为令牌足够还需等待的毫秒数</p>
+     */
+    static final LuaScript RATE_LIMIT_ACQUIRE = new LuaScript(
+            "local permits = tonumber(ARGV[1])\n" +
+            "local rate = tonumber(ARGV[3])\n" +
+            "local capacity = tonumber(ARGV[4])\n" +
+            "local now = tonumber(ARGV[5])\n" +
+            "local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')\n" +
+            "local tokens = tonumber(bucket[1])\n" +
+            "local ts = tonumber(bucket[2])\n" +
+            "if not tokens or not ts then\n" +
+            "  tokens = capacity\n" +
+            "  ts = now\n" +
+            "end\n" +
+            "if now > ts then\n" +
+            "  tokens = math.min(capacity, tokens + (now - ts) * rate / 1000)\n" +
+            "  ts = now\n" +
+            "end\n" +
+            "local result\n" +
+            "if tokens >= permits then\n" +
+            "  result = math.min(math.floor(tokens), tonumber(ARGV[2]))\n" +
+            "  tokens = tokens - result\n" +
+            "else\n" +
+            "  result = -math.ceil((permits - tokens) * 1000 / rate)\n" +
+            "end\n" +
+            "redis.call('HMSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(ts))\n" +
+            "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity * 1000 / rate) + 1000)\n" +
+            "return result");
+
+    /**
+     * 预先载入锁的脚本(失败时只记录日志, 执行时回退为EVAL)
+     */
+    public static void preload(IJedis jedis) {
+        try {
+            jedis.callOriginalJedis(new Callback<Void>() {
+                @Override
+                public Void call(Jedis jedis) {
+                    ACQUIRE.load(jedis);
+                    REENTRANT_ACQUIRE.load(jedis);
+                    RELEASE.load(jedis);
+                    FAIR_ACQUIRE.load(jedis);
+                    FAIR_CANCEL.load(jedis);
+                    RW_ACQUIRE.load(jedis);
+                    RW_RELEASE.load(jedis);
+                    SEMAPHORE_ACQUIRE.load(jedis);
+                    SEMAPHORE_RELEASE.load(jedis);
+                    RATE_LIMIT_ACQUIRE.load(jedis);
+                    return null;
+                }
+            }, WRITE);
+        } catch (Exception e) {
+            log.warn("Preload lock scripts of service [{}] failure, cause by:{}", jedis.baseConfig().getServerName(), e.getMessage());
+        }
+    }
+
+    /**
+     * 释放锁, 完全释放时通知等待该锁的线程
+     *
+     * @param replacement 重入计数减一后的值, 为空时删除锁
+     * @return 是否释放成功
+     */
+    static boolean release(Jedis jedis, String lockKey, String expected, String replacement) {
+        return eval(jedis, RELEASE, lockKey, expected, replacement, LockNotifier.CHANNEL) == 1;
+    }
+
+    static long eval(Jedis jedis, LuaScript script, String key, String... args) {
+        return eval(jedis, script, Collections.singletonList(key), args);
+    }
+
+    static long eval(Jedis jedis, LuaScript script, List<String> keys, String... args) {
+        return (Long) script.eval(jedis, encode(keys), encode(Arrays.asList(args)));
+    }
+
+    private static List<byte[]> encode(List<String> values) {
+        List<byte[]> encoded = new ArrayList<>(values.size());
+        for (String value : values) {
+            encoded.add(SafeEncoder.encode(value));
+        }
+        return encoded;
+    }
+
+    /**
+     * @param lockTimeout 锁的超时时间(秒), -1为永不过期
+     */
+    static String ttlMillis(long lockTimeout) {
+        return String.valueOf(lockTimeout > 0 ? lockTimeout * 1000L : 0L);
+    }
+}
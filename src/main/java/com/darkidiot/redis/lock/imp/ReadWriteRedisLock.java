@@ -0,0 +1,176 @@
+package com.darkidiot.redis.lock.imp;
+
+import com.darkidiot.redis.config.IPorServerConfig;
+import com.darkidiot.redis.exception.RedisException;
+import com.darkidiot.redis.exception.TimeOutException;
+import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.lock.Lock;
+import com.darkidiot.redis.lock.ReadWriteLock;
+import com.darkidiot.redis.util.HashTags;
+import com.darkidiot.redis.util.StringUtil;
+import com.darkidiot.redis.util.UUIDUtil;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.darkidiot.redis.common.JedisType.WRITE;
+import static com.darkidiot.redis.util.CommonUtil.Callback;
+
+/**
+ * 分布式读写锁的实现: 读锁共享, 写锁独占, 加锁与释放均为一次往返的Lua脚本
+ * 阻塞式<br/>
+ * <br/>
+ * <b>Notice:<b/>
+ * <ul>
+ * <li>按线程可重入: 读锁、写锁分别计数, 同一线程加锁几次就需要释放几次.</li>
+ * <li>支持降级: 持有写锁的线程可以再获取读锁, 释放写锁后继续持有读锁; 不支持升级, 持有读锁时获取写锁抛出{@link RedisException}.</li>
+ * <li>租约: 每个线程的租约为最近一次加锁时的lockTimeout, 过期的持有者在下次加锁时被清理(使用客户端时间, 各节点之间的时钟偏差需远小于lockTimeout).</li>
+ * <li>读锁持续被持有时写锁可能一直等待, 适用于读多写少且读锁持有时间较短的场景.</li>
+ * <li>超过acquireTimeout仍未获得锁时抛出{@link TimeOutException}.</li>
+ * <li>进程关闭时不自动释放(其他节点可能仍持有读锁), 依赖租约过期.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+public class ReadWriteRedisLock implements ReadWriteLock {
+
+    private static final String READ_MODE = "read";
+    private static final String WRITE_MODE = "write";
+    /**
+     * 本JVM的随机标识: 容器内MAC可能为空、PID可能都是1, 仅凭IPorServerConfig.getThreadId()不同节点的持有者可能相同
+     */
+    private static final String JVM_ID = UUIDUtil.generateShortUUID();
+
+    private final IJedis jedis;
+    private final String name;
+    private final String lockKey;
+    private final List<String> keys;
+
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    public ReadWriteRedisLock(IJedis jedis, String name) throws RedisException {
+        if (jedis == null) {
+            throw new RedisException("Initialize ReadWriteRedisLock failure, And jedis can not be null.");
+        }
+        if (StringUtil.isEmpty(name)) {
+            throw new RedisException("Initialize ReadWriteRedisLock failure, And name can not be empty.");
+        }
+        this.jedis = jedis;
+        this.name = name;
+        this.lockKey = Constants.createReadWriteKey(HashTags.tag(name, jedis));
+        this.keys = Arrays.asList(lockKey, lockKey + ":leases");
+        this.readLock = new ModeLock(READ_MODE);
+        this.writeLock = new ModeLock(WRITE_MODE);
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    @Override
+    public String getName() throws RedisException {
+        return name;
+    }
+
+    /**
+     * @return 当前线程作为持有者的标识
+     */
+    private static String owner() {
+        return JVM_ID + ":" + IPorServerConfig.getThreadId();
+    }
+
+    /**
+     * 读锁或写锁, 持有者为当前线程
+     */
+    private final class ModeLock implements Lock {
+
+        private final String mode;
+
+        private ModeLock(String mode) {
+            this.mode = mode;
+        }
+
+        @Override
+        public void lock(final long acquireTimeout, final long lockTimeout) throws RedisException {
+            if (acquireTimeout < 0 || lockTimeout < -1) {
+                throw new RedisException("acquireTimeout can not be negative Or LockTimeout can not be less than -1.");
+            }
+            final String owner = owner();
+            final long end = System.currentTimeMillis() + acquireTimeout;
+            Callback<Boolean> acquire = new Callback<Boolean>() {
+                @Override
+                public Boolean call(Jedis jedis) {
+                    long now = System.currentTimeMillis();
+                    String deadline = lockTimeout > 0 ? String.valueOf(now + lockTimeout * 1000L) : "+inf";
+                    long count = LockScripts.eval(jedis, LockScripts.RW_ACQUIRE, keys, owner, mode, String.valueOf(now), deadline);
+                    if (count < 0) {
+                        throw new RedisException("Acquire the write lock of ReadWriteRedisLock [" + name + "] error, upgrade from the read lock is not supported.");
+                    }
+                    return count > 0;
+                }
+            };
+            try (LockNotifier.Waiter waiter = LockNotifier.waiter(jedis, lockKey)) {
+                for (int i = 2; !jedis.callOriginalJedis(lockKey, acquire, WRITE); i++) {
+                    long remaining = end - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new TimeOutException("Acquire the " + mode + " lock of ReadWriteRedisLock [" + name + "] time out after " + acquireTimeout + "ms.");
+                    }
+                    try {
+                        waiter.await(Math.min(waiter.waitMillis(i), remaining));
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new RedisException("Acquire the " + mode + " lock of ReadWriteRedisLock [" + name + "] was interrupted.", ie);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void lock() throws RedisException {
+            lock(Constants.defaultAcquireLockTimeout, Constants.defaultLockTimeout);
+        }
+
+        @Override
+        public boolean unlock() throws RedisException {
+            final String owner = owner();
+            return jedis.callOriginalJedis(lockKey, new Callback<Boolean>() {
+                @Override
+                public Boolean call(Jedis jedis) {
+                    long end = System.currentTimeMillis() + Constants.defaultReleaseLockTimeout;
+                    if (LockScripts.eval(jedis, LockScripts.RW_RELEASE, keys, owner, mode, LockNotifier.CHANNEL) == 1) {
+                        if (System.currentTimeMillis() > end) {
+                            log.warn("Release ReadWriteRedisLock time out. spend[ {}ms ]", System.currentTimeMillis() - end);
+                        }
+                        return true;
+                    }
+                    throw new RedisException("Release the " + mode + " lock of ReadWriteRedisLock error, the lock is not held by current thread or the lease was expired.");
+                }
+            }, WRITE);
+        }
+
+        @Override
+        public boolean isLocking() throws RedisException {
+            long end = System.currentTimeMillis() + Constants.defaultCheckLockTimeout;
+            boolean locking = jedis.hexists(lockKey, owner() + ":" + mode);
+            if (System.currentTimeMillis() > end) {
+                log.warn("Checking ReadWriteRedisLock time out. spend[ {}ms ]", System.currentTimeMillis() - end);
+            }
+            return locking;
+        }
+
+        @Override
+        public String getName() throws RedisException {
+            return name;
+        }
+    }
+}
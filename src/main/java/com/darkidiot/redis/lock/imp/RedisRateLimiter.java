@@ -0,0 +1,145 @@
+package com.darkidiot.redis.lock.imp;
+
+import com.darkidiot.redis.exception.RedisException;
+import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.util.StringUtil;
+import redis.clients.jedis.Jedis;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.darkidiot.redis.common.JedisType.WRITE;
+import static com.darkidiot.redis.util.CommonUtil.Callback;
+
+/**
+ * 分布式限流器: 所有节点共享一个令牌桶, 每次获取为一次往返的Lua脚本(EVALSHA)
+ * <br/>
+ * <b>Notice:<b/>
+ * <ul>
+ * <li>令牌按permitsPerSecond的速率补充, 桶容量capacity即允许的突发量, 一次获取的令牌数不能超过capacity.</li>
+ * <li>本地预取: prefetch大于0时从redis获取令牌时顺带把本地令牌补足到prefetch个(桶中令牌不足时只取本次需要的), 之后的获取直接从本地扣除.
+ * 预取的令牌已从桶中扣除, 总速率不会超过permitsPerSecond, 但本地令牌可能集中使用或闲置, prefetch需远小于permitsPerSecond.</li>
+ * <li>补充令牌使用客户端时间, 各节点之间的时钟偏差会造成少量误差(时间回退时不补充).</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+public class RedisRateLimiter {
+
+    private final IJedis jedis;
+    private final String name;
+    private final String bucketKey;
+    private final double permitsPerSecond;
+    private final long capacity;
+    private final int prefetch;
+
+    /**
+     * 本地预取的令牌数, 受this保护
+     */
+    private int localPermits;
+
+    /**
+     * @param capacity 令牌桶容量(允许的突发量)
+     * @param prefetch 本地最多预取的令牌数, 0为不预取
+     */
+    public RedisRateLimiter(IJedis jedis, String name, double permitsPerSecond, long capacity, int prefetch) throws RedisException {
+        if (jedis == null) {
+            throw new RedisException("Initialize RedisRateLimiter failure, And jedis can not be null.");
+        }
+        if (StringUtil.isEmpty(name)) {
+            throw new RedisException("Initialize RedisRateLimiter failure, And name can not be empty.");
+        }
+        if (permitsPerSecond <= 0 || capacity <= 0 || prefetch < 0) {
+            throw new RedisException("Initialize RedisRateLimiter failure, permitsPerSecond and capacity must be positive and prefetch can not be negative.");
+        }
+        this.jedis = jedis;
+        this.name = name;
+        this.bucketKey = Constants.createRateLimiterKey(name);
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = capacity;
+        this.prefetch = prefetch;
+    }
+
+    public boolean tryAcquire() throws RedisException {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 获取permits个令牌, 不等待
+     *
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(int permits) throws RedisException {
+        return acquire(permits) == 0;
+    }
+
+    /**
+     * 获取permits个令牌, 令牌不足时等待补充
+     *
+     * @return 在timeout内令牌无法补充足够时立即返回false
+     */
+    public boolean tryAcquire(int permits, long timeout, TimeUnit unit) throws RedisException {
+        long end = System.currentTimeMillis() + unit.toMillis(timeout);
+        for (long waitMillis = acquire(permits); waitMillis > 0; waitMillis = acquire(permits)) {
+            if (System.currentTimeMillis() + waitMillis > end) {
+                return false;
+            }
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new RedisException("Acquire RedisRateLimiter [" + name + "] was interrupted.", ie);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 本地预取的令牌数
+     */
+    public synchronized int localPermits() {
+        return localPermits;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 0为获取成功, 否则为令牌足够还需等待的毫秒数
+     */
+    private long acquire(int permits) {
+        if (permits <= 0 || permits > capacity) {
+            throw new RedisException("permits of RedisRateLimiter [" + name + "] must be between 1 and " + capacity + ".");
+        }
+        int refill;
+        synchronized (this) {
+            if (localPermits >= permits) {
+                localPermits -= permits;
+                return 0;
+            }
+            refill = prefetch - localPermits;
+        }
+        // 顺带补足本地的令牌, 桶中令牌不足时只获取本次需要的
+        long granted = acquireRemote(permits, Math.min(permits + Math.max(refill, 0), capacity));
+        if (granted < 0) {
+            return -granted;
+        }
+        synchronized (this) {
+            localPermits += granted - permits;
+        }
+        return 0;
+    }
+
+    /**
+     * @return 获取的令牌数, 负数为令牌足够还需等待的毫秒数
+     */
+    private long acquireRemote(final int permits, final long maxPermits) {
+        return jedis.callOriginalJedis(bucketKey, new Callback<Long>() {
+            @Override
+            public Long call(Jedis jedis) {
+                return LockScripts.eval(jedis, LockScripts.RATE_LIMIT_ACQUIRE, bucketKey, String.valueOf(permits), String.valueOf(maxPermits),
+                        String.valueOf(permitsPerSecond), String.valueOf(capacity), String.valueOf(System.currentTimeMillis()));
+            }
+        }, WRITE);
+    }
+}
@@ -0,0 +1,212 @@
+package com.darkidiot.redis.lock.imp;
+
+import com.darkidiot.redis.exception.RedisException;
+import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.util.HashTags;
+import com.darkidiot.redis.util.StringUtil;
+import com.darkidiot.redis.util.UUIDUtil;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.darkidiot.redis.common.JedisType.WRITE;
+import static com.darkidiot.redis.util.CommonUtil.Callback;
+
+/**
+ * 分布式信号量: 所有节点共享totalPermits个许可, 获取与归还各一次往返的Lua脚本
+ * <br/>
+ * <b>Notice:<b/>
+ * <ul>
+ * <li>租约: 每个信号量实例的许可计入同一个租约, 每次从redis获取许可时重置租约期限; 实例所在进程crash后, 其持有的许可在租约到期后自动归还.
+ * 持有许可的时间不能超过leaseTimeout, 否则许可会被其他节点获取.</li>
+ * <li>本地预取: prefetch大于0时从redis获取许可时顺带把本地空闲许可补足到prefetch个, 之后的获取直接从本地扣除; 归还时本地最多保留prefetch个空闲许可, 其余归还redis.
+ * 本地空闲的许可其他节点无法使用, prefetch需远小于totalPermits.</li>
+ * <li>归还许可时通知其他节点等待的线程(与锁共用{@link LockNotifier#CHANNEL}).</li>
+ * <li>租约期限使用客户端时间, 各节点之间的时钟偏差需远小于leaseTimeout.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+public class RedisSemaphore {
+
+    private final IJedis jedis;
+    private final String name;
+    private final String semaphoreKey;
+    private final List<String> keys;
+    private final int totalPermits;
+    /**
+     * 租约时长(毫秒), 不大于0为永不过期
+     */
+    private final long leaseMillis;
+    private final int prefetch;
+    /**
+     * 本实例在redis中的租约
+     */
+    private final String lease = UUIDUtil.generateShortUUID();
+
+    /**
+     * 本地预取的空闲许可数, 受this保护
+     */
+    private int localPermits;
+    /**
+     * 本地许可随租约失效的时间, 受this保护
+     */
+    private long localDeadline;
+
+    /**
+     * @param leaseTimeout 租约时长(秒), -1为永不过期
+     * @param prefetch     本地最多预取的空闲许可数, 0为不预取
+     */
+    public RedisSemaphore(IJedis jedis, String name, int totalPermits, long leaseTimeout, int prefetch) throws RedisException {
+        if (jedis == null) {
+            throw new RedisException("Initialize RedisSemaphore failure, And jedis can not be null.");
+        }
+        if (StringUtil.isEmpty(name)) {
+            throw new RedisException("Initialize RedisSemaphore failure, And name can not be empty.");
+        }
+        if (totalPermits <= 0 || leaseTimeout < -1 || leaseTimeout == 0 || prefetch < 0) {
+            throw new RedisException("Initialize RedisSemaphore failure, totalPermits must be positive, leaseTimeout must be positive Or -1 and prefetch can not be negative.");
+        }
+        this.jedis = jedis;
+        this.name = name;
+        this.semaphoreKey = Constants.createSemaphoreKey(HashTags.tag(name, jedis));
+        this.keys = Arrays.asList(semaphoreKey, semaphoreKey + ":leases");
+        this.totalPermits = totalPermits;
+        this.leaseMillis = leaseTimeout > 0 ? leaseTimeout * 1000L : 0L;
+        this.prefetch = prefetch;
+    }
+
+    public boolean tryAcquire() throws RedisException {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 获取permits个许可, 不等待
+     *
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(int permits) throws RedisException {
+        checkPermits(permits);
+        int refill;
+        synchronized (this) {
+            if (System.currentTimeMillis() >= localDeadline) {
+                localPermits = 0;
+            }
+            if (localPermits >= permits) {
+                localPermits -= permits;
+                return true;
+            }
+            refill = prefetch - localPermits;
+        }
+        // 顺带补足本地的空闲许可, 剩余许可不足时只获取本次需要的
+        return acquireRemote(permits, permits + Math.max(refill, 0));
+    }
+
+    /**
+     * 获取permits个许可, 剩余许可不足时等待其他节点归还
+     *
+     * @return 超过timeout仍未获取到时返回false
+     */
+    public boolean tryAcquire(int permits, long timeout, TimeUnit unit) throws RedisException {
+        if (tryAcquire(permits)) {
+            return true;
+        }
+        long end = System.currentTimeMillis() + unit.toMillis(timeout);
+        try (LockNotifier.Waiter waiter = LockNotifier.waiter(jedis, semaphoreKey)) {
+            for (int i = 2; !tryAcquire(permits); i++) {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    waiter.await(Math.min(waiter.waitMillis(i), remaining));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RedisException("Acquire RedisSemaphore [" + name + "] was interrupted.", ie);
+                }
+            }
+        }
+        return true;
+    }
+
+    public void release() throws RedisException {
+        release(1);
+    }
+
+    /**
+     * 归还permits个许可: 本地最多保留prefetch个空闲许可, 其余归还redis
+     */
+    public void release(int permits) throws RedisException {
+        checkPermits(permits);
+        int excess = permits;
+        synchronized (this) {
+            if (prefetch > 0 && System.currentTimeMillis() < localDeadline) {
+                int kept = Math.min(permits, prefetch - localPermits);
+                if (kept > 0) {
+                    localPermits += kept;
+                    excess -= kept;
+                }
+            }
+        }
+        if (excess > 0) {
+            releaseRemote(excess);
+        }
+    }
+
+    /**
+     * @return 本地空闲的许可数
+     */
+    public synchronized int localPermits() {
+        return System.currentTimeMillis() < localDeadline ? localPermits : 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 从redis获取permits到maxPermits个许可, 其中permits个交给调用方, 其余放入本地
+     */
+    private boolean acquireRemote(final int permits, final int maxPermits) {
+        final long now = System.currentTimeMillis();
+        long granted = jedis.callOriginalJedis(semaphoreKey, new Callback<Long>() {
+            @Override
+            public Long call(Jedis jedis) {
+                String deadline = leaseMillis > 0 ? String.valueOf(now + leaseMillis) : "+inf";
+                return LockScripts.eval(jedis, LockScripts.SEMAPHORE_ACQUIRE, keys, lease, String.valueOf(permits),
+                        String.valueOf(maxPermits), String.valueOf(totalPermits), String.valueOf(now), deadline);
+            }
+        }, WRITE);
+        if (granted == 0) {
+            return false;
+        }
+        synchronized (this) {
+            // 租约已重置, 本地原有的许可随之延期
+            localDeadline = leaseMillis > 0 ? now + leaseMillis : Long.MAX_VALUE;
+            localPermits += granted - permits;
+        }
+        return true;
+    }
+
+    private void releaseRemote(final int permits) {
+        boolean released = jedis.callOriginalJedis(semaphoreKey, new Callback<Boolean>() {
+            @Override
+            public Boolean call(Jedis jedis) {
+                return LockScripts.eval(jedis, LockScripts.SEMAPHORE_RELEASE, keys, lease, String.valueOf(permits), LockNotifier.CHANNEL) == 1;
+            }
+        }, WRITE);
+        if (!released) {
+            log.warn("Release {} permits of RedisSemaphore [{}] ignored, the lease was expired.", permits, name);
+        }
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0 || permits > totalPermits) {
+            throw new RedisException("permits of RedisSemaphore [" + name + "] must be between 1 and " + totalPermits + ".");
+        }
+    }
+}
@@ -5,15 +5,10 @@ import com.darkidiot.redis.exception.RedisException;
 import com.darkidiot.redis.jedis.IJedis;
 import com.darkidiot.redis.lock.Lock;
 import com.darkidiot.redis.lock.RedisLock;
-import com.darkidiot.redis.util.FibonacciUtil;
 import com.darkidiot.redis.util.StringUtil;
 import lombok.extern.slf4j.Slf4j;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.Transaction;
 
-import java.util.Random;
-
-import static com.darkidiot.redis.common.JedisType.READ;
 import static com.darkidiot.redis.common.JedisType.WRITE;
 import static com.darkidiot.redis.lock.imp.Constants.defaultAcquireLockTimeout;
 import static com.darkidiot.redis.lock.imp.Constants.defaultLockTimeout;
@@ -25,6 +20,8 @@ import static com.darkidiot.redis.util.CommonUtil.Callback;
  * <b>Notice:<b/>
  * <ul>
  * <li>可重入锁(重入锁必须先于外部锁释放)</li>
+ * <li>加锁(含重入计数)与释放均为一次往返的Lua脚本, 原子执行.</li>
+ * </ul>
  * @author darkidiot
  */
 @Slf4j
@@ -53,47 +50,34 @@ public class RigorousRedisLock implements Lock {
         }
         final String value = IPorServerConfig.getThreadId();
         final String lockKey = Constants.createKey(this.name);
-        final int lockExpire = (int) (lockTimeout);
+        final String ttlMillis = LockScripts.ttlMillis(lockTimeout);
         final long end = System.currentTimeMillis() + acquireTimeout;
-        jedis.callOriginalJedis(new Callback<String>() {
+        Callback<Boolean> acquire = new Callback<Boolean>() {
             @Override
-            public String call(Jedis jedis) {
-                int i = 1;
-                boolean flag = false;
-                boolean innerJudge = true;
-                String lockValue = value;
-                while (true) {
-                    jedis.watch(lockKey);
-                    // 开启watch之后，如果key的值被修改，则事务失败，exec方法返回null
-                    String retStr = jedis.get(lockKey);
-                    // 多个进程同时获取到未上锁状态时,进入事务上锁,第一个事务执行成功之后所有操作都会被取消并进入等待.
-                    if (retStr == null || retStr.equals(Constants.LOCK_UNLOCK) || flag) {
-                        Transaction t = jedis.multi();
-                        t.setex(lockKey, lockExpire, lockValue);
-                        if (t.exec() != null) {
-                            identifier = lockValue;
-                            return identifier;
-                        }
-                    }
-                    jedis.unwatch();
-                    if (innerJudge && retStr != null && retStr.contains(value)) {
-                        lockValue = Constants.autoOverlayValue(retStr);
-                        flag = true;
-                    } else if (retStr != null){
-                        innerJudge = false;
-                    }
-                    try {
-                        long sleepMillis = Constants.defaultWaitIntervalInMSUnit * new Random().nextInt(FibonacciUtil.circulationFibonacciNormal(++i > 15 ? 15 : i));
-                        if (System.currentTimeMillis() > end) {
-                            log.warn("Acquire RigorousRedisLock time out. spend[ {}ms ] and await[ {}ms]", System.currentTimeMillis() - end, sleepMillis);
-                        }
-                        Thread.sleep(sleepMillis);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+            public Boolean call(Jedis jedis) {
+                // 未加锁时加锁, 已被当前线程持有时重入次数加一, 被其他线程持有时返回0
+                long count = LockScripts.eval(jedis, LockScripts.REENTRANT_ACQUIRE, lockKey, value, Constants.LOCK_UNLOCK, ttlMillis);
+                if (count == 0) {
+                    return false;
+                }
+                identifier = Constants.reentrantValue(value, count);
+                return true;
+            }
+        };
+        // 每次尝试单独借用连接, 等待锁释放的通知期间不占用连接
+        try (LockNotifier.Waiter waiter = LockNotifier.waiter(jedis, lockKey)) {
+            for (int i = 2; !jedis.callOriginalJedis(lockKey, acquire, WRITE); i++) {
+                try {
+                    long waitMillis = waiter.waitMillis(i);
+                    if (System.currentTimeMillis() > end) {
+                        log.warn("Acquire RigorousRedisLock time out. spend[ {}ms ] and await[ {}ms]", System.currentTimeMillis() - end, waitMillis);
                     }
+                    waiter.await(waitMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
                 }
             }
-        }, WRITE);
+        }
         RedisLock.overlayLockCount(jedis,lockKey);
     }
 
@@ -109,11 +93,15 @@ public class RigorousRedisLock implements Lock {
         }
         final String lockKey = Constants.createKey(this.name);
         RedisLock.DepriveLockCount(jedis,lockKey);
-        return jedis.callOriginalJedis(new Callback<Boolean>() {
+        return jedis.callOriginalJedis(lockKey, new Callback<Boolean>() {
             @Override
             public Boolean call(Jedis jedis) {
                 long end = System.currentTimeMillis() + Constants.defaultReleaseLockTimeout;
-                if (identifier.equals(jedis.getSet(lockKey, Constants.autoDepriveValue(identifier)))) {
+                String deprived = Constants.autoDepriveValue(identifier);
+                String replacement = Constants.LOCK_UNLOCK.equals(deprived) ? "" : deprived;
+                if (LockScripts.release(jedis, lockKey, identifier, replacement)) {
+                    // 同一个锁实例重入后依次释放
+                    identifier = replacement;
                     if (System.currentTimeMillis() > end) {
                         log.warn("Release RigorousRedisLock time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                     }
@@ -121,7 +109,7 @@ public class RigorousRedisLock implements Lock {
                 }
                 throw new RedisException("Release the RigorousRedisLock error, the lock was robbed.");
             }
-        }, READ);
+        }, WRITE);
     }
 
     @Override
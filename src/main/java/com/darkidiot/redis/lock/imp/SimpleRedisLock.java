@@ -3,26 +3,22 @@ package com.darkidiot.redis.lock.imp;
 import com.darkidiot.redis.exception.RedisException;
 import com.darkidiot.redis.jedis.IJedis;
 import com.darkidiot.redis.lock.Lock;
-import com.darkidiot.redis.util.FibonacciUtil;
 import com.darkidiot.redis.util.StringUtil;
 import com.darkidiot.redis.util.UUIDUtil;
 import lombok.extern.slf4j.Slf4j;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.Transaction;
 
-import java.util.Random;
-
-import static com.darkidiot.redis.common.JedisType.READ;
 import static com.darkidiot.redis.common.JedisType.WRITE;
 import static com.darkidiot.redis.util.CommonUtil.Callback;
 
 /**
- * 简单的分布式锁的实现,效率较高(极端情况下，会出现多个实例同时获取到锁的 情况)
+ * 简单的分布式锁的实现,效率较高(SET NX PX一次往返加锁, Lua脚本比较后删除释放)
  * 阻塞式<br/>
  * <br/>
  * <b>Notice:<b/>
  * <ul>
  * <li>不可重入锁</li>
+ * <li>持有锁的时间超过锁的超时时间后锁自动释放, 此时其他实例可以获取到锁, 原持有者释放时抛出异常.</li>
  * </ul>
  * @author darkidiot
  */
@@ -56,48 +52,32 @@ public class SimpleRedisLock implements Lock {
         final int lockExpire = (int) (lockTimeout);
         final long end = System.currentTimeMillis() + acquireTimeout;
 
-        jedis.callOriginalJedis(new Callback<String>() {
+        Callback<Boolean> acquire = new Callback<Boolean>() {
             @Override
-            public String call(Jedis jedis) {
-                int i = 1;
-                while (true) {
-                    // 将rediskey的最大生存时刻存到redis里，过了这个时刻该锁会被自动释放
-                    if (jedis.setnx(lockKey, value) == 1) {
-                        //判断是否被其他实例拿到并改变value
-                        String lockValue = jedis.get(lockKey);
-                        if (lockValue != null && lockValue.equals(value)) {
-                            //进程crash在这里，然后再继续执行会导致多个实例同时获取 到锁的混乱情况
-                            jedis.expire(lockKey, lockExpire);
-                            identifier = value;
-                            break;
-                        }
-                    }
-
-                    /** ttl为 -1 表示key上没有设置生存时间（key是不会不存在的，因为前面setnx自动创建）
-                     *  如果出现这种状况,那就是进程的某个实例setnx成功后 crash 导致紧跟着的expire没有被调用,这时可以直接设置expire并把锁纳为己用
-                     */
-                    if (jedis.ttl(lockKey) == -1) {
-                        Transaction multi = jedis.multi();
-                        multi.expire(lockKey, lockExpire);
-                        multi.set(lockKey, value);   //将锁占为己用，并改变value;
-                        multi.exec();
-                        identifier = value;
-                        break;
-                    }
-
-                    try {
-                        long sleepMillis = Constants.defaultWaitIntervalInMSUnit * new Random().nextInt(FibonacciUtil.circulationFibonacciNormal(++i > 15 ? 15 : i));
-                        if (System.currentTimeMillis() > end) {
-                            log.warn("Acquire SimpleRedisLock time out. spend[ {}ms ] and await[ {}ms]", System.currentTimeMillis() - end, sleepMillis);
-                        }
-                        Thread.sleep(sleepMillis);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+            public Boolean call(Jedis jedis) {
+                // SET NX PX一次完成加锁与设置超时时间, 不存在加锁后未设置超时时间的窗口
+                String ret = lockExpire > 0 ? jedis.set(lockKey, value, "NX", "PX", lockExpire * 1000L) : jedis.set(lockKey, value, "NX");
+                if (ret == null) {
+                    return false;
+                }
+                identifier = value;
+                return true;
+            }
+        };
+        // 每次尝试单独借用连接, 等待锁释放的通知期间不占用连接
+        try (LockNotifier.Waiter waiter = LockNotifier.waiter(jedis, lockKey)) {
+            for (int i = 2; !jedis.callOriginalJedis(lockKey, acquire, WRITE); i++) {
+                try {
+                    long waitMillis = waiter.waitMillis(i);
+                    if (System.currentTimeMillis() > end) {
+                        log.warn("Acquire SimpleRedisLock time out. spend[ {}ms ] and await[ {}ms]", System.currentTimeMillis() - end, waitMillis);
                     }
+                    waiter.await(waitMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
                 }
-                return identifier;
             }
-        }, WRITE);
+        }
     }
 
     @Override
@@ -107,12 +87,10 @@ public class SimpleRedisLock implements Lock {
         }
         final String lockKey = Constants.createKey(this.name);
         final long end = System.currentTimeMillis() + Constants.defaultReleaseLockTimeout;
-        return jedis.callOriginalJedis(new Callback<Boolean>() {
+        return jedis.callOriginalJedis(lockKey, new Callback<Boolean>() {
             @Override
             public Boolean call(Jedis jedis) {
-                String o1 = jedis.get(lockKey);
-                if (identifier.equals(o1)) {
-                    jedis.del(lockKey);
+                if (LockScripts.release(jedis, lockKey, identifier, "")) {
                     if (System.currentTimeMillis() > end) {
                         log.warn("Release SimpleRedisLock time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                     }
@@ -120,7 +98,7 @@ public class SimpleRedisLock implements Lock {
                 }
                 throw new RedisException("Release the SimpleRedisLock error, the lock was robbed.");
             }
-        }, READ);
+        }, WRITE);
     }
 
     @Override
@@ -5,26 +5,20 @@ import com.darkidiot.redis.exception.RedisException;
 import com.darkidiot.redis.jedis.IJedis;
 import com.darkidiot.redis.lock.Lock;
 import com.darkidiot.redis.lock.RedisLock;
-import com.darkidiot.redis.util.FibonacciUtil;
 import com.darkidiot.redis.util.StringUtil;
 import lombok.extern.slf4j.Slf4j;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.Transaction;
 
-import java.util.Random;
-
-import static com.darkidiot.redis.common.JedisType.READ;
 import static com.darkidiot.redis.common.JedisType.WRITE;
 import static com.darkidiot.redis.util.CommonUtil.Callback;
 
 /**
- * 严格的分布式锁的实现(事务锁定)<br>
+ * 严格的分布式锁的实现(Lua脚本原子加锁, 比较后删除释放, 各一次往返)<br>
  * <br>
- * <b>Notice(可能会出现2种极端情况:):<b/>
+ * <b>Notice:<b/>
  * <ul>
- * <li>不可重入锁</li>
- * <li>锁已过过期时效但是并未失效.</li>
- * <li>成功解锁并返回false,加锁期间其他进程进入并修改了锁信息并再次延长锁过期时间,但并未获得锁.</li>
+ * <li>不可重入锁(锁的值为线程标识)</li>
+ * <li>持有锁的时间超过锁的超时时间后锁自动释放, 此时其他实例可以获取到锁, 原持有者释放时抛出异常.</li>
  * </ul>
  *
  * @author darkidiot
@@ -55,37 +49,32 @@ public class StrictRedisLock implements Lock {
         }
         final String lockKey = Constants.createKey(this.name);
         final String value = IPorServerConfig.getThreadId();
-        final int lockExpire = (int) (lockTimeout);
+        final String ttlMillis = LockScripts.ttlMillis(lockTimeout);
         final long end = System.currentTimeMillis() + acquireTimeout;
-        jedis.callOriginalJedis(new Callback<String>() {
+        Callback<Boolean> acquire = new Callback<Boolean>() {
             @Override
-            public String call(Jedis jedis) {
-                int i = 1;
-                while (true) {
-                    String retStr = jedis.get(lockKey);
-                    if (retStr == null || retStr.equals(Constants.LOCK_UNLOCK)) {
-                        Transaction t = jedis.multi();
-                        t.getSet(lockKey, value);
-                        t.expire(lockKey, lockExpire);
-                        String ret = (String) t.exec().get(0);
-                        if (ret == null || ret.equals(Constants.LOCK_UNLOCK)) {
-                            identifier = value;
-                            return identifier;
-                        }
-                    }
-
-                    try {
-                        long sleepMillis = Constants.defaultWaitIntervalInMSUnit * new Random().nextInt(FibonacciUtil.circulationFibonacciNormal(++i > 15 ? 15 : i));
-                        if (System.currentTimeMillis() > end) {
-                            log.warn("Acquire StrictRedisLock time out. spend[ {}ms ] and await[ {}ms]", System.currentTimeMillis() - end, sleepMillis);
-                        }
-                        Thread.sleep(sleepMillis);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+            public Boolean call(Jedis jedis) {
+                if (LockScripts.eval(jedis, LockScripts.ACQUIRE, lockKey, value, Constants.LOCK_UNLOCK, ttlMillis) != 1) {
+                    return false;
+                }
+                identifier = value;
+                return true;
+            }
+        };
+        // 每次尝试单独借用连接, 等待锁释放的通知期间不占用连接
+        try (LockNotifier.Waiter waiter = LockNotifier.waiter(jedis, lockKey)) {
+            for (int i = 2; !jedis.callOriginalJedis(lockKey, acquire, WRITE); i++) {
+                try {
+                    long waitMillis = waiter.waitMillis(i);
+                    if (System.currentTimeMillis() > end) {
+                        log.warn("Acquire StrictRedisLock time out. spend[ {}ms ] and await[ {}ms]", System.currentTimeMillis() - end, waitMillis);
                     }
+                    waiter.await(waitMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
                 }
             }
-        }, WRITE);
+        }
         RedisLock.overlayLockCount(jedis,lockKey);
     }
 
@@ -101,11 +90,11 @@ public class StrictRedisLock implements Lock {
         }
         final String lockKey = Constants.createKey(this.name);
         RedisLock.DepriveLockCount(jedis,lockKey);
-        return jedis.callOriginalJedis(new Callback<Boolean>() {
+        return jedis.callOriginalJedis(lockKey, new Callback<Boolean>() {
             @Override
             public Boolean call(Jedis jedis) {
                 long end = System.currentTimeMillis() + Constants.defaultReleaseLockTimeout;
-                if (identifier.equals(jedis.getSet(lockKey, Constants.LOCK_UNLOCK))) {
+                if (LockScripts.release(jedis, lockKey, identifier, "")) {
                     if (System.currentTimeMillis() > end) {
                         log.warn("Release StrictRedisLock time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                     }
@@ -113,7 +102,7 @@ public class StrictRedisLock implements Lock {
                 }
                 throw new RedisException("Release the StrictRedisLock error, the lock was robbed.");
             }
-        }, READ);
+        }, WRITE);
     }
 
     @Override
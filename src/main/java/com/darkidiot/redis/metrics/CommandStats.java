@@ -0,0 +1,32 @@
+package com.darkidiot.redis.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 单个命令的运行指标快照
+ *
+ * @author darkidiot
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class CommandStats {
+    /**
+     * 命令名称: IJedis的方法名, 或callOriginalJedis回调所在的类名.方法名(如RedisMap.read)
+     */
+    private final String command;
+    /**
+     * 失败(抛出异常)的次数
+     */
+    private final long errors;
+    /**
+     * 编码后的key/value字节数(仅RedisMap读写)
+     */
+    private final long payloadBytes;
+    /**
+     * 执行延迟(不含从连接池借用连接的等待)
+     */
+    private final HistogramSnapshot latency;
+}
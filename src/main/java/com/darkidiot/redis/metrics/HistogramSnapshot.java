@@ -0,0 +1,23 @@
+package com.darkidiot.redis.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 延迟直方图快照(单位: 纳秒)
+ *
+ * @author darkidiot
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class HistogramSnapshot {
+    private final long count;
+    private final double mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+}
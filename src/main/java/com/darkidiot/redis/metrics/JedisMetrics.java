@@ -0,0 +1,160 @@
+package com.darkidiot.redis.metrics;
+
+import com.darkidiot.redis.common.JedisType;
+import com.darkidiot.redis.config.RedisInitParam;
+import com.darkidiot.redis.util.CommonUtil.Callback;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.util.Pool;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 单个redis服务的指标记录器, 由{@link com.darkidiot.redis.jedis.imp.Jedis}在执行每个回调时使用
+ * <p>命令名称取自回调的定义位置: IJedis包装方法内的回调为方法名(如hget), 其他类传入callOriginalJedis的回调为"类名.方法名"(如RedisMap.read).</p>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+public final class JedisMetrics {
+
+    private static final String JEDIS_IMPL = "com.darkidiot.redis.jedis.imp.Jedis";
+
+    private static final ConcurrentMap<String, JedisMetrics> SERVICES = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<Class<?>, String> COMMAND_NAMES = new ConcurrentHashMap<>();
+
+    private final String service;
+
+    private JedisMetrics(String service) {
+        this.service = service;
+    }
+
+    /**
+     * @return 服务的指标记录器, 服务未开启metrics时返回null
+     */
+    public static JedisMetrics of(RedisInitParam initParam) {
+        if (initParam == null || !Boolean.TRUE.equals(initParam.getMetrics())) {
+            return null;
+        }
+        String service = initParam.getServerName();
+        JedisMetrics metrics = SERVICES.get(service);
+        if (metrics != null) {
+            return metrics;
+        }
+        JedisMetrics created = new JedisMetrics(service);
+        metrics = SERVICES.putIfAbsent(service, created);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (Boolean.TRUE.equals(initParam.getMetricsJmx())) {
+            registerMBean(service);
+        }
+        return created;
+    }
+
+    /**
+     * 从连接池借用连接并执行回调, 分别记录借用等待与执行耗时
+     */
+    public <T> T invoke(Callback<T> call, Pool<Jedis> pool, JedisType type) {
+        long start = System.nanoTime();
+        try (Jedis jedis = pool.getResource()) {
+            RedisMetrics.recordBorrow(service, type, System.nanoTime() - start);
+            return execute(call, jedis);
+        }
+    }
+
+    /**
+     * 包装回调, 记录每次执行的耗时(集群模式下由重定向引起的重试分别记录)
+     */
+    public <T> Callback<T> timed(final Callback<T> call) {
+        return new Callback<T>() {
+            @Override
+            public T call(Jedis jedis) {
+                return execute(call, jedis);
+            }
+        };
+    }
+
+    /**
+     * 记录不经过连接池执行的命令(自动pipeline)
+     */
+    public void command(String command, long nanos, boolean success) {
+        RedisMetrics.recordCommand(service, command, nanos, success);
+    }
+
+    /**
+     * @param bytes 编码后的key/value字节数
+     */
+    public void payload(String command, long bytes) {
+        RedisMetrics.recordPayload(service, command, bytes);
+    }
+
+    private <T> T execute(Callback<T> call, Jedis jedis) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.call(jedis);
+            success = true;
+            return result;
+        } finally {
+            String command = call instanceof NamedCallback ? ((NamedCallback<?>) call).command() : commandOf(call.getClass());
+            RedisMetrics.recordCommand(service, command, System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * @return 定义在IJedis包装方法内的回调为方法名, 其他为"类名.方法名"
+     */
+    public static String commandOf(Class<?> type) {
+        String command = COMMAND_NAMES.get(type);
+        if (command == null) {
+            Method method = type.getEnclosingMethod();
+            Class<?> owner = type.getEnclosingClass();
+            if (method == null || owner == null) {
+                command = type.getName();
+            } else if (JEDIS_IMPL.equals(owner.getName())) {
+                command = method.getName();
+            } else {
+                command = owner.getSimpleName() + "." + method.getName();
+            }
+            COMMAND_NAMES.put(type, command);
+        }
+        return command;
+    }
+
+    private static void registerMBean(final String service) {
+        try {
+            ObjectName name = new ObjectName("com.darkidiot.redis:type=RedisMetrics,service=" + ObjectName.quote(service));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new RedisMetricsMXBean() {
+                @Override
+                public Map<String, CommandStats> getCommands() {
+                    return RedisMetrics.commands(service);
+                }
+
+                @Override
+                public HistogramSnapshot getReadBorrow() {
+                    return RedisMetrics.borrow(service, JedisType.READ);
+                }
+
+                @Override
+                public HistogramSnapshot getWriteBorrow() {
+                    return RedisMetrics.borrow(service, JedisType.WRITE);
+                }
+
+                @Override
+                public void reset() {
+                    RedisMetrics.local().reset(service);
+                }
+            }, name);
+            log.info("RedisMetrics of service [{}] registered as MXBean {}.", service, name);
+        } catch (Exception e) {
+            log.warn("RedisMetrics of service [{}] register MXBean failure, cause by:{}", service, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.darkidiot.redis.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 纳秒延迟直方图(线程安全, 记录无锁)
+ * <ul>
+ * <li>与HdrHistogram相同的对数-线性分桶: 128纳秒以下每纳秒一个桶, 以上每个2的幂区间再均分为64个桶, 相对误差不超过1/64.</li>
+ * <li>可记录的最大值约137秒(2^37纳秒), 超出部分按最大值记录; 固定2048个桶, 内存占用约16KB.</li>
+ * <li>百分位按桶的上界返回(不超过记录到的最大值), 与HdrHistogram的highestEquivalentValue一致.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+public final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 128;
+    private static final int SUB_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int MAX_SHIFT = 30;
+    static final long MAX_VALUE = (1L << (MAX_SHIFT + SUB_BUCKET_BITS + 1)) - 1;
+    private static final int BUCKETS = LINEAR_BUCKETS + MAX_SHIFT * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0L), MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * 清空已记录的数据(与并发的record之间不保证原子性)
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        long maxValue = max.get();
+        double mean = total == 0 ? 0 : (double) sum.get() / total;
+        return new HistogramSnapshot(total, mean,
+                percentile(copy, total, 50, maxValue),
+                percentile(copy, total, 90, maxValue),
+                percentile(copy, total, 99, maxValue),
+                percentile(copy, total, 99.9, maxValue),
+                maxValue);
+    }
+
+    private static long percentile(long[] counts, long total, double percentile, long maxValue) {
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1L, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return (subBucket << shift) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,114 @@
+package com.darkidiot.redis.metrics;
+
+import com.darkidiot.redis.common.JedisType;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的指标存储, 提供快照查询(同时是JMX的数据来源)
+ *
+ * @author darkidiot
+ */
+public class LocalMetricsRegistry implements MetricsRegistry {
+
+    private final ConcurrentMap<String, ServiceMetrics> services = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordCommand(String service, String command, long nanos, boolean success) {
+        CommandMetrics metrics = service(service).command(command);
+        metrics.latency.record(nanos);
+        if (!success) {
+            metrics.errors.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void recordBorrow(String service, JedisType type, long nanos) {
+        ServiceMetrics metrics = service(service);
+        (JedisType.READ.equals(type) ? metrics.readBorrow : metrics.writeBorrow).record(nanos);
+    }
+
+    @Override
+    public void recordPayload(String service, String command, long bytes) {
+        service(service).command(command).payloadBytes.addAndGet(bytes);
+    }
+
+    /**
+     * 已记录过指标的服务
+     */
+    public Set<String> services() {
+        return Collections.unmodifiableSet(services.keySet());
+    }
+
+    /**
+     * @return 命令名称 -> 指标快照(按命令名称排序)
+     */
+    public Map<String, CommandStats> commands(String service) {
+        Map<String, CommandStats> result = new TreeMap<>();
+        ServiceMetrics metrics = services.get(service);
+        if (metrics != null) {
+            for (Map.Entry<String, CommandMetrics> entry : metrics.commands.entrySet()) {
+                CommandMetrics command = entry.getValue();
+                result.put(entry.getKey(), new CommandStats(entry.getKey(), command.errors.get(), command.payloadBytes.get(), command.latency.snapshot()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return 从连接池借用连接的等待耗时
+     */
+    public HistogramSnapshot borrow(String service, JedisType type) {
+        ServiceMetrics metrics = service(service);
+        return (JedisType.READ.equals(type) ? metrics.readBorrow : metrics.writeBorrow).snapshot();
+    }
+
+    /**
+     * 清空服务的所有指标
+     */
+    public void reset(String service) {
+        services.remove(service);
+    }
+
+    private ServiceMetrics service(String service) {
+        ServiceMetrics metrics = services.get(service);
+        if (metrics == null) {
+            ServiceMetrics created = new ServiceMetrics();
+            metrics = services.putIfAbsent(service, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    private static final class ServiceMetrics {
+        final ConcurrentMap<String, CommandMetrics> commands = new ConcurrentHashMap<>();
+        final LatencyHistogram readBorrow = new LatencyHistogram();
+        final LatencyHistogram writeBorrow = new LatencyHistogram();
+
+        CommandMetrics command(String command) {
+            CommandMetrics metrics = commands.get(command);
+            if (metrics == null) {
+                CommandMetrics created = new CommandMetrics();
+                metrics = commands.putIfAbsent(command, created);
+                if (metrics == null) {
+                    metrics = created;
+                }
+            }
+            return metrics;
+        }
+    }
+
+    private static final class CommandMetrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong payloadBytes = new AtomicLong();
+    }
+}
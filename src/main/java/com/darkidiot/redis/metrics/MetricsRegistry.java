@@ -0,0 +1,30 @@
+package com.darkidiot.redis.metrics;
+
+import com.darkidiot.redis.common.JedisType;
+
+/**
+ * 指标的接收方, 通过{@link RedisMetrics#addRegistry(MetricsRegistry)}接入其他监控系统
+ * <p>在调用redis的线程中同步调用, 实现必须线程安全且不能阻塞.</p>
+ *
+ * @author darkidiot
+ */
+public interface MetricsRegistry {
+
+    /**
+     * @param service redis服务名
+     * @param command 命令名称
+     * @param nanos   执行耗时(纳秒)
+     * @param success 是否成功(未抛出异常)
+     */
+    void recordCommand(String service, String command, long nanos, boolean success);
+
+    /**
+     * @param nanos 从连接池借用连接的等待耗时(纳秒)
+     */
+    void recordBorrow(String service, JedisType type, long nanos);
+
+    /**
+     * @param bytes 编码后的key/value字节数
+     */
+    void recordPayload(String service, String command, long bytes);
+}
@@ -0,0 +1,21 @@
+package com.darkidiot.redis.metrics;
+
+import com.darkidiot.redis.util.CommonUtil.Callback;
+
+/**
+ * 指定了命令名称的回调, 用于被多个方法共用的回调(指标中以构造时的名称而不是回调的定义位置记录)
+ *
+ * @author darkidiot
+ */
+public abstract class NamedCallback<T> implements Callback<T> {
+
+    private final String command;
+
+    protected NamedCallback(String command) {
+        this.command = command;
+    }
+
+    public String command() {
+        return command;
+    }
+}
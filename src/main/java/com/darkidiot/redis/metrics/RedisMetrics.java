@@ -0,0 +1,77 @@
+package com.darkidiot.redis.metrics;
+
+import com.darkidiot.redis.common.JedisType;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 指标入口
+ * <ul>
+ * <li>开启了metrics的服务, 其所有命令的延迟、失败次数、连接池借用等待以及RedisMap读写的字节数都会记录到已注册的{@link MetricsRegistry}.</li>
+ * <li>进程内的{@link LocalMetricsRegistry}始终注册, 通过{@link #commands(String)}等方法查询快照, 开启metrics.jmx时同时以MXBean发布.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RedisMetrics {
+
+    private static final LocalMetricsRegistry LOCAL = new LocalMetricsRegistry();
+
+    private static final List<MetricsRegistry> registries = new CopyOnWriteArrayList<MetricsRegistry>(new MetricsRegistry[]{LOCAL});
+
+    /**
+     * 接入其他监控系统(如将指标转发到Micrometer/Dropwizard)
+     */
+    public static void addRegistry(MetricsRegistry registry) {
+        if (registry != null) {
+            registries.add(registry);
+        }
+    }
+
+    public static void removeRegistry(MetricsRegistry registry) {
+        if (registry != LOCAL) {
+            registries.remove(registry);
+        }
+    }
+
+    public static LocalMetricsRegistry local() {
+        return LOCAL;
+    }
+
+    /**
+     * @return 服务的命令名称 -> 指标快照
+     */
+    public static Map<String, CommandStats> commands(String service) {
+        return LOCAL.commands(service);
+    }
+
+    /**
+     * @return 服务从连接池借用连接的等待耗时
+     */
+    public static HistogramSnapshot borrow(String service, JedisType type) {
+        return LOCAL.borrow(service, type);
+    }
+
+    static void recordCommand(String service, String command, long nanos, boolean success) {
+        for (MetricsRegistry registry : registries) {
+            registry.recordCommand(service, command, nanos, success);
+        }
+    }
+
+    static void recordBorrow(String service, JedisType type, long nanos) {
+        for (MetricsRegistry registry : registries) {
+            registry.recordBorrow(service, type, nanos);
+        }
+    }
+
+    static void recordPayload(String service, String command, long bytes) {
+        for (MetricsRegistry registry : registries) {
+            registry.recordPayload(service, command, bytes);
+        }
+    }
+}
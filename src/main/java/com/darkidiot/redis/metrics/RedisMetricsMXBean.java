@@ -0,0 +1,19 @@
+package com.darkidiot.redis.metrics;
+
+import java.util.Map;
+
+/**
+ * 单个redis服务的指标(JMX名称: com.darkidiot.redis:type=RedisMetrics,service=服务名, 延迟单位为纳秒)
+ *
+ * @author darkidiot
+ */
+public interface RedisMetricsMXBean {
+
+    Map<String, CommandStats> getCommands();
+
+    HistogramSnapshot getReadBorrow();
+
+    HistogramSnapshot getWriteBorrow();
+
+    void reset();
+}
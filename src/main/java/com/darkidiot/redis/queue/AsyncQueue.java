@@ -0,0 +1,47 @@
+package com.darkidiot.redis.queue;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.Serializable;
+
+/**
+ * Redis分布式队列的异步版本(与SimpleFifoQueue共用存储结构, 先进先出, 不支持优先级)
+ *
+ * @author darkidiot
+ */
+public interface AsyncQueue<T extends Serializable> {
+
+    /**
+     * 入队
+     *
+     * @return 是否入队成功
+     */
+    ListenableFuture<Boolean> enqueue(T... members);
+
+    /**
+     * 出队(不阻塞等待: 多路复用的连接上不能执行阻塞命令, 队列为空时返回null)
+     *
+     * @return 队首元素, 队列为空时为null
+     */
+    ListenableFuture<T> dequeue();
+
+    /**
+     * 返回队列第一位元素,但并不出队
+     */
+    ListenableFuture<T> top();
+
+    /**
+     * 返回队列的长度
+     */
+    ListenableFuture<Long> size();
+
+    /**
+     * 返回队列的名字
+     */
+    String getName();
+
+    /**
+     * 清空队列
+     */
+    ListenableFuture<Boolean> clear();
+}
@@ -1,9 +1,10 @@
 package com.darkidiot.redis.queue;
 
+import com.darkidiot.redis.codec.Codec;
 import com.darkidiot.redis.config.JedisPoolFactory;
 import com.darkidiot.redis.exception.RedisException;
 import com.darkidiot.redis.jedis.IJedis;
-import com.darkidiot.redis.jedis.imp.Jedis;
+import com.darkidiot.redis.queue.impl.AsyncFifoQueue;
 import com.darkidiot.redis.queue.impl.PerfectPriorityQueue;
 import com.darkidiot.redis.queue.impl.RoughPriorityQueue;
 import com.darkidiot.redis.queue.impl.SimpleFifoQueue;
@@ -35,6 +36,8 @@ public class RedisQueue {
 
     private static final Map<String, Queue<? extends Serializable>> QueueMap = new ConcurrentHashMap<>();
 
+    private static final Map<String, AsyncQueue<? extends Serializable>> AsyncQueueMap = new ConcurrentHashMap<>();
+
     public static <T extends Serializable> Queue<T> usePerfectPriorityQueue(final String queueName)
             throws RedisException {
         return usePerfectPriorityQueue(queueName, DEFAULT_SERVICE_KEY);
@@ -42,10 +45,18 @@ public class RedisQueue {
 
     public static <T extends Serializable> Queue<T> usePerfectPriorityQueue(final String queueName,
                                                                             final String service) throws RedisException {
+        return usePerfectPriorityQueue(queueName, service, null);
+    }
+
+    /**
+     * @param codec 队列元素的编解码器(为空时使用服务配置的编解码器;同名队列以首次创建时的编解码器为准)
+     */
+    public static <T extends Serializable> Queue<T> usePerfectPriorityQueue(final String queueName, final String service,
+                                                       final Codec<T> codec) throws RedisException {
         return invoke(new Callback<T>() {
             @Override
             public Queue<T> call(IJedis jedis) throws RedisException {
-                return new PerfectPriorityQueue<>(queueName, jedis);
+                return new PerfectPriorityQueue<>(queueName, jedis, codec);
             }
         }, PERFECT_PRIORITY_QUEUE_PREFIX, queueName, service);
     }
@@ -57,10 +68,18 @@ public class RedisQueue {
 
     public static <T extends Serializable> Queue<T> useRoughPriorityQueue(final String queueName, final String service)
             throws RedisException {
+        return useRoughPriorityQueue(queueName, service, null);
+    }
+
+    /**
+     * @param codec 队列元素的编解码器(为空时使用服务配置的编解码器;同名队列以首次创建时的编解码器为准)
+     */
+    public static <T extends Serializable> Queue<T> useRoughPriorityQueue(final String queueName, final String service,
+                                                       final Codec<T> codec) throws RedisException {
         return invoke(new Callback<T>() {
             @Override
             public Queue<T> call(IJedis jedis) throws RedisException {
-                return new RoughPriorityQueue<>(queueName, jedis);
+                return new RoughPriorityQueue<>(queueName, jedis, codec);
             }
         }, ROUGH_PRIORITY_QUEUE_PREFIX, queueName, service);
     }
@@ -72,10 +91,18 @@ public class RedisQueue {
 
     public static <T extends Serializable> Queue<T> useSimplePriorityQueue(final String queueName, final String service)
             throws RedisException {
+        return useSimplePriorityQueue(queueName, service, null);
+    }
+
+    /**
+     * @param codec 队列元素的编解码器(为空时使用服务配置的编解码器;同名队列以首次创建时的编解码器为准)
+     */
+    public static <T extends Serializable> Queue<T> useSimplePriorityQueue(final String queueName, final String service,
+                                                       final Codec<T> codec) throws RedisException {
         return invoke(new Callback<T>() {
             @Override
             public Queue<T> call(IJedis jedis) throws RedisException {
-                return new SimplePriorityQueue<>(queueName, jedis);
+                return new SimplePriorityQueue<>(queueName, jedis, codec);
             }
         }, SIMPLE_PRIORITY_QUEUE_PREFIX, queueName, service);
     }
@@ -86,14 +113,39 @@ public class RedisQueue {
 
     public static <T extends Serializable> Queue<T> useSimpleFifoQueue(final String queueName, final String service)
             throws RedisException {
+        return useSimpleFifoQueue(queueName, service, null);
+    }
+
+    /**
+     * @param codec 队列元素的编解码器(为空时使用服务配置的编解码器;同名队列以首次创建时的编解码器为准)
+     */
+    public static <T extends Serializable> Queue<T> useSimpleFifoQueue(final String queueName, final String service,
+                                                       final Codec<T> codec) throws RedisException {
         return invoke(new Callback<T>() {
             @Override
             public Queue<T> call(IJedis jedis) throws RedisException {
-                return new SimpleFifoQueue<>(queueName, jedis);
+                return new SimpleFifoQueue<>(queueName, jedis, codec);
             }
         }, SIMPLE_FIFO_QUEUE_PREFIX, queueName, service);
     }
 
+    /**
+     * 异步先进先出队列(与SimpleFifoQueue共用存储结构, 不支持集群模式)
+     *
+     * @param codec 队列元素的编解码器(为空时使用服务配置的编解码器;同名队列以首次创建时的编解码器为准)
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <T extends Serializable> AsyncQueue<T> useAsyncFifoQueue(final String queueName, final String service,
+                                                                     final Codec<T> codec) throws RedisException {
+        String key = service + ":" + queueName;
+        AsyncQueue<T> queue = (AsyncQueue<T>) AsyncQueueMap.get(key);
+        if (queue == null) {
+            queue = new AsyncFifoQueue<>(queueName, JedisPoolFactory.getJedis(service), JedisPoolFactory.getAsyncClient(service), codec);
+            AsyncQueueMap.put(key, queue);
+        }
+        return queue;
+    }
+
     private interface Callback<T extends Serializable> {
         Queue<T> call(IJedis jedis) throws RedisException;
     }
@@ -104,8 +156,7 @@ public class RedisQueue {
         String key = createKey(queueName, prefix);
         Queue<T> queue = (Queue<T>) QueueMap.get(key);
         if (queue == null) {
-            queue = callback.call(new Jedis(JedisPoolFactory.getWritePool(service),
-                    JedisPoolFactory.getReadPool(service), JedisPoolFactory.getInitParam(service)));
+            queue = callback.call(JedisPoolFactory.getJedis(service));
             QueueMap.put(key, queue);
         }
         return queue;
@@ -122,6 +173,7 @@ public class RedisQueue {
     public static class Configuration {
         private String service = DEFAULT_SERVICE_KEY;
         private String queueName;
+        private Codec<?> codec;
 
         public Configuration setService(String service) {
             this.service = service;
@@ -133,20 +185,34 @@ public class RedisQueue {
             return this;
         }
 
+        public Configuration setCodec(Codec<?> codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
         public <T extends Serializable> Queue<T> usePerfectPriorityQueue() {
-            return RedisQueue.usePerfectPriorityQueue(queueName, service);
+            return RedisQueue.usePerfectPriorityQueue(queueName, service, (Codec<T>) codec);
         }
 
+        @SuppressWarnings("unchecked")
         public <T extends Serializable> Queue<T> useRoughPriorityQueue() {
-            return RedisQueue.useRoughPriorityQueue(queueName, service);
+            return RedisQueue.useRoughPriorityQueue(queueName, service, (Codec<T>) codec);
         }
 
+        @SuppressWarnings("unchecked")
         public <T extends Serializable> Queue<T> useSimplePriorityQueue() {
-            return RedisQueue.useSimplePriorityQueue(queueName, service);
+            return RedisQueue.useSimplePriorityQueue(queueName, service, (Codec<T>) codec);
         }
 
+        @SuppressWarnings("unchecked")
         public <T extends Serializable> Queue<T> useSimpleFifoQueue() {
-            return RedisQueue.useSimpleFifoQueue(queueName, service);
+            return RedisQueue.useSimpleFifoQueue(queueName, service, (Codec<T>) codec);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T extends Serializable> AsyncQueue<T> useAsyncFifoQueue() {
+            return RedisQueue.useAsyncFifoQueue(queueName, service, (Codec<T>) codec);
         }
 
     }
@@ -0,0 +1,110 @@
+package com.darkidiot.redis.queue.impl;
+
+import com.darkidiot.redis.async.AsyncRedisClient;
+import com.darkidiot.redis.codec.Codec;
+import com.darkidiot.redis.codec.Codecs;
+import com.darkidiot.redis.exception.RedisException;
+import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.queue.AsyncQueue;
+import com.darkidiot.redis.util.StringUtil;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.util.SafeEncoder;
+
+import java.io.Serializable;
+
+import static com.darkidiot.redis.queue.impl.Constants.*;
+
+/**
+ * 异步先进先出队列(与{@link SimpleFifoQueue}共用同一个list, 两者可以混合使用)
+ *
+ * @author darkidiot
+ */
+@SuppressWarnings("unchecked")
+public class AsyncFifoQueue<T extends Serializable> implements AsyncQueue<T> {
+
+    private final String name;
+    private final AsyncRedisClient client;
+    private final Codec<T> codec;
+    private final byte[] keyBytes;
+
+    /**
+     * @param codec 队列元素的编解码器(为空时使用服务配置的编解码器)
+     */
+    public AsyncFifoQueue(String name, IJedis jedis, AsyncRedisClient client, Codec<T> codec) throws RedisException {
+        if (jedis == null || client == null) {
+            throw new RedisException("Initialize AsyncFifoQueue failure, And jedis/client can not be null.");
+        }
+        if (StringUtil.isEmpty(name)) {
+            throw new RedisException("Initialize AsyncFifoQueue failure, And name can not be empty.");
+        }
+        this.name = name;
+        this.client = client;
+        this.codec = codec != null ? codec : Codecs.<T>forService(jedis.baseConfig());
+        this.keyBytes = createKeyBytes(name);
+    }
+
+    @Override
+    public ListenableFuture<Boolean> enqueue(T... members) {
+        if (members == null || members.length == 0) {
+            return Futures.immediateFuture(false);
+        }
+        byte[][] encoded = encodeMembers(codec, members);
+        byte[][] command = new byte[encoded.length + 2][];
+        command[0] = Command.LPUSH.raw;
+        command[1] = keyBytes;
+        System.arraycopy(encoded, 0, command, 2, encoded.length);
+        return Futures.transform(client.execute(keyBytes, command), new Function<Object, Boolean>() {
+            @Override
+            public Boolean apply(Object length) {
+                return (Long) length > 0;
+            }
+        });
+    }
+
+    @Override
+    public ListenableFuture<T> dequeue() {
+        return member(client.execute(keyBytes, Command.RPOP.raw, keyBytes));
+    }
+
+    @Override
+    public ListenableFuture<T> top() {
+        return member(client.execute(keyBytes, Command.LINDEX.raw, keyBytes, SafeEncoder.encode("-1")));
+    }
+
+    @Override
+    public ListenableFuture<Long> size() {
+        return Futures.transform(client.execute(keyBytes, Command.LLEN.raw, keyBytes), new Function<Object, Long>() {
+            @Override
+            public Long apply(Object size) {
+                return (Long) size;
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public ListenableFuture<Boolean> clear() {
+        return Futures.transform(client.execute(keyBytes, Command.DEL.raw, keyBytes), new Function<Object, Boolean>() {
+            @Override
+            public Boolean apply(Object deleted) {
+                return (Long) deleted <= 1;
+            }
+        });
+    }
+
+    private ListenableFuture<T> member(ListenableFuture<Object> reply) {
+        return Futures.transform(reply, new Function<Object, T>() {
+            @Override
+            public T apply(Object bytes) {
+                return decodeMember(codec, (byte[]) bytes);
+            }
+        });
+    }
+}
@@ -1,5 +1,8 @@
 package com.darkidiot.redis.queue.impl;
 
+import com.darkidiot.redis.codec.Codec;
+import redis.clients.util.SafeEncoder;
+
 public class Constants {
 	static final String QUEUE_PREFIX = "Queue:";
 	
@@ -32,4 +35,24 @@ public class Constants {
 	static String createKeyByAsterisk(String queueName){
 		return  QUEUE_PREFIX + queueName + queueNameSequenceSeparator + asterisk;
 	}
+
+	static byte[] createKeyBytes(String queueKey){
+		return SafeEncoder.encode(createKey(queueKey));
+	}
+
+	/** 逐个编码队列元素(每个元素独立存储,不再整体序列化) */
+	static <T> byte[][] encodeMembers(Codec<T> codec, T[] members){
+		byte[][] encoded = new byte[members.length][];
+		for (int i = 0; i < members.length; i++) {
+			encoded[i] = codec.encode(members[i]);
+		}
+		return encoded;
+	}
+
+	static <T> T decodeMember(Codec<T> codec, byte[] bytes){
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+		return codec.decode(bytes);
+	}
 }
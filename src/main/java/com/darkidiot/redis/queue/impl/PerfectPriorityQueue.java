@@ -1,10 +1,12 @@
 package com.darkidiot.redis.queue.impl;
 
+import com.darkidiot.redis.codec.Codec;
+import com.darkidiot.redis.codec.Codecs;
 import com.darkidiot.redis.exception.RedisException;
 import com.darkidiot.redis.jedis.IJedis;
 import com.darkidiot.redis.queue.Queue;
-import com.darkidiot.redis.util.ByteObjectConvertUtil;
 import com.darkidiot.redis.util.FibonacciUtil;
+import com.darkidiot.redis.util.HashTags;
 import com.darkidiot.redis.util.StringUtil;
 import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
@@ -32,9 +34,22 @@ import static com.darkidiot.redis.util.CommonUtil.Callback;
 public class PerfectPriorityQueue<T extends Serializable> implements Queue<T> {
 
     private String name;
+    /**
+     * 生成redis key使用的队列名(集群模式下带hash tag, 同一队列的所有key落在同一个slot)
+     */
+    private final String keyName;
     private IJedis jedis;
+    private final Codec<T> codec;
+    private final byte[] keyBytes;
 
     public PerfectPriorityQueue(String name, IJedis jedis) throws RedisException {
+        this(name, jedis, null);
+    }
+
+    /**
+     * @param codec 队列元素的编解码器(为空时使用服务配置的编解码器)
+     */
+    public PerfectPriorityQueue(String name, IJedis jedis, Codec<T> codec) throws RedisException {
         if (jedis == null) {
             throw new RedisException("Initialize PerfectPriorityQueue failure, And jedis can not be null.");
         }
@@ -42,7 +57,10 @@ public class PerfectPriorityQueue<T extends Serializable> implements Queue<T> {
             throw new RedisException("Initialize PerfectPriorityQueue failure, And name can not be empty.");
         }
         this.name = name;
+        this.keyName = HashTags.tag(name, jedis);
         this.jedis = jedis;
+        this.codec = codec != null ? codec : Codecs.<T>forService(jedis.baseConfig());
+        this.keyBytes = Constants.createKeyBytes(keyName);
     }
 
     @SafeVarargs
@@ -58,11 +76,11 @@ public class PerfectPriorityQueue<T extends Serializable> implements Queue<T> {
             return false;
         }
         long end = System.currentTimeMillis() + Constants.defaultEnqueueTimeout;
-        Map<String, Double> tempMap = Maps.newHashMap();
+        Map<byte[], Double> tempMap = Maps.newHashMap();
         for (T member : members) {
-            tempMap.put(ByteObjectConvertUtil.getBytesFromObject(member), (double) priority);
+            tempMap.put(codec.encode(member), (double) priority);
         }
-        boolean ret = jedis.zadd(Constants.createKey(name), tempMap);
+        boolean ret = jedis.zadd(keyBytes, tempMap);
         if (System.currentTimeMillis() > end) {
             log.warn("Enqueue PerfectPriorityQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
         }
@@ -73,21 +91,20 @@ public class PerfectPriorityQueue<T extends Serializable> implements Queue<T> {
     @Override
     public T dequeue() throws RedisException {
         try {
-            return jedis.callOriginalJedis(new Callback<T>() {
+            return jedis.callOriginalJedis(keyName, new Callback<T>() {
                 @Override
                 public T call(Jedis jedis) {
                     long end = System.currentTimeMillis() + Constants.defaultDequeueTimeout;
                     int i = 1;
                     while (true) {
                         Transaction trans = jedis.multi();
-                        trans.zrevrangeWithScores(Constants.createKey(name), 0, 0);
-                        trans.zremrangeByRank(Constants.createKey(name), -1, -1);
+                        trans.zrevrangeWithScores(keyBytes, 0, 0);
+                        trans.zremrangeByRank(keyBytes, -1, -1);
                         List<Object> exec = trans.exec();
                         Set<Tuple> retTupleSet = (Set<Tuple>) exec.get(0);
                         if (retTupleSet != null && retTupleSet.size() == 1) {
                             Tuple tuple = retTupleSet.iterator().next();
-                            String element = tuple.getElement();
-                            return (T) ByteObjectConvertUtil.getObjectFromBytes(element);
+                            return Constants.decodeMember(codec, tuple.getBinaryElement());
                         }
                         try {
                             Thread.sleep(Constants.defaultWaitIntervalInMSUnit * FibonacciUtil.circulationFibonacciNormal(i++));
@@ -106,14 +123,13 @@ public class PerfectPriorityQueue<T extends Serializable> implements Queue<T> {
         }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public T top() throws RedisException {
         long end = System.currentTimeMillis() + Constants.defaultTopQueueTimeout;
-        Set<Tuple> retTupleSet = jedis.zrevrangeWithScores(Constants.createKey(name), 0, 0);
+        Set<Tuple> retTupleSet = jedis.zrevrangeWithScores(keyBytes, 0, 0);
         if (retTupleSet != null && retTupleSet.size() == 1) {
             Tuple tuple = retTupleSet.iterator().next();
-            return (T) ByteObjectConvertUtil.getObjectFromBytes(tuple.getElement());
+            return Constants.decodeMember(codec, tuple.getBinaryElement());
         }
         if (System.currentTimeMillis() > end) {
             log.warn("Dequeue PerfectPriorityQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
@@ -124,7 +140,7 @@ public class PerfectPriorityQueue<T extends Serializable> implements Queue<T> {
     @Override
     public long size() throws RedisException {
         long end = System.currentTimeMillis() + Constants.defaultTopQueueTimeout;
-        long retNum = jedis.zlexcount(Constants.createKey(name), "-", "+");
+        long retNum = jedis.zlexcount(Constants.createKey(keyName), "-", "+");
         if (System.currentTimeMillis() > end) {
             log.warn("Query PerfectPriorityQueue size time out. spend[ {}ms ]", System.currentTimeMillis() - end);
         }
@@ -144,7 +160,7 @@ public class PerfectPriorityQueue<T extends Serializable> implements Queue<T> {
     @Override
     public boolean clear() throws RedisException {
         long end = System.currentTimeMillis() + Constants.defaultClearQueueTimeout;
-        Long delNum = jedis.del(Constants.createKey(name));
+        Long delNum = jedis.del(Constants.createKey(keyName));
         if (System.currentTimeMillis() > end) {
             log.warn("Clear PerfectPriorityQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
         }
@@ -1,15 +1,18 @@
 package com.darkidiot.redis.queue.impl;
 
+import com.darkidiot.redis.codec.Codec;
+import com.darkidiot.redis.codec.Codecs;
 import com.darkidiot.redis.common.JedisType;
 import com.darkidiot.redis.exception.RedisException;
 import com.darkidiot.redis.jedis.IJedis;
 import com.darkidiot.redis.queue.Queue;
-import com.darkidiot.redis.util.ByteObjectConvertUtil;
 import com.darkidiot.redis.util.CommonUtil;
 import com.darkidiot.redis.util.NumberUtil;
+import com.darkidiot.redis.util.HashTags;
 import com.darkidiot.redis.util.StringUtil;
 import lombok.extern.slf4j.Slf4j;
 import redis.clients.jedis.Jedis;
+import redis.clients.util.SafeEncoder;
 
 import java.io.Serializable;
 import java.util.Comparator;
@@ -26,13 +29,18 @@ import java.util.TreeSet;
 public class RoughPriorityQueue<T extends Serializable> implements Queue<T> {
 
     private String name;
+    /**
+     * 生成redis key使用的队列名(集群模式下带hash tag, 同一队列的所有key落在同一个slot)
+     */
+    private final String keyName;
     private IJedis jedis;
+    private final Codec<T> codec;
 
     private TreeSet<String> queueNames = new TreeSet<>(new Comparator<String>() {
         @Override
         public int compare(String s1, String s2) {
             Integer s1Number = Integer.parseInt(s1.substring(s1.lastIndexOf(Constants.queueNameSequenceSeparator) + 1, s1.length()));
-            Integer s2Number = Integer.parseInt(s2.substring(s1.lastIndexOf(Constants.queueNameSequenceSeparator) + 1, s1.length()));
+            Integer s2Number = Integer.parseInt(s2.substring(s2.lastIndexOf(Constants.queueNameSequenceSeparator) + 1, s2.length()));
             if (s1Number > s2Number) {
                 return -1;
             } else if (s1Number < s2Number) {
@@ -44,6 +52,13 @@ public class RoughPriorityQueue<T extends Serializable> implements Queue<T> {
     });
 
     public RoughPriorityQueue(String name, IJedis jedis) throws RedisException {
+        this(name, jedis, null);
+    }
+
+    /**
+     * @param codec 队列元素的编解码器(为空时使用服务配置的编解码器)
+     */
+    public RoughPriorityQueue(String name, IJedis jedis, Codec<T> codec) throws RedisException {
         if (jedis == null) {
             throw new RedisException("Initialize RoughPriorityQueue failure, And jedis can not be null.");
         }
@@ -52,7 +67,9 @@ public class RoughPriorityQueue<T extends Serializable> implements Queue<T> {
         }
         this.jedis = jedis;
         this.name = name;
-        queueNames.add(Constants.createKey(name, Integer.MIN_VALUE * 2));
+        this.keyName = HashTags.tag(name, jedis);
+        this.codec = codec != null ? codec : Codecs.<T>forService(jedis.baseConfig());
+        queueNames.add(Constants.createKey(keyName, Integer.MIN_VALUE * 2));
     }
 
     @SafeVarargs
@@ -68,95 +85,83 @@ public class RoughPriorityQueue<T extends Serializable> implements Queue<T> {
             return false;
         }
 
-        return jedis.callOriginalJedis(new CommonUtil.Callback<Boolean>() {
+        return jedis.callOriginalJedis(keyName, new CommonUtil.Callback<Boolean>() {
             @Override
             public Boolean call(Jedis jedis) {
                 long end = System.currentTimeMillis() + Constants.defaultEnqueueTimeout;
                 long retNum;
+                byte[] key = SafeEncoder.encode(Constants.createKey(keyName, priority));
                 if (NumberUtil.isOdd(priority)) {
-                    retNum = jedis.rpush(Constants.createKey(name, priority), ByteObjectConvertUtil.getBytesFromObject(members));
+                    retNum = jedis.rpush(key, Constants.encodeMembers(codec, members));
                 } else {
-                    retNum = jedis.lpush(Constants.createKey(name, priority), ByteObjectConvertUtil.getBytesFromObject(members));
+                    retNum = jedis.lpush(key, Constants.encodeMembers(codec, members));
                 }
-                queueNames.add(Constants.createKey(name, priority));
+                queueNames.add(Constants.createKey(keyName, priority));
                 if (System.currentTimeMillis() > end) {
                     log.warn("Enqueue RoughPriorityQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
-                return retNum == members.length;
+                return retNum >= members.length;
             }
         }, JedisType.WRITE);
     }
 
     @Override
     public T dequeue() throws RedisException {
-        return jedis.callOriginalJedis(new CommonUtil.Callback<T>() {
+        return jedis.callOriginalJedis(keyName, new CommonUtil.Callback<T>() {
 
-            @SuppressWarnings("unchecked")
             @Override
             public T call(Jedis jedis) {
                 long end = System.currentTimeMillis() + Constants.defaultDequeueTimeout;
-                Set<String> keys = jedis.keys(Constants.createKeyByAsterisk(name));
+                Set<String> keys = jedis.keys(Constants.createKeyByAsterisk(keyName));
                 queueNames.addAll(keys);
-                String[] keyArr = queueNames.toArray(new String[queueNames.size() * 2]);
-                for (int i = keyArr.length / 2 - 1; i != -1; i--) {
-                    keyArr[2 * i] = keyArr[i];
-                }
-                for (int i = 1; i < keyArr.length; i += 2) {
-                    keyArr[i] = String.valueOf(0);
+                byte[][] keyArr = new byte[queueNames.size()][];
+                int i = 0;
+                for (String queueName : queueNames) {
+                    keyArr[i++] = SafeEncoder.encode(queueName);
                 }
-                List<String> retList = jedis.brpop(keyArr);
+                List<byte[]> retList = jedis.brpop(0, keyArr);
                 if (System.currentTimeMillis() > end) {
                     log.warn("Dequeue RoughPriorityQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
-                String retStr = retList.get(1);
-                if (StringUtil.isNotEmpty(retStr)) {
-                    Object[] objects = (Object[]) ByteObjectConvertUtil.getObjectFromBytes(retStr);
-                    return (T) objects[0];
-                }
-                return null;
+                return Constants.decodeMember(codec, retList.get(1));
             }
         }, JedisType.READ);
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public T top() throws RedisException {
-        return jedis.callOriginalJedis(new CommonUtil.Callback<T>() {
+        return jedis.callOriginalJedis(keyName, new CommonUtil.Callback<T>() {
             @Override
             public T call(Jedis jedis) {
                 long end = System.currentTimeMillis() + Constants.defaultTopQueueTimeout;
-                Set<String> keys = jedis.keys(Constants.createKeyByAsterisk(name));
+                Set<String> keys = jedis.keys(Constants.createKeyByAsterisk(keyName));
                 if (keys == null || keys.size() == 0) {
                     return null;
                 }
                 queueNames.addAll(keys);
                 String[] keyArr = queueNames.toArray(new String[0]);
-                String retStr = null;
+                byte[] retBytes = null;
                 for (String key : keyArr) {
-                    retStr = jedis.lindex(key, -1);
-                    if (retStr != null) {
+                    retBytes = jedis.lindex(SafeEncoder.encode(key), -1);
+                    if (retBytes != null) {
                         break;
                     }
                 }
                 if (System.currentTimeMillis() > end) {
                     log.warn("Top RoughPriorityQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
-                if (StringUtil.isNotEmpty(retStr)) {
-                    Object[] objects = (Object[]) ByteObjectConvertUtil.getObjectFromBytes(retStr);
-                    return (T) objects[0];
-                }
-                return null;
+                return Constants.decodeMember(codec, retBytes);
             }
         }, JedisType.READ);
     }
 
     @Override
     public long size() throws RedisException {
-        return jedis.callOriginalJedis(new CommonUtil.Callback<Long>() {
+        return jedis.callOriginalJedis(keyName, new CommonUtil.Callback<Long>() {
             @Override
             public Long call(Jedis jedis) {
                 long end = System.currentTimeMillis() + Constants.defaultQueryQueueSzieTimeout;
-                Set<String> keys = jedis.keys(Constants.createKeyByAsterisk(name));
+                Set<String> keys = jedis.keys(Constants.createKeyByAsterisk(keyName));
                 if (keys == null || keys.size() == 0) {
                     return 0L;
                 }
@@ -179,11 +184,11 @@ public class RoughPriorityQueue<T extends Serializable> implements Queue<T> {
 
     @Override
     public boolean clear() throws RedisException {
-        return jedis.callOriginalJedis(new CommonUtil.Callback<Boolean>() {
+        return jedis.callOriginalJedis(keyName, new CommonUtil.Callback<Boolean>() {
             @Override
             public Boolean call(Jedis jedis) {
                 long end = System.currentTimeMillis() + Constants.defaultClearQueueTimeout;
-                Set<String> keys = jedis.keys(Constants.createKeyByAsterisk(name));
+                Set<String> keys = jedis.keys(Constants.createKeyByAsterisk(keyName));
                 String[] keyArr = keys.toArray(new String[0]);
                 Long delNum = 0L;
                 if (keyArr.length != 0) {
@@ -1,11 +1,13 @@
 package com.darkidiot.redis.queue.impl;
 
+import com.darkidiot.redis.codec.Codec;
+import com.darkidiot.redis.codec.Codecs;
 import com.darkidiot.redis.common.JedisType;
 import com.darkidiot.redis.exception.RedisException;
 import com.darkidiot.redis.jedis.IJedis;
 import com.darkidiot.redis.queue.Queue;
-import com.darkidiot.redis.util.ByteObjectConvertUtil;
 import com.darkidiot.redis.util.CommonUtil.Callback;
+import com.darkidiot.redis.util.HashTags;
 import com.darkidiot.redis.util.StringUtil;
 import lombok.extern.slf4j.Slf4j;
 import redis.clients.jedis.Jedis;
@@ -25,9 +27,22 @@ import static com.darkidiot.redis.queue.impl.Constants.*;
 public class SimpleFifoQueue<T extends Serializable> implements Queue<T> {
 
     private String name;
+    /**
+     * 生成redis key使用的队列名(集群模式下带hash tag, 同一队列的所有key落在同一个slot)
+     */
+    private final String keyName;
     private IJedis jedis;
+    private final Codec<T> codec;
+    private final byte[] keyBytes;
 
     public SimpleFifoQueue(String name, IJedis jedis) throws RedisException {
+        this(name, jedis, null);
+    }
+
+    /**
+     * @param codec 队列元素的编解码器(为空时使用服务配置的编解码器)
+     */
+    public SimpleFifoQueue(String name, IJedis jedis, Codec<T> codec) throws RedisException {
         if (jedis == null) {
             throw new RedisException("Initialize SimpleFifoQueue failure, And jedis can not be null.");
         }
@@ -36,6 +51,9 @@ public class SimpleFifoQueue<T extends Serializable> implements Queue<T> {
         }
         this.jedis = jedis;
         this.name = name;
+        this.keyName = HashTags.tag(name, jedis);
+        this.codec = codec != null ? codec : Codecs.<T>forService(jedis.baseConfig());
+        this.keyBytes = createKeyBytes(keyName);
     }
 
     @Override
@@ -43,11 +61,11 @@ public class SimpleFifoQueue<T extends Serializable> implements Queue<T> {
         if (members == null || members.length == 0) {
             return false;
         }
-        return jedis.callOriginalJedis(new Callback<Boolean>() {
+        return jedis.callOriginalJedis(keyName, new Callback<Boolean>() {
             @Override
             public Boolean call(Jedis jedis) {
                 long end = System.currentTimeMillis() + defaultEnqueueTimeout;
-                long retNum = jedis.lpush(createKey(name), ByteObjectConvertUtil.getBytesFromObject(members));
+                long retNum = jedis.lpush(keyBytes, encodeMembers(codec, members));
                 if (System.currentTimeMillis() > end) {
                     log.warn("Enqueue SimpleFifoQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
@@ -64,50 +82,41 @@ public class SimpleFifoQueue<T extends Serializable> implements Queue<T> {
 
     @Override
     public T dequeue() throws RedisException {
-        return jedis.callOriginalJedis(new Callback<T>() {
+        return jedis.callOriginalJedis(keyName, new Callback<T>() {
             @Override
             public T call(Jedis jedis) {
                 long end = System.currentTimeMillis() + defaultDequeueTimeout;
-                List<String> retList = jedis.brpop(createKey(name), String.valueOf(0));
+                List<byte[]> retList = jedis.brpop(0, keyBytes);
                 if (System.currentTimeMillis() > end) {
                     log.warn("Dequeue SimpleFifoQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
-                String retStr = retList.get(1);
-                if (StringUtil.isNotEmpty(retStr)) {
-                    Object[] objects = (Object[]) ByteObjectConvertUtil.getObjectFromBytes(retStr);
-                    return (T) objects[0];
-                }
-                return null;
+                return decodeMember(codec, retList.get(1));
             }
         }, JedisType.READ);
     }
 
     @Override
     public T top() throws RedisException {
-        return jedis.callOriginalJedis(new Callback<T>() {
+        return jedis.callOriginalJedis(keyName, new Callback<T>() {
             @Override
             public T call(Jedis jedis) {
                 long end = System.currentTimeMillis() + defaultTopQueueTimeout;
-                String top = jedis.lindex(createKey(name), -1);
+                byte[] top = jedis.lindex(keyBytes, -1);
                 if (System.currentTimeMillis() > end) {
                     log.warn("Top SimpleFifoQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
-                if (StringUtil.isNotEmpty(top)) {
-                    Object[] objectFromBytes = (Object[]) ByteObjectConvertUtil.getObjectFromBytes(top);
-                    return (T) objectFromBytes[0];
-                }
-                return null;
+                return decodeMember(codec, top);
             }
         }, JedisType.READ);
     }
 
     @Override
     public long size() throws RedisException {
-        return jedis.callOriginalJedis(new Callback<Long>() {
+        return jedis.callOriginalJedis(keyName, new Callback<Long>() {
             @Override
             public Long call(Jedis jedis) {
                 long end = System.currentTimeMillis() + defaultQueryQueueSzieTimeout;
-                long size = jedis.llen(createKey(name));
+                long size = jedis.llen(createKey(keyName));
                 if (System.currentTimeMillis() > end) {
                     log.warn("Query SimpleFifoQueue size time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
@@ -128,11 +137,11 @@ public class SimpleFifoQueue<T extends Serializable> implements Queue<T> {
 
     @Override
     public boolean clear() throws RedisException {
-        return jedis.callOriginalJedis(new Callback<Boolean>() {
+        return jedis.callOriginalJedis(keyName, new Callback<Boolean>() {
             @Override
             public Boolean call(Jedis jedis) {
                 long end = System.currentTimeMillis() + defaultClearQueueTimeout;
-                Long delNum = jedis.del(createKey(name));
+                Long delNum = jedis.del(createKey(keyName));
                 if (System.currentTimeMillis() > end) {
                     log.warn("Clear SimpleFifoQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
@@ -1,11 +1,13 @@
 package com.darkidiot.redis.queue.impl;
 
+import com.darkidiot.redis.codec.Codec;
+import com.darkidiot.redis.codec.Codecs;
 import com.darkidiot.redis.common.JedisType;
 import com.darkidiot.redis.exception.RedisException;
 import com.darkidiot.redis.jedis.IJedis;
 import com.darkidiot.redis.queue.Queue;
-import com.darkidiot.redis.util.ByteObjectConvertUtil;
 import com.darkidiot.redis.util.CommonUtil.Callback;
+import com.darkidiot.redis.util.HashTags;
 import com.darkidiot.redis.util.StringUtil;
 import lombok.extern.slf4j.Slf4j;
 import redis.clients.jedis.Jedis;
@@ -22,7 +24,14 @@ import java.util.List;
 public class SimplePriorityQueue<T extends Serializable> implements Queue<T> {
 
     private String name;
+    /**
+     * 生成redis key使用的队列名(集群模式下带hash tag, 同一队列的所有key落在同一个slot)
+     */
+    private final String keyName;
     private IJedis jedis;
+    private final Codec<T> codec;
+    private final byte[] highlyKeyBytes;
+    private final byte[] lowlyKeyBytes;
 
     private static final String highlyPriorityQueue = "Highly Priority Queue:";
     private static final String lowlyPriorityQueue = "Lowly Priority Queue:";
@@ -30,6 +39,13 @@ public class SimplePriorityQueue<T extends Serializable> implements Queue<T> {
     private static final String queueName = "Simple Priority Queue";
 
     public SimplePriorityQueue(String name, IJedis jedis) throws RedisException {
+        this(name, jedis, null);
+    }
+
+    /**
+     * @param codec 队列元素的编解码器(为空时使用服务配置的编解码器)
+     */
+    public SimplePriorityQueue(String name, IJedis jedis, Codec<T> codec) throws RedisException {
         if (jedis == null) {
             throw new RedisException("Initialize SimplePriorityQueue failure, And jedis can not be null.");
         }
@@ -38,6 +54,10 @@ public class SimplePriorityQueue<T extends Serializable> implements Queue<T> {
         }
         this.jedis = jedis;
         this.name = name;
+        this.keyName = HashTags.tag(name, jedis);
+        this.codec = codec != null ? codec : Codecs.<T>forService(jedis.baseConfig());
+        this.highlyKeyBytes = Constants.createKeyBytes(highlyPriorityQueue + keyName);
+        this.lowlyKeyBytes = Constants.createKeyBytes(lowlyPriorityQueue + keyName);
     }
 
     @SafeVarargs
@@ -55,75 +75,64 @@ public class SimplePriorityQueue<T extends Serializable> implements Queue<T> {
         if (members == null || members.length == 0) {
             return false;
         }
-        return jedis.callOriginalJedis(new Callback<Boolean>() {
+        return jedis.callOriginalJedis(keyName, new Callback<Boolean>() {
             @Override
             public Boolean call(Jedis jedis) {
                 long end = System.currentTimeMillis() + Constants.defaultEnqueueTimeout;
                 long retNum;
                 if (priority > 0) {
-                    retNum = jedis.lpush(Constants.createKey(highlyPriorityQueue + name), ByteObjectConvertUtil.getBytesFromObject(members));
+                    retNum = jedis.lpush(highlyKeyBytes, Constants.encodeMembers(codec, members));
                 } else {
-                    retNum = jedis.lpush(Constants.createKey(lowlyPriorityQueue + name), ByteObjectConvertUtil.getBytesFromObject(members));
+                    retNum = jedis.lpush(lowlyKeyBytes, Constants.encodeMembers(codec, members));
                 }
                 if (System.currentTimeMillis() > end) {
                     log.warn("Enqueue SimplePriorityQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
-                return retNum == members.length;
+                return retNum >= members.length;
             }
         }, JedisType.WRITE);
     }
 
     @Override
     public T dequeue() throws RedisException {
-        return jedis.callOriginalJedis(new Callback<T>() {
-            @SuppressWarnings("unchecked")
+        return jedis.callOriginalJedis(keyName, new Callback<T>() {
             @Override
             public T call(Jedis jedis) {
                 long end = System.currentTimeMillis() + Constants.defaultDequeueTimeout;
-                List<String> retList = jedis.brpop(Constants.createKey(highlyPriorityQueue + name), String.valueOf(0), Constants.createKey(lowlyPriorityQueue + name), String.valueOf(0));
+                List<byte[]> retList = jedis.brpop(0, highlyKeyBytes, lowlyKeyBytes);
                 if (System.currentTimeMillis() > end) {
                     log.warn("Dequeue SimplePriorityQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
-                String retStr = retList.get(1);
-                if (StringUtil.isNotEmpty(retStr)) {
-                    Object[] objects = (Object[]) ByteObjectConvertUtil.getObjectFromBytes(retStr);
-                    return (T) objects[0];
-                }
-                return null;
+                return Constants.decodeMember(codec, retList.get(1));
             }
         }, JedisType.READ);
     }
 
     @Override
     public T top() throws RedisException {
-        return jedis.callOriginalJedis(new Callback<T>() {
+        return jedis.callOriginalJedis(keyName, new Callback<T>() {
             @Override
-            @SuppressWarnings("unchecked")
             public T call(Jedis jedis) {
                 long end = System.currentTimeMillis() + Constants.defaultTopQueueTimeout;
-                String top = jedis.lindex(Constants.createKey(highlyPriorityQueue + name), -1);
+                byte[] top = jedis.lindex(highlyKeyBytes, -1);
                 if (top == null) {
-                    top = jedis.lindex(Constants.createKey(lowlyPriorityQueue + name), -1);
+                    top = jedis.lindex(lowlyKeyBytes, -1);
                 }
                 if (System.currentTimeMillis() > end) {
                     log.warn("Top SimplePriorityQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
-                if (StringUtil.isNotEmpty(top)) {
-                    Object[] objects = (Object[]) ByteObjectConvertUtil.getObjectFromBytes(top);
-                    return (T) objects[0];
-                }
-                return null;
+                return Constants.decodeMember(codec, top);
             }
         }, JedisType.READ);
     }
 
     @Override
     public long size() throws RedisException {
-        return jedis.callOriginalJedis(new Callback<Long>() {
+        return jedis.callOriginalJedis(keyName, new Callback<Long>() {
             @Override
             public Long call(Jedis jedis) {
                 long end = System.currentTimeMillis() + Constants.defaultQueryQueueSzieTimeout;
-                Long size = jedis.llen(Constants.createKey(highlyPriorityQueue + name)) + jedis.llen(Constants.createKey(lowlyPriorityQueue + name));
+                Long size = jedis.llen(Constants.createKey(highlyPriorityQueue + keyName)) + jedis.llen(Constants.createKey(lowlyPriorityQueue + keyName));
                 if (System.currentTimeMillis() > end) {
                     log.warn("Query SimplePriorityQueue size time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
@@ -139,11 +148,11 @@ public class SimplePriorityQueue<T extends Serializable> implements Queue<T> {
 
     @Override
     public boolean clear() throws RedisException {
-        return jedis.callOriginalJedis(new Callback<Boolean>() {
+        return jedis.callOriginalJedis(keyName, new Callback<Boolean>() {
             @Override
             public Boolean call(Jedis jedis) {
                 long end = System.currentTimeMillis() + Constants.defaultClearQueueTimeout;
-                Long delNum = jedis.del(Constants.createKey(highlyPriorityQueue + name), Constants.createKey(lowlyPriorityQueue + name));
+                Long delNum = jedis.del(Constants.createKey(highlyPriorityQueue + keyName), Constants.createKey(lowlyPriorityQueue + keyName));
                 if (System.currentTimeMillis() > end) {
                     log.warn("Clear SimplePriorityQueue time out. spend[ {}ms ]", System.currentTimeMillis() - end);
                 }
@@ -0,0 +1,44 @@
+package com.darkidiot.redis.subpub;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 本地缓存失效通知消费者的运行指标快照
+ *
+ * @author darkidiot
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ConsumerMetrics {
+    /**
+     * 工作线程数
+     */
+    private final int workers;
+    /**
+     * 当前积压的任务数(所有工作线程队列之和)
+     */
+    private final int queueDepth;
+    /**
+     * 已接收的任务数
+     */
+    private final long received;
+    /**
+     * 已执行的任务数
+     */
+    private final long applied;
+    /**
+     * 因队列已满触发溢出策略的次数
+     */
+    private final long overflows;
+    /**
+     * 最近一次任务从入队到执行完成的延迟(毫秒)
+     */
+    private final long lastLagMillis;
+    /**
+     * 任务从入队到执行完成的最大延迟(毫秒)
+     */
+    private final long maxLagMillis;
+}
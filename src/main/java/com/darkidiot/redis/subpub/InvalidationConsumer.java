@@ -0,0 +1,207 @@
+package com.darkidiot.redis.subpub;
+
+import com.darkidiot.redis.LocalMap;
+import com.darkidiot.redis.common.Method;
+import com.google.common.base.Throwables;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地缓存失效通知消费者(有界、分条带、保序)
+ * <ul>
+ * <li>固定数量的工作线程, 每个线程一个有界队列.</li>
+ * <li>消息中的key按 分组ID + key哈希 分配到条带, 同一分组的同一个key始终由同一线程按到达顺序处理; clear按分组ID分配.</li>
+ * <li>队列已满时按{@link OverflowPolicy}处理, 并记录溢出次数、积压深度与处理延迟.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+final class InvalidationConsumer {
+
+    private final String service;
+    private final OverflowPolicy overflowPolicy;
+    private final Worker[] workers;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong lastLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    InvalidationConsumer(String service, int workerCount, int queueCapacity, OverflowPolicy overflowPolicy) {
+        this.service = service;
+        this.overflowPolicy = overflowPolicy;
+        this.workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker("Thread-LocalCacheInvalidationConsumer-" + service + "-" + i, queueCapacity);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * 按条带拆分消息并投递到对应工作线程(在订阅线程中调用)
+     *
+     * @param caches 消息所属分组的本地缓存
+     */
+    void submit(List<LocalMap<? extends Serializable, ? extends Serializable>> caches, SyncFrame frame) {
+        if (Method.clear.equals(frame.getMethod())) {
+            dispatch(stripeOf(frame.getGroupId()), new Task(caches, null));
+            return;
+        }
+        if (workers.length == 1) {
+            dispatch(0, new Task(caches, frame.getKeys()));
+            return;
+        }
+        List<List<byte[]>> stripes = new ArrayList<>(Collections.<List<byte[]>>nCopies(workers.length, null));
+        for (byte[] key : frame.getKeys()) {
+            int stripe = stripeOf(31 * frame.getGroupId() + Arrays.hashCode(key));
+            if (stripes.get(stripe) == null) {
+                stripes.set(stripe, new ArrayList<byte[]>());
+            }
+            stripes.get(stripe).add(key);
+        }
+        for (int i = 0; i < stripes.size(); i++) {
+            if (stripes.get(i) != null) {
+                dispatch(i, new Task(caches, stripes.get(i)));
+            }
+        }
+    }
+
+    ConsumerMetrics metrics() {
+        int queueDepth = 0;
+        for (Worker worker : workers) {
+            queueDepth += worker.queue.size();
+        }
+        return new ConsumerMetrics(workers.length, queueDepth, received.get(), applied.get(), overflows.get(),
+                TimeUnit.NANOSECONDS.toMillis(lastLagNanos.get()), TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get()));
+    }
+
+    void shutdown() {
+        for (Worker worker : workers) {
+            worker.running = false;
+            worker.interrupt();
+        }
+    }
+
+    private int stripeOf(int hash) {
+        hash ^= (hash >>> 16);
+        hash *= 0x45d9f3b;
+        hash ^= (hash >>> 16);
+        return (hash & Integer.MAX_VALUE) % workers.length;
+    }
+
+    private void dispatch(int stripe, Task task) {
+        received.incrementAndGet();
+        BlockingQueue<Task> queue = workers[stripe].queue;
+        if (queue.offer(task)) {
+            return;
+        }
+        overflows.incrementAndGet();
+        switch (overflowPolicy) {
+            case block:
+                try {
+                    queue.put(task);
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    task.clearAll();
+                }
+                break;
+            case discard:
+                log.warn("local cache invalidation backlog of service [{}] is full, discard message.", service);
+                break;
+            default:
+                task.clearAll();
+                log.warn("local cache invalidation backlog of service [{}] is full, clear group {}.", service, task.names());
+                break;
+        }
+    }
+
+    private void onApplied(long enqueuedNanos) {
+        long lag = System.nanoTime() - enqueuedNanos;
+        applied.incrementAndGet();
+        lastLagNanos.set(lag);
+        long max = maxLagNanos.get();
+        while (lag > max && !maxLagNanos.compareAndSet(max, lag)) {
+            max = maxLagNanos.get();
+        }
+    }
+
+    /**
+     * 单个条带的失效任务(keys为null表示清空分组)
+     */
+    private static final class Task {
+        final List<LocalMap<? extends Serializable, ? extends Serializable>> caches;
+        final List<byte[]> keys;
+        final long enqueuedNanos = System.nanoTime();
+
+        Task(List<LocalMap<? extends Serializable, ? extends Serializable>> caches, List<byte[]> keys) {
+            this.caches = caches;
+            this.keys = keys;
+        }
+
+        void apply() {
+            if (keys == null) {
+                clearAll();
+                return;
+            }
+            for (LocalMap<? extends Serializable, ? extends Serializable> cache : caches) {
+                cache.removeEncodedKeys(keys);
+            }
+        }
+
+        void clearAll() {
+            for (LocalMap<? extends Serializable, ? extends Serializable> cache : caches) {
+                cache.invalidateAll();
+            }
+        }
+
+        List<String> names() {
+            List<String> names = new ArrayList<>(caches.size());
+            for (LocalMap<? extends Serializable, ? extends Serializable> cache : caches) {
+                names.add(cache.getName());
+            }
+            return names;
+        }
+    }
+
+    private final class Worker extends Thread {
+        final BlockingQueue<Task> queue;
+        volatile boolean running = true;
+
+        Worker(String name, int capacity) {
+            super(name);
+            setDaemon(true);
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                Task task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                try {
+                    task.apply();
+                } catch (Exception e) {
+                    log.error("local cache consume invalidation error, cause by:{}", Throwables.getStackTraceAsString(e));
+                } finally {
+                    onApplied(task.enqueuedNanos);
+                }
+            }
+        }
+    }
+}
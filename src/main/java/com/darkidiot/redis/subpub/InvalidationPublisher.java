@@ -0,0 +1,185 @@
+package com.darkidiot.redis.subpub;
+
+import com.darkidiot.redis.common.Method;
+import com.darkidiot.redis.config.JedisPoolFactory;
+import com.darkidiot.redis.config.RedisInitParam;
+import com.darkidiot.redis.jedis.IJedis;
+import com.google.common.base.Throwables;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地缓存失效通知的异步合并发布器
+ * <ul>
+ * <li>写路径只把key放入所属缓存分组的缓冲区, 不借用连接, 不等待网络.</li>
+ * <li>缓冲区在时间窗口(local.cache.sync.flush.millis)到期或key数量达到上限(local.cache.sync.max.batch)时, 由后台线程合并为一条消息发布.</li>
+ * <li>同一窗口内重复的key只发送一次; 窗口内出现clear时, 之前与之后的key都被clear覆盖, 只发送clear.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Slf4j
+final class InvalidationPublisher {
+
+    /**
+     * 实际发送消息的回调
+     */
+    interface Sender {
+        void send(IJedis jedis, String service, String groupName, Method method, List<byte[]> keys);
+    }
+
+    private final Sender sender;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentMap<String, GroupBuffer> buffers = new ConcurrentHashMap<>();
+
+    InvalidationPublisher(Sender sender) {
+        this.sender = sender;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Thread-LocalCacheInvalidationPublisher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param keys 经keyCodec编码后的键值
+     */
+    void invalidate(IJedis jedis, String service, String groupName, Collection<byte[]> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+        bufferOf(jedis, service, groupName).add(keys);
+    }
+
+    void clear(IJedis jedis, String service, String groupName) {
+        bufferOf(jedis, service, groupName).clear();
+    }
+
+    /**
+     * 立即发送所有缓冲中的通知(调用线程同步发送)
+     */
+    void flush() {
+        for (GroupBuffer buffer : buffers.values()) {
+            buffer.run();
+        }
+    }
+
+    void shutdown() {
+        scheduler.shutdown();
+        flush();
+    }
+
+    private GroupBuffer bufferOf(IJedis jedis, String service, String groupName) {
+        String bufferKey = service + "#" + groupName;
+        GroupBuffer buffer = buffers.get(bufferKey);
+        if (buffer == null) {
+            GroupBuffer created = new GroupBuffer(jedis, service, groupName);
+            buffer = buffers.putIfAbsent(bufferKey, created);
+            if (buffer == null) {
+                buffer = created;
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * 单个缓存分组的待发送通知
+     */
+    private final class GroupBuffer implements Runnable {
+        private final IJedis jedis;
+        private final String service;
+        private final String groupName;
+        private final long flushMillis;
+        private final int maxBatch;
+
+        private Set<ByteBuffer> keys = new LinkedHashSet<>();
+        private boolean clear;
+        private boolean scheduled;
+
+        GroupBuffer(IJedis jedis, String service, String groupName) {
+            RedisInitParam initParam = JedisPoolFactory.getInitParam(service);
+            this.jedis = jedis;
+            this.service = service;
+            this.groupName = groupName;
+            this.flushMillis = initParam.getLocalCacheSyncFlushMillis();
+            this.maxBatch = initParam.getLocalCacheSyncMaxBatch();
+        }
+
+        synchronized void add(Collection<byte[]> newKeys) {
+            if (!clear) {
+                for (byte[] key : newKeys) {
+                    keys.add(ByteBuffer.wrap(key));
+                }
+            }
+            if (keys.size() >= maxBatch) {
+                scheduler.execute(this);
+            } else {
+                schedule();
+            }
+        }
+
+        synchronized void clear() {
+            clear = true;
+            keys.clear();
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled) {
+                scheduled = true;
+                scheduler.schedule(this, flushMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean clearing;
+            Set<ByteBuffer> pending;
+            synchronized (this) {
+                scheduled = false;
+                if (!clear && keys.isEmpty()) {
+                    return;
+                }
+                clearing = clear;
+                pending = keys;
+                clear = false;
+                keys = new LinkedHashSet<>();
+            }
+            try {
+                if (clearing) {
+                    sender.send(jedis, service, groupName, Method.clear, Collections.<byte[]>emptyList());
+                    return;
+                }
+                List<byte[]> batch = new ArrayList<>(Math.min(pending.size(), maxBatch));
+                for (ByteBuffer key : pending) {
+                    batch.add(key.array());
+                    if (batch.size() >= maxBatch) {
+                        sender.send(jedis, service, groupName, Method.remove, batch);
+                        batch = new ArrayList<>(maxBatch);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    sender.send(jedis, service, groupName, Method.remove, batch);
+                }
+            } catch (Exception e) {
+                log.error("local cache publish invalidation of [{}] error, cause by:{}", groupName, Throwables.getStackTraceAsString(e));
+            }
+        }
+    }
+}
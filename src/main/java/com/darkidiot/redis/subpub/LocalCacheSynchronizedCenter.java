@@ -3,19 +3,25 @@ package com.darkidiot.redis.subpub;
 import com.darkidiot.redis.LocalMap;
 import com.darkidiot.redis.common.Method;
 import com.darkidiot.redis.config.IPorServerConfig;
+import com.darkidiot.redis.config.JedisPoolFactory;
+import com.darkidiot.redis.config.RedisInitParam;
+import com.darkidiot.redis.exception.CodecException;
 import com.darkidiot.redis.jedis.IJedis;
-import com.darkidiot.redis.util.ByteObjectConvertUtil;
-import com.darkidiot.redis.util.UUIDUtil;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Sets;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.util.SafeEncoder;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -31,27 +37,44 @@ public class LocalCacheSynchronizedCenter {
      */
     private static final String TOPIC_SYNCHRONIZED_LOCAL_CACHE_PREFIX = "TOPIC_SYNCHRONIZED_LOCAL_CACHE:";
     /**
-     * 当前环境Map列表
+     * 当前环境Map列表(按分组ID索引, 哈希冲突的分组共用一个列表)
      */
-    private static final Map<String, LocalMap<String, ? extends Serializable>> LOCAL_CACHES = new ConcurrentHashMap<>();
+    private static final Map<Integer, List<LocalMap<? extends Serializable, ? extends Serializable>>> LOCAL_CACHES = new ConcurrentHashMap<>();
 
     /**
      * 当前环境已经订阅本地缓存服务集合
      */
     private static final Set<String> subscribeServiceSet = Sets.newConcurrentHashSet();
 
+    /**
+     * 各服务的失效通知消费者
+     */
+    private static final Map<String, InvalidationConsumer> CONSUMERS = new ConcurrentHashMap<>();
+
     /**
      * 发布客户端ID (自己发布的消息自己不消费)
      */
-    private static final String CLIENT_ID = UUIDUtil.generateShortUUID();
+    private static final long CLIENT_ID = UUID.randomUUID().getMostSignificantBits();
 
-    private static final Gson gson = new GsonBuilder().create();
     private static final ExecutorService threadPool = Executors.newCachedThreadPool();
 
+    /**
+     * 失效通知异步合并发布
+     */
+    private static final InvalidationPublisher publisher = new InvalidationPublisher(new InvalidationPublisher.Sender() {
+        @Override
+        public void send(IJedis jedis, String service, String groupName, Method method, List<byte[]> keys) {
+            byte[] frame = new SyncFrame(CLIENT_ID, method, SyncFrame.groupId(groupName), keys).encode();
+            jedis.publish(buildSynchronizedTopic(service), frame);
+            log.debug("local cache publish {} of [{}], keys:{}, bytes:{}", method, groupName, keys.size(), frame.length);
+        }
+    });
+
     static {
         Runtime.getRuntime().addShutdownHook(new Thread() {
             @Override
             public void run() {
+                    publisher.shutdown();
                     threadPool.shutdown();
                     log.info("Subscribe Thread Pool has been shutdown now.");
             }
@@ -63,12 +86,17 @@ public class LocalCacheSynchronizedCenter {
      *
      * @param localCache 本地缓存
      */
-    public synchronized static void subscribe(final String service, IJedis jedis, LocalMap<String, ? extends Serializable> localCache) {
+    public synchronized static void subscribe(final String service, IJedis jedis, LocalMap<? extends Serializable, ? extends Serializable> localCache) {
         /** 服务开启就开启本地缓存同步策略  */
         if (!subscribeServiceSet.contains(service)) {
-            final LocalCacheSynchronizedCenterThread cacheSynchronizedCenterThread = new LocalCacheSynchronizedCenterThread(service, jedis);
+            RedisInitParam initParam = JedisPoolFactory.getInitParam(service);
+            final InvalidationConsumer consumer = new InvalidationConsumer(service, initParam.getLocalCacheSyncWorkers(),
+                    initParam.getLocalCacheSyncQueueCapacity(), OverflowPolicy.of(initParam.getLocalCacheSyncOverflowPolicy()));
+            CONSUMERS.put(service, consumer);
+            final LocalCacheSynchronizedCenterThread cacheSynchronizedCenterThread = new LocalCacheSynchronizedCenterThread(service, jedis, consumer);
             threadPool.execute(cacheSynchronizedCenterThread);
             subscribeServiceSet.add(service);
+            log.info("local cache synchronized center subscribe service [{}], serverId:{}, clientId:{}", service, IPorServerConfig.getServerId(service), CLIENT_ID);
             // 销毁订阅线程钩子
             Runtime.getRuntime().addShutdownHook(new Thread() {
                 @Override
@@ -77,6 +105,7 @@ public class LocalCacheSynchronizedCenter {
                         cacheSynchronizedCenterThread.flag = false;
                         cacheSynchronizedCenterThread.interrupt();
                         cacheSynchronizedCenterThread.join();
+                        consumer.shutdown();
                         log.info("{} was closed", cacheSynchronizedCenterThread.getName());
                     } catch (InterruptedException e) {
                         log.error("Thread was Interrupted, cause by:{}", Throwables.getStackTraceAsString(e));
@@ -87,62 +116,118 @@ public class LocalCacheSynchronizedCenter {
             });
         }
 
-        LocalMap<String, ? extends Serializable> cache = LOCAL_CACHES.get(localCache.getName());
-        if (cache == null) {
-            LOCAL_CACHES.put(localCache.getName(), localCache);
-            log.info("add Local Cache [" + localCache.getName() + "] to cache maps. And cache maps's size is" + LOCAL_CACHES.size());
+        int groupId = SyncFrame.groupId(localCache.getName());
+        List<LocalMap<? extends Serializable, ? extends Serializable>> caches = LOCAL_CACHES.get(groupId);
+        if (caches == null) {
+            caches = new CopyOnWriteArrayList<>();
+            LOCAL_CACHES.put(groupId, caches);
+        }
+        for (LocalMap<? extends Serializable, ? extends Serializable> cache : caches) {
+            if (cache.getName().equals(localCache.getName())) {
+                return;
+            }
+        }
+        if (!caches.isEmpty()) {
+            log.warn("Local Cache [{}] has the same group id with {}, they will be invalidated together.", localCache.getName(), caches.get(0).getName());
         }
+        caches.add(localCache);
+        log.info("add Local Cache [" + localCache.getName() + "] to cache maps. And cache maps's size is" + LOCAL_CACHES.size());
     }
 
     /**
-     * 消费消息
+     * 本地缓存失效通知消费者的运行指标
      *
-     * @param message 消息
+     * @param service 服务名称
+     * @return 未订阅该服务时返回null
      */
-    private static void consume(String message) {
-        if (message.isEmpty()) {
-            log.error("RedisMap consume error message:{}", message);
+    public static ConsumerMetrics getConsumerMetrics(String service) {
+        InvalidationConsumer consumer = CONSUMERS.get(service);
+        return consumer == null ? null : consumer.metrics();
+    }
+
+    /**
+     * 解析消息并投递到消费者(在订阅线程中执行)
+     *
+     * @param message 消息帧
+     */
+    private static void consume(InvalidationConsumer consumer, byte[] message) {
+        SyncFrame frame;
+        try {
+            frame = SyncFrame.decode(message);
+        } catch (CodecException e) {
+            log.error("RedisMap consume error message, cause by:{}", e.getMessage());
             return;
         }
-        MsgVo msg = gson.fromJson(message, MsgVo.class);
-        if (CLIENT_ID.equals(msg.getClientId())) {
+        if (frame == null) {
+            log.error("RedisMap consume error message, length:{}", message == null ? 0 : message.length);
+            return;
+        }
+        if (CLIENT_ID == frame.getClientId()) {
             return;//不消费自己发布的消息
         }
-        LocalMap<String, ? extends Serializable> localCache = LOCAL_CACHES.get(msg.getGroupName());
-        if (localCache != null) {
-            if (Method.put.equals(msg.getMethod()) || Method.remove.equals(msg.getMethod())) {
-                localCache.remove(msg.getKey());
-                log.info("local cache consume message:{}", message);
-            } else if (Method.clear.equals(msg.getMethod())) {
-                localCache.clear();
-                log.info("local cache consume message:{}", message);
-            } else {
-                log.info("local cache can not consume message:{}", message);
-            }
+        List<LocalMap<? extends Serializable, ? extends Serializable>> caches = LOCAL_CACHES.get(frame.getGroupId());
+        if (caches == null) {
+            return;
         }
+        consumer.submit(caches, frame);
+        log.debug("local cache consume {} of group id [{}], keys:{}", frame.getMethod(), frame.getGroupId(), frame.getKeys().size());
     }
 
     /**
-     * 发布消息
+     * 发布消息(异步合并发送, 不阻塞调用线程)
      *
      * @param service   服务名称
      * @param groupName Map名称
      * @param method    方法名称
-     * @param key       键值
+     * @param key       经keyCodec编码后的键值(clear时为null)
      */
-    public static <K extends Serializable> void publish(IJedis jedis, String service, String groupName, Method method, K key) {
-        try {
-            MsgVo msg = new MsgVo(CLIENT_ID, IPorServerConfig.getServerId(service), method, groupName, ByteObjectConvertUtil.getBytesFromObject(key));
-            String json = gson.toJson(msg);
-            jedis.publish(buildSynchronizedTopic(service), json);
-            log.info("local cache publish message:{} ", json);
-        } catch (Exception e) {
-            log.error("local cache publish error,cause by:{},stackTrace:{}", e.getMessage(), e.getStackTrace());
+    public static void publish(IJedis jedis, String service, String groupName, Method method, byte[] key) {
+        if (Method.clear.equals(method)) {
+            publisher.clear(jedis, service, groupName);
+        } else if (key != null) {
+            publisher.invalidate(jedis, service, groupName, Collections.singletonList(key));
         }
     }
 
-    private static String buildSynchronizedTopic(String service) {
-        return TOPIC_SYNCHRONIZED_LOCAL_CACHE_PREFIX + service;
+    /**
+     * 批量发布消息(异步合并发送, 不阻塞调用线程)
+     *
+     * @param service   服务名称
+     * @param groupName Map名称
+     * @param method    方法名称
+     * @param keys      经keyCodec编码后的键值列表
+     */
+    public static void publish(IJedis jedis, String service, String groupName, Method method, Collection<byte[]> keys) {
+        publisher.invalidate(jedis, service, groupName, keys);
+    }
+
+    /**
+     * 移除本进程内分组的本地缓存(不经过本地缓存写入redis的操作, 如异步写入, 用于同时失效本进程的本地缓存)
+     *
+     * @param groupName Map名称
+     * @param keys      经keyCodec编码后的键值列表
+     */
+    public static void evictLocal(String groupName, List<byte[]> keys) {
+        List<LocalMap<? extends Serializable, ? extends Serializable>> caches = LOCAL_CACHES.get(SyncFrame.groupId(groupName));
+        if (caches == null) {
+            return;
+        }
+        for (LocalMap<? extends Serializable, ? extends Serializable> cache : caches) {
+            if (cache.getName().equals(groupName)) {
+                cache.removeEncodedKeys(keys);
+            }
+        }
+    }
+
+    /**
+     * 立即发送所有尚在合并窗口内的失效通知
+     */
+    public static void flush() {
+        publisher.flush();
+    }
+
+    private static byte[] buildSynchronizedTopic(String service) {
+        return SafeEncoder.encode(TOPIC_SYNCHRONIZED_LOCAL_CACHE_PREFIX + service);
     }
 
     /**
@@ -152,15 +237,15 @@ public class LocalCacheSynchronizedCenter {
 
         volatile boolean flag = true;
         private final String serviceName;
-        private final ExecutorService threadPool;
         private final IJedis jedis;
+        private final InvalidationConsumer consumer;
 
-        LocalCacheSynchronizedCenterThread(String serviceName, IJedis jedis) {
-            this.setName("Thread-" + buildSynchronizedTopic(serviceName));
+        LocalCacheSynchronizedCenterThread(String serviceName, IJedis jedis, InvalidationConsumer consumer) {
+            this.setName("Thread-" + TOPIC_SYNCHRONIZED_LOCAL_CACHE_PREFIX + serviceName);
             this.setDaemon(true);
             this.serviceName = serviceName;
             this.jedis = jedis;
-            threadPool = Executors.newCachedThreadPool();
+            this.consumer = consumer;
         }
 
         @Override
@@ -172,8 +257,7 @@ public class LocalCacheSynchronizedCenter {
                     log.error("Sleep subscribe thread was interrupted,cause by:{}", Throwables.getStackTraceAsString(e));
                 }
             }
-            threadPool.shutdown();
-            log.info("{}: Consumer Thread Pool has been shutdown now.", getName());
+            log.info("{}: subscribe thread has been stopped now.", getName());
         }
 
         /**
@@ -182,16 +266,11 @@ public class LocalCacheSynchronizedCenter {
         private void subscribe() throws InterruptedException {
             try {
                 log.info("RedisMap subscribe start... ");
-                jedis.subscribe(new AbstractJedisPubSub() {
+                jedis.subscribe(new BinaryJedisPubSub() {
                     @Override
-                    public void onMessage(String channel, final String message) {
+                    public void onMessage(byte[] channel, byte[] message) {
                         try {
-                            threadPool.execute(new Runnable() {
-                                @Override
-                                public void run() {
-                                    consume(message);
-                                }
-                            });
+                            consume(consumer, message);
                         } catch (Exception e) {
                             log.error("RedisMap consume error,cause by：{}", Throwables.getStackTraceAsString(e));
                         }
@@ -0,0 +1,30 @@
+package com.darkidiot.redis.subpub;
+
+/**
+ * 失效通知消费队列积压超过上限时的处理策略
+ *
+ * @author darkidiot
+ */
+public enum OverflowPolicy {
+    /**
+     * 直接清空消息所属分组的本地缓存(默认, 牺牲命中率保证不读到旧值)
+     */
+    clear_group,
+    /**
+     * 阻塞订阅线程直到队列有空位(积压会转移到redis的客户端输出缓冲区)
+     */
+    block,
+    /**
+     * 丢弃消息(本地缓存可能在过期前读到旧值)
+     */
+    discard;
+
+    static OverflowPolicy of(String name) {
+        for (OverflowPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+        return clear_group;
+    }
+}
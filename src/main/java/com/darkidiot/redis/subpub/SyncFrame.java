@@ -0,0 +1,99 @@
+package com.darkidiot.redis.subpub;
+
+import com.darkidiot.redis.codec.Input;
+import com.darkidiot.redis.codec.Output;
+import com.darkidiot.redis.common.Method;
+import com.darkidiot.redis.exception.CodecException;
+import com.google.common.hash.Hashing;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 本地缓存同步消息帧
+ * <pre>
+ * | version(1) | method(1) | clientId(8) | groupId(4) | keyCount(varint) | [keyLength(varint) keyBytes]... |
+ * </pre>
+ * <ul>
+ * <li>groupId为缓存分组名称的murmur3哈希, 各节点无需协商即可得到相同的值; 哈希冲突时只会多失效本地缓存, 不影响正确性.</li>
+ * <li>key为keyCodec编码后的原始字节, 不再做hex/base64转换.</li>
+ * <li>版本号不匹配的消息直接丢弃, 便于协议演进.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@Getter
+final class SyncFrame {
+
+    static final byte VERSION = 1;
+
+    private static final byte METHOD_INVALIDATE = 1;
+    private static final byte METHOD_CLEAR = 2;
+    /**
+     * version + method + clientId + groupId
+     */
+    private static final int HEADER_SIZE = 14;
+
+    private final long clientId;
+    private final Method method;
+    private final int groupId;
+    private final List<byte[]> keys;
+
+    SyncFrame(long clientId, Method method, int groupId, List<byte[]> keys) {
+        this.clientId = clientId;
+        this.method = method;
+        this.groupId = groupId;
+        this.keys = keys == null ? Collections.<byte[]>emptyList() : keys;
+    }
+
+    static int groupId(String groupName) {
+        return Hashing.murmur3_32().hashString(groupName, StandardCharsets.UTF_8).asInt();
+    }
+
+    byte[] encode() {
+        int capacity = HEADER_SIZE + 5;
+        for (byte[] key : keys) {
+            capacity += key.length + 5;
+        }
+        Output output = new Output(capacity)
+                .writeByte(VERSION)
+                .writeByte(Method.clear.equals(method) ? METHOD_CLEAR : METHOD_INVALIDATE)
+                .writeLong(clientId)
+                .writeInt(groupId)
+                .writeVarInt(keys.size());
+        for (byte[] key : keys) {
+            output.writeLengthPrefixed(key);
+        }
+        return output.toBytes();
+    }
+
+    /**
+     * @return 版本号不匹配时返回null
+     */
+    static SyncFrame decode(byte[] bytes) throws CodecException {
+        if (bytes == null || bytes.length < HEADER_SIZE || bytes[0] != VERSION) {
+            return null;
+        }
+        Input input = new Input(bytes, 1, bytes.length - 1);
+        byte methodCode = input.readByte();
+        Method method;
+        if (methodCode == METHOD_CLEAR) {
+            method = Method.clear;
+        } else if (methodCode == METHOD_INVALIDATE) {
+            method = Method.remove;
+        } else {
+            throw new CodecException("Unknown local cache sync method:" + methodCode);
+        }
+        long clientId = input.readLong();
+        int groupId = input.readInt();
+        int count = input.readVarInt();
+        List<byte[]> keys = new ArrayList<>(Math.min(count, bytes.length));
+        for (int i = 0; i < count; i++) {
+            keys.add(input.readLengthPrefixed());
+        }
+        return new SyncFrame(clientId, method, groupId, keys);
+    }
+}
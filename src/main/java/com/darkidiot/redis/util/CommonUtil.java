@@ -15,8 +15,8 @@ import redis.clients.util.Pool;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class CommonUtil {
 
-    public static <T> T invoke(Callback<T> call, Pool pool) {
-        try (Jedis jedis = (Jedis) pool.getResource()) {
+    public static <T> T invoke(Callback<T> call, Pool<Jedis> pool) {
+        try (Jedis jedis = pool.getResource()) {
             return call.call(jedis);
         }
     }
@@ -0,0 +1,22 @@
+package com.darkidiot.redis.util;
+
+import com.darkidiot.redis.jedis.IJedis;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Redis Cluster hash tag
+ * <ul>
+ * <li>集群模式下将名称包装为{name}, 以该名称为前缀的一组key(如优先级队列的多个list)只按name计算slot, 从而位于同一个节点, 可以在一个命令或事务中访问.</li>
+ * <li>非集群模式下原样返回, 保持原有的key格式.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class HashTags {
+
+    public static String tag(String name, IJedis jedis) {
+        return jedis.isCluster() ? "{" + name + "}" : name;
+    }
+}
@@ -0,0 +1,48 @@
+package com.darkidiot.redis.util;
+
+import com.google.common.hash.Hashing;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Lua脚本
+ * <ul>
+ * <li>SHA1在本地计算并缓存, 执行时优先EVALSHA, 只传输40字节的摘要.</li>
+ * <li>redis重启或SCRIPT FLUSH导致NOSCRIPT时回退为EVAL(同时将脚本重新载入redis的脚本缓存).</li>
+ * <li>可以通过{@link #load}预先载入, 使首次执行即命中EVALSHA.</li>
+ * </ul>
+ *
+ * @author darkidiot
+ */
+public final class LuaScript {
+
+    private final byte[] script;
+    private final byte[] sha;
+
+    public LuaScript(String script) {
+        this.script = SafeEncoder.encode(script);
+        this.sha = SafeEncoder.encode(Hashing.sha1().hashString(script, StandardCharsets.UTF_8).toString());
+    }
+
+    /**
+     * SCRIPT LOAD(集群模式下只载入到所在节点, 其他节点首次执行时回退为EVAL)
+     */
+    public void load(Jedis jedis) {
+        jedis.scriptLoad(script);
+    }
+
+    public Object eval(Jedis jedis, List<byte[]> keys, List<byte[]> args) {
+        try {
+            return jedis.evalsha(sha, keys, args);
+        } catch (JedisDataException e) {
+            if (e.getMessage() == null || !e.getMessage().startsWith("NOSCRIPT")) {
+                throw e;
+            }
+            return jedis.eval(script, keys, args);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.darkidiot.base;
+
+import com.darkidiot.redis.config.JedisPoolFactory;
+import com.darkidiot.redis.jedis.IJedis;
+import com.darkidiot.redis.jedis.imp.Jedis;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 同一组命令分别在连接池与自动pipeline上执行, 应答应当一致
+ */
+@Slf4j
+public class AutoPipelineTest {
+
+    private static String service = "redis";
+    private static IJedis pooled;
+    private static IJedis pipelined;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        pooled = new Jedis(JedisPoolFactory.getWritePool(service), JedisPoolFactory.getReadPool(service), JedisPoolFactory.getInitParam(service));
+        Jedis jedis = new Jedis(JedisPoolFactory.getWritePool(service), JedisPoolFactory.getReadPool(service), JedisPoolFactory.getInitParam(service));
+        jedis.enableAutoPipeline(JedisPoolFactory.getAsyncClient(service));
+        pipelined = jedis;
+    }
+
+    @Test
+    public void testSameReplies() {
+        List<Object> expected = run(pooled, "AutoPipelineTest:pooled:");
+        List<Object> actual = run(pipelined, "AutoPipelineTest:pipelined:");
+        log.info("replies: {}", expected);
+        assertEquals(expected, actual);
+    }
+
+    private static List<Object> run(IJedis jedis, String prefix) {
+        String string = prefix + "string";
+        String counter = prefix + "counter";
+        String hash = prefix + "hash";
+        String zset = prefix + "zset";
+        String list = prefix + "list";
+        String set = prefix + "set";
+        byte[] binaryZset = SafeEncoder.encode(prefix + "binaryZset");
+        byte[] binarySet = SafeEncoder.encode(prefix + "binarySet");
+        jedis.del(string);
+        jedis.del(counter);
+        jedis.del(hash);
+        jedis.del(zset);
+        jedis.del(list);
+        jedis.del(binaryZset);
+        jedis.del(set);
+        jedis.del(binarySet);
+
+        List<Object> replies = new ArrayList<>();
+        replies.add(jedis.set(string, "v"));
+        replies.add(jedis.get(string));
+        replies.add(jedis.exists(string));
+        replies.add(jedis.setnx(string, "other"));
+        replies.add(jedis.expire(string, 100));
+        replies.add(jedis.ttl(string));
+        replies.add(jedis.incr(counter));
+        replies.add(jedis.incrBy(counter, 5L));
+        replies.add(jedis.decr(counter));
+        replies.add(jedis.decrBy(counter, 2L));
+        replies.add(jedis.hset(hash, "field", "value"));
+        replies.add(jedis.hget(hash, "field"));
+        replies.add(jedis.hget(hash, "missing"));
+        replies.add(jedis.hexists(hash, "field"));
+        replies.add(jedis.hincrBy(hash, "count", 3L));
+        replies.add(jedis.hdel(hash, "field"));
+        replies.add(jedis.zadd(zset, 1.5, "member"));
+        replies.add(jedis.zscore(zset, "member"));
+        replies.add(jedis.zadd(binaryZset, 2.5, SafeEncoder.encode("member")));
+        replies.add(jedis.zscore(binaryZset, SafeEncoder.encode("member")));
+        replies.add(jedis.zcard(binaryZset));
+        replies.add(jedis.zrem(binaryZset, SafeEncoder.encode("member")));
+        replies.add(jedis.lpush(list, "a"));
+        replies.add(jedis.rpush(list, "b"));
+        replies.add(jedis.llen(list));
+        replies.add(jedis.lindex(list, 1));
+        replies.add(jedis.lpop(list));
+        replies.add(jedis.rpop(list));
+        replies.add(jedis.sadd(set, "member"));
+        replies.add(jedis.sadd(set, "member"));
+        replies.add(jedis.scard(set));
+        replies.add(jedis.sadd(binarySet, SafeEncoder.encode("member")));
+        replies.add(jedis.scard(binarySet));
+        replies.add(jedis.del(string));
+        replies.add(Arrays.asList(jedis.get(string), jedis.exists(string)));
+        return replies;
+    }
+}
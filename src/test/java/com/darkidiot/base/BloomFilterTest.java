@@ -0,0 +1,57 @@
+package com.darkidiot.base;
+
+import com.darkidiot.redis.guard.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@Slf4j
+public class BloomFilterTest {
+
+    private static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put(key("known-" + i));
+        }
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertTrue(filter.mightContain(key("known-" + i)));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain(key("unknown-" + i))) {
+                falsePositives++;
+            }
+        }
+        log.info("bits:{}, hashes:{}, false positives:{}/100000, expected fpp:{}", filter.bitSize(), filter.hashFunctions(), falsePositives, filter.expectedFpp());
+        Assert.assertTrue(falsePositives < 2000);
+    }
+
+    @Test
+    public void testMergeRedisBitmap() {
+        BloomFilter local = new BloomFilter(1000, 0.01);
+        BloomFilter remote = new BloomFilter(1000, 0.01);
+        remote.put(key("remote"));
+        Assert.assertFalse(local.mightContain(key("remote")));
+
+        // 按redis SETBIT的位序(每个字节高位在前)构造位图
+        List<Long> bits = remote.drainDirty();
+        Assert.assertEquals(remote.bitCount(), bits.size());
+        byte[] bitmap = new byte[(int) ((remote.bitSize() + 7) >>> 3)];
+        for (long bit : bits) {
+            bitmap[(int) (bit >>> 3)] |= (byte) (0x80 >>> (bit & 7));
+        }
+        local.merge(bitmap);
+        Assert.assertTrue(local.mightContain(key("remote")));
+        // 合并进来的位不需要再推送
+        Assert.assertTrue(local.drainDirty().isEmpty());
+        Assert.assertTrue(remote.drainDirty().isEmpty());
+    }
+}
@@ -2,9 +2,17 @@ package com.darkidiot.base;
 
 import com.darkidiot.redis.IRedisMap;
 import com.darkidiot.redis.Redis;
+import com.darkidiot.redis.config.JedisPoolFactory;
+import com.darkidiot.redis.config.RedisInitParam;
+import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 @Slf4j
 public class CacheTest {
 
@@ -32,4 +40,46 @@ public class CacheTest {
         }
         System.out.println(Redis.<String, String>use().get("123"));
     }
+
+    @Test
+    public void batchCache() {
+        IRedisMap<String, String> cache = Redis.create().setGroupName("batch").build();
+        Map<String, String> entries = Maps.newLinkedHashMap();
+        for (int i = 0; i < 2000; i++) {
+            entries.put("batchKey" + i, "batchValue" + i);
+        }
+        log.info("putAll:{}", cache.putAll(entries).size());
+        log.info("containsAll:{}", cache.containsAll(entries.keySet()).values());
+        log.info("removeAll:{}", cache.removeAll(entries.keySet()).size());
+    }
+
+    @Test
+    public void multiGet() {
+        IRedisMap<String, String> cache = Redis.create().setGroupName("multiGet").build();
+        cache.put("k1", "v1");
+        cache.put("k3", "v3");
+        List<String> keys = Arrays.asList("k1", "k2", "k3");
+        log.info("getList:{}", cache.getList(keys));
+        log.info("getAll:{}", cache.getAll(keys));
+    }
+
+    @Test
+    public void sharedLocalCache() {
+        RedisInitParam initParam = JedisPoolFactory.getInitParam("redis");
+        Boolean openLocalCache = initParam.getOpenLocalCache();
+        initParam.setOpenLocalCache(true);
+        try {
+            IRedisMap<String, String> first = Redis.use("redis", "shared");
+            IRedisMap<String, String> second = Redis.use("redis", "shared");
+            first.put("sharedKey", "v1");
+            Assert.assertEquals("v1", second.get("sharedKey"));
+            // 同一分组的代理共用本地缓存, 经任一代理写入后其他代理不会读到旧值
+            first.put("sharedKey", "v2");
+            Assert.assertEquals("v2", second.get("sharedKey"));
+            second.remove("sharedKey");
+            Assert.assertNull(first.get("sharedKey"));
+        } finally {
+            initParam.setOpenLocalCache(openLocalCache);
+        }
+    }
 }
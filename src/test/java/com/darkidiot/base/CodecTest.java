@@ -0,0 +1,124 @@
+package com.darkidiot.base;
+
+import com.darkidiot.redis.codec.Codec;
+import com.darkidiot.redis.codec.Codecs;
+import com.darkidiot.redis.util.ByteObjectConvertUtil;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class CodecTest {
+
+    @Data
+    public static class User implements Serializable {
+        private long id;
+        private String name;
+        private int age;
+        private boolean vip;
+        private TimeUnit unit;
+        private ArrayList<String> tags;
+        private HashMap<String, Integer> scores;
+        private User friend;
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class Tags extends ArrayList<String> {
+        private String owner;
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class Scores extends HashMap<String, Integer> {
+        private String owner;
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class Moment extends Date {
+        private String label;
+    }
+
+    private User newUser() {
+        User user = new User();
+        user.setId(10086L);
+        user.setName("darkidiot-测试");
+        user.setAge(18);
+        user.setVip(true);
+        user.setUnit(TimeUnit.SECONDS);
+        user.setTags(Lists.newArrayList("a", "b", null));
+        HashMap<String, Integer> scores = Maps.newHashMap();
+        scores.put("math", 100);
+        user.setScores(scores);
+        User friend = new User();
+        friend.setName("friend");
+        user.setFriend(friend);
+        return user;
+    }
+
+    @Test
+    public void testCompactCodec() {
+        Codec<Object> codec = Codecs.compact();
+        User user = newUser();
+        byte[] bytes = codec.encode(user);
+        Assert.assertEquals(user, codec.decode(bytes));
+        log.info("compact:{} bytes, legacy hex:{} bytes", bytes.length, ByteObjectConvertUtil.getBytesFromObject(user).length());
+
+        Assert.assertEquals("redisKey", codec.decode(codec.encode("redisKey")));
+        Assert.assertEquals(-1L, codec.decode(codec.encode(-1L)));
+        Assert.assertNull(codec.decode(codec.encode(null)));
+    }
+
+    @Test
+    public void testCyclicGraphFallback() {
+        Codec<Object> codec = Codecs.compact();
+        User user = newUser();
+        user.getFriend().setFriend(user);
+        User decoded = (User) codec.decode(codec.encode(user));
+        Assert.assertSame(decoded, decoded.getFriend().getFriend());
+    }
+
+    @Test
+    public void testJdkSubclasses() {
+        Codec<Object> codec = Codecs.compact();
+        Tags tags = new Tags();
+        tags.add("a");
+        tags.add("b");
+        tags.setOwner("darkidiot");
+        Assert.assertEquals(tags, codec.decode(codec.encode(tags)));
+        Assert.assertEquals("darkidiot", ((Tags) codec.decode(codec.encode(tags))).getOwner());
+
+        Scores scores = new Scores();
+        scores.put("math", 100);
+        scores.setOwner("darkidiot");
+        Assert.assertEquals(scores, codec.decode(codec.encode(scores)));
+
+        // 父类的状态由JDK类自身的序列化逻辑维护(如Date的transient fastTime), 不能按字段编码
+        Moment moment = new Moment();
+        moment.setTime(10086L);
+        moment.setLabel("start");
+        Moment decoded = (Moment) codec.decode(codec.encode(moment));
+        Assert.assertEquals(10086L, decoded.getTime());
+        Assert.assertEquals("start", decoded.getLabel());
+    }
+
+    @Test
+    public void testPrimitiveCodecs() {
+        Assert.assertEquals(Integer.MIN_VALUE, (int) Codecs.varInt().decode(Codecs.varInt().encode(Integer.MIN_VALUE)));
+        Assert.assertEquals(1, Codecs.varInt().encode(-1).length);
+        Assert.assertEquals(Long.MAX_VALUE, (long) Codecs.varLong().decode(Codecs.varLong().encode(Long.MAX_VALUE)));
+        Assert.assertEquals("中文", Codecs.string().decode(Codecs.string().encode("中文")));
+        Assert.assertSame(Codecs.string(), Codecs.forName("string"));
+    }
+}
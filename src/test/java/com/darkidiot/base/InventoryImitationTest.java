@@ -4,6 +4,8 @@ import com.darkidiot.redis.config.JedisPoolFactory;
 import com.darkidiot.redis.jedis.IJedis;
 import com.darkidiot.redis.jedis.imp.Jedis;
 import com.darkidiot.redis.lock.Lock;
+import com.darkidiot.redis.lock.ReadWriteLock;
+import com.darkidiot.redis.lock.imp.ReadWriteRedisLock;
 import com.darkidiot.redis.lock.imp.RigorousRedisLock;
 import com.darkidiot.redis.lock.imp.StrictRedisLock;
 import lombok.extern.slf4j.Slf4j;
@@ -93,4 +95,38 @@ public class InventoryImitationTest {
             e.printStackTrace();
         }
     }
+
+    @Test
+    public void testReadWriteLock4Inventory() {
+        final ReadWriteLock rwLock = new ReadWriteRedisLock(jedis, "ReadWrite RedisLock");
+        int n = ThreadCount;
+        final CountDownLatch countDownLatch = new CountDownLatch(n);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            // 95%的临界区只读
+            final Lock lock = i % 20 == 0 ? rwLock.writeLock() : rwLock.readLock();
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    lock.lock();
+                    boolean unlockFlag = lock.unlock();
+                    log.info(Thread.currentThread() + ":" + unlockFlag);
+                    countDownLatch.countDown();
+                }
+            }).start();
+        }
+        try {
+            countDownLatch.await();
+            final long spendTime = System.currentTimeMillis() - start;
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    log.info("ReadWrite RedisLock spend time " + spendTime + "ms for " + ThreadCount + " Thread.");
+                }
+            }
+            ));
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
 }
@@ -0,0 +1,49 @@
+package com.darkidiot.base;
+
+import com.darkidiot.redis.metrics.HistogramSnapshot;
+import com.darkidiot.redis.metrics.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+@Slf4j
+public class LatencyHistogramTest {
+
+    private static void assertClose(long expected, long actual) {
+        Assert.assertTrue("expected ~" + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 64 + 1);
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        log.info("{}", snapshot);
+        Assert.assertEquals(100000, snapshot.getCount());
+        Assert.assertEquals(100000, snapshot.getMax());
+        Assert.assertEquals(50000.5, snapshot.getMean(), 0.001);
+        assertClose(50000, snapshot.getP50());
+        assertClose(90000, snapshot.getP90());
+        assertClose(99000, snapshot.getP99());
+        assertClose(99900, snapshot.getP999());
+    }
+
+    @Test
+    public void testSmallValuesAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.snapshot().getP99());
+        for (int i = 0; i < 100; i++) {
+            histogram.record(i % 10);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(4, snapshot.getP50());
+        Assert.assertEquals(9, snapshot.getMax());
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertTrue(histogram.snapshot().getMax() > 100_000_000_000L);
+        histogram.reset();
+        Assert.assertEquals(0, histogram.count());
+        Assert.assertEquals(0, histogram.snapshot().getMax());
+    }
+}
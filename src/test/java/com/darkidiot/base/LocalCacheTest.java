@@ -0,0 +1,277 @@
+package com.darkidiot.base;
+
+import com.darkidiot.redis.EntryConsumer;
+import com.darkidiot.redis.LocalMap;
+import com.darkidiot.redis.loader.BulkLoader;
+import com.darkidiot.redis.loader.Loader;
+import com.darkidiot.redis.local.BoundedLocalCache;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+public class LocalCacheTest {
+
+    @Test
+    public void testBounded() {
+        BoundedLocalCache<Integer, Integer> cache = new BoundedLocalCache<>(1000, 0);
+        for (int i = 0; i < 100000; i++) {
+            cache.put(i, i);
+        }
+        log.info("size after 100000 puts:{}, evictions:{}", cache.size(), cache.evictionCount());
+        Assert.assertTrue(cache.size() <= 1000);
+        Assert.assertEquals(100000 - cache.size(), cache.evictionCount());
+    }
+
+    @Test
+    public void testFrequencyAdmission() {
+        BoundedLocalCache<Integer, Integer> cache = new BoundedLocalCache<>(100, 0);
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get(i);
+            }
+        }
+        // 一次性扫描流量不应冲掉热点数据
+        for (int i = 1000; i < 10000; i++) {
+            cache.put(i, i);
+        }
+        int hits = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get(i) != null) {
+                hits++;
+            }
+        }
+        log.info("hot keys retained:{}/50", hits);
+        Assert.assertTrue(hits >= 45);
+    }
+
+    @Test
+    public void testConcurrentReads() throws InterruptedException {
+        final BoundedLocalCache<Integer, Integer> cache = new BoundedLocalCache<>(1000, 0);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        final AtomicInteger wrong = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        int key = (i * 31 + seed) % 2000;
+                        if (i % 10 == 0) {
+                            cache.put(key, key);
+                        }
+                        Integer value = cache.get(key);
+                        if (value != null && value != key) {
+                            wrong.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // 读取不加锁时读缓冲的应用与淘汰仍保持容量上限
+        Assert.assertEquals(0, wrong.get());
+        Assert.assertTrue(cache.size() <= 1000);
+    }
+
+    @Test
+    public void testExpire() throws InterruptedException {
+        BoundedLocalCache<String, String> cache = new BoundedLocalCache<>(100, 50);
+        cache.put("k", "v");
+        Assert.assertEquals("v", cache.get("k"));
+        Thread.sleep(100);
+        Assert.assertNull(cache.get("k"));
+        Assert.assertFalse(cache.containsKey("k"));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(1, cache.expirationCount());
+        Assert.assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    public void testGroupIsolation() {
+        LocalMap<String, String> group1 = new LocalMap<>("group1");
+        LocalMap<String, String> group2 = new LocalMap<>("group2");
+        group1.put("k", "v1");
+        group2.put("k", "v2");
+        group1.clear();
+        Assert.assertNull(group1.get("k"));
+        Assert.assertEquals("v2", group2.get("k"));
+        Assert.assertEquals(1, group2.size());
+    }
+
+    public static class PlainKey implements Serializable {
+        private int id;
+
+        public PlainKey() {
+        }
+
+        PlainKey(int id) {
+            this.id = id;
+        }
+    }
+
+    @Test
+    public void testKeyWithoutEquals() {
+        LocalMap<PlainKey, String> map = new LocalMap<>("plainKey");
+        map.put(new PlainKey(1), "v1");
+        // 未重写equals的key按编码内容比较
+        Assert.assertEquals("v1", map.get(new PlainKey(1)));
+        Assert.assertNull(map.get(new PlainKey(2)));
+    }
+
+    @Test
+    public void testRemoveEncodedKeys() {
+        LocalMap<Integer, String> map = new LocalMap<>("encodedKeys");
+        List<byte[]> encoded = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, "v" + i);
+            if (i % 2 == 0) {
+                encoded.add(map.getKeyCodec().encode(i));
+            }
+        }
+        map.removeEncodedKeys(encoded);
+        Assert.assertEquals(50, map.size());
+        Assert.assertNull(map.get(0));
+        Assert.assertEquals("v1", map.get(1));
+    }
+
+    @Test
+    public void testLoaderSingleFlight() throws InterruptedException {
+        final LocalMap<String, String> map = new LocalMap<>("loader");
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final Loader<String, String> loader = new Loader<String, String>() {
+            @Override
+            public String load(String key) throws Exception {
+                loads.incrementAndGet();
+                Thread.sleep(100);
+                return "v-" + key;
+            }
+        };
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    Assert.assertEquals("v-k", map.get("k", loader));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // 并发回源只执行一次, 且结果已写入本地缓存
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals("v-k", map.get("k"));
+
+        Map<String, String> all = map.getAll(Arrays.asList("k", "a", "b"), new BulkLoader<String, String>() {
+            @Override
+            public Map<String, String> loadAll(Collection<String> keys) throws Exception {
+                Assert.assertEquals(Arrays.asList("a", "b"), new ArrayList<>(keys));
+                Map<String, String> loaded = new HashMap<>();
+                loaded.put("a", "v-a");
+                return loaded;
+            }
+        });
+        Assert.assertEquals(2, all.size());
+        Assert.assertEquals("v-a", all.get("a"));
+        Assert.assertFalse(all.containsKey("b"));
+    }
+
+    @Test
+    public void testTombstone() throws InterruptedException {
+        LocalMap<String, String> map = new LocalMap<>("tombstone");
+        map.putTombstone("missing", 100);
+        Assert.assertTrue(map.isTombstone("missing"));
+        Assert.assertNull(map.get("missing"));
+        Assert.assertFalse(map.contains("missing"));
+        // 写入后墓碑被覆盖
+        map.put("missing", "v");
+        Assert.assertFalse(map.isTombstone("missing"));
+        Assert.assertEquals("v", map.get("missing"));
+
+        map.putTombstone("expired", 50);
+        Thread.sleep(100);
+        Assert.assertFalse(map.isTombstone("expired"));
+        // 失效通知同样移除墓碑
+        map.putTombstone("invalidated", 1000);
+        map.removeEncodedKeys(Collections.singletonList(map.getKeyCodec().encode("invalidated")));
+        Assert.assertFalse(map.isTombstone("invalidated"));
+    }
+
+    @Test
+    public void testEntryTtl() throws InterruptedException {
+        LocalMap<String, String> map = new LocalMap<>("entryTtl");
+        map.put("short", "v1", 50, TimeUnit.MILLISECONDS);
+        map.put("long", "v2", 1, TimeUnit.HOURS);
+        map.put("forever", "v3");
+        Assert.assertEquals("v1", map.get("short"));
+        Thread.sleep(100);
+        Assert.assertNull(map.get("short"));
+        Assert.assertFalse(map.contains("short"));
+        Assert.assertEquals("v2", map.get("long"));
+        Assert.assertEquals("v3", map.get("forever"));
+        // 普通写入覆盖原有的过期时间
+        map.put("short", "v4");
+        Assert.assertEquals("v4", map.get("short"));
+    }
+
+    @Test
+    public void testScan() {
+        LocalMap<Integer, String> map = new LocalMap<>("scan");
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.put(i, "v" + i);
+        }
+        map.putAll(expected);
+        map.putTombstone(-1, 1000);
+
+        Map<Integer, String> scanned = new HashMap<>();
+        Iterator<Map.Entry<Integer, String>> iterator = map.scan(100);
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, String> entry = iterator.next();
+            Assert.assertNull(scanned.put(entry.getKey(), entry.getValue()));
+        }
+        Assert.assertEquals(expected, scanned);
+
+        final AtomicInteger count = new AtomicInteger();
+        map.forEach(100, new EntryConsumer<Integer, String>() {
+            @Override
+            public void accept(Integer key, String value) {
+                count.incrementAndGet();
+            }
+        });
+        Assert.assertEquals(expected.size(), count.get());
+    }
+}
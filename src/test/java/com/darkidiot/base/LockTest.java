@@ -5,6 +5,8 @@ import com.darkidiot.redis.config.JedisPoolFactory;
 import com.darkidiot.redis.jedis.imp.Jedis;
 import com.darkidiot.redis.lock.Lock;
 import com.darkidiot.redis.lock.RedisLock;
+import com.darkidiot.redis.lock.imp.RedisRateLimiter;
+import com.darkidiot.redis.lock.imp.RedisSemaphore;
 import com.darkidiot.redis.util.UUIDUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.AfterClass;
@@ -12,6 +14,8 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 public class LockTest {
@@ -178,4 +182,62 @@ public class LockTest {
             e1.printStackTrace();
         }
     }
+
+    @Test
+    public void testRedisSemaphore() {
+        final RedisSemaphore semaphore = RedisLock.useRedisSemaphore("Redis Semaphore", 10, 60, 2, "redis");
+        int n = testCount;
+        final CountDownLatch countDownLatch = new CountDownLatch(n);
+        final AtomicInteger acquired = new AtomicInteger();
+        for (int i = 0; i < n; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (semaphore.tryAcquire(1, 10, TimeUnit.SECONDS)) {
+                            acquired.incrementAndGet();
+                            semaphore.release();
+                        }
+                    } finally {
+                        countDownLatch.countDown();
+                    }
+                }
+            }).start();
+        }
+        try {
+            countDownLatch.await();
+            log.info("Redis Semaphore acquired " + acquired.get() + " times for " + n + " Thread.");
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    public void testRedisRateLimiter() {
+        final RedisRateLimiter rateLimiter = RedisLock.useRedisRateLimiter("Redis RateLimiter", 100, 100, 10, "redis");
+        int n = testCount;
+        final CountDownLatch countDownLatch = new CountDownLatch(n);
+        final AtomicInteger acquired = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (rateLimiter.tryAcquire()) {
+                            acquired.incrementAndGet();
+                        }
+                    } finally {
+                        countDownLatch.countDown();
+                    }
+                }
+            }).start();
+        }
+        try {
+            countDownLatch.await();
+            log.info("Redis RateLimiter acquired " + acquired.get() + " of " + n + " in " + (System.currentTimeMillis() - start) + "ms.");
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
 }